@@ -1,5 +1,8 @@
+import ai.edgez.build.ObjectModelSourcesTask
+
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.baselineprofile)
 }
 
 android {
@@ -16,6 +19,8 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // On-device benchmarks run against the debug build; results are for relative comparison only.
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "DEBUGGABLE,EMULATOR"
 
         ndk {
             abiFilters += listOf("arm64-v8a")
@@ -53,6 +58,19 @@ android {
     }
 }
 
+// Object models live in src/main/models and are compiled to constants (ObjectModels), so the app
+// ships no model XML and does no XML parsing for them.
+val generateObjectModels = tasks.register<ObjectModelSourcesTask>("generateObjectModels") {
+    modelsDir.set(layout.projectDirectory.dir("src/main/models"))
+    outputDir.set(layout.buildDirectory.dir("generated/source/objectModels"))
+}
+
+androidComponents {
+    onVariants { variant ->
+        variant.sources.java?.addGeneratedSourceDirectory(generateObjectModels, ObjectModelSourcesTask::getOutputDir)
+    }
+}
+
 dependencies {
     implementation(libs.appcompat)
     implementation(libs.material)
@@ -62,7 +80,10 @@ dependencies {
     implementation(libs.lifecycle.viewmodel.ktx)
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
+    implementation(libs.profileinstaller)
+    baselineProfile(project(":baselineprofile"))
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
+    androidTestImplementation(libs.benchmark.junit4)
 }
\ No newline at end of file
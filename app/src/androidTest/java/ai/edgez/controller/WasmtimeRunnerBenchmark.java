@@ -0,0 +1,146 @@
+package ai.edgez.controller;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+import ai.edgez.controller.wasm.WasmWorkerPool;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * On-device timings for the Wasm bridge. "Cold" includes reading the module from assets on every
+ * call, "warm" reuses bytes already in memory. Both compile and instantiate only on the first call
+ * of each thread and then call into that thread's instance. The benchmark output's allocation count
+ * covers the Java side, {@link #helloSteadyStateNativeHeap()} the native side.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WasmtimeRunnerBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static final int WARMUP_CALLS = 100;
+    private static final int MEASURED_CALLS = 10_000;
+    // Allows for unrelated native allocations by other threads during the run.
+    private static final long MAX_NATIVE_GROWTH_BYTES = 256 * 1024;
+
+    private static final int SCALING_CALLS = 20_000;
+    private static final int SCALING_KEYS = 256;
+
+    private Context context;
+    private WasmtimeRunner runner;
+    private byte[] module;
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        runner = new WasmtimeRunner();
+        try (InputStream in = context.getAssets().open("hello_wasm.wasm");
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            module = out.toByteArray();
+        }
+    }
+
+    @Test
+    public void helloCold() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(runner.invokeHello(context));
+        }
+    }
+
+    @Test
+    public void helloWarm() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(runner.invokeHello(module));
+        }
+    }
+
+    /**
+     * Steady-state calls must not grow the native heap: the module stays compiled and every call
+     * reuses the thread's one instance.
+     */
+    @Test
+    public void helloSteadyStateNativeHeap() {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            runner.invokeHello(module);
+        }
+        long before = Debug.getNativeHeapAllocatedSize();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            runner.invokeHello(module);
+        }
+        long growth = Debug.getNativeHeapAllocatedSize() - before;
+        assertTrue("native heap grew by " + growth + " bytes", growth < MAX_NATIVE_GROWTH_BYTES);
+    }
+
+    /**
+     * Calls per second through {@link WasmWorkerPool} with 1, 2, 4 and 8 workers, spread over many
+     * device keys. Reported as instrumentation status; requires a clear gain once 4 cores exist.
+     */
+    @Test
+    public void helloThroughputScaling() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Bundle status = new Bundle();
+        double single = 0;
+        double best = 0;
+        for (int workers = 1; workers <= 8; workers *= 2) {
+            WasmWorkerPool pool = new WasmWorkerPool(workers);
+            try {
+                runOnPool(pool, pool.size() * WARMUP_CALLS);
+                long start = System.nanoTime();
+                runOnPool(pool, SCALING_CALLS);
+                double perSecond = SCALING_CALLS / ((System.nanoTime() - start) / 1e9);
+                status.putDouble("hello_per_s_" + workers + "_workers", perSecond);
+                Log.i("WasmtimeRunnerBenchmark", String.format(Locale.US, "%d workers: %.0f calls/s",
+                        workers, perSecond));
+                if (workers == 1) {
+                    single = perSecond;
+                }
+                best = Math.max(best, perSecond);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+        if (cores >= 4) {
+            assertTrue("best " + best + " vs single " + single, best > single * 1.5);
+        }
+    }
+
+    private void runOnPool(WasmWorkerPool pool, int calls) throws Exception {
+        List<Future<String>> results = new ArrayList<>(calls);
+        for (int i = 0; i < calls; i++) {
+            results.add(pool.submit("device-" + (i % SCALING_KEYS), () -> runner.invokeHello(module)));
+        }
+        for (Future<String> result : results) {
+            assertNotNull(result.get());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ai.edgez.controller;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.edgez.controller.wasm.WasmHost;
+
+import static org.junit.Assert.*;
+
+/** Rule instances beyond the engine's pool slots, on a device. */
+@RunWith(AndroidJUnit4.class)
+public class WasmtimeRunnerPoolTest {
+
+    private static final int EXTRA_RULES = 8;
+
+    private static final WasmHost IDLE_HOST = new WasmHost() {
+        @Override
+        public int read(int[] paths, int count, double[] out) {
+            return 0;
+        }
+
+        @Override
+        public int write(int[] paths, double[] values, int count) {
+            return 0;
+        }
+
+        @Override
+        public int observe(int objId, int instId, int resId) {
+            return -1;
+        }
+    };
+
+    @Test
+    public void instantiateRule_fallsBackToOnDemandAllocationOncePoolIsFull() throws IOException {
+        WasmtimeRunner runner = new WasmtimeRunner();
+        int slots = runner.poolSlots();
+        long overflowBefore = runner.overflowInstances();
+        long module = runner.compile(readAsset("hello_wasm.wasm"));
+        List<Long> rules = new ArrayList<>();
+        try {
+            for (int i = 0; i < slots + EXTRA_RULES; i++) {
+                long rule = runner.instantiateRule(module, IDLE_HOST);
+                assertNotEquals("rule " + i + " of " + slots + " slots", 0L, rule);
+                rules.add(rule);
+                assertTrue(runner.ruleMemoryBytes(rule) > 0);
+            }
+            if (slots > 0) {
+                assertTrue(runner.overflowInstances() - overflowBefore >= EXTRA_RULES);
+            }
+            // One-shot calls keep working with every slot taken.
+            assertNotNull(runner.invokeHello(readAsset("hello_wasm.wasm")));
+        } finally {
+            for (long rule : rules) {
+                runner.releaseRule(rule);
+            }
+            runner.releaseModule(module);
+        }
+
+        // Released slots are handed out again.
+        long overflowAfter = runner.overflowInstances();
+        module = runner.compile(readAsset("hello_wasm.wasm"));
+        long rule = runner.instantiateRule(module, IDLE_HOST);
+        try {
+            assertNotEquals(0L, rule);
+            assertEquals(overflowAfter, runner.overflowInstances());
+        } finally {
+            runner.releaseRule(rule);
+            runner.releaseModule(module);
+        }
+    }
+
+    private static byte[] readAsset(String name) throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        try (InputStream in = context.getAssets().open(name);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 #include <jni.h>
 #include <android/log.h>
+#include <android/trace.h>
+#include <pthread.h>
+#include <stdatomic.h>
 #include <stdbool.h>
 #include <stdint.h>
+#include <stdio.h>
 #include <stdlib.h>
 #include <string.h>
+#include <time.h>
 
 #include <wasm.h>
 #include <wasmtime.h>
@@ -11,12 +16,88 @@
 #define LOG_TAG "WasmtimeBridge"
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
+#define LOGW(...) __android_log_print(ANDROID_LOG_WARN, LOG_TAG, __VA_ARGS__)
 
-static void throw_java(JNIEnv *env, const char *message) {
-    jclass runtime_exc = (*env)->FindClass(env, "java/lang/RuntimeException");
-    if (runtime_exc != NULL) {
-        (*env)->ThrowNew(env, runtime_exc, message);
+// Must match the PHASE_* indices in WasmtimeRunner.
+enum {
+    PHASE_COMPILE = 0,
+    PHASE_INSTANTIATE = 1,
+    PHASE_CALL = 2,
+};
+
+static int64_t now_ns(void) {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return (int64_t) ts.tv_sec * 1000000000LL + ts.tv_nsec;
+}
+
+// Stores one phase duration into the caller's timings array. Only called on success paths, so no
+// Java exception is pending.
+static void report_phase(JNIEnv *env, jlongArray timings, jsize phase, int64_t start_ns) {
+    if (timings == NULL || (*env)->GetArrayLength(env, timings) <= phase) {
+        return;
     }
+    jlong elapsed = (jlong) (now_ns() - start_ns);
+    (*env)->SetLongArrayRegion(env, timings, phase, 1, &elapsed);
+}
+
+// ---------------------------------------------------------------------------------------------
+// Process-wide state: JNI references looked up once in JNI_OnLoad, and two engines. Rules are
+// instantiated on the shared engine, whose instances come from a pool reserved up front and sized
+// by nativeInit from the number of rules the app expects. Rules beyond the pool's slots, and the
+// one-shot calls, use the on-demand engine, which maps memory for each instance as it is created.
+// ---------------------------------------------------------------------------------------------
+
+// Pool sizing. Every slot reserves POOL_MAX_MEMORY_BYTES of address space up front, so the slot
+// count bounds virtual memory (64 slots * 16 MiB = 1 GiB), not resident memory. Both engines use
+// the same memory settings so that a module compiled for one can be loaded on the other; modules
+// that need a larger linear memory fail to instantiate on either.
+#define POOL_DEFAULT_INSTANCES 64
+#define POOL_MAX_MEMORY_BYTES (16u * 1024u * 1024u)
+#define POOL_KEEP_RESIDENT_BYTES (64u * 1024u)
+#define MEMORY_GUARD_BYTES (64u * 1024u)
+
+static jclass runtime_exception_class;  // global ref
+static jmethodID host_read_id;
+static jmethodID host_write_id;
+static jmethodID host_observe_id;
+
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved) {
+    (void) reserved;
+
+    JNIEnv *env = NULL;
+    if ((*vm)->GetEnv(vm, (void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+    jclass exc = (*env)->FindClass(env, "java/lang/RuntimeException");
+    jclass host = exc == NULL ? NULL : (*env)->FindClass(env, "ai/edgez/controller/wasm/WasmHost");
+    if (host == NULL) {
+        return JNI_ERR;
+    }
+    runtime_exception_class = (jclass) (*env)->NewGlobalRef(env, exc);
+    host_read_id = (*env)->GetMethodID(env, host, "read", "([II[D)I");
+    host_write_id = (*env)->GetMethodID(env, host, "write", "([I[DI)I");
+    host_observe_id = (*env)->GetMethodID(env, host, "observe", "(III)I");
+    (*env)->DeleteLocalRef(env, exc);
+    (*env)->DeleteLocalRef(env, host);
+    if (runtime_exception_class == NULL || host_read_id == NULL || host_write_id == NULL ||
+        host_observe_id == NULL) {
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
+
+static void throw_java(JNIEnv *env, const char *message) {
+    (*env)->ThrowNew(env, runtime_exception_class, message);
+}
+
+// Wasmtime messages are not guaranteed to be NUL-terminated.
+static void throw_message(JNIEnv *env, const wasm_message_t *message) {
+    char text[512];
+    size_t n = message->size < sizeof(text) - 1 ? message->size : sizeof(text) - 1;
+    memcpy(text, message->data, n);
+    text[n] = '\0';
+    throw_java(env, text);
 }
 
 static bool handle_error(JNIEnv *env, wasmtime_error_t *error, wasm_trap_t *trap) {
@@ -24,7 +105,7 @@ static bool handle_error(JNIEnv *env, wasmtime_error_t *error, wasm_trap_t *trap
         wasm_message_t message;
         wasmtime_error_message(error, &message);
         LOGE("Wasmtime error: %.*s", (int) message.size, message.data);
-        throw_java(env, message.data);
+        throw_message(env, &message);
         wasm_byte_vec_delete(&message);
         wasmtime_error_delete(error);
         return true;
@@ -33,7 +114,7 @@ static bool handle_error(JNIEnv *env, wasmtime_error_t *error, wasm_trap_t *trap
         wasm_message_t message;
         wasm_trap_message(trap, &message);
         LOGE("Wasm trap: %.*s", (int) message.size, message.data);
-        throw_java(env, message.data);
+        throw_message(env, &message);
         wasm_byte_vec_delete(&message);
         wasm_trap_delete(trap);
         return true;
@@ -41,257 +122,1484 @@ static bool handle_error(JNIEnv *env, wasmtime_error_t *error, wasm_trap_t *trap
     return false;
 }
 
+static uint32_t pool_instances = POOL_DEFAULT_INSTANCES;  // set by nativeInit before the engine exists
+static pthread_once_t shared_engine_once = PTHREAD_ONCE_INIT;
+static wasm_engine_t *shared_engine = NULL;
+static bool shared_engine_pooled = false;
+static pthread_once_t ondemand_engine_once = PTHREAD_ONCE_INIT;
+static wasm_engine_t *ondemand_engine = NULL;
+static atomic_uint_fast64_t overflow_instances;  // rules placed on the on-demand engine
+
+// Small reservations with explicit bounds checks instead of 4 GiB guard regions per memory.
+static void config_memory(wasm_config_t *config) {
+    wasmtime_config_memory_reservation_set(config, POOL_MAX_MEMORY_BYTES);
+    wasmtime_config_memory_guard_size_set(config, MEMORY_GUARD_BYTES);
+    wasmtime_config_memory_init_cow_set(config, true);
+}
+
+static wasm_engine_t *ondemand_engine_new(void) {
+    wasm_config_t *config = wasm_config_new();
+    if (config == NULL) {
+        return NULL;
+    }
+    config_memory(config);
+    return wasm_engine_new_with_config(config);
+}
+
+static void shared_engine_init(void) {
+    wasm_config_t *config = wasm_config_new();
+    wasmtime_pooling_allocation_config_t *pool = wasmtime_pooling_allocation_config_new();
+    if (config != NULL && pool != NULL) {
+        wasmtime_pooling_allocation_config_total_core_instances_set(pool, pool_instances);
+        wasmtime_pooling_allocation_config_total_memories_set(pool, pool_instances);
+        wasmtime_pooling_allocation_config_total_tables_set(pool, pool_instances);
+        wasmtime_pooling_allocation_config_max_memory_size_set(pool, POOL_MAX_MEMORY_BYTES);
+        wasmtime_pooling_allocation_config_linear_memory_keep_resident_set(pool, POOL_KEEP_RESIDENT_BYTES);
+        wasmtime_pooling_allocation_strategy_set(config, pool);
+        config_memory(config);
+        shared_engine = wasm_engine_new_with_config(config);
+    } else if (config != NULL) {
+        wasm_config_delete(config);
+    }
+    if (pool != NULL) {
+        wasmtime_pooling_allocation_config_delete(pool);
+    }
+    shared_engine_pooled = shared_engine != NULL;
+    if (shared_engine == NULL) {
+        // The pool could not reserve its address space; every instance is allocated on demand.
+        LOGE("Pooling allocator unavailable, using on-demand allocation");
+        shared_engine = ondemand_engine_new();
+    }
+}
+
+static wasm_engine_t *get_shared_engine(JNIEnv *env) {
+    pthread_once(&shared_engine_once, shared_engine_init);
+    if (shared_engine == NULL) {
+        throw_java(env, "Failed to create Wasmtime engine");
+    }
+    return shared_engine;
+}
+
+static void ondemand_engine_init(void) {
+    pthread_once(&shared_engine_once, shared_engine_init);
+    ondemand_engine = shared_engine_pooled ? ondemand_engine_new() : shared_engine;
+}
+
+static wasm_engine_t *get_ondemand_engine(JNIEnv *env) {
+    pthread_once(&ondemand_engine_once, ondemand_engine_init);
+    if (ondemand_engine == NULL) {
+        throw_java(env, "Failed to create Wasmtime engine");
+    }
+    return ondemand_engine;
+}
+
+// ---------------------------------------------------------------------------------------------
+// One-shot calls (runAdd, runHello) reuse a per-thread scratch instance on the on-demand engine, so
+// they never take a pool slot from a rule. The last module is kept compiled and instantiated, and
+// recognised by a fingerprint of its bytes: repeated calls with the same module call straight into
+// the instance, and only different bytes replace the module, its store and its one instance. State
+// a call leaves in the instance's memory or globals is seen by the next call on that thread.
+// ---------------------------------------------------------------------------------------------
+
+typedef struct {
+    wasmtime_store_t *store;  // NULL unless instance is valid
+    wasmtime_instance_t instance;
+    wasmtime_module_t *module;
+    uint64_t fingerprint;
+    jsize length;
+} scratch_t;
+
+static pthread_key_t scratch_key;
+static pthread_once_t scratch_key_once = PTHREAD_ONCE_INIT;
+
+// Deleting the store frees the instance.
+static void scratch_clear(scratch_t *scratch) {
+    if (scratch->store != NULL) {
+        wasmtime_store_delete(scratch->store);
+        scratch->store = NULL;
+    }
+    if (scratch->module != NULL) {
+        wasmtime_module_delete(scratch->module);
+        scratch->module = NULL;
+    }
+}
+
+static void scratch_free(void *value) {
+    scratch_t *scratch = (scratch_t *) value;
+    scratch_clear(scratch);
+    free(scratch);
+}
+
+static void scratch_key_init(void) {
+    pthread_key_create(&scratch_key, scratch_free);
+}
+
+static scratch_t *get_scratch(JNIEnv *env) {
+    pthread_once(&scratch_key_once, scratch_key_init);
+    scratch_t *scratch = (scratch_t *) pthread_getspecific(scratch_key);
+    if (scratch == NULL) {
+        scratch = (scratch_t *) calloc(1, sizeof(scratch_t));
+        if (scratch == NULL || pthread_setspecific(scratch_key, scratch) != 0) {
+            free(scratch);
+            throw_java(env, "Failed to allocate scratch state");
+            return NULL;
+        }
+    }
+    return scratch;
+}
+
+// FNV-1a over the module bytes, read in place without copying the array.
+static bool fingerprint_bytes(JNIEnv *env, jbyteArray wasm_bytes, jsize length, uint64_t *out) {
+    const uint8_t *bytes = (const uint8_t *) (*env)->GetPrimitiveArrayCritical(env, wasm_bytes, NULL);
+    if (bytes == NULL) {
+        return false;
+    }
+    uint64_t hash = 1469598103934665603ULL;
+    for (jsize i = 0; i < length; i++) {
+        hash = (hash ^ bytes[i]) * 1099511628211ULL;
+    }
+    (*env)->ReleasePrimitiveArrayCritical(env, wasm_bytes, (void *) bytes, JNI_ABORT);
+    *out = hash;
+    return true;
+}
+
+// Returns the calling thread's scratch instance of wasm_bytes (no imports), compiling and
+// instantiating only if the bytes differ from the previous call. On failure a Java exception is
+// pending.
+static bool scratch_instantiate(JNIEnv *env, jbyteArray wasm_bytes, jlongArray timings,
+                                wasmtime_context_t **context_out, wasmtime_instance_t *instance) {
+    if (wasm_bytes == NULL) {
+        throw_java(env, "wasmBytes is null");
+        return false;
+    }
+    jsize length = (*env)->GetArrayLength(env, wasm_bytes);
+    if (length <= 0) {
+        throw_java(env, "wasmBytes is empty");
+        return false;
+    }
+    wasm_engine_t *engine = get_ondemand_engine(env);
+    scratch_t *scratch = engine == NULL ? NULL : get_scratch(env);
+    uint64_t fingerprint = 0;
+    if (scratch == NULL || !fingerprint_bytes(env, wasm_bytes, length, &fingerprint)) {
+        return false;
+    }
+
+    if (scratch->store == NULL || scratch->length != length || scratch->fingerprint != fingerprint) {
+        scratch_clear(scratch);
+        jbyte *bytes = (*env)->GetByteArrayElements(env, wasm_bytes, NULL);
+        if (bytes == NULL) {
+            throw_java(env, "Unable to read wasmBytes");
+            return false;
+        }
+        ATrace_beginSection("wasm.compile");
+        int64_t phase_start = now_ns();
+        wasmtime_error_t *error = wasmtime_module_new(engine, (const uint8_t *) bytes, (size_t) length,
+                                                      &scratch->module);
+        ATrace_endSection();
+        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+        if (handle_error(env, error, NULL) || scratch->module == NULL) {
+            return false;
+        }
+        report_phase(env, timings, PHASE_COMPILE, phase_start);
+
+        wasmtime_store_t *store = wasmtime_store_new(engine, NULL, NULL);
+        if (store == NULL) {
+            throw_java(env, "Failed to create Wasmtime store");
+            return false;
+        }
+        wasm_trap_t *trap = NULL;
+        ATrace_beginSection("wasm.instantiate");
+        phase_start = now_ns();
+        error = wasmtime_instance_new(wasmtime_store_context(store), scratch->module, NULL, 0,
+                                      &scratch->instance, &trap);
+        ATrace_endSection();
+        if (handle_error(env, error, trap)) {
+            wasmtime_store_delete(store);
+            return false;
+        }
+        report_phase(env, timings, PHASE_INSTANTIATE, phase_start);
+        scratch->store = store;
+        scratch->fingerprint = fingerprint;
+        scratch->length = length;
+    }
+    *context_out = wasmtime_store_context(scratch->store);
+    *instance = scratch->instance;
+    return true;
+}
+
+static bool get_export(JNIEnv *env, wasmtime_context_t *context, wasmtime_instance_t *instance,
+                       const char *name, wasmtime_extern_kind_t kind, wasmtime_extern_t *out,
+                       const char *missing) {
+    if (!wasmtime_instance_export_get(context, instance, name, strlen(name), out) || out->kind != kind) {
+        throw_java(env, missing);
+        return false;
+    }
+    return true;
+}
+
+static bool call_i32(JNIEnv *env, wasmtime_context_t *context, const wasmtime_func_t *func,
+                     const wasmtime_val_t *params, size_t nparams, int32_t *result) {
+    wasmtime_val_t results[1];
+    memset(results, 0, sizeof(results));
+    wasm_trap_t *trap = NULL;
+    wasmtime_error_t *error = wasmtime_func_call(context, func, params, nparams, results, 1, &trap);
+    if (handle_error(env, error, trap)) {
+        return false;
+    }
+    if (results[0].kind != WASMTIME_I32) {
+        throw_java(env, "Unexpected return type; expected i32");
+        return false;
+    }
+    *result = results[0].of.i32;
+    return true;
+}
+
 JNIEXPORT jint JNICALL
 Java_ai_edgez_controller_WasmtimeRunner_runAdd(
         JNIEnv *env,
         jobject thiz,
         jbyteArray wasm_bytes,
         jint a,
-        jint b) {
+        jint b,
+        jlongArray timings) {
     (void) thiz;
 
-    if (wasm_bytes == NULL) {
-        throw_java(env, "wasmBytes is null");
+    wasmtime_context_t *context = NULL;
+    wasmtime_instance_t instance;
+    wasmtime_extern_t export_func;
+    if (!scratch_instantiate(env, wasm_bytes, timings, &context, &instance) ||
+        !get_export(env, context, &instance, "add", WASMTIME_EXTERN_FUNC, &export_func,
+                    "Exported function 'add' not found in module")) {
         return -1;
     }
 
-    jsize length = (*env)->GetArrayLength(env, wasm_bytes);
-    if (length <= 0) {
-        throw_java(env, "wasmBytes is empty");
-        return -1;
-    }
+    wasmtime_val_t params[2];
+    params[0].kind = WASMTIME_I32;
+    params[0].of.i32 = a;
+    params[1].kind = WASMTIME_I32;
+    params[1].of.i32 = b;
 
-    jboolean is_copy = JNI_FALSE;
-    jbyte *bytes = (*env)->GetByteArrayElements(env, wasm_bytes, &is_copy);
-    if (bytes == NULL) {
-        throw_java(env, "Unable to read wasmBytes");
+    int32_t result = -1;
+    ATrace_beginSection("wasm.call");
+    int64_t phase_start = now_ns();
+    bool ok = call_i32(env, context, &export_func.of.func, params, 2, &result);
+    ATrace_endSection();
+    if (!ok) {
         return -1;
     }
+    report_phase(env, timings, PHASE_CALL, phase_start);
+    return result;
+}
 
-    jint result = -1;
-    wasmtime_error_t *error = NULL;
-    wasm_trap_t *trap = NULL;
-    wasm_engine_t *engine = wasm_engine_new();
-    if (engine == NULL) {
-        throw_java(env, "Failed to create Wasmtime engine");
-        goto cleanup_bytes;
+JNIEXPORT jstring JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_runHello(
+        JNIEnv *env,
+        jobject thiz,
+        jbyteArray wasm_bytes,
+        jlongArray timings) {
+    (void) thiz;
+
+    wasmtime_context_t *context = NULL;
+    wasmtime_instance_t instance;
+    wasmtime_extern_t export_mem;
+    wasmtime_extern_t export_ptr;
+    wasmtime_extern_t export_len;
+    if (!scratch_instantiate(env, wasm_bytes, timings, &context, &instance) ||
+        !get_export(env, context, &instance, "memory", WASMTIME_EXTERN_MEMORY, &export_mem,
+                    "Exported memory not found") ||
+        !get_export(env, context, &instance, "hello_ptr", WASMTIME_EXTERN_FUNC, &export_ptr,
+                    "Exported function 'hello_ptr' not found") ||
+        !get_export(env, context, &instance, "hello_len", WASMTIME_EXTERN_FUNC, &export_len,
+                    "Exported function 'hello_len' not found")) {
+        return NULL;
     }
 
-    wasmtime_store_t *store = wasmtime_store_new(engine, NULL, NULL);
-    if (store == NULL) {
-        throw_java(env, "Failed to create Wasmtime store");
-        goto cleanup_engine;
+    int32_t ptr = 0;
+    int32_t len = 0;
+    ATrace_beginSection("wasm.call");
+    int64_t phase_start = now_ns();
+    bool ok = call_i32(env, context, &export_ptr.of.func, NULL, 0, &ptr) &&
+              call_i32(env, context, &export_len.of.func, NULL, 0, &len);
+    ATrace_endSection();
+    if (!ok) {
+        return NULL;
     }
+    report_phase(env, timings, PHASE_CALL, phase_start);
 
-    wasmtime_context_t *context = wasmtime_store_context(store);
+    uint8_t *data = wasmtime_memory_data(context, &export_mem.of.memory);
+    size_t data_size = wasmtime_memory_data_size(context, &export_mem.of.memory);
+    if (ptr < 0 || len < 0 || (uint64_t) ptr + (uint64_t) len > data_size) {
+        throw_java(env, "Hello string is out of bounds in Wasm memory");
+        return NULL;
+    }
 
-    wasmtime_module_t *module = NULL;
-    error = wasmtime_module_new(engine, (const uint8_t *) bytes, (size_t) length, &module);
-    if (handle_error(env, error, trap) || module == NULL) {
-        goto cleanup_store;
+    // NewStringUTF needs a terminator; short strings avoid the heap.
+    char stack_buffer[256];
+    char *buffer = (size_t) len < sizeof(stack_buffer) ? stack_buffer : (char *) malloc((size_t) len + 1);
+    if (buffer == NULL) {
+        throw_java(env, "Failed to allocate buffer for Wasm string");
+        return NULL;
+    }
+    memcpy(buffer, data + ptr, (size_t) len);
+    buffer[len] = '\0';
+    jstring result = (*env)->NewStringUTF(env, buffer);
+    if (buffer != stack_buffer) {
+        free(buffer);
     }
+    return result;
+}
 
-    // Instantiate the module (no imports expected for the demo module).
+// ---------------------------------------------------------------------------------------------
+// Edge rules: long-lived instances that import the "edgez" host module.
+//
+//   clock_ns() -> i64                          monotonic clock
+//   read(paths, count, out) -> i32             paths: count x (obj, inst, res) i32, out: count x f64
+//   write(paths, values, count) -> i32         values: count x f64
+//   observe(obj, inst, res) -> i32             0 on success
+//
+// read/write/observe call back into the Java ai.edgez.controller.wasm.WasmHost. Batches are
+// limited to RULE_MAX_BATCH entries so the JNI arrays can be allocated once per instance.
+// ---------------------------------------------------------------------------------------------
+
+#define RULE_HOST_MODULE "edgez"
+#define RULE_MAX_BATCH 64
+
+typedef struct {
+    wasmtime_store_t *store;
+    wasmtime_module_t *module;  // shallow clone; the registry may release its own reference first
     wasmtime_instance_t instance;
-    error = wasmtime_instance_new(context, module, NULL, 0, &instance, &trap);
-    if (handle_error(env, error, trap)) {
-        goto cleanup_module;
+    jobject host;             // global ref to the WasmHost
+    jintArray paths;          // global ref, RULE_MAX_BATCH * 3
+    jdoubleArray values;      // global ref, RULE_MAX_BATCH
+    JNIEnv *env;              // only valid while a JNI entry point is running guest code
+    jobject pending;          // global ref to an exception thrown by a host callback
+    int32_t decode_base;      // decoder region from decoder_buffer, valid if decode_capacity > 0
+    int64_t decode_capacity;
+} rule_instance_t;
+
+static wasm_trap_t *rule_trap(const char *message) {
+    return wasmtime_trap_new(message, strlen(message));
+}
+
+// Returns a pointer to [ptr, ptr + len) in the caller's exported memory, or NULL if out of bounds.
+static uint8_t *guest_span(wasmtime_caller_t *caller, int32_t ptr, int64_t len) {
+    wasmtime_extern_t mem;
+    if (!wasmtime_caller_export_get(caller, "memory", strlen("memory"), &mem) ||
+        mem.kind != WASMTIME_EXTERN_MEMORY) {
+        return NULL;
     }
+    wasmtime_context_t *context = wasmtime_caller_context(caller);
+    size_t size = wasmtime_memory_data_size(context, &mem.of.memory);
+    if (ptr < 0 || len < 0 || (uint64_t) ptr + (uint64_t) len > size) {
+        return NULL;
+    }
+    return wasmtime_memory_data(context, &mem.of.memory) + ptr;
+}
 
-    wasmtime_extern_t export_func;
-    bool ok = wasmtime_instance_export_get(context, &instance, "add", strlen("add"), &export_func);
-    if (!ok || export_func.kind != WASMTIME_EXTERN_FUNC) {
-        throw_java(env, "Exported function 'add' not found in module");
-        goto cleanup_module;
+// Moves a Java exception raised by a host callback aside so the guest can be unwound with a trap;
+// it is rethrown once control is back in the JNI entry point.
+static bool host_threw(rule_instance_t *rule) {
+    JNIEnv *env = rule->env;
+    if (!(*env)->ExceptionCheck(env)) {
+        return false;
     }
+    jthrowable exc = (*env)->ExceptionOccurred(env);
+    (*env)->ExceptionClear(env);
+    if (rule->pending == NULL) {
+        rule->pending = (*env)->NewGlobalRef(env, exc);
+    }
+    (*env)->DeleteLocalRef(env, exc);
+    return true;
+}
 
-    wasmtime_val_t params[2];
-    params[0].kind = WASMTIME_I32;
-    params[0].of.i32 = a;
-    params[1].kind = WASMTIME_I32;
-    params[1].of.i32 = b;
+static bool rule_failed(JNIEnv *env, rule_instance_t *rule, wasmtime_error_t *error, wasm_trap_t *trap) {
+    if (rule->pending != NULL) {
+        if (error != NULL) {
+            wasmtime_error_delete(error);
+        }
+        if (trap != NULL) {
+            wasm_trap_delete(trap);
+        }
+        (*env)->Throw(env, (jthrowable) rule->pending);
+        (*env)->DeleteGlobalRef(env, rule->pending);
+        rule->pending = NULL;
+        return true;
+    }
+    return handle_error(env, error, trap);
+}
 
-    wasmtime_val_t results[1];
-    memset(results, 0, sizeof(results));
+static rule_instance_t *rule_from_caller(wasmtime_caller_t *caller) {
+    return (rule_instance_t *) wasmtime_context_get_data(wasmtime_caller_context(caller));
+}
 
-    error = wasmtime_func_call(context, &export_func.of.func, params, 2, results, 1, &trap);
-    if (handle_error(env, error, trap)) {
-        goto cleanup_module;
+static wasm_trap_t *host_clock_ns(void *data, wasmtime_caller_t *caller, const wasmtime_val_t *args,
+                                  size_t nargs, wasmtime_val_t *results, size_t nresults) {
+    (void) data;
+    (void) caller;
+    (void) args;
+    (void) nargs;
+    (void) nresults;
+    results[0].kind = WASMTIME_I64;
+    results[0].of.i64 = now_ns();
+    return NULL;
+}
+
+static wasm_trap_t *host_read(void *data, wasmtime_caller_t *caller, const wasmtime_val_t *args,
+                              size_t nargs, wasmtime_val_t *results, size_t nresults) {
+    (void) data;
+    (void) nargs;
+    (void) nresults;
+    rule_instance_t *rule = rule_from_caller(caller);
+    int32_t count = args[1].of.i32;
+    if (count < 0 || count > RULE_MAX_BATCH) {
+        return rule_trap("edgez.read: batch size out of range");
+    }
+    uint8_t *paths = guest_span(caller, args[0].of.i32, (int64_t) count * 3 * 4);
+    uint8_t *out = guest_span(caller, args[2].of.i32, (int64_t) count * 8);
+    if (paths == NULL || out == NULL) {
+        return rule_trap("edgez.read: pointer out of bounds");
     }
 
-    if (results[0].kind != WASMTIME_I32) {
-        throw_java(env, "Unexpected return type; expected i32");
-        goto cleanup_module;
+    // Guest memory is little-endian like arm64, so words can be copied as-is. The copies go
+    // through local buffers because guest pointers need not be aligned.
+    JNIEnv *env = rule->env;
+    jint path_buf[RULE_MAX_BATCH * 3];
+    jdouble value_buf[RULE_MAX_BATCH];
+    memcpy(path_buf, paths, (size_t) count * 3 * sizeof(jint));
+    (*env)->SetIntArrayRegion(env, rule->paths, 0, count * 3, path_buf);
+    jint n = (*env)->CallIntMethod(env, rule->host, host_read_id, rule->paths, count, rule->values);
+    if (host_threw(rule)) {
+        return rule_trap("edgez.read: host callback threw");
     }
+    (*env)->GetDoubleArrayRegion(env, rule->values, 0, count, value_buf);
+    memcpy(out, value_buf, (size_t) count * sizeof(jdouble));
 
-    result = results[0].of.i32;
+    results[0].kind = WASMTIME_I32;
+    results[0].of.i32 = n;
+    return NULL;
+}
 
-cleanup_module:
-    wasmtime_module_delete(module);
+static wasm_trap_t *host_write(void *data, wasmtime_caller_t *caller, const wasmtime_val_t *args,
+                               size_t nargs, wasmtime_val_t *results, size_t nresults) {
+    (void) data;
+    (void) nargs;
+    (void) nresults;
+    rule_instance_t *rule = rule_from_caller(caller);
+    int32_t count = args[2].of.i32;
+    if (count < 0 || count > RULE_MAX_BATCH) {
+        return rule_trap("edgez.write: batch size out of range");
+    }
+    uint8_t *paths = guest_span(caller, args[0].of.i32, (int64_t) count * 3 * 4);
+    uint8_t *values = guest_span(caller, args[1].of.i32, (int64_t) count * 8);
+    if (paths == NULL || values == NULL) {
+        return rule_trap("edgez.write: pointer out of bounds");
+    }
 
-cleanup_store:
-    wasmtime_store_delete(store);
+    JNIEnv *env = rule->env;
+    jint path_buf[RULE_MAX_BATCH * 3];
+    jdouble value_buf[RULE_MAX_BATCH];
+    memcpy(path_buf, paths, (size_t) count * 3 * sizeof(jint));
+    memcpy(value_buf, values, (size_t) count * sizeof(jdouble));
+    (*env)->SetIntArrayRegion(env, rule->paths, 0, count * 3, path_buf);
+    (*env)->SetDoubleArrayRegion(env, rule->values, 0, count, value_buf);
+    jint n = (*env)->CallIntMethod(env, rule->host, host_write_id, rule->paths, rule->values, count);
+    if (host_threw(rule)) {
+        return rule_trap("edgez.write: host callback threw");
+    }
 
-cleanup_engine:
-    wasm_engine_delete(engine);
+    results[0].kind = WASMTIME_I32;
+    results[0].of.i32 = n;
+    return NULL;
+}
 
-cleanup_bytes:
-    (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+static wasm_trap_t *host_observe(void *data, wasmtime_caller_t *caller, const wasmtime_val_t *args,
+                                 size_t nargs, wasmtime_val_t *results, size_t nresults) {
+    (void) data;
+    (void) nargs;
+    (void) nresults;
+    rule_instance_t *rule = rule_from_caller(caller);
+    JNIEnv *env = rule->env;
+    jint status = (*env)->CallIntMethod(env, rule->host, host_observe_id,
+                                        args[0].of.i32, args[1].of.i32, args[2].of.i32);
+    if (host_threw(rule)) {
+        return rule_trap("edgez.observe: host callback threw");
+    }
+    results[0].kind = WASMTIME_I32;
+    results[0].of.i32 = status;
+    return NULL;
+}
 
-    return result;
+static wasmtime_error_t *define_host_func(wasmtime_linker_t *linker, const char *name,
+                                          wasm_functype_t *type, wasmtime_func_callback_t cb) {
+    wasmtime_error_t *error = wasmtime_linker_define_func(
+            linker, RULE_HOST_MODULE, strlen(RULE_HOST_MODULE), name, strlen(name), type, cb, NULL, NULL);
+    wasm_functype_delete(type);
+    return error;
 }
 
+static wasmtime_error_t *define_host_funcs(wasmtime_linker_t *linker) {
+    wasmtime_error_t *error = define_host_func(
+            linker, "clock_ns", wasm_functype_new_0_1(wasm_valtype_new_i64()), host_clock_ns);
+    if (error == NULL) {
+        error = define_host_func(linker, "read", wasm_functype_new_3_1(
+                wasm_valtype_new_i32(), wasm_valtype_new_i32(), wasm_valtype_new_i32(),
+                wasm_valtype_new_i32()), host_read);
+    }
+    if (error == NULL) {
+        error = define_host_func(linker, "write", wasm_functype_new_3_1(
+                wasm_valtype_new_i32(), wasm_valtype_new_i32(), wasm_valtype_new_i32(),
+                wasm_valtype_new_i32()), host_write);
+    }
+    if (error == NULL) {
+        error = define_host_func(linker, "observe", wasm_functype_new_3_1(
+                wasm_valtype_new_i32(), wasm_valtype_new_i32(), wasm_valtype_new_i32(),
+                wasm_valtype_new_i32()), host_observe);
+    }
+    return error;
+}
+
+static void rule_destroy(JNIEnv *env, rule_instance_t *rule) {
+    if (rule->module != NULL) {
+        wasmtime_module_delete(rule->module);
+    }
+    if (rule->store != NULL) {
+        wasmtime_store_delete(rule->store);
+    }
+    if (rule->host != NULL) {
+        (*env)->DeleteGlobalRef(env, rule->host);
+    }
+    if (rule->paths != NULL) {
+        (*env)->DeleteGlobalRef(env, rule->paths);
+    }
+    if (rule->values != NULL) {
+        (*env)->DeleteGlobalRef(env, rule->values);
+    }
+    if (rule->pending != NULL) {
+        (*env)->DeleteGlobalRef(env, rule->pending);
+    }
+    free(rule);
+}
+
+static bool rule_init_jni(JNIEnv *env, rule_instance_t *rule, jobject host) {
+    rule->host = (*env)->NewGlobalRef(env, host);
+    jintArray paths = (*env)->NewIntArray(env, RULE_MAX_BATCH * 3);
+    jdoubleArray values = paths == NULL ? NULL : (*env)->NewDoubleArray(env, RULE_MAX_BATCH);
+    if (values == NULL) {
+        return false;  // OutOfMemoryError is pending
+    }
+    rule->paths = (jintArray) (*env)->NewGlobalRef(env, paths);
+    rule->values = (jdoubleArray) (*env)->NewGlobalRef(env, values);
+    (*env)->DeleteLocalRef(env, paths);
+    (*env)->DeleteLocalRef(env, values);
+    return true;
+}
+
+// The host functions find their rule through the store's context data, so one linker per engine
+// serves every rule instance.
+static pthread_once_t rule_linker_once = PTHREAD_ONCE_INIT;
+static wasmtime_linker_t *rule_linker = NULL;
+static pthread_once_t overflow_linker_once = PTHREAD_ONCE_INIT;
+static wasmtime_linker_t *overflow_linker = NULL;
+
+static wasmtime_linker_t *rule_linker_new(wasm_engine_t *engine) {
+    wasmtime_linker_t *linker = wasmtime_linker_new(engine);
+    wasmtime_error_t *error = define_host_funcs(linker);
+    if (error != NULL) {
+        wasm_message_t message;
+        wasmtime_error_message(error, &message);
+        LOGE("Failed to define host functions: %.*s", (int) message.size, message.data);
+        wasm_byte_vec_delete(&message);
+        wasmtime_error_delete(error);
+        wasmtime_linker_delete(linker);
+        return NULL;
+    }
+    return linker;
+}
+
+static void rule_linker_init(void) {
+    rule_linker = rule_linker_new(shared_engine);
+}
+
+static void overflow_linker_init(void) {
+    overflow_linker = rule_linker_new(ondemand_engine);
+}
+
+static wasmtime_linker_t *get_rule_linker(JNIEnv *env) {
+    if (get_shared_engine(env) == NULL) {
+        return NULL;
+    }
+    pthread_once(&rule_linker_once, rule_linker_init);
+    if (rule_linker == NULL) {
+        throw_java(env, "Failed to define edgez host functions");
+    }
+    return rule_linker;
+}
+
+static wasmtime_linker_t *get_overflow_linker(JNIEnv *env) {
+    if (get_ondemand_engine(env) == NULL) {
+        return NULL;
+    }
+    pthread_once(&overflow_linker_once, overflow_linker_init);
+    if (overflow_linker == NULL) {
+        throw_java(env, "Failed to define edgez host functions");
+    }
+    return overflow_linker;
+}
+
+// ---------------------------------------------------------------------------------------------
+// Module registry support: modules are compiled once on a process-wide engine and shared by every
+// rule instance created from them.
+// ---------------------------------------------------------------------------------------------
+
+// Returns NULL if the bytes are a valid module for the shared engine, otherwise the error message.
 JNIEXPORT jstring JNICALL
-Java_ai_edgez_controller_WasmtimeRunner_runHello(
+Java_ai_edgez_controller_WasmtimeRunner_validateModule(
         JNIEnv *env,
         jobject thiz,
         jbyteArray wasm_bytes) {
     (void) thiz;
 
-    if (wasm_bytes == NULL) {
-        throw_java(env, "hello_wasm.wasm bytes are null");
+    wasm_engine_t *engine = get_shared_engine(env);
+    if (engine == NULL) {
         return NULL;
     }
-
     jsize length = (*env)->GetArrayLength(env, wasm_bytes);
-    if (length <= 0) {
-        throw_java(env, "hello_wasm.wasm is empty");
+    jbyte *bytes = (*env)->GetByteArrayElements(env, wasm_bytes, NULL);
+    if (bytes == NULL) {
         return NULL;
     }
+    wasmtime_error_t *error = wasmtime_module_validate(engine, (const uint8_t *) bytes, (size_t) length);
+    (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    if (error == NULL) {
+        return NULL;
+    }
+    wasm_message_t message;
+    wasmtime_error_message(error, &message);
+    char *text = (char *) malloc(message.size + 1);
+    jstring result = NULL;
+    if (text != NULL) {
+        memcpy(text, message.data, message.size);
+        text[message.size] = '\0';
+        result = (*env)->NewStringUTF(env, text);
+        free(text);
+    }
+    wasm_byte_vec_delete(&message);
+    wasmtime_error_delete(error);
+    return result;
+}
+
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_compileModule(
+        JNIEnv *env,
+        jobject thiz,
+        jbyteArray wasm_bytes,
+        jlongArray timings) {
+    (void) thiz;
 
-    jboolean is_copy = JNI_FALSE;
-    jbyte *bytes = (*env)->GetByteArrayElements(env, wasm_bytes, &is_copy);
+    wasm_engine_t *engine = get_shared_engine(env);
+    if (engine == NULL) {
+        return 0;
+    }
+    jsize length = (*env)->GetArrayLength(env, wasm_bytes);
+    jbyte *bytes = (*env)->GetByteArrayElements(env, wasm_bytes, NULL);
     if (bytes == NULL) {
-        throw_java(env, "Unable to read hello_wasm.wasm");
-        return NULL;
+        return 0;
+    }
+    wasmtime_module_t *module = NULL;
+    ATrace_beginSection("wasm.compile");
+    int64_t phase_start = now_ns();
+    wasmtime_error_t *error = wasmtime_module_new(engine, (const uint8_t *) bytes, (size_t) length, &module);
+    ATrace_endSection();
+    (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    if (handle_error(env, error, NULL) || module == NULL) {
+        return 0;
     }
+    report_phase(env, timings, PHASE_COMPILE, phase_start);
+    return (jlong) (intptr_t) module;
+}
 
-    wasmtime_error_t *error = NULL;
-    wasm_trap_t *trap = NULL;
+// Loads a module written by savePrecompiled. Only pass files this app produced: the bytes are
+// trusted machine code.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_loadPrecompiled(
+        JNIEnv *env,
+        jobject thiz,
+        jstring path,
+        jlongArray timings) {
+    (void) thiz;
 
-    wasm_engine_t *engine = wasm_engine_new();
+    wasm_engine_t *engine = get_shared_engine(env);
     if (engine == NULL) {
-        throw_java(env, "Failed to create Wasmtime engine");
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+        return 0;
+    }
+    const char *c_path = (*env)->GetStringUTFChars(env, path, NULL);
+    if (c_path == NULL) {
+        return 0;
+    }
+    wasmtime_module_t *module = NULL;
+    ATrace_beginSection("wasm.deserialize");
+    int64_t phase_start = now_ns();
+    wasmtime_error_t *error = wasmtime_module_deserialize_file(engine, c_path, &module);
+    ATrace_endSection();
+    (*env)->ReleaseStringUTFChars(env, path, c_path);
+    if (handle_error(env, error, NULL) || module == NULL) {
+        return 0;
+    }
+    report_phase(env, timings, PHASE_COMPILE, phase_start);
+    return (jlong) (intptr_t) module;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_savePrecompiled(
+        JNIEnv *env,
+        jobject thiz,
+        jlong module_handle,
+        jstring path) {
+    (void) thiz;
+
+    wasm_byte_vec_t image;
+    wasmtime_error_t *error = wasmtime_module_serialize((wasmtime_module_t *) (intptr_t) module_handle, &image);
+    if (handle_error(env, error, NULL)) {
+        return JNI_FALSE;
+    }
+    const char *c_path = (*env)->GetStringUTFChars(env, path, NULL);
+    bool ok = false;
+    if (c_path != NULL) {
+        FILE *out = fopen(c_path, "wb");
+        if (out != NULL) {
+            ok = fwrite(image.data, 1, image.size, out) == image.size;
+            ok = (fclose(out) == 0) && ok;
+        }
+        (*env)->ReleaseStringUTFChars(env, path, c_path);
+    }
+    wasm_byte_vec_delete(&image);
+    return ok ? JNI_TRUE : JNI_FALSE;
+}
+
+// Size of the module's compiled code image in bytes.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_moduleImageBytes(
+        JNIEnv *env,
+        jobject thiz,
+        jlong module_handle) {
+    (void) env;
+    (void) thiz;
+
+    void *start = NULL;
+    void *end = NULL;
+    wasmtime_module_image_range((const wasmtime_module_t *) (intptr_t) module_handle, &start, &end);
+    return (jlong) ((uint8_t *) end - (uint8_t *) start);
+}
+
+JNIEXPORT void JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_releaseModule(
+        JNIEnv *env,
+        jobject thiz,
+        jlong module_handle) {
+    (void) env;
+    (void) thiz;
+
+    if (module_handle != 0) {
+        wasmtime_module_delete((wasmtime_module_t *) (intptr_t) module_handle);
+    }
+}
+
+// Called once from WasmtimeRunner's loader so that engine and linker setup, including the pool's
+// address space reservation, happen on the loading thread rather than on the first call. The pool
+// gets pool_slots instances, or a default if that is not positive.
+JNIEXPORT void JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_nativeInit(
+        JNIEnv *env,
+        jclass clazz,
+        jint pool_slots) {
+    (void) clazz;
+
+    if (pool_slots > 0) {
+        pool_instances = (uint32_t) pool_slots;
+    }
+    get_rule_linker(env);
+}
+
+// Instances the shared engine's pool holds, 0 if it could not be created.
+JNIEXPORT jint JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_poolSlots(
+        JNIEnv *env,
+        jobject thiz) {
+    (void) thiz;
+
+    return get_shared_engine(env) != NULL && shared_engine_pooled ? (jint) pool_instances : 0;
+}
+
+// Rules instantiated on the on-demand engine because the pool was full, since the process started.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_overflowInstances(
+        JNIEnv *env,
+        jobject thiz) {
+    (void) env;
+    (void) thiz;
+
+    return (jlong) atomic_load(&overflow_instances);
+}
+
+// Loads module's compiled code on the on-demand engine without compiling it again. The engines
+// share their memory settings, which is what makes the image compatible. Returns NULL with an
+// exception pending.
+static wasmtime_module_t *overflow_module(JNIEnv *env, const wasmtime_module_t *module) {
+    wasm_engine_t *engine = get_ondemand_engine(env);
+    if (engine == NULL) {
+        return NULL;
+    }
+    wasm_byte_vec_t image;
+    if (handle_error(env, wasmtime_module_serialize((wasmtime_module_t *) module, &image), NULL)) {
+        return NULL;
+    }
+    wasmtime_module_t *copy = NULL;
+    wasmtime_error_t *error = wasmtime_module_deserialize(engine, (const uint8_t *) image.data, image.size, &copy);
+    wasm_byte_vec_delete(&image);
+    if (handle_error(env, error, NULL)) {
         return NULL;
     }
+    return copy;
+}
 
-    wasmtime_store_t *store = wasmtime_store_new(engine, NULL, NULL);
-    if (store == NULL) {
+// Gives rule a new store on engine and instantiates its module there. Returns false, with an
+// exception pending, only if the store could not be created; instantiation errors and traps are
+// left in error and trap.
+static bool rule_instantiate(JNIEnv *env, rule_instance_t *rule, wasm_engine_t *engine, wasmtime_linker_t *linker,
+                             wasmtime_error_t **error, wasm_trap_t **trap) {
+    rule->store = wasmtime_store_new(engine, rule, NULL);
+    if (rule->store == NULL) {
         throw_java(env, "Failed to create Wasmtime store");
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
-        return NULL;
+        return false;
     }
-    wasmtime_context_t *context = wasmtime_store_context(store);
+    // Start functions may already call into the host.
+    *trap = NULL;
+    rule->env = env;
+    *error = wasmtime_linker_instantiate(linker, wasmtime_store_context(rule->store), rule->module,
+                                         &rule->instance, trap);
+    rule->env = NULL;
+    return true;
+}
 
-    wasmtime_module_t *module = NULL;
-    error = wasmtime_module_new(engine, (const uint8_t *) bytes, (size_t) length, &module);
-    if (handle_error(env, error, trap) || module == NULL) {
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
+// Instantiates module as a rule calling back into host. Returns NULL with an exception pending.
+static rule_instance_t *rule_new(JNIEnv *env, wasmtime_module_t *module, jobject host) {
+    wasmtime_linker_t *linker = get_rule_linker(env);
+    if (linker == NULL) {
         return NULL;
     }
 
-    wasmtime_instance_t instance;
-    error = wasmtime_instance_new(context, module, NULL, 0, &instance, &trap);
-    if (handle_error(env, error, trap)) {
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    rule_instance_t *rule = (rule_instance_t *) calloc(1, sizeof(rule_instance_t));
+    if (rule == NULL) {
+        throw_java(env, "Failed to allocate rule instance");
         return NULL;
     }
-
-    wasmtime_extern_t export_mem;
-    if (!wasmtime_instance_export_get(context, &instance, "memory", strlen("memory"), &export_mem) ||
-        export_mem.kind != WASMTIME_EXTERN_MEMORY) {
-        throw_java(env, "Exported memory not found");
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    if (!rule_init_jni(env, rule, host)) {
+        rule_destroy(env, rule);
         return NULL;
     }
-
-    wasmtime_extern_t export_ptr;
-    if (!wasmtime_instance_export_get(context, &instance, "hello_ptr", strlen("hello_ptr"), &export_ptr) ||
-        export_ptr.kind != WASMTIME_EXTERN_FUNC) {
-        throw_java(env, "Exported function 'hello_ptr' not found");
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    rule->module = wasmtime_module_clone(module);
+    wasmtime_error_t *error = NULL;
+    wasm_trap_t *trap = NULL;
+    if (!rule_instantiate(env, rule, shared_engine, linker, &error, &trap)) {
+        rule_destroy(env, rule);
         return NULL;
     }
 
-    wasmtime_extern_t export_len;
-    if (!wasmtime_instance_export_get(context, &instance, "hello_len", strlen("hello_len"), &export_len) ||
-        export_len.kind != WASMTIME_EXTERN_FUNC) {
-        throw_java(env, "Exported function 'hello_len' not found");
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    // An error without a trap means no guest code ran: the instance was never allocated or never
+    // linked. On the pooled engine that is usually a full pool, so try again with on-demand
+    // allocation; a module that cannot link fails there as well and reports its own error.
+    if (error != NULL && trap == NULL && rule->pending == NULL && shared_engine_pooled) {
+        wasmtime_error_delete(error);
+        error = NULL;
+        wasmtime_store_delete(rule->store);
+        rule->store = NULL;
+        wasmtime_module_t *copy = overflow_module(env, rule->module);
+        wasmtime_linker_t *overflow = copy == NULL ? NULL : get_overflow_linker(env);
+        if (copy != NULL) {
+            wasmtime_module_delete(rule->module);
+            rule->module = copy;
+        }
+        if (overflow == NULL || !rule_instantiate(env, rule, ondemand_engine, overflow, &error, &trap)) {
+            rule_destroy(env, rule);
+            return NULL;
+        }
+        if (error == NULL && trap == NULL) {
+            uint64_t count = atomic_fetch_add(&overflow_instances, 1) + 1;
+            if (count == 1 || count % 64 == 0) {
+                LOGW("Instance pool of %u is full, %llu rules allocated on demand so far", pool_instances,
+                     (unsigned long long) count);
+            }
+        }
+    }
+    if (rule_failed(env, rule, error, trap)) {
+        rule_destroy(env, rule);
         return NULL;
     }
+    return rule;
+}
 
-    wasmtime_val_t results[1];
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_createRule(
+        JNIEnv *env,
+        jobject thiz,
+        jlong module_handle,
+        jobject host,
+        jlongArray timings) {
+    (void) thiz;
 
-    memset(results, 0, sizeof(results));
-    error = wasmtime_func_call(context, &export_ptr.of.func, NULL, 0, results, 1, &trap);
-    if (handle_error(env, error, trap) || results[0].kind != WASMTIME_I32) {
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
-        return NULL;
+    if (module_handle == 0 || host == NULL) {
+        throw_java(env, "module and host are required");
+        return 0;
+    }
+    ATrace_beginSection("wasm.instantiate");
+    int64_t phase_start = now_ns();
+    rule_instance_t *rule = rule_new(env, (wasmtime_module_t *) (intptr_t) module_handle, host);
+    ATrace_endSection();
+    if (rule == NULL) {
+        return 0;
     }
-    int32_t ptr = results[0].of.i32;
+    report_phase(env, timings, PHASE_INSTANTIATE, phase_start);
 
+    return (jlong) (intptr_t) rule;
+}
+
+// Linear memory currently used by a rule instance, 0 if it exports no memory.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_ruleMemoryBytes(
+        JNIEnv *env,
+        jobject thiz,
+        jlong handle) {
+    (void) env;
+    (void) thiz;
+
+    rule_instance_t *rule = (rule_instance_t *) (intptr_t) handle;
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_extern_t mem;
+    if (!wasmtime_instance_export_get(context, &rule->instance, "memory", strlen("memory"), &mem) ||
+        mem.kind != WASMTIME_EXTERN_MEMORY) {
+        return 0;
+    }
+    return (jlong) wasmtime_memory_data_size(context, &mem.of.memory);
+}
+
+// Calls an exported function of a rule. Returns JNI_FALSE if the export does not exist.
+static jboolean rule_call(JNIEnv *env, rule_instance_t *rule, const char *name,
+                          const wasmtime_val_t *params, size_t nparams, jlongArray timings) {
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_extern_t export_func;
+    if (!wasmtime_instance_export_get(context, &rule->instance, name, strlen(name), &export_func) ||
+        export_func.kind != WASMTIME_EXTERN_FUNC) {
+        return JNI_FALSE;
+    }
+
+    wasm_trap_t *trap = NULL;
+    rule->env = env;
+    ATrace_beginSection("wasm.call");
+    int64_t phase_start = now_ns();
+    wasmtime_error_t *error = wasmtime_func_call(context, &export_func.of.func, params, nparams, NULL, 0, &trap);
+    ATrace_endSection();
+    rule->env = NULL;
+    if (rule_failed(env, rule, error, trap)) {
+        return JNI_FALSE;
+    }
+    report_phase(env, timings, PHASE_CALL, phase_start);
+    return JNI_TRUE;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_callRule(
+        JNIEnv *env,
+        jobject thiz,
+        jlong handle,
+        jstring export_name,
+        jlongArray timings) {
+    (void) thiz;
+
+    rule_instance_t *rule = (rule_instance_t *) (intptr_t) handle;
+    const char *name = (*env)->GetStringUTFChars(env, export_name, NULL);
+    if (name == NULL) {
+        return JNI_FALSE;
+    }
+    jboolean called = rule_call(env, rule, name, NULL, 0, timings);
+    (*env)->ReleaseStringUTFChars(env, export_name, name);
+    return called;
+}
+
+JNIEXPORT jboolean JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_notifyRule(
+        JNIEnv *env,
+        jobject thiz,
+        jlong handle,
+        jint obj_id,
+        jint inst_id,
+        jint res_id,
+        jdouble value,
+        jlongArray timings) {
+    (void) thiz;
+
+    rule_instance_t *rule = (rule_instance_t *) (intptr_t) handle;
+    wasmtime_val_t params[4];
+    params[0].kind = WASMTIME_I32;
+    params[0].of.i32 = obj_id;
+    params[1].kind = WASMTIME_I32;
+    params[1].of.i32 = inst_id;
+    params[2].kind = WASMTIME_I32;
+    params[2].of.i32 = res_id;
+    params[3].kind = WASMTIME_F64;
+    params[3].of.f64 = value;
+    return rule_call(env, rule, "on_value", params, 4, timings);
+}
+
+// ---------------------------------------------------------------------------------------------
+// Payload decoders: rule instances whose module also exports
+//
+//   decoder_buffer(size) -> i32                a region of at least size bytes kept for the host
+//   decode(count, in_len, out_cap) -> i32      bytes written, or -1 if out_cap is too small
+//
+// The host writes a batch to the start of the region: count records of [u32 key][u32 len][bytes],
+// key = obj << 16 | res, all little-endian. The guest writes count records of [u32 len][bytes]
+// right after the input, with len 0xffffffff for a payload it cannot decode. The whole batch is
+// copied once each way between the Java arrays and guest memory.
+// ---------------------------------------------------------------------------------------------
+
+static bool rule_call_i32(JNIEnv *env, rule_instance_t *rule, const wasmtime_func_t *func,
+                          const wasmtime_val_t *params, size_t nparams, int32_t *result) {
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_val_t results[1];
     memset(results, 0, sizeof(results));
-    error = wasmtime_func_call(context, &export_len.of.func, NULL, 0, results, 1, &trap);
-    if (handle_error(env, error, trap) || results[0].kind != WASMTIME_I32) {
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    wasm_trap_t *trap = NULL;
+    rule->env = env;
+    wasmtime_error_t *error = wasmtime_func_call(context, func, params, nparams, results, 1, &trap);
+    rule->env = NULL;
+    if (rule_failed(env, rule, error, trap)) {
+        return false;
+    }
+    if (results[0].kind != WASMTIME_I32) {
+        throw_java(env, "Unexpected return type; expected i32");
+        return false;
+    }
+    *result = results[0].of.i32;
+    return true;
+}
+
+// Returns the decoder region, or NULL with an exception pending. Memory may have grown during the
+// last call, so the pointer is only valid until the next one.
+static uint8_t *decoder_region(JNIEnv *env, rule_instance_t *rule, int64_t size) {
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_extern_t mem;
+    if (!get_export(env, context, &rule->instance, "memory", WASMTIME_EXTERN_MEMORY, &mem,
+                    "Decoder does not export memory")) {
         return NULL;
     }
-    int32_t len = results[0].of.i32;
+    size_t data_size = wasmtime_memory_data_size(context, &mem.of.memory);
+    if (rule->decode_base < 0 || (uint64_t) rule->decode_base + (uint64_t) size > data_size) {
+        throw_java(env, "Decoder buffer is out of bounds in Wasm memory");
+        return NULL;
+    }
+    return wasmtime_memory_data(context, &mem.of.memory) + rule->decode_base;
+}
 
-    uint8_t *data = wasmtime_memory_data(context, &export_mem.of.memory);
-    size_t data_size = wasmtime_memory_data_size(context, &export_mem.of.memory);
+JNIEXPORT jint JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_runDecodeBatch(
+        JNIEnv *env,
+        jobject thiz,
+        jlong handle,
+        jbyteArray input,
+        jint in_len,
+        jint count,
+        jbyteArray output,
+        jlongArray timings) {
+    (void) thiz;
 
-    if (ptr < 0 || len < 0 || (uint64_t) ptr + (uint64_t) len > data_size) {
-        throw_java(env, "Hello string is out of bounds in Wasm memory");
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
-        return NULL;
+    rule_instance_t *rule = (rule_instance_t *) (intptr_t) handle;
+    jsize out_cap = (*env)->GetArrayLength(env, output);
+    if (in_len < 0 || count < 0 || in_len > (*env)->GetArrayLength(env, input)) {
+        throw_java(env, "Decoder batch out of range");
+        return 0;
+    }
+    int64_t needed = (int64_t) in_len + out_cap;
+    if (needed > INT32_MAX) {
+        throw_java(env, "Decoder batch too large");
+        return 0;
     }
 
-    char *buffer = (char *) malloc((size_t) len + 1);
-    if (buffer == NULL) {
-        throw_java(env, "Failed to allocate buffer for Wasm string");
-        wasmtime_module_delete(module);
-        wasmtime_store_delete(store);
-        wasm_engine_delete(engine);
-        (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
-        return NULL;
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_extern_t reserve;
+    wasmtime_extern_t decode;
+    if (!get_export(env, context, &rule->instance, "decoder_buffer", WASMTIME_EXTERN_FUNC, &reserve,
+                    "Module is not a payload decoder: no decoder_buffer export") ||
+        !get_export(env, context, &rule->instance, "decode", WASMTIME_EXTERN_FUNC, &decode,
+                    "Module is not a payload decoder: no decode export")) {
+        return 0;
+    }
+    if (rule->decode_capacity < needed) {
+        wasmtime_val_t size;
+        size.kind = WASMTIME_I32;
+        size.of.i32 = (int32_t) needed;
+        int32_t base = 0;
+        if (!rule_call_i32(env, rule, &reserve.of.func, &size, 1, &base)) {
+            return 0;
+        }
+        rule->decode_base = base;
+        rule->decode_capacity = needed;
     }
-    memcpy(buffer, data + ptr, (size_t) len);
-    buffer[len] = '\0';
 
-    jstring result = (*env)->NewStringUTF(env, buffer);
-    free(buffer);
+    uint8_t *region = decoder_region(env, rule, needed);
+    if (region == NULL) {
+        return 0;
+    }
+    (*env)->GetByteArrayRegion(env, input, 0, in_len, (jbyte *) region);
 
-    wasmtime_module_delete(module);
-    wasmtime_store_delete(store);
-    wasm_engine_delete(engine);
-    (*env)->ReleaseByteArrayElements(env, wasm_bytes, bytes, JNI_ABORT);
+    wasmtime_val_t params[3];
+    params[0].kind = WASMTIME_I32;
+    params[0].of.i32 = count;
+    params[1].kind = WASMTIME_I32;
+    params[1].of.i32 = in_len;
+    params[2].kind = WASMTIME_I32;
+    params[2].of.i32 = out_cap;
+    int32_t written = 0;
+    ATrace_beginSection("wasm.call");
+    int64_t phase_start = now_ns();
+    bool ok = rule_call_i32(env, rule, &decode.of.func, params, 3, &written);
+    ATrace_endSection();
+    if (!ok) {
+        return 0;
+    }
+    report_phase(env, timings, PHASE_CALL, phase_start);
+    if (written < 0) {
+        return -1;
+    }
+    if (written > out_cap) {
+        throw_java(env, "Decoder wrote past its output buffer");
+        return 0;
+    }
 
-    return result;
+    region = decoder_region(env, rule, needed);
+    if (region == NULL) {
+        return 0;
+    }
+    (*env)->SetByteArrayRegion(env, output, 0, written, (const jbyte *) (region + in_len));
+    return written;
+}
+
+// ---------------------------------------------------------------------------------------------
+// Pre-initialised snapshots, as Wizer does them. A module may export
+//
+//   preinit()                                  one-off setup, e.g. building lookup tables
+//
+// createSnapshot runs it once in a throwaway instance and keeps the memory chunks it changed and
+// the values of the exported mutable globals. createRuleFromSnapshot instantiates normally, which
+// maps the data segments copy-on-write from the module's image, then copies in only those
+// chunks and sets the globals, so preinit never runs per device.
+//
+// State outside the "memory" export and the exported globals (tables, other memories, globals
+// that are not exported) is not captured. Toolchains' stack pointer is back at its initial value
+// once preinit returns, so only deliberate state needs exporting.
+// ---------------------------------------------------------------------------------------------
+
+#define SNAPSHOT_CHUNK_BYTES 4096u
+#define WASM_PAGE_BYTES 65536u
+
+typedef struct {
+    size_t export_index;
+    wasmtime_val_t value;
+} snapshot_global_t;
+
+typedef struct {
+    wasmtime_module_t *module;   // shallow clone
+    uint64_t memory_size;        // 0 if the module exports no memory
+    size_t chunk_count;
+    uint32_t *chunks;            // offsets of the changed chunks, in SNAPSHOT_CHUNK_BYTES units
+    uint8_t *data;               // chunk_count * SNAPSHOT_CHUNK_BYTES
+    size_t global_count;
+    snapshot_global_t *globals;
+} snapshot_t;
+
+static void snapshot_free(snapshot_t *snap) {
+    if (snap->module != NULL) {
+        wasmtime_module_delete(snap->module);
+    }
+    free(snap->chunks);
+    free(snap->data);
+    free(snap->globals);
+    free(snap);
+}
+
+static bool rule_memory(rule_instance_t *rule, wasmtime_memory_t *out) {
+    wasmtime_extern_t mem;
+    if (!wasmtime_instance_export_get(wasmtime_store_context(rule->store), &rule->instance, "memory",
+                                      strlen("memory"), &mem) ||
+        mem.kind != WASMTIME_EXTERN_MEMORY) {
+        return false;
+    }
+    *out = mem.of.memory;
+    return true;
+}
+
+static bool chunk_is_zero(const uint8_t *chunk) {
+    for (size_t i = 0; i < SNAPSHOT_CHUNK_BYTES; i++) {
+        if (chunk[i] != 0) {
+            return false;
+        }
+    }
+    return true;
+}
+
+// Records the chunks of memory that differ from before (before_size bytes; memory grown since
+// reads as zero). Returns false if out of memory.
+static bool snapshot_memory(snapshot_t *snap, const uint8_t *memory, uint64_t size,
+                            const uint8_t *before, uint64_t before_size) {
+    uint64_t total = size / SNAPSHOT_CHUNK_BYTES;
+    snap->memory_size = size;
+    if (total == 0) {
+        return true;
+    }
+    snap->chunks = (uint32_t *) malloc(total * sizeof(uint32_t));
+    if (snap->chunks == NULL) {
+        return false;
+    }
+    for (uint64_t c = 0; c < total; c++) {
+        uint64_t offset = c * SNAPSHOT_CHUNK_BYTES;
+        bool changed = offset + SNAPSHOT_CHUNK_BYTES <= before_size
+                ? memcmp(memory + offset, before + offset, SNAPSHOT_CHUNK_BYTES) != 0
+                : !chunk_is_zero(memory + offset);
+        if (changed) {
+            snap->chunks[snap->chunk_count++] = (uint32_t) c;
+        }
+    }
+    if (snap->chunk_count == 0) {
+        return true;
+    }
+    snap->data = (uint8_t *) malloc(snap->chunk_count * SNAPSHOT_CHUNK_BYTES);
+    if (snap->data == NULL) {
+        return false;
+    }
+    for (size_t i = 0; i < snap->chunk_count; i++) {
+        memcpy(snap->data + i * SNAPSHOT_CHUNK_BYTES,
+               memory + (uint64_t) snap->chunks[i] * SNAPSHOT_CHUNK_BYTES, SNAPSHOT_CHUNK_BYTES);
+    }
+    return true;
+}
+
+// Records exported mutable globals. Reference values belong to the throwaway store and cannot be
+// carried over, so a module that leaves one in an exported global cannot be snapshotted.
+static bool snapshot_globals(JNIEnv *env, snapshot_t *snap, rule_instance_t *rule) {
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    size_t capacity = 0;
+    char *name = NULL;
+    size_t name_len = 0;
+    wasmtime_extern_t item;
+    for (size_t i = 0; wasmtime_instance_export_nth(context, &rule->instance, i, &name, &name_len, &item); i++) {
+        if (item.kind != WASMTIME_EXTERN_GLOBAL) {
+            continue;
+        }
+        wasm_globaltype_t *type = wasmtime_global_type(context, &item.of.global);
+        bool mutable_global = wasm_globaltype_mutability(type) == WASM_VAR;
+        wasm_globaltype_delete(type);
+        if (!mutable_global) {
+            continue;
+        }
+        wasmtime_val_t value;
+        wasmtime_global_get(context, &item.of.global, &value);
+        if (value.kind != WASMTIME_I32 && value.kind != WASMTIME_I64 && value.kind != WASMTIME_F32 &&
+            value.kind != WASMTIME_F64 && value.kind != WASMTIME_V128) {
+            wasmtime_val_unroot(&value);
+            throw_java(env, "preinit left a reference in an exported global; cannot snapshot");
+            return false;
+        }
+        if (snap->global_count == capacity) {
+            capacity = capacity == 0 ? 4 : capacity * 2;
+            snapshot_global_t *grown = (snapshot_global_t *) realloc(snap->globals, capacity * sizeof(snapshot_global_t));
+            if (grown == NULL) {
+                throw_java(env, "Failed to allocate snapshot");
+                return false;
+            }
+            snap->globals = grown;
+        }
+        snap->globals[snap->global_count].export_index = i;
+        snap->globals[snap->global_count].value = value;
+        snap->global_count++;
+    }
+    return true;
+}
+
+// Returns a snapshot handle, or 0 if the module does not export init_export or an exception is
+// pending.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_createSnapshot(
+        JNIEnv *env,
+        jobject thiz,
+        jlong module_handle,
+        jobject host,
+        jstring export_name,
+        jlongArray timings) {
+    (void) thiz;
+
+    if (module_handle == 0 || host == NULL) {
+        throw_java(env, "module and host are required");
+        return 0;
+    }
+    rule_instance_t *rule = rule_new(env, (wasmtime_module_t *) (intptr_t) module_handle, host);
+    if (rule == NULL) {
+        return 0;
+    }
+    const char *name = (*env)->GetStringUTFChars(env, export_name, NULL);
+    if (name == NULL) {
+        rule_destroy(env, rule);
+        return 0;
+    }
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    wasmtime_extern_t init;
+    bool has_init = wasmtime_instance_export_get(context, &rule->instance, name, strlen(name), &init) &&
+            init.kind == WASMTIME_EXTERN_FUNC;
+    if (!has_init) {
+        (*env)->ReleaseStringUTFChars(env, export_name, name);
+        rule_destroy(env, rule);
+        return 0;
+    }
+
+    snapshot_t *snap = (snapshot_t *) calloc(1, sizeof(snapshot_t));
+    wasmtime_memory_t mem;
+    bool has_memory = rule_memory(rule, &mem);
+    uint64_t before_size = has_memory ? wasmtime_memory_data_size(context, &mem) : 0;
+    uint8_t *before = before_size > 0 ? (uint8_t *) malloc(before_size) : NULL;
+    if (snap == NULL || (before_size > 0 && before == NULL)) {
+        throw_java(env, "Failed to allocate snapshot");
+        free(before);
+        free(snap);
+        (*env)->ReleaseStringUTFChars(env, export_name, name);
+        rule_destroy(env, rule);
+        return 0;
+    }
+    if (before != NULL) {
+        memcpy(before, wasmtime_memory_data(context, &mem), before_size);
+    }
+
+    bool ok = rule_call(env, rule, name, NULL, 0, timings);
+    (*env)->ReleaseStringUTFChars(env, export_name, name);
+    if (ok && has_memory) {
+        ok = snapshot_memory(snap, wasmtime_memory_data(context, &mem), wasmtime_memory_data_size(context, &mem),
+                             before, before_size);
+        if (!ok) {
+            throw_java(env, "Failed to allocate snapshot");
+        }
+    }
+    free(before);
+    ok = ok && snapshot_globals(env, snap, rule);
+    snap->module = wasmtime_module_clone((wasmtime_module_t *) (intptr_t) module_handle);
+    rule_destroy(env, rule);
+    if (!ok) {
+        snapshot_free(snap);
+        return 0;
+    }
+    LOGI("Snapshot: %zu of %llu chunks changed, %zu globals", snap->chunk_count,
+         (unsigned long long) (snap->memory_size / SNAPSHOT_CHUNK_BYTES), snap->global_count);
+    return (jlong) (intptr_t) snap;
+}
+
+static bool snapshot_restore(JNIEnv *env, const snapshot_t *snap, rule_instance_t *rule) {
+    wasmtime_context_t *context = wasmtime_store_context(rule->store);
+    if (snap->memory_size > 0) {
+        wasmtime_memory_t mem;
+        if (!rule_memory(rule, &mem)) {
+            throw_java(env, "Snapshot has memory but the instance exports none");
+            return false;
+        }
+        uint64_t size = wasmtime_memory_data_size(context, &mem);
+        if (size < snap->memory_size) {
+            uint64_t previous_pages = 0;
+            wasmtime_error_t *error = wasmtime_memory_grow(context, &mem,
+                    (snap->memory_size - size + WASM_PAGE_BYTES - 1) / WASM_PAGE_BYTES, &previous_pages);
+            if (handle_error(env, error, NULL)) {
+                return false;
+            }
+        }
+        uint8_t *base = wasmtime_memory_data(context, &mem);
+        for (size_t i = 0; i < snap->chunk_count; i++) {
+            memcpy(base + (uint64_t) snap->chunks[i] * SNAPSHOT_CHUNK_BYTES,
+                   snap->data + i * SNAPSHOT_CHUNK_BYTES, SNAPSHOT_CHUNK_BYTES);
+        }
+    }
+    char *name = NULL;
+    size_t name_len = 0;
+    wasmtime_extern_t item;
+    for (size_t i = 0; i < snap->global_count; i++) {
+        const snapshot_global_t *global = &snap->globals[i];
+        if (!wasmtime_instance_export_nth(context, &rule->instance, global->export_index, &name, &name_len, &item) ||
+            item.kind != WASMTIME_EXTERN_GLOBAL) {
+            throw_java(env, "Snapshot global is missing from the instance");
+            return false;
+        }
+        if (handle_error(env, wasmtime_global_set(context, &item.of.global, &global->value), NULL)) {
+            return false;
+        }
+    }
+    return true;
+}
+
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_createRuleFromSnapshot(
+        JNIEnv *env,
+        jobject thiz,
+        jlong snapshot_handle,
+        jobject host,
+        jlongArray timings) {
+    (void) thiz;
+
+    if (snapshot_handle == 0 || host == NULL) {
+        throw_java(env, "snapshot and host are required");
+        return 0;
+    }
+    const snapshot_t *snap = (const snapshot_t *) (intptr_t) snapshot_handle;
+    ATrace_beginSection("wasm.instantiate");
+    int64_t phase_start = now_ns();
+    rule_instance_t *rule = rule_new(env, snap->module, host);
+    bool ok = rule != NULL && snapshot_restore(env, snap, rule);
+    ATrace_endSection();
+    if (!ok) {
+        if (rule != NULL) {
+            rule_destroy(env, rule);
+        }
+        return 0;
+    }
+    report_phase(env, timings, PHASE_INSTANTIATE, phase_start);
+    return (jlong) (intptr_t) rule;
+}
+
+// Bytes of memory a snapshot copies into each new instance.
+JNIEXPORT jlong JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_snapshotBytes(
+        JNIEnv *env,
+        jobject thiz,
+        jlong snapshot_handle) {
+    (void) env;
+    (void) thiz;
+
+    const snapshot_t *snap = (const snapshot_t *) (intptr_t) snapshot_handle;
+    return (jlong) (snap->chunk_count * SNAPSHOT_CHUNK_BYTES);
+}
+
+JNIEXPORT void JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_releaseSnapshot(
+        JNIEnv *env,
+        jobject thiz,
+        jlong snapshot_handle) {
+    (void) env;
+    (void) thiz;
+
+    if (snapshot_handle != 0) {
+        snapshot_free((snapshot_t *) (intptr_t) snapshot_handle);
+    }
+}
+
+JNIEXPORT void JNICALL
+Java_ai_edgez_controller_WasmtimeRunner_destroyRule(
+        JNIEnv *env,
+        jobject thiz,
+        jlong handle) {
+    (void) thiz;
+
+    if (handle != 0) {
+        rule_destroy(env, (rule_instance_t *) (intptr_t) handle);
+    }
 }
@@ -0,0 +1,249 @@
+package ai.edgez.controller;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.FleetAggregates;
+import ai.edgez.controller.data.MemoryGovernor;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.data.TimeSeriesStore;
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.model.ObjectModels;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.IoScheduler;
+import ai.edgez.controller.poll.FleetPoller;
+import ai.edgez.controller.wasm.EdgeRuleEngine;
+import ai.edgez.controller.wasm.PayloadDecoders;
+import ai.edgez.controller.wasm.WasmModuleRegistry;
+import ai.edgez.controller.wasm.WasmWorkerPool;
+
+/** Application entry point; owns process-wide stores shared across fragments. */
+public class EdgeControllerApp extends Application {
+
+    private static final long BUDGET_CHECK_INTERVAL_MS = 30_000L;
+    // Gateway calls mostly wait on the network; background polling gets half of these.
+    private static final int IO_WORKERS = 6;
+    // One rule per device across a typical fleet; rules beyond the pool's slots still run.
+    private static final int EXPECTED_RULES = 128;
+    // Shed order under memory pressure, cheapest to rebuild first.
+    private static final int PRIORITY_DECODERS = 0;
+    private static final int PRIORITY_MODULES = 10;
+    private static final int PRIORITY_MODELS = 20;
+    private static final int PRIORITY_TIME_SERIES = 50;
+    private static final int PRIORITY_VALUES = 80;
+    // About half of what every generated object model takes once built.
+    private static final long MODELS_BUDGET_BYTES = 128L * 1024;
+    private static final long MODULES_BUDGET_BYTES = 32L * 1024 * 1024;
+    private static final long DECODERS_BUDGET_BYTES = 16L * 1024 * 1024;
+    // Rough heap cost of one device entry across the registry's maps.
+    private static final long DEVICE_BYTES = 256L;
+
+    private final NetworkProbe networkProbe = new NetworkProbe();
+    private final GatewayClient gatewayClient = new GatewayClient(networkProbe);
+    private final DeviceRegistry deviceRegistry = new DeviceRegistry();
+    private final IoScheduler ioScheduler = new IoScheduler(IO_WORKERS);
+    private final MemoryGovernor memoryGovernor = new MemoryGovernor();
+    private TimeSeriesStore timeSeriesStore;
+    private ResourceValueCache valueCache;
+    private final FleetAggregates fleetAggregates = new FleetAggregates();
+    private FleetPoller fleetPoller;
+    // Wasm objects have their own lock: creating the runner loads the native library, which must
+    // not hold up the main thread's calls to the other getters.
+    private final Object wasmLock = new Object();
+    private final CompletableFuture<WasmtimeRunner> wasmReady = new CompletableFuture<>();
+    private WasmtimeRunner wasmtimeRunner;
+    private WasmModuleRegistry moduleRegistry;
+    private WasmWorkerPool wasmWorkers;
+    private EdgeRuleEngine ruleEngine;
+    private PayloadDecoders payloadDecoders;
+
+    public static EdgeControllerApp from(Context context) {
+        return (EdgeControllerApp) context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Metrics.setTracer(new SystemTracer());
+        memoryGovernor.register("models", PRIORITY_MODELS, MODELS_BUDGET_BYTES, new MemoryGovernor.Cache() {
+            @Override
+            public long memoryBytes() {
+                return ObjectModels.memoryBytes();
+            }
+
+            @Override
+            public void trimTo(long targetBytes) {
+                ObjectModels.trimTo(targetBytes);
+            }
+        });
+        memoryGovernor.track("devices", () -> deviceRegistry.snapshot().size() * DEVICE_BYTES);
+        memoryGovernor.start(BUDGET_CHECK_INTERVAL_MS);
+        // Load the Wasm runtime once the main thread first goes idle, i.e. after the first frame.
+        Looper.myQueue().addIdleHandler(() -> {
+            Thread init = new Thread(this::initWasm, "wasm-init");
+            init.setPriority(Thread.MIN_PRIORITY);
+            init.start();
+            return false;
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        memoryGovernor.trimAsync(pressureFor(level));
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        memoryGovernor.trimAsync(MemoryGovernor.Pressure.CRITICAL);
+    }
+
+    // The RUNNING_* levels arrive while in the foreground, the others once the UI is hidden.
+    @SuppressWarnings("deprecation")
+    private static MemoryGovernor.Pressure pressureFor(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            return MemoryGovernor.Pressure.CRITICAL;
+        }
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            return MemoryGovernor.Pressure.MODERATE;
+        }
+        return MemoryGovernor.Pressure.BUDGET;
+    }
+
+    private void initWasm() {
+        try {
+            wasmReady.complete(getWasmtimeRunner());
+        } catch (Throwable t) {
+            wasmReady.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Completes once the native bridge is loaded and the shared engine exists. Chain Wasm work on
+     * this from the main thread instead of calling {@link #getWasmtimeRunner()}, which blocks.
+     */
+    public CompletableFuture<WasmtimeRunner> getWasmReady() {
+        return wasmReady;
+    }
+
+    public NetworkProbe getNetworkProbe() {
+        return networkProbe;
+    }
+
+    public GatewayClient getGatewayClient() {
+        return gatewayClient;
+    }
+
+    public DeviceRegistry getDeviceRegistry() {
+        return deviceRegistry;
+    }
+
+    /** Runs gateway and file I/O for the UI and the poller, user-facing work first. */
+    public IoScheduler getIoScheduler() {
+        return ioScheduler;
+    }
+
+    /** Budgets and sheds the caches below; see {@link MemoryGovernor#report()} for usage. */
+    public MemoryGovernor getMemoryGovernor() {
+        return memoryGovernor;
+    }
+
+    public synchronized TimeSeriesStore getTimeSeriesStore() {
+        if (timeSeriesStore == null) {
+            timeSeriesStore = new TimeSeriesStore(new File(getNoBackupFilesDir(), "timeseries"));
+            memoryGovernor.register("timeseries", PRIORITY_TIME_SERIES, Runtime.getRuntime().maxMemory() / 8,
+                    timeSeriesStore);
+        }
+        return timeSeriesStore;
+    }
+
+    public synchronized ResourceValueCache getValueCache() {
+        if (valueCache == null) {
+            valueCache = new ResourceValueCache(getTimeSeriesStore());
+            valueCache.addListener(fleetAggregates);
+            memoryGovernor.register("values", PRIORITY_VALUES, Runtime.getRuntime().maxMemory() / 16, valueCache);
+        }
+        return valueCache;
+    }
+
+    /** Fleet-wide statistics of every numeric value that passes through {@link #getValueCache()}. */
+    public FleetAggregates getFleetAggregates() {
+        return fleetAggregates;
+    }
+
+    public synchronized FleetPoller getFleetPoller() {
+        if (fleetPoller == null) {
+            fleetPoller = new FleetPoller(gatewayClient, deviceRegistry, getValueCache(), ioScheduler);
+        }
+        return fleetPoller;
+    }
+
+    /** Blocks while the native library loads; see {@link #getWasmReady()}. */
+    public WasmtimeRunner getWasmtimeRunner() {
+        synchronized (wasmLock) {
+            if (wasmtimeRunner == null) {
+                wasmtimeRunner = new WasmtimeRunner(WasmtimeRunner.poolSlotsFor(EXPECTED_RULES,
+                        Runtime.getRuntime().availableProcessors()));
+            }
+            return wasmtimeRunner;
+        }
+    }
+
+    /** Installed rule modules; previously installed versions are loaded in the background. */
+    public WasmModuleRegistry getModuleRegistry() {
+        synchronized (wasmLock) {
+            if (moduleRegistry == null) {
+                moduleRegistry = new WasmModuleRegistry(getWasmtimeRunner(), new File(getFilesDir(), "wasm"));
+                moduleRegistry.loadInstalled();
+                memoryGovernor.register("wasm.modules", PRIORITY_MODULES, MODULES_BUDGET_BYTES, moduleRegistry);
+            }
+            return moduleRegistry;
+        }
+    }
+
+    public WasmWorkerPool getWasmWorkers() {
+        synchronized (wasmLock) {
+            if (wasmWorkers == null) {
+                wasmWorkers = new WasmWorkerPool();
+            }
+            return wasmWorkers;
+        }
+    }
+
+    public EdgeRuleEngine getRuleEngine() {
+        synchronized (wasmLock) {
+            if (ruleEngine == null) {
+                ruleEngine = new EdgeRuleEngine(getWasmtimeRunner(), getModuleRegistry(), getWasmWorkers(),
+                        gatewayClient, getValueCache(), getFleetPoller());
+                EdgeRuleEngine engine = ruleEngine;
+                memoryGovernor.track("wasm.rules", () -> {
+                    long total = 0;
+                    for (long bytes : engine.memoryByModule().values()) {
+                        total += bytes;
+                    }
+                    return total;
+                });
+            }
+            return ruleEngine;
+        }
+    }
+
+    /** Wasm decoders for vendor payloads in Opaque resources; modules come from the registry. */
+    public PayloadDecoders getPayloadDecoders() {
+        synchronized (wasmLock) {
+            if (payloadDecoders == null) {
+                payloadDecoders = new PayloadDecoders(getWasmtimeRunner(), getModuleRegistry(), getWasmWorkers(),
+                        new File(getFilesDir(), "wasm"));
+                memoryGovernor.register("wasm.decoders", PRIORITY_DECODERS, DECODERS_BUDGET_BYTES, payloadDecoders);
+            }
+            return payloadDecoders;
+        }
+    }
+}
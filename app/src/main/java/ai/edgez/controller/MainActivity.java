@@ -17,12 +17,13 @@ import androidx.navigation.ui.NavigationUI;
 import androidx.appcompat.app.AppCompatActivity;
 
 import ai.edgez.controller.databinding.ActivityMainBinding;
+import ai.edgez.controller.poll.PollingService;
+import ai.edgez.controller.poll.PollingSettings;
 import java.io.IOException;
 
 public class MainActivity extends AppCompatActivity {
 
     private AppBarConfiguration mAppBarConfiguration;
-    private final WasmtimeRunner wasmtimeRunner = new WasmtimeRunner();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,22 +34,19 @@ public class MainActivity extends AppCompatActivity {
 
         setSupportActionBar(binding.appBarMain.toolbar);
         if (binding.appBarMain.fab != null) {
-            binding.appBarMain.fab.setOnClickListener(view -> {
-                try {
-                    String hello = wasmtimeRunner.invokeHello(this);
-                    Snackbar.make(view, "Wasm says: " + hello, Snackbar.LENGTH_LONG)
+            // The runtime loads in the background after the first frame; a tap before that waits for it.
+            binding.appBarMain.fab.setOnClickListener(view -> EdgeControllerApp.from(this).getWasmReady()
+                    .thenApplyAsync(runner -> {
+                        try {
+                            return "Wasm says: " + runner.invokeHello(this);
+                        } catch (IOException e) {
+                            return "Asset error: " + e.getMessage();
+                        }
+                    })
+                    .exceptionally(e -> "Wasm error: " + (e.getCause() != null ? e.getCause() : e).getMessage())
+                    .thenAccept(message -> runOnUiThread(() -> Snackbar.make(view, message, Snackbar.LENGTH_LONG)
                             .setAnchorView(R.id.fab)
-                            .show();
-                } catch (IOException e) {
-                    Snackbar.make(view, "Asset error: " + e.getMessage(), Snackbar.LENGTH_LONG)
-                            .setAnchorView(R.id.fab)
-                            .show();
-                } catch (Exception e) {
-                    Snackbar.make(view, "Wasm error: " + e.getMessage(), Snackbar.LENGTH_LONG)
-                            .setAnchorView(R.id.fab)
-                            .show();
-                }
-            });
+                            .show())));
         }
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager().findFragmentById(R.id.nav_host_fragment_content_main);
         assert navHostFragment != null;
@@ -57,7 +55,7 @@ public class MainActivity extends AppCompatActivity {
         NavigationView navigationView = binding.navView;
         if (navigationView != null) {
             mAppBarConfiguration = new AppBarConfiguration.Builder(
-                    R.id.nav_transform, R.id.nav_reflow, R.id.nav_slideshow, R.id.nav_settings)
+                    R.id.nav_transform, R.id.nav_fleet_query, R.id.nav_reflow, R.id.nav_diagnostics, R.id.nav_settings)
                     .setOpenableLayout(binding.drawerLayout)
                     .build();
             NavigationUI.setupActionBarWithNavController(this, navController, mAppBarConfiguration);
@@ -67,11 +65,21 @@ public class MainActivity extends AppCompatActivity {
         BottomNavigationView bottomNavigationView = binding.appBarMain.contentMain.bottomNavView;
         if (bottomNavigationView != null) {
             mAppBarConfiguration = new AppBarConfiguration.Builder(
-                    R.id.nav_transform, R.id.nav_reflow, R.id.nav_slideshow)
+                    R.id.nav_transform, R.id.nav_reflow, R.id.nav_diagnostics)
                     .build();
             NavigationUI.setupActionBarWithNavController(this, navController, mAppBarConfiguration);
             NavigationUI.setupWithNavController(bottomNavigationView, navController);
         }
+
+        if (savedInstanceState == null && new PollingSettings(this).isEnabled()) {
+            PollingService.start(this);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        EdgeControllerApp.from(this).getTimeSeriesStore().flush();
     }
 
     @Override
@@ -90,9 +98,9 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
-        if (item.getItemId() == R.id.nav_settings) {
+        if (item.getItemId() == R.id.nav_settings || item.getItemId() == R.id.nav_fleet_query) {
             NavController navController = Navigation.findNavController(this, R.id.nav_host_fragment_content_main);
-            navController.navigate(R.id.nav_settings);
+            navController.navigate(item.getItemId());
         }
         return super.onOptionsItemSelected(item);
     }
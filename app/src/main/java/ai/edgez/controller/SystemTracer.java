@@ -0,0 +1,39 @@
+package ai.edgez.controller;
+
+import android.os.Trace;
+
+import ai.edgez.controller.metrics.Metrics;
+
+/** Routes {@link Metrics} trace sections to {@link Trace} so they appear in Perfetto captures. */
+final class SystemTracer implements Metrics.Tracer {
+
+    @Override
+    public boolean isEnabled() {
+        return Trace.isEnabled();
+    }
+
+    @Override
+    public void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        Trace.beginAsyncSection(name, cookie);
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        Trace.endAsyncSection(name, cookie);
+    }
+
+    @Override
+    public void setCounter(String name, long value) {
+        Trace.setCounter(name, value);
+    }
+}
@@ -7,17 +7,87 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.wasm.WasmHost;
+
+/**
+ * Java side of the Wasmtime JNI bridge. Constructing a runner loads the native library and
+ * creates the shared engine, which takes long enough to keep off the main thread. Rule instances
+ * come from a pool of slots the engine reserves up front; the first runner in the process sizes
+ * it, and rules beyond it are allocated on demand.
+ */
 public class WasmtimeRunner {
 
-    static {
-        System.loadLibrary("wasmtime_bridge");
+    private static final Object LOAD_LOCK = new Object();
+    private static volatile boolean loaded;
+
+    // Indices into the timings array filled by the native side, in nanoseconds.
+    private static final int PHASE_COMPILE = 0;
+    private static final int PHASE_INSTANTIATE = 1;
+    private static final int PHASE_CALL = 2;
+
+    private static final Metrics.Timer COMPILE = Metrics.timer("wasm.compile");
+    private static final Metrics.Timer INSTANTIATE = Metrics.timer("wasm.instantiate");
+    private static final Metrics.Timer CALL = Metrics.timer("wasm.call");
+    private static final Metrics.Timer INIT = Metrics.timer("wasm.init");
+
+    // Slots for payload decoder instances, one per decoder module in use.
+    private static final int DECODER_SLOTS = 16;
+
+    // Rules run on their own threads, so each thread gets its own array.
+    private static final ThreadLocal<long[]> TIMINGS = ThreadLocal.withInitial(() -> new long[3]);
+
+    /** Uses the native side's default pool size if this is the first runner. */
+    public WasmtimeRunner() {
+        this(0);
+    }
+
+    /**
+     * @param poolSlots instances the engine's pool holds, see {@link #poolSlotsFor}; only the
+     *                  first runner created in the process sets it, and 0 picks a default
+     */
+    public WasmtimeRunner(int poolSlots) {
+        ensureLoaded(poolSlots);
     }
 
     /**
-     * Invoke exported function "add" (i32, i32) -> i32 from the provided Wasm module bytes.
+     * Pool slots for {@code rules} rule instances run on {@code workers} threads: one per rule,
+     * one per worker for the new instance it creates before releasing the old one when a rule
+     * changes version or is snapshotted, and a few for payload decoders.
+     */
+    public static int poolSlotsFor(int rules, int workers) {
+        return rules + workers + DECODER_SLOTS;
+    }
+
+    private static void ensureLoaded(int poolSlots) {
+        if (loaded) {
+            return;
+        }
+        synchronized (LOAD_LOCK) {
+            if (!loaded) {
+                long start = INIT.begin();
+                try {
+                    System.loadLibrary("wasmtime_bridge");
+                    nativeInit(poolSlots);
+                } finally {
+                    INIT.end(start);
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * Invoke exported function "add" (i32, i32) -> i32 from the provided Wasm module bytes. Calls
+     * with the same bytes on one thread reuse one instance, outside the pool.
      */
     public int invokeAdd(byte[] wasmBytes, int a, int b) {
-        return runAdd(wasmBytes, a, b);
+        long[] timings = startTimings();
+        try {
+            return runAdd(wasmBytes, a, b, timings);
+        } finally {
+            recordTimings(timings);
+        }
     }
 
     /**
@@ -25,19 +95,186 @@ public class WasmtimeRunner {
      */
     public int invokeAddFromAsset(Context context, String assetName, int a, int b) throws IOException {
         byte[] module = readAll(context.getAssets(), assetName);
-        return runAdd(module, a, b);
+        return invokeAdd(module, a, b);
     }
 
     /**
      * Load and run hello_wasm.wasm from assets and return the hello string.
      */
     public String invokeHello(Context context) throws IOException {
-        byte[] module = readAll(context.getAssets(), "hello_wasm.wasm");
-        return runHello(module);
+        return invokeHello(readAll(context.getAssets(), "hello_wasm.wasm"));
     }
 
-    private native int runAdd(byte[] wasmBytes, int a, int b);
-    private native String runHello(byte[] wasmBytes);
+    /**
+     * Run hello_wasm-style module bytes (exports memory, hello_ptr and hello_len) and return the string.
+     */
+    public String invokeHello(byte[] wasmBytes) {
+        long[] timings = startTimings();
+        try {
+            return runHello(wasmBytes, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /**
+     * Compile module bytes on the shared engine. The handle can back any number of rule instances
+     * and must be released with {@link #releaseModule(long)}; instances keep their own reference.
+     */
+    public long compile(byte[] wasmBytes) {
+        long[] timings = startTimings();
+        try {
+            return compileModule(wasmBytes, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /** Load a module previously written by {@link #savePrecompiled(long, String)}. */
+    public long loadCompiled(String path) {
+        long[] timings = startTimings();
+        try {
+            return loadPrecompiled(path, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /**
+     * Instantiate a compiled module as a rule that may import the {@code edgez} host functions
+     * ({@code clock_ns}, {@code read}, {@code write}, {@code observe}), which call back into
+     * {@code host}. The returned handle is not thread-safe: use it from one thread at a time and
+     * release it with {@link #releaseRule(long)}.
+     */
+    public long instantiateRule(long module, WasmHost host) {
+        long[] timings = startTimings();
+        try {
+            return createRule(module, host, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /**
+     * Runs the no-argument export {@code initExport} once in a fresh instance of {@code module}
+     * and captures the memory and exported mutable globals it leaves behind, so that
+     * {@link #instantiateSnapshot} can create instances in that state without running it again.
+     * Returns 0 if the module does not export {@code initExport}; otherwise release the snapshot
+     * with {@link #releaseSnapshot(long)}. The snapshot holds its own reference to the module.
+     */
+    public long snapshotRule(long module, WasmHost host, String initExport) {
+        long[] timings = startTimings();
+        try {
+            return createSnapshot(module, host, initExport, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /** Like {@link #instantiateRule}, starting from the state captured by {@link #snapshotRule}. */
+    public long instantiateSnapshot(long snapshot, WasmHost host) {
+        long[] timings = startTimings();
+        try {
+            return createRuleFromSnapshot(snapshot, host, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /** Calls a no-argument export of a rule. Returns false if the module does not export it. */
+    public boolean callRuleExport(long handle, String export) {
+        long[] timings = startTimings();
+        try {
+            return callRule(handle, export, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /**
+     * Delivers an observed value to the rule's {@code on_value(obj, inst, res, value)} export.
+     * Returns false if the module does not export it.
+     */
+    public boolean notifyRuleValue(long handle, int objId, int instId, int resId, double value) {
+        long[] timings = startTimings();
+        try {
+            return notifyRule(handle, objId, instId, resId, value, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    /**
+     * Runs one batch through the {@code decode} export of an instance whose module is a payload
+     * decoder. {@code input} holds {@code count} records as laid out in
+     * {@link ai.edgez.controller.wasm.PayloadDecoders}; the guest's output records are copied into
+     * {@code output}, whose length is the space offered to the guest.
+     *
+     * @return bytes written to {@code output}, or -1 if it was too small
+     */
+    public int decodeBatch(long handle, byte[] input, int inLength, int count, byte[] output) {
+        long[] timings = startTimings();
+        try {
+            return runDecodeBatch(handle, input, inLength, count, output, timings);
+        } finally {
+            recordTimings(timings);
+        }
+    }
+
+    public void releaseRule(long handle) {
+        destroyRule(handle);
+    }
+
+    private static long[] startTimings() {
+        long[] timings = TIMINGS.get();
+        timings[PHASE_COMPILE] = 0L;
+        timings[PHASE_INSTANTIATE] = 0L;
+        timings[PHASE_CALL] = 0L;
+        return timings;
+    }
+
+    // Phases that failed or were not reached are left at 0 by the native side and skipped.
+    private static void recordTimings(long[] timings) {
+        if (timings[PHASE_COMPILE] > 0) {
+            COMPILE.recordNanos(timings[PHASE_COMPILE]);
+        }
+        if (timings[PHASE_INSTANTIATE] > 0) {
+            INSTANTIATE.recordNanos(timings[PHASE_INSTANTIATE]);
+        }
+        if (timings[PHASE_CALL] > 0) {
+            CALL.recordNanos(timings[PHASE_CALL]);
+        }
+    }
+
+    /** Creates the shared engine, pooling {@code poolSlots} instances, and the host function linker. */
+    private static native void nativeInit(int poolSlots);
+    /** Instances the engine's pool holds, 0 if every instance is allocated on demand. */
+    public native int poolSlots();
+    /** Rule instances allocated on demand because the pool was full, since the process started. */
+    public native long overflowInstances();
+    private native int runAdd(byte[] wasmBytes, int a, int b, long[] timings);
+    private native String runHello(byte[] wasmBytes, long[] timings);
+    /** Returns null if {@code wasmBytes} is a valid module, otherwise the validation error. */
+    public native String validateModule(byte[] wasmBytes);
+    public native boolean savePrecompiled(long module, String path);
+    /** Size of a compiled module's code image in bytes. */
+    public native long moduleImageBytes(long module);
+    public native void releaseModule(long module);
+    /** Linear memory of a rule instance in bytes; call from the thread that owns the instance. */
+    public native long ruleMemoryBytes(long handle);
+    /** Memory copied into every instance created from the snapshot. */
+    public native long snapshotBytes(long snapshot);
+    public native void releaseSnapshot(long snapshot);
+
+    private native long compileModule(byte[] wasmBytes, long[] timings);
+    private native long loadPrecompiled(String path, long[] timings);
+    private native long createRule(long module, WasmHost host, long[] timings);
+    private native long createSnapshot(long module, WasmHost host, String initExport, long[] timings);
+    private native long createRuleFromSnapshot(long snapshot, WasmHost host, long[] timings);
+    private native boolean callRule(long handle, String export, long[] timings);
+    private native boolean notifyRule(long handle, int objId, int instId, int resId, double value, long[] timings);
+    private native int runDecodeBatch(long handle, byte[] input, int inLength, int count, byte[] output, long[] timings);
+    private native void destroyRule(long handle);
 
     private static byte[] readAll(AssetManager assets, String assetName) throws IOException {
         try (InputStream input = assets.open(assetName);
@@ -0,0 +1,108 @@
+package ai.edgez.controller.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide view of discovered gateways and the clients registered on them. Discovery in the
+ * devices screen and background polling both write here, so screens can start from the last
+ * known list instead of an empty one.
+ */
+public class DeviceRegistry {
+
+    /** A client registered on a gateway. */
+    public static final class Device {
+        public final String endpoint;
+        public final String address;
+        public final int port;
+
+        public Device(String endpoint, String address, int port) {
+            this.endpoint = endpoint;
+            this.address = address;
+            this.port = port;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Device)) return false;
+            Device other = (Device) o;
+            return port == other.port && endpoint.equals(other.endpoint) && address.equals(other.address);
+        }
+
+        @Override
+        public int hashCode() {
+            return (endpoint.hashCode() * 31 + address.hashCode()) * 31 + port;
+        }
+    }
+
+    /** Notified on the writer's thread whenever the merged device list changes. */
+    public interface Listener {
+        void onDevicesChanged(List<Device> devices);
+    }
+
+    private final Map<String, String> servers = new LinkedHashMap<>();
+    private final Map<String, List<Device>> devicesByService = new LinkedHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Records a resolved gateway service and its address. */
+    public synchronized void putServer(String serviceName, String address) {
+        servers.put(serviceName, address);
+    }
+
+    /** Replaces the client list reported by one gateway service. */
+    public void putDevices(String serviceName, List<Device> devices) {
+        List<Device> merged;
+        synchronized (this) {
+            devicesByService.put(serviceName, Collections.unmodifiableList(new ArrayList<>(devices)));
+            merged = mergedLocked();
+        }
+        notifyListeners(merged);
+    }
+
+    public void removeServer(String serviceName) {
+        List<Device> merged;
+        synchronized (this) {
+            servers.remove(serviceName);
+            devicesByService.remove(serviceName);
+            merged = mergedLocked();
+        }
+        notifyListeners(merged);
+    }
+
+    /** Known gateways as service name to address. */
+    public synchronized Map<String, String> servers() {
+        return new LinkedHashMap<>(servers);
+    }
+
+    /** All known devices across gateways. */
+    public synchronized List<Device> snapshot() {
+        return mergedLocked();
+    }
+
+    private List<Device> mergedLocked() {
+        List<Device> merged = new ArrayList<>();
+        for (List<Device> list : devicesByService.values()) {
+            merged.addAll(list);
+        }
+        return merged;
+    }
+
+    private void notifyListeners(List<Device> merged) {
+        for (Listener listener : listeners) {
+            listener.onDevicesChanged(merged);
+        }
+    }
+}
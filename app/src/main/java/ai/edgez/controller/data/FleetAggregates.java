@@ -0,0 +1,194 @@
+package ai.edgez.controller.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.edgez.controller.metrics.P2Quantile;
+
+/**
+ * Running statistics per object and resource type across the fleet, e.g. every {@code /3303/x/5700}
+ * on every device, fed by {@link ResourceValueCache} as numeric values arrive.
+ *
+ * <p>Each value updates its aggregate in O(1): count, min, max and mean are running values and the
+ * percentiles are {@link P2Quantile} estimates, so no samples are kept. Readers ask only for the
+ * aggregates changed since they last asked, so refreshing a view costs nothing when nothing moved.
+ */
+public class FleetAggregates implements ResourceValueCache.Listener {
+
+    /** An immutable copy of one aggregate. */
+    public static final class Snapshot {
+        public final String key;
+        public final int objectId;
+        public final int resourceId;
+        public final long count;
+        public final int devices;
+        public final double min;
+        public final double max;
+        public final double mean;
+        public final double p50;
+        public final double p90;
+        public final double p99;
+        public final double last;
+        public final long updatedMs;
+
+        Snapshot(String key, Aggregate a) {
+            this.key = key;
+            this.objectId = a.objectId;
+            this.resourceId = a.resourceId;
+            this.count = a.count;
+            this.devices = a.endpoints.size();
+            this.min = a.min;
+            this.max = a.max;
+            this.mean = a.mean;
+            this.p50 = a.p50.value();
+            this.p90 = a.p90.value();
+            this.p99 = a.p99.value();
+            this.last = a.last;
+            this.updatedMs = a.updatedMs;
+        }
+    }
+
+    private static final class Aggregate {
+        final int objectId;
+        final int resourceId;
+        final Set<String> endpoints = new HashSet<>();
+        final P2Quantile p50 = new P2Quantile(0.5d);
+        final P2Quantile p90 = new P2Quantile(0.9d);
+        final P2Quantile p99 = new P2Quantile(0.99d);
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean;
+        double last;
+        long updatedMs;
+
+        Aggregate(int objectId, int resourceId) {
+            this.objectId = objectId;
+            this.resourceId = resourceId;
+        }
+
+        synchronized void add(String endpoint, double v, long timestampMs) {
+            endpoints.add(endpoint);
+            count++;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            mean += (v - mean) / count;
+            p50.add(v);
+            p90.add(v);
+            p99.add(v);
+            last = v;
+            updatedMs = timestampMs;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+
+    /** Aggregate key for object and resource IDs, e.g. {@code 3303/5700}. */
+    public static String key(int objectId, int resourceId) {
+        return objectId + "/" + resourceId;
+    }
+
+    @Override
+    public void onValue(String endpoint, String path, ResourceValueCache.Entry entry) {
+        if (!Double.isNaN(entry.numeric)) {
+            add(endpoint, path, entry.numeric, entry.timestampMs);
+        }
+    }
+
+    /** Adds a value read from {@code path}; paths other than {@code /obj/inst/res} are ignored. */
+    public void add(String endpoint, String path, double value, long timestampMs) {
+        int objectId = segment(path, 1);
+        int resourceId = segment(path, 3);
+        if (objectId < 0 || resourceId < 0 || segment(path, 2) < 0 || segment(path, 4) != -2) {
+            return;
+        }
+        String key = key(objectId, resourceId);
+        Aggregate a = aggregates.get(key);
+        if (a == null) {
+            a = aggregates.computeIfAbsent(key, k -> new Aggregate(objectId, resourceId));
+        }
+        a.add(endpoint, value, timestampMs);
+        changed.add(key);
+    }
+
+    /** Snapshots of the aggregates updated since the previous call, in no particular order. */
+    public List<Snapshot> drainChanged() {
+        List<Snapshot> out = new ArrayList<>();
+        for (Iterator<String> it = changed.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            it.remove();
+            Snapshot s = snapshot(key);
+            if (s != null) {
+                out.add(s);
+            }
+        }
+        return out;
+    }
+
+    /** Snapshots of every aggregate; does not affect {@link #drainChanged}. */
+    public List<Snapshot> snapshotAll() {
+        List<Snapshot> out = new ArrayList<>(aggregates.size());
+        for (String key : aggregates.keySet()) {
+            Snapshot s = snapshot(key);
+            if (s != null) {
+                out.add(s);
+            }
+        }
+        return out;
+    }
+
+    public int size() {
+        return aggregates.size();
+    }
+
+    public void reset() {
+        aggregates.clear();
+        changed.clear();
+    }
+
+    /** Returns null if the aggregate was dropped by {@link #reset} in the meantime. */
+    private Snapshot snapshot(String key) {
+        Aggregate a = aggregates.get(key);
+        if (a == null) {
+            return null;
+        }
+        synchronized (a) {
+            return new Snapshot(key, a);
+        }
+    }
+
+    /**
+     * The {@code index}-th {@code /}-separated number in {@code path}, counting the empty text
+     * before the leading slash as 0. Returns -1 if it is not a number and -2 if there is none.
+     */
+    static int segment(String path, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = path.indexOf('/', start) + 1;
+            if (start == 0) {
+                return -2;
+            }
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        if (end == start || end - start > 9) {
+            return -1;
+        }
+        int v = 0;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
@@ -0,0 +1,239 @@
+package ai.edgez.controller.data;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity, Gorilla-compressed block of (timestamp, value) samples backed by a primitive
+ * {@code long[]}. Timestamps are stored as delta-of-delta, values as XOR against the previous value.
+ * Blocks are reused after being sealed and spilled, so steady-state appends do not allocate.
+ */
+final class GorillaBlock {
+
+    /** Worst case for one sample: 4 + 64 bits of timestamp, 2 + 5 + 6 + 64 bits of value. */
+    private static final int MAX_BITS_PER_SAMPLE = 145;
+
+    final long[] words;
+    private int bitPos;
+    private int count;
+    private long firstTs;
+    private long lastTs;
+    private long prevDelta;
+    private long prevValueBits;
+    private int prevLeading;
+    private int prevTrailing;
+
+    GorillaBlock(int capacityWords) {
+        words = new long[capacityWords];
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(words, 0, Math.min(words.length, (bitPos >>> 6) + 1), 0L);
+        bitPos = 0;
+        count = 0;
+        firstTs = 0L;
+        lastTs = 0L;
+        prevDelta = 0L;
+        prevValueBits = 0L;
+        prevLeading = -1;
+        prevTrailing = 0;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTs;
+    }
+
+    long lastTimestamp() {
+        return lastTs;
+    }
+
+    /** Number of words that hold encoded bits. */
+    int usedWords() {
+        return (bitPos + 63) >>> 6;
+    }
+
+    boolean hasRoom() {
+        return (long) words.length * 64L - bitPos >= MAX_BITS_PER_SAMPLE;
+    }
+
+    /**
+     * Appends a sample. Timestamps must be non-decreasing; callers drop out-of-order samples.
+     *
+     * @return false if the block is full and must be sealed first
+     */
+    boolean append(long timestampMs, double value) {
+        if (!hasRoom()) {
+            return false;
+        }
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            writeBits(timestampMs, 64);
+            writeBits(valueBits, 64);
+            firstTs = timestampMs;
+            lastTs = timestampMs;
+            prevValueBits = valueBits;
+            count = 1;
+            return true;
+        }
+        long delta = timestampMs - lastTs;
+        long dod = delta - prevDelta;
+        if (dod == 0) {
+            writeBits(0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            writeBits(0b10, 2);
+            writeBits(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            writeBits(0b110, 3);
+            writeBits(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            writeBits(0b1110, 4);
+            writeBits(dod, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(dod, 64);
+        }
+        prevDelta = delta;
+        lastTs = timestampMs;
+
+        long xor = valueBits ^ prevValueBits;
+        if (xor == 0) {
+            writeBits(0, 1);
+        } else {
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                writeBits(0b10, 2);
+                int significant = 64 - prevLeading - prevTrailing;
+                writeBits(xor >>> prevTrailing, significant);
+            } else {
+                int significant = 64 - leading - trailing;
+                writeBits(0b11, 2);
+                writeBits(leading, 5);
+                writeBits(significant - 1, 6);
+                writeBits(xor >>> trailing, significant);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+        prevValueBits = valueBits;
+        count++;
+        return true;
+    }
+
+    private void writeBits(long value, int nbits) {
+        if (nbits < 64) {
+            value &= (1L << nbits) - 1;
+        }
+        int word = bitPos >>> 6;
+        int offset = bitPos & 63;
+        int free = 64 - offset;
+        if (nbits <= free) {
+            words[word] |= value << (free - nbits);
+        } else {
+            int spill = nbits - free;
+            words[word] |= value >>> spill;
+            words[word + 1] |= value << (64 - spill);
+        }
+        bitPos += nbits;
+    }
+
+    /**
+     * Sequential decoder over an encoded word array. Instances are meant to be kept and
+     * re-{@link #reset} so that range scans do not allocate.
+     */
+    static final class Cursor {
+        private long[] src;
+        private int remaining;
+        private int bitPos;
+        private boolean first;
+        private long prevDelta;
+        private int leading;
+        private int trailing;
+
+        long timestamp;
+        double value;
+        private long valueBits;
+
+        void reset(long[] words, int count) {
+            src = words;
+            remaining = count;
+            bitPos = 0;
+            first = true;
+            prevDelta = 0L;
+            leading = 0;
+            trailing = 0;
+            timestamp = 0L;
+            valueBits = 0L;
+            value = 0d;
+        }
+
+        void reset(GorillaBlock block) {
+            reset(block.words, block.count);
+        }
+
+        /** Advances to the next sample; returns false when the block is exhausted. */
+        boolean next() {
+            if (remaining <= 0) {
+                return false;
+            }
+            remaining--;
+            if (first) {
+                first = false;
+                timestamp = readBits(64);
+                valueBits = readBits(64);
+                value = Double.longBitsToDouble(valueBits);
+                return true;
+            }
+            long dod;
+            if (readBits(1) == 0) {
+                dod = 0;
+            } else if (readBits(1) == 0) {
+                dod = signExtend(readBits(7), 7);
+            } else if (readBits(1) == 0) {
+                dod = signExtend(readBits(9), 9);
+            } else if (readBits(1) == 0) {
+                dod = signExtend(readBits(12), 12);
+            } else {
+                dod = readBits(64);
+            }
+            prevDelta += dod;
+            timestamp += prevDelta;
+
+            if (readBits(1) != 0) {
+                if (readBits(1) != 0) {
+                    leading = (int) readBits(5);
+                    int significant = (int) readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                int significant = 64 - leading - trailing;
+                valueBits ^= readBits(significant) << trailing;
+                value = Double.longBitsToDouble(valueBits);
+            }
+            return true;
+        }
+
+        private long readBits(int nbits) {
+            int word = bitPos >>> 6;
+            int offset = bitPos & 63;
+            int avail = 64 - offset;
+            long result;
+            if (nbits <= avail) {
+                result = src[word] >>> (avail - nbits);
+            } else {
+                int spill = nbits - avail;
+                result = (src[word] << spill) | (src[word + 1] >>> (64 - spill));
+            }
+            bitPos += nbits;
+            return nbits == 64 ? result : result & ((1L << nbits) - 1);
+        }
+
+        private static long signExtend(long value, int nbits) {
+            int shift = 64 - nbits;
+            return (value << shift) >> shift;
+        }
+    }
+}
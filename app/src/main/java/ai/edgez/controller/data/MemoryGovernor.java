@@ -0,0 +1,232 @@
+package ai.edgez.controller.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import ai.edgez.controller.metrics.Metrics;
+
+/**
+ * Keeps the app's caches within their memory budgets and sheds them when the system runs short.
+ *
+ * <p>Each cache registers with a byte budget and a priority; lower priorities are shed first, so
+ * caches that are cheap to rebuild go before ones that cost gateway round trips. Every
+ * {@link #trim} first brings each cache back within its own budget. If the caches together still
+ * hold more than the {@link Pressure}'s share of their combined budgets, they are trimmed in
+ * priority order, each dropping its coldest entries, until they do not.
+ *
+ * <p>Memory users that cannot be shed, such as running rule instances, are {@link #track tracked}
+ * so that {@link #report()} shows everything the app holds.
+ */
+public class MemoryGovernor {
+
+    /** How hard to trim; the share of the combined budgets the caches may keep. */
+    public enum Pressure {
+        /** Only enforce each cache's budget. */
+        BUDGET(1d),
+        /** The system is low on memory or the app went to the background. */
+        MODERATE(0.5d),
+        /** The process is among the next to be killed. */
+        CRITICAL(0d);
+
+        final double keep;
+
+        Pressure(double keep) {
+            this.keep = keep;
+        }
+    }
+
+    /** A cache whose size the governor controls. Called from any thread. */
+    public interface Cache {
+        /** Estimated bytes held, Java heap and native together. */
+        long memoryBytes();
+
+        /** Drops the least recently used entries until about {@code targetBytes} remain. */
+        void trimTo(long targetBytes);
+    }
+
+    /** Usage of one cache or tracked user at the time of {@link #usage()}. */
+    public static final class Usage {
+        public final String name;
+        /** Shed order, lowest first; -1 for tracked users that cannot be shed. */
+        public final int priority;
+        /** 0 for tracked users. */
+        public final long budgetBytes;
+        public final long bytes;
+
+        Usage(String name, int priority, long budgetBytes, long bytes) {
+            this.name = name;
+            this.priority = priority;
+            this.budgetBytes = budgetBytes;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Registration {
+        final String name;
+        final int priority;
+        final long budgetBytes;
+        final Cache cache;
+
+        Registration(String name, int priority, long budgetBytes, Cache cache) {
+            this.name = name;
+            this.priority = priority;
+            this.budgetBytes = budgetBytes;
+            this.cache = cache;
+        }
+    }
+
+    private static final Metrics.Counter TRIMS = Metrics.counter("memory.trims");
+    private static final Metrics.Counter SHED_BYTES = Metrics.counter("memory.shed_bytes");
+    private static final Metrics.Gauge CACHED_BYTES = Metrics.gauge("memory.cached_bytes");
+
+    // Kept sorted by priority.
+    private final CopyOnWriteArrayList<Registration> caches = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Registration> tracked = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> checks;
+    private volatile Pressure lastPressure;
+    private volatile long lastTrimMs;
+
+    /**
+     * Puts {@code cache} under the governor. Lower {@code priority} is shed first; caches of equal
+     * priority are shed in registration order.
+     */
+    public synchronized void register(String name, int priority, long budgetBytes, Cache cache) {
+        Registration r = new Registration(name, priority, budgetBytes, cache);
+        int i = 0;
+        while (i < caches.size() && caches.get(i).priority <= priority) {
+            i++;
+        }
+        caches.add(i, r);
+    }
+
+    /** Includes a memory user that cannot be shed in {@link #usage()} and {@link #report()}. */
+    public void track(String name, LongSupplier bytes) {
+        tracked.add(new Registration(name, -1, 0L, new Cache() {
+            @Override
+            public long memoryBytes() {
+                return bytes.getAsLong();
+            }
+
+            @Override
+            public void trimTo(long targetBytes) {
+            }
+        }));
+    }
+
+    /** Enforces budgets every {@code intervalMs} on the governor's thread until {@link #stop()}. */
+    public synchronized void start(long intervalMs) {
+        if (checks == null) {
+            checks = executor().scheduleWithFixedDelay(() -> trim(Pressure.BUDGET), intervalMs, intervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (checks != null) {
+            checks.cancel(false);
+            checks = null;
+        }
+    }
+
+    /** Runs {@link #trim} on the governor's thread, e.g. from a main-thread memory callback. */
+    public void trimAsync(Pressure pressure) {
+        executor().execute(() -> trim(pressure));
+    }
+
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "memory-governor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Trims the caches for {@code pressure} and returns the bytes shed. Safe to call from any
+     * thread; concurrent trims run one after the other.
+     */
+    public long trim(Pressure pressure) {
+        synchronized (caches) {
+            long shed = 0;
+            long budget = 0;
+            long total = 0;
+            for (Registration r : caches) {
+                long bytes = r.cache.memoryBytes();
+                if (bytes > r.budgetBytes) {
+                    r.cache.trimTo(r.budgetBytes);
+                    long after = r.cache.memoryBytes();
+                    shed += bytes - after;
+                    bytes = after;
+                }
+                budget += r.budgetBytes;
+                total += bytes;
+            }
+            long allowed = (long) (budget * pressure.keep);
+            for (Registration r : caches) {
+                long excess = total - allowed;
+                if (excess <= 0) {
+                    break;
+                }
+                long bytes = r.cache.memoryBytes();
+                if (bytes == 0) {
+                    continue;
+                }
+                r.cache.trimTo(Math.max(0L, bytes - excess));
+                long after = r.cache.memoryBytes();
+                shed += bytes - after;
+                total -= bytes - after;
+            }
+            if (shed > 0 || pressure != Pressure.BUDGET) {
+                TRIMS.inc();
+                SHED_BYTES.add(Math.max(0L, shed));
+                lastPressure = pressure;
+                lastTrimMs = System.currentTimeMillis();
+            }
+            CACHED_BYTES.set(total);
+            return shed;
+        }
+    }
+
+    /** Current usage of every cache, in shed order, followed by tracked users. */
+    public List<Usage> usage() {
+        List<Usage> out = new ArrayList<>(caches.size() + tracked.size());
+        for (Registration r : caches) {
+            out.add(new Usage(r.name, r.priority, r.budgetBytes, r.cache.memoryBytes()));
+        }
+        for (Registration r : tracked) {
+            out.add(new Usage(r.name, r.priority, r.budgetBytes, r.cache.memoryBytes()));
+        }
+        return out;
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder("Memory (KiB used / budget)\n");
+        long total = 0;
+        for (Usage u : usage()) {
+            total += u.bytes;
+            if (u.priority < 0) {
+                sb.append(String.format(Locale.US, "  %-16s %8d%n", u.name, u.bytes / 1024));
+            } else {
+                sb.append(String.format(Locale.US, "  %-16s %8d / %d%n", u.name, u.bytes / 1024, u.budgetBytes / 1024));
+            }
+        }
+        sb.append(String.format(Locale.US, "  %-16s %8d%n", "total", total / 1024));
+        Pressure pressure = lastPressure;
+        if (pressure != null) {
+            sb.append(String.format(Locale.US, "  last trim: %s, %d s ago, %d KiB shed in all%n", pressure,
+                    (System.currentTimeMillis() - lastTrimMs) / 1000, SHED_BYTES.get() / 1024));
+        }
+        return sb.toString();
+    }
+}
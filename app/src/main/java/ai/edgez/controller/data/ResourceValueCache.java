@@ -0,0 +1,111 @@
+package ai.edgez.controller.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last known value of each resource read from the fleet, whether by a user tap or by background
+ * polling. Numeric values are also appended to the {@link TimeSeriesStore}. Under memory pressure
+ * the values read longest ago are dropped first; they come back on their next read.
+ */
+public class ResourceValueCache implements MemoryGovernor.Cache {
+
+    // Entry and map node headers plus the key and body strings' headers, on a 64-bit runtime.
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /** A successfully read value. */
+    public static final class Entry {
+        public final String body;
+        public final double numeric;
+        public final long timestampMs;
+
+        Entry(String body, double numeric, long timestampMs) {
+            this.body = body;
+            this.numeric = numeric;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    /** Notified on the writer's thread for every stored value. */
+    public interface Listener {
+        void onValue(String endpoint, String path, Entry entry);
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final TimeSeriesStore timeSeries;
+    private final AtomicLong bytes = new AtomicLong();
+
+    public ResourceValueCache(TimeSeriesStore timeSeries) {
+        this.timeSeries = timeSeries;
+    }
+
+    /** Cache key for a resource path such as {@code /3/0/9}; matches {@link TimeSeriesStore#key}. */
+    public static String key(String endpoint, String path) {
+        return endpoint + path;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public Entry put(String endpoint, String path, String body, long timestampMs) {
+        String key = key(endpoint, path);
+        double numeric = ValueParser.parseNumeric(body);
+        Entry entry = new Entry(body, numeric, timestampMs);
+        Entry previous = entries.put(key, entry);
+        bytes.addAndGet(sizeOf(key, entry) - (previous == null ? 0L : sizeOf(key, previous)));
+        if (!Double.isNaN(numeric)) {
+            timeSeries.record(key, timestampMs, numeric);
+        }
+        for (Listener listener : listeners) {
+            listener.onValue(endpoint, path, entry);
+        }
+        return entry;
+    }
+
+    /** Returns the cached value, or null if the resource has not been read. */
+    public Entry get(String endpoint, String path) {
+        return entries.get(key(endpoint, path));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return bytes.get();
+    }
+
+    /** Drops the values read longest ago. */
+    @Override
+    public void trimTo(long targetBytes) {
+        if (bytes.get() <= targetBytes) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> oldestFirst = new ArrayList<>(entries.entrySet());
+        oldestFirst.sort((a, b) -> Long.compare(a.getValue().timestampMs, b.getValue().timestampMs));
+        for (Map.Entry<String, Entry> e : oldestFirst) {
+            if (bytes.get() <= targetBytes) {
+                break;
+            }
+            // Skip values replaced since the copy; put() accounted for those.
+            if (entries.remove(e.getKey(), e.getValue())) {
+                bytes.addAndGet(-sizeOf(e.getKey(), e.getValue()));
+            }
+        }
+    }
+
+    private static long sizeOf(String key, Entry entry) {
+        return ENTRY_OVERHEAD_BYTES + 2L * (key.length() + entry.body.length());
+    }
+}
@@ -0,0 +1,146 @@
+package ai.edgez.controller.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Append-only, memory-mapped file of sealed {@link GorillaBlock}s for one series.
+ *
+ * <p>Layout: an 8-byte header holding the write offset, followed by records of
+ * {@code [firstTs:8][lastTs:8][count:4][words:4][words * 8]}. A small primitive index of record
+ * offsets and time bounds is kept in memory so range queries can skip non-overlapping blocks.
+ */
+final class SegmentFile {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 24;
+
+    final File file;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private int writeOffset;
+
+    private int records;
+    private int[] offsets = new int[16];
+    private long[] firstTs = new long[16];
+    private long[] lastTs = new long[16];
+
+    private SegmentFile(File file, MappedByteBuffer map, int capacity) {
+        this.file = file;
+        this.map = map;
+        this.capacity = capacity;
+    }
+
+    static SegmentFile open(File file, int capacityBytes) throws IOException {
+        boolean existed = file.exists() && file.length() >= HEADER_BYTES;
+        MappedByteBuffer map;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            int size = existed ? (int) Math.max(file.length(), capacityBytes) : capacityBytes;
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        SegmentFile segment = new SegmentFile(file, map, map.capacity());
+        if (existed) {
+            segment.loadIndex();
+        } else {
+            segment.writeOffset = HEADER_BYTES;
+            map.putLong(0, HEADER_BYTES);
+        }
+        return segment;
+    }
+
+    private void loadIndex() {
+        long stored = map.getLong(0);
+        int end = stored < HEADER_BYTES || stored > capacity ? HEADER_BYTES : (int) stored;
+        int pos = HEADER_BYTES;
+        while (pos + RECORD_HEADER_BYTES <= end) {
+            int words = map.getInt(pos + 20);
+            int next = pos + RECORD_HEADER_BYTES + words * 8;
+            if (words < 0 || next > end) {
+                break;
+            }
+            addIndex(pos, map.getLong(pos), map.getLong(pos + 8));
+            pos = next;
+        }
+        writeOffset = pos;
+    }
+
+    boolean fits(GorillaBlock block) {
+        return writeOffset + RECORD_HEADER_BYTES + block.usedWords() * 8L <= capacity;
+    }
+
+    void append(GorillaBlock block) {
+        int words = block.usedWords();
+        int pos = writeOffset;
+        map.putLong(pos, block.firstTimestamp());
+        map.putLong(pos + 8, block.lastTimestamp());
+        map.putInt(pos + 16, block.count());
+        map.putInt(pos + 20, words);
+        int p = pos + RECORD_HEADER_BYTES;
+        for (int i = 0; i < words; i++, p += 8) {
+            map.putLong(p, block.words[i]);
+        }
+        writeOffset = p;
+        map.putLong(0, writeOffset);
+        addIndex(pos, block.firstTimestamp(), block.lastTimestamp());
+    }
+
+    int recordCount() {
+        return records;
+    }
+
+    long recordFirstTs(int record) {
+        return firstTs[record];
+    }
+
+    long recordLastTs(int record) {
+        return lastTs[record];
+    }
+
+    long lastTimestamp() {
+        return records == 0 ? Long.MIN_VALUE : lastTs[records - 1];
+    }
+
+    int recordSampleCount(int record) {
+        return map.getInt(offsets[record] + 16);
+    }
+
+    /**
+     * Copies the encoded words of a record into {@code scratch} (grown by the caller when too
+     * small) and returns the number of words copied.
+     */
+    int readWords(int record, long[] scratch) {
+        int pos = offsets[record];
+        int words = map.getInt(pos + 20);
+        int p = pos + RECORD_HEADER_BYTES;
+        for (int i = 0; i < words; i++, p += 8) {
+            scratch[i] = map.getLong(p);
+        }
+        return words;
+    }
+
+    int recordWords(int record) {
+        return map.getInt(offsets[record] + 20);
+    }
+
+    int mappedBytes() {
+        return writeOffset;
+    }
+
+    private void addIndex(int offset, long first, long last) {
+        if (records == offsets.length) {
+            int grown = records * 2;
+            offsets = Arrays.copyOf(offsets, grown);
+            firstTs = Arrays.copyOf(firstTs, grown);
+            lastTs = Arrays.copyOf(lastTs, grown);
+        }
+        offsets[records] = offset;
+        firstTs[records] = first;
+        lastTs[records] = last;
+        records++;
+    }
+}
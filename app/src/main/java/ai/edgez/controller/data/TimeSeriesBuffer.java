@@ -0,0 +1,210 @@
+package ai.edgez.controller.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Per-resource ring of {@link GorillaBlock}s. When the ring is full the oldest sealed block is
+ * spilled to a memory-mapped {@link SegmentFile} and its arrays are reused for new samples.
+ */
+final class TimeSeriesBuffer {
+
+    private final File dir;
+    private final String baseName;
+    private final TimeSeriesStore.Config config;
+    private final GorillaBlock[] ring;
+    private final ArrayDeque<SegmentFile> segments = new ArrayDeque<>();
+    private final GorillaBlock.Cursor cursor = new GorillaBlock.Cursor();
+    private long[] scratch;
+    private int head;
+    private int size = 1;
+    private int nextSegmentSeq;
+    private long lastTs = Long.MIN_VALUE;
+    private double lastValue = Double.NaN;
+    private boolean closed;
+
+    TimeSeriesBuffer(File dir, String baseName, TimeSeriesStore.Config config) {
+        this.dir = dir;
+        this.baseName = baseName;
+        this.config = config;
+        this.ring = new GorillaBlock[config.blocksInMemory];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new GorillaBlock(config.blockWords);
+        }
+        this.scratch = new long[config.blockWords];
+        openExistingSegments();
+    }
+
+    private void openExistingSegments() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(baseName + "-") && name.endsWith(".seg"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        int[] seqs = new int[files.length];
+        int n = 0;
+        for (File f : files) {
+            String name = f.getName();
+            try {
+                int seq = Integer.parseInt(name.substring(baseName.length() + 1, name.length() - 4));
+                seqs[n++] = seq;
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        Arrays.sort(seqs, 0, n);
+        for (int i = 0; i < n; i++) {
+            try {
+                SegmentFile segment = SegmentFile.open(segmentFile(seqs[i]), config.segmentBytes);
+                segments.addLast(segment);
+                lastTs = Math.max(lastTs, segment.lastTimestamp());
+            } catch (IOException ignore) {
+                // A corrupt or unreadable segment only costs us its history.
+            }
+            nextSegmentSeq = seqs[i] + 1;
+        }
+    }
+
+    private File segmentFile(int seq) {
+        return new File(dir, baseName + "-" + seq + ".seg");
+    }
+
+    /** Returns false for samples out of order, NaN, or arriving after {@link #close()}. */
+    synchronized boolean record(long timestampMs, double value) {
+        if (closed || timestampMs < lastTs || Double.isNaN(value)) {
+            return false;
+        }
+        GorillaBlock active = ring[(head + size - 1) % ring.length];
+        if (!active.append(timestampMs, value)) {
+            active = advance();
+            active.append(timestampMs, value);
+        }
+        lastTs = timestampMs;
+        lastValue = value;
+        return true;
+    }
+
+    private GorillaBlock advance() {
+        if (size < ring.length) {
+            size++;
+        } else {
+            spill(ring[head]);
+            head = (head + 1) % ring.length;
+        }
+        GorillaBlock next = ring[(head + size - 1) % ring.length];
+        next.reset();
+        return next;
+    }
+
+    private void spill(GorillaBlock block) {
+        if (block.count() == 0) {
+            return;
+        }
+        try {
+            SegmentFile current = segments.peekLast();
+            if (current == null || !current.fits(block)) {
+                current = SegmentFile.open(segmentFile(nextSegmentSeq++), config.segmentBytes);
+                segments.addLast(current);
+                while (segments.size() > config.maxSegmentsPerSeries) {
+                    SegmentFile oldest = segments.removeFirst();
+                    //noinspection ResultOfMethodCallIgnored
+                    oldest.file.delete();
+                }
+            }
+            current.append(block);
+        } catch (IOException ignore) {
+            // Spilling is best effort; the in-memory ring keeps working without it.
+        }
+    }
+
+    /**
+     * Moves every in-memory block into the mapped segments so history survives a process restart.
+     * Dirty mapped pages are written back by the kernel even if the process is killed afterwards.
+     */
+    synchronized void flush() {
+        for (int i = 0; i < size; i++) {
+            GorillaBlock block = ring[(head + i) % ring.length];
+            spill(block);
+            block.reset();
+        }
+        size = 1;
+    }
+
+    /**
+     * Flushes and stops taking samples, so that a new buffer can take over the series' segment
+     * files. Queries still work.
+     */
+    synchronized void close() {
+        flush();
+        closed = true;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized long lastTimestamp() {
+        return lastTs;
+    }
+
+    synchronized double lastValue() {
+        return lastValue;
+    }
+
+    /** Bytes held by the in-memory ring; mapped segments are paged by the kernel. */
+    long memoryBytes() {
+        return (long) ring.length * config.blockWords * 8L;
+    }
+
+    synchronized long diskBytes() {
+        long total = 0;
+        for (SegmentFile segment : segments) {
+            total += segment.mappedBytes();
+        }
+        return total;
+    }
+
+    /** Scans all samples in {@code [fromMs, toMs]} into {@code out} and returns the count. */
+    synchronized int query(long fromMs, long toMs, TimeSeriesStore.Downsampled out) {
+        int scanned = 0;
+        for (SegmentFile segment : segments) {
+            for (int r = 0; r < segment.recordCount(); r++) {
+                if (segment.recordLastTs(r) < fromMs || segment.recordFirstTs(r) > toMs) {
+                    continue;
+                }
+                int words = segment.recordWords(r);
+                if (scratch.length < words) {
+                    scratch = new long[words];
+                }
+                segment.readWords(r, scratch);
+                cursor.reset(scratch, segment.recordSampleCount(r));
+                scanned += scan(fromMs, toMs, out);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            GorillaBlock block = ring[(head + i) % ring.length];
+            if (block.count() == 0 || block.lastTimestamp() < fromMs || block.firstTimestamp() > toMs) {
+                continue;
+            }
+            cursor.reset(block);
+            scanned += scan(fromMs, toMs, out);
+        }
+        return scanned;
+    }
+
+    private int scan(long fromMs, long toMs, TimeSeriesStore.Downsampled out) {
+        int n = 0;
+        while (cursor.next()) {
+            long ts = cursor.timestamp;
+            if (ts < fromMs) {
+                continue;
+            }
+            if (ts > toMs) {
+                break;
+            }
+            out.add(ts, cursor.value);
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,256 @@
+package ai.edgez.controller.data;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-device time-series store for numeric resource values.
+ *
+ * <p>Each series (typically {@code endpoint/obj/inst/res}) keeps a small ring of Gorilla-compressed
+ * primitive blocks in memory; older blocks spill to memory-mapped segment files under
+ * {@code dir}. Range queries aggregate into a caller-owned {@link Downsampled} so that charting
+ * hours of 1 Hz data does not allocate per sample.
+ *
+ * <p>Under memory pressure the series written to longest ago are flushed and their rings freed;
+ * their history stays on disk and a ring is allocated again on the next sample or query.
+ */
+public class TimeSeriesStore implements MemoryGovernor.Cache {
+
+    /** Sizing knobs. The defaults hold roughly an hour of 1 Hz samples per series in memory. */
+    public static final class Config {
+        /** Words per in-memory block (8 KiB per block at the default). */
+        public int blockWords = 1024;
+        /** Blocks kept in memory per series before spilling. */
+        public int blocksInMemory = 4;
+        /** Size of each mapped segment file. */
+        public int segmentBytes = 1 << 20;
+        /** Segment files retained per series; the oldest is deleted when exceeded. */
+        public int maxSegmentsPerSeries = 8;
+    }
+
+    private final File dir;
+    private final Config config;
+    private final ConcurrentHashMap<String, TimeSeriesBuffer> series = new ConcurrentHashMap<>();
+
+    public TimeSeriesStore(File dir) {
+        this(dir, new Config());
+    }
+
+    public TimeSeriesStore(File dir, Config config) {
+        this.dir = dir;
+        this.config = config;
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+    }
+
+    /** Builds the canonical series key for a resource on a device. */
+    public static String key(String endpoint, int objId, int instId, int resId) {
+        return endpoint + "/" + objId + "/" + instId + "/" + resId;
+    }
+
+    /**
+     * Appends a sample. Samples older than the newest stored one, and NaN values, are dropped.
+     *
+     * @return whether the sample was stored
+     */
+    public boolean record(String key, long timestampMs, double value) {
+        TimeSeriesBuffer buffer = buffer(key);
+        while (!buffer.record(timestampMs, value)) {
+            if (!buffer.isClosed()) {
+                return false;
+            }
+            // Trimmed away in the meantime; the replacement picks up the flushed segments.
+            buffer = buffer(key);
+        }
+        return true;
+    }
+
+    /**
+     * Aggregates samples in {@code [fromMs, toMs]} into {@code out}'s buckets. {@code out} is reset
+     * first and can be reused across queries.
+     *
+     * @return number of samples scanned
+     */
+    public int query(String key, long fromMs, long toMs, Downsampled out) {
+        out.reset(fromMs, toMs);
+        TimeSeriesBuffer buffer = series.get(key);
+        if (buffer == null) {
+            buffer = hasSegments(key) ? buffer(key) : null;
+        }
+        return buffer == null ? 0 : buffer.query(fromMs, toMs, out);
+    }
+
+    /** Most recent value for the series, or NaN if nothing has been recorded this session. */
+    public double lastValue(String key) {
+        TimeSeriesBuffer buffer = series.get(key);
+        return buffer == null ? Double.NaN : buffer.lastValue();
+    }
+
+    public long lastTimestamp(String key) {
+        TimeSeriesBuffer buffer = series.get(key);
+        return buffer == null ? Long.MIN_VALUE : buffer.lastTimestamp();
+    }
+
+    public List<String> keys() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    /** Spills all in-memory blocks to their segment files. */
+    public void flush() {
+        for (TimeSeriesBuffer buffer : series.values()) {
+            buffer.flush();
+        }
+    }
+
+    @Override
+    public long memoryBytes() {
+        long total = 0;
+        for (TimeSeriesBuffer buffer : series.values()) {
+            total += buffer.memoryBytes();
+        }
+        return total;
+    }
+
+    /** Frees the rings of the series written to longest ago, flushing them to disk first. */
+    @Override
+    public void trimTo(long targetBytes) {
+        long bytes = memoryBytes();
+        if (bytes <= targetBytes) {
+            return;
+        }
+        // Read each series' last write once; it may move while sorting.
+        List<Map.Entry<String, Long>> oldestFirst = new ArrayList<>(series.size());
+        for (Map.Entry<String, TimeSeriesBuffer> e : series.entrySet()) {
+            oldestFirst.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue().lastTimestamp()));
+        }
+        oldestFirst.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Long> e : oldestFirst) {
+            if (bytes <= targetBytes) {
+                break;
+            }
+            // Closing inside the map's lock keeps a new buffer for the key from opening the
+            // segment files before this one has finished writing them.
+            TimeSeriesBuffer[] closed = new TimeSeriesBuffer[1];
+            series.computeIfPresent(e.getKey(), (k, buffer) -> {
+                buffer.close();
+                closed[0] = buffer;
+                return null;
+            });
+            if (closed[0] != null) {
+                bytes -= closed[0].memoryBytes();
+            }
+        }
+    }
+
+    public long diskBytes() {
+        long total = 0;
+        for (TimeSeriesBuffer buffer : series.values()) {
+            total += buffer.diskBytes();
+        }
+        return total;
+    }
+
+    private TimeSeriesBuffer buffer(String key) {
+        TimeSeriesBuffer buffer = series.get(key);
+        if (buffer == null) {
+            buffer = series.computeIfAbsent(key, k -> new TimeSeriesBuffer(dir, fileBase(k), config));
+        }
+        return buffer;
+    }
+
+    private boolean hasSegments(String key) {
+        String prefix = fileBase(key) + "-";
+        String[] names = dir.list((d, name) -> name.startsWith(prefix));
+        return names != null && names.length > 0;
+    }
+
+    private static String fileBase(String key) {
+        StringBuilder sb = new StringBuilder(key.length() + 9);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            sb.append(Character.isLetterOrDigit(c) ? c : '_');
+        }
+        return sb.append('_').append(String.format(Locale.US, "%08x", key.hashCode())).toString();
+    }
+
+    /**
+     * Fixed-width bucketed aggregate (min/max/mean/count) over a time range, backed by primitive
+     * arrays sized once at construction.
+     */
+    public static final class Downsampled {
+        public final double[] min;
+        public final double[] max;
+        public final double[] sum;
+        public final int[] count;
+        private long fromMs;
+        private long toMs;
+        private long bucketWidth;
+        private double overallMin;
+        private double overallMax;
+
+        public Downsampled(int buckets) {
+            min = new double[buckets];
+            max = new double[buckets];
+            sum = new double[buckets];
+            count = new int[buckets];
+            reset(0L, 1L);
+        }
+
+        public int buckets() {
+            return count.length;
+        }
+
+        void reset(long fromMs, long toMs) {
+            this.fromMs = fromMs;
+            this.toMs = Math.max(toMs, fromMs + 1);
+            this.bucketWidth = Math.max(1L, (this.toMs - fromMs + count.length - 1) / count.length);
+            for (int i = 0; i < count.length; i++) {
+                min[i] = Double.POSITIVE_INFINITY;
+                max[i] = Double.NEGATIVE_INFINITY;
+                sum[i] = 0d;
+                count[i] = 0;
+            }
+            overallMin = Double.POSITIVE_INFINITY;
+            overallMax = Double.NEGATIVE_INFINITY;
+        }
+
+        void add(long ts, double value) {
+            int b = (int) Math.min(count.length - 1, (ts - fromMs) / bucketWidth);
+            if (value < min[b]) min[b] = value;
+            if (value > max[b]) max[b] = value;
+            sum[b] += value;
+            count[b]++;
+            if (value < overallMin) overallMin = value;
+            if (value > overallMax) overallMax = value;
+        }
+
+        public double mean(int bucket) {
+            return count[bucket] == 0 ? Double.NaN : sum[bucket] / count[bucket];
+        }
+
+        public long bucketStart(int bucket) {
+            return fromMs + bucket * bucketWidth;
+        }
+
+        public double overallMin() {
+            return overallMin;
+        }
+
+        public double overallMax() {
+            return overallMax;
+        }
+
+        public int totalCount() {
+            int total = 0;
+            for (int c : count) {
+                total += c;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ai.edgez.controller.data;
+
+/** Extracts a numeric sample from a gateway read response without building a JSON tree. */
+public final class ValueParser {
+
+    private ValueParser() {
+    }
+
+    /**
+     * Returns the numeric value in {@code body}, or NaN if none is present. Accepts a bare number
+     * ({@code 23.5}), a boolean, or a JSON document carrying a {@code "value"} field such as
+     * {@code {"status":"CONTENT","content":{"id":5700,"value":23.5}}}.
+     */
+    public static double parseNumeric(String body) {
+        if (body == null) {
+            return Double.NaN;
+        }
+        String trimmed = body.trim();
+        if (trimmed.isEmpty()) {
+            return Double.NaN;
+        }
+        double direct = parseNumberAt(trimmed, 0);
+        if (!Double.isNaN(direct)) {
+            return direct;
+        }
+        int key = trimmed.indexOf("\"value\"");
+        if (key < 0) {
+            return Double.NaN;
+        }
+        int colon = trimmed.indexOf(':', key + 7);
+        if (colon < 0) {
+            return Double.NaN;
+        }
+        int start = colon + 1;
+        while (start < trimmed.length() && Character.isWhitespace(trimmed.charAt(start))) {
+            start++;
+        }
+        if (start < trimmed.length() && trimmed.charAt(start) == '"') {
+            start++;
+        }
+        return parseNumberAt(trimmed, start);
+    }
+
+    private static double parseNumberAt(String s, int start) {
+        if (s.startsWith("true", start)) {
+            return 1d;
+        }
+        if (s.startsWith("false", start)) {
+            return 0d;
+        }
+        int end = start;
+        while (end < s.length()) {
+            char c = s.charAt(end);
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                end++;
+            } else {
+                break;
+            }
+        }
+        if (end == start) {
+            return Double.NaN;
+        }
+        if (start == 0 && end != s.length()) {
+            // A bare number must be the whole body; anything else is structured content.
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s.substring(start, end));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package ai.edgez.controller.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide counters, gauges and timers. Handles are looked up once by name and kept in
+ * static fields at the call site; updating them afterwards is lock-free and allocation-free.
+ *
+ * <p>Timers also open trace sections through the installed {@link Tracer}, so the same names show
+ * up in Perfetto/systrace captures. Without a tracer (e.g. in JVM tests) sections are no-ops.
+ */
+public final class Metrics {
+
+    /** Sink for trace sections; the app installs one backed by {@code android.os.Trace}. */
+    public interface Tracer {
+        boolean isEnabled();
+
+        void beginSection(String name);
+
+        void endSection();
+
+        void beginAsyncSection(String name, int cookie);
+
+        void endAsyncSection(String name, int cookie);
+
+        void setCounter(String name, long value);
+    }
+
+    private static final Tracer NO_TRACER = new Tracer() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+        }
+
+        @Override
+        public void setCounter(String name, long value) {
+        }
+    };
+
+    private static volatile Tracer tracer = NO_TRACER;
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> GAUGES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static void setTracer(Tracer t) {
+        tracer = t == null ? NO_TRACER : t;
+    }
+
+    public static Tracer tracer() {
+        return tracer;
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, Counter::new);
+    }
+
+    public static Gauge gauge(String name) {
+        return GAUGES.computeIfAbsent(name, Gauge::new);
+    }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    /** Monotonically increasing count. */
+    public static final class Counter {
+        public final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /** Last-set value, mirrored to a trace counter track. */
+    public static final class Gauge {
+        public final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        public void set(long v) {
+            value.set(v);
+            Tracer t = tracer;
+            if (t.isEnabled()) {
+                t.setCounter(name, v);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Duration histogram in microseconds. Use {@link #begin()}/{@link #end(long)} for work on one
+     * thread and {@link #beginAsync()}/{@link #endAsync(long)} when the end runs elsewhere.
+     */
+    public static final class Timer {
+        public final String name;
+        private final Histogram histogram = new Histogram();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        /** Opens a trace section and returns the start time to pass to {@link #end(long)}. */
+        public long begin() {
+            tracer.beginSection(name);
+            return System.nanoTime();
+        }
+
+        public void end(long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            tracer.endSection();
+            recordNanos(elapsed);
+        }
+
+        public long beginAsync() {
+            long start = System.nanoTime();
+            tracer.beginAsyncSection(name, (int) start);
+            return start;
+        }
+
+        public void endAsync(long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            tracer.endAsyncSection(name, (int) startNanos);
+            recordNanos(elapsed);
+        }
+
+        /** Records a duration measured elsewhere, e.g. reported back from native code. */
+        public void recordNanos(long nanos) {
+            histogram.record(nanos / 1_000L);
+        }
+
+        public Histogram histogram() {
+            return histogram;
+        }
+    }
+
+    public static void reset() {
+        for (Timer t : TIMERS.values()) {
+            t.histogram.reset();
+        }
+    }
+
+    /** Human-readable summary of all timers, counters and gauges. */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : sorted(TIMERS.keySet())) {
+            Histogram h = TIMERS.get(name).histogram;
+            if (h.count() == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%-22s n=%-6d p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    name, h.count(), h.percentile(50) / 1000d, h.percentile(99) / 1000d, h.max() / 1000d));
+        }
+        for (String name : sorted(COUNTERS.keySet())) {
+            sb.append(String.format(Locale.US, "%-22s %d%n", name, COUNTERS.get(name).get()));
+        }
+        for (String name : sorted(GAUGES.keySet())) {
+            sb.append(String.format(Locale.US, "%-22s %d%n", name, GAUGES.get(name).get()));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> sorted(Set<String> names) {
+        List<String> list = new ArrayList<>(names);
+        Collections.sort(list);
+        return list;
+    }
+}
@@ -0,0 +1,164 @@
+package ai.edgez.controller.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and payload histograms for gateway REST calls and DNS-SD resolution, keyed by server and
+ * endpoint template (e.g. {@code GET /api/clients}). Times are recorded in microseconds.
+ */
+public class NetworkProbe {
+
+    /** What a recorded value measures. */
+    public enum Phase {
+        /** DNS-SD service resolution, in microseconds. */
+        RESOLVE("resolve", "us"),
+        /** TCP connect (near zero when a pooled connection is reused), in microseconds. */
+        CONNECT("connect", "us"),
+        /** Request sent to first response byte (status line), in microseconds. */
+        TTFB("ttfb", "us"),
+        /** Whole request including body download, in microseconds. */
+        TOTAL("total", "us"),
+        /** Response body size, in bytes. */
+        PAYLOAD("payload", "B"),
+        /** Time to parse the response body, in microseconds. */
+        PARSE("parse", "us");
+
+        public final String label;
+        public final String unit;
+
+        Phase(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+    }
+
+    /** Histograms for one (server, endpoint) pair. */
+    public static final class EndpointStats {
+        public final String server;
+        public final String endpoint;
+        public final AtomicLong errors = new AtomicLong();
+        private final Histogram[] phases = new Histogram[Phase.values().length];
+
+        EndpointStats(String server, String endpoint) {
+            this.server = server;
+            this.endpoint = endpoint;
+        }
+
+        /** Returns the histogram for {@code phase}, or null if nothing was recorded for it. */
+        public Histogram histogram(Phase phase) {
+            return phases[phase.ordinal()];
+        }
+
+        Histogram histogramForWrite(Phase phase) {
+            Histogram h = phases[phase.ordinal()];
+            if (h == null) {
+                synchronized (this) {
+                    h = phases[phase.ordinal()];
+                    if (h == null) {
+                        h = new Histogram();
+                        phases[phase.ordinal()] = h;
+                    }
+                }
+            }
+            return h;
+        }
+    }
+
+    private final ConcurrentHashMap<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    public void record(String server, String endpoint, Phase phase, long value) {
+        stats(server, endpoint).histogramForWrite(phase).record(value);
+    }
+
+    /** Records a duration measured with {@link System#nanoTime()}. */
+    public void recordNanos(String server, String endpoint, Phase phase, long nanos) {
+        record(server, endpoint, phase, nanos / 1_000L);
+    }
+
+    public void recordError(String server, String endpoint) {
+        stats(server, endpoint).errors.incrementAndGet();
+    }
+
+    public EndpointStats stats(String server, String endpoint) {
+        String key = server + '\u0000' + endpoint;
+        EndpointStats s = stats.get(key);
+        if (s == null) {
+            s = stats.computeIfAbsent(key, k -> new EndpointStats(server, endpoint));
+        }
+        return s;
+    }
+
+    /** All tracked pairs sorted by server then endpoint. */
+    public List<EndpointStats> snapshot() {
+        List<EndpointStats> list = new ArrayList<>(stats.values());
+        Collections.sort(list, (a, b) -> {
+            int c = a.server.compareTo(b.server);
+            return c != 0 ? c : a.endpoint.compareTo(b.endpoint);
+        });
+        return list;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    /** Human-readable table for the diagnostics screen. */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (EndpointStats s : snapshot()) {
+            sb.append(s.server).append("  ").append(s.endpoint);
+            if (s.errors.get() > 0) {
+                sb.append("  errors=").append(s.errors.get());
+            }
+            sb.append('\n');
+            for (Phase phase : Phase.values()) {
+                Histogram h = s.histogram(phase);
+                if (h == null || h.count() == 0) {
+                    continue;
+                }
+                sb.append(String.format(Locale.US, "  %-8s n=%-6d p50=%s p90=%s p99=%s max=%s%n",
+                        phase.label, h.count(),
+                        format(phase, h.percentile(50)), format(phase, h.percentile(90)),
+                        format(phase, h.percentile(99)), format(phase, h.max())));
+            }
+        }
+        return sb.length() == 0 ? "No requests recorded yet" : sb.toString();
+    }
+
+    /** CSV export with one row per (server, endpoint, phase). */
+    public String exportCsv() {
+        StringBuilder sb = new StringBuilder("server,endpoint,phase,unit,count,errors,mean,p50,p90,p99,p999,max\n");
+        for (EndpointStats s : snapshot()) {
+            for (Phase phase : Phase.values()) {
+                Histogram h = s.histogram(phase);
+                if (h == null || h.count() == 0) {
+                    continue;
+                }
+                sb.append(csv(s.server)).append(',').append(csv(s.endpoint)).append(',')
+                        .append(phase.label).append(',').append(phase.unit).append(',')
+                        .append(h.count()).append(',').append(s.errors.get()).append(',')
+                        .append(String.format(Locale.US, "%.1f", h.mean())).append(',')
+                        .append(h.percentile(50)).append(',').append(h.percentile(90)).append(',')
+                        .append(h.percentile(99)).append(',').append(h.percentile(99.9)).append(',')
+                        .append(h.max()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(Phase phase, long value) {
+        if (phase == Phase.PAYLOAD) {
+            return value < 10_240 ? value + "B" : (value / 1024) + "KiB";
+        }
+        return String.format(Locale.US, "%.1fms", value / 1000d);
+    }
+
+    private static String csv(String s) {
+        return s.indexOf(',') >= 0 || s.indexOf('"') >= 0 ? '"' + s.replace("\"", "\"\"") + '"' : s;
+    }
+}
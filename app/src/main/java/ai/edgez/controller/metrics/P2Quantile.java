@@ -0,0 +1,107 @@
+package ai.edgez.controller.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of one quantile with the P-square algorithm (Jain and Chlamtac, 1985): five
+ * markers track the minimum, the maximum, the quantile and two points either side of it, and are
+ * nudged towards their ideal positions with a parabolic fit as samples arrive. Each sample costs
+ * O(1) and no samples are kept; unlike {@link Histogram} it takes any double, not only
+ * non-negative longs. Not thread-safe.
+ */
+public final class P2Quantile {
+
+    private final double p;
+    private final double[] heights = new double[5];
+    private final double[] positions = new double[5];
+    private final double[] desired = new double[5];
+    private final double[] increments;
+    private long count;
+
+    /** @param p the quantile to estimate, between 0 and 1 */
+    public P2Quantile(double p) {
+        if (!(p > 0d && p < 1d)) {
+            throw new IllegalArgumentException("Quantile must be in (0, 1): " + p);
+        }
+        this.p = p;
+        this.increments = new double[] {0d, p / 2d, p, (1d + p) / 2d, 1d};
+    }
+
+    public void add(double x) {
+        if (count < 5) {
+            heights[(int) count++] = x;
+            if (count == 5) {
+                Arrays.sort(heights);
+                for (int i = 0; i < 5; i++) {
+                    positions[i] = i;
+                }
+                desired[0] = 0d;
+                desired[1] = 2d * p;
+                desired[2] = 4d * p;
+                desired[3] = 2d + 2d * p;
+                desired[4] = 4d;
+            }
+            return;
+        }
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (x >= heights[k + 1]) {
+                k++;
+            }
+        }
+        for (int i = k + 1; i < 5; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desired[i] += increments[i];
+        }
+        count++;
+        for (int i = 1; i <= 3; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1d && positions[i + 1] - positions[i] > 1d)
+                    || (d <= -1d && positions[i - 1] - positions[i] < -1d)) {
+                int step = d > 0 ? 1 : -1;
+                double h = parabolic(i, step);
+                heights[i] = heights[i - 1] < h && h < heights[i + 1] ? h : linear(i, step);
+                positions[i] += step;
+            }
+        }
+    }
+
+    /** The current estimate, or NaN before the first sample. Exact for up to five samples. */
+    public double value() {
+        if (count >= 5) {
+            return heights[2];
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double[] seen = Arrays.copyOf(heights, (int) count);
+        Arrays.sort(seen);
+        return seen[(int) Math.round(p * (count - 1))];
+    }
+
+    public long count() {
+        return count;
+    }
+
+    private double parabolic(int i, int d) {
+        double n = positions[i];
+        double below = positions[i - 1];
+        double above = positions[i + 1];
+        return heights[i] + d / (above - below)
+                * ((n - below + d) * (heights[i + 1] - heights[i]) / (above - n)
+                + (above - n - d) * (heights[i] - heights[i - 1]) / (n - below));
+    }
+
+    private double linear(int i, int d) {
+        return heights[i] + d * (heights[i + d] - heights[i]) / (positions[i + d] - positions[i]);
+    }
+}
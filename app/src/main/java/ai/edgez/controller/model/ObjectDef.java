@@ -0,0 +1,31 @@
+package ai.edgez.controller.model;
+
+import java.util.List;
+
+/** One LwM2M object model: its identity and resources in model order. */
+public final class ObjectDef {
+    public final int id;
+    public final String name;
+    public final boolean multipleInstances;
+    public final boolean mandatory;
+    /** Unmodifiable. */
+    public final List<ResourceDef> resources;
+
+    public ObjectDef(int id, String name, boolean multipleInstances, boolean mandatory, List<ResourceDef> resources) {
+        this.id = id;
+        this.name = name;
+        this.multipleInstances = multipleInstances;
+        this.mandatory = mandatory;
+        this.resources = resources;
+    }
+
+    /** The resource with {@code resId}, or null if the model has none. */
+    public ResourceDef resource(int resId) {
+        for (ResourceDef def : resources) {
+            if (def.id == resId) {
+                return def;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package ai.edgez.controller.model;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Parses OMA LwM2M object model XML into resource definitions. The bundled models are compiled
+ * into {@code ObjectModels} at build time, which is what the app uses; this parser is for models
+ * that arrive at runtime.
+ */
+public final class ObjectModelParser {
+
+    private ObjectModelParser() {
+    }
+
+    public static List<ResourceDef> parse(InputStream in)
+            throws IOException, SAXException, ParserConfigurationException {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        DocumentBuilder db = dbf.newDocumentBuilder();
+        Document doc = db.parse(in);
+        NodeList items = doc.getElementsByTagName("Item");
+        List<ResourceDef> defs = new ArrayList<>();
+        for (int i = 0; i < items.getLength(); i++) {
+            Node n = items.item(i);
+            String idStr = n.getAttributes().getNamedItem("ID").getNodeValue();
+            int id = Integer.parseInt(idStr);
+            String name = textOfChild(n, "Name").trim();
+            String ops = textOfChild(n, "Operations");
+            String type = textOfChild(n, "Type");
+            String range = textOfChild(n, "RangeEnumeration");
+            boolean multiple = "Multiple".equalsIgnoreCase(textOfChild(n, "MultipleInstances").trim());
+            defs.add(new ResourceDef(id, name, ResourceDef.parseOperations(ops), ResourceType.fromModel(type),
+                    multiple, range));
+        }
+        return defs;
+    }
+
+    private static String textOfChild(Node parent, String tag) {
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node c = children.item(i);
+            if (tag.equals(c.getNodeName()) && c.getFirstChild() != null) {
+                return c.getFirstChild().getNodeValue();
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,84 @@
+package ai.edgez.controller.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A {@code <RangeEnumeration>} from an object model: one or more closed intervals or values,
+ * such as {@code 0..100}, {@code -1..1}, {@code 10,26} or {@code 1..64 bytes}. A trailing
+ * {@code bytes} makes it a length constraint, and a lone {@code N bytes} is a maximum length.
+ * Forms with no fixed meaning across models (a lone number, {@code 8 bit}, {@code 2^32-1}) are
+ * not understood and impose nothing.
+ */
+public final class RangeEnumeration {
+
+    private final List<BigDecimal[]> intervals;
+    /** Whether the bounds are a length in bytes rather than a value. */
+    public final boolean lengthInBytes;
+    private final String text;
+
+    private RangeEnumeration(List<BigDecimal[]> intervals, boolean lengthInBytes, String text) {
+        this.intervals = intervals;
+        this.lengthInBytes = lengthInBytes;
+        this.text = text;
+    }
+
+    /** Returns null if {@code text} is empty or not understood. */
+    public static RangeEnumeration parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        String t = text.trim().toLowerCase(Locale.ROOT);
+        boolean bytes = false;
+        if (t.endsWith("bytes")) {
+            bytes = true;
+            t = t.substring(0, t.length() - "bytes".length()).trim();
+        }
+        if (t.isEmpty()) {
+            return null;
+        }
+        String[] parts = t.split("\\s*(,|\\bor\\b)\\s*");
+        List<BigDecimal[]> intervals = new ArrayList<>();
+        try {
+            for (String part : parts) {
+                int dots = part.indexOf("..");
+                if (dots > 0) {
+                    intervals.add(new BigDecimal[] {
+                            new BigDecimal(part.substring(0, dots).trim()),
+                            new BigDecimal(part.substring(dots + 2).trim())});
+                } else if (parts.length > 1) {
+                    BigDecimal v = new BigDecimal(part);
+                    intervals.add(new BigDecimal[] {v, v});
+                } else if (bytes) {
+                    // "32 bytes" is a maximum length.
+                    intervals.add(new BigDecimal[] {BigDecimal.ZERO, new BigDecimal(part)});
+                } else {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new RangeEnumeration(intervals, bytes, text.trim());
+    }
+
+    public boolean accepts(BigDecimal value) {
+        for (BigDecimal[] interval : intervals) {
+            if (value.compareTo(interval[0]) >= 0 && value.compareTo(interval[1]) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean acceptsLength(int length) {
+        return accepts(BigDecimal.valueOf(length));
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,109 @@
+package ai.edgez.controller.model;
+
+/**
+ * One resource ({@code <Item>}) of an LwM2M object model. Definitions for the bundled models are
+ * generated at build time into {@code ObjectModels}; the string constructors serve models parsed
+ * at runtime.
+ */
+public final class ResourceDef {
+
+    /** Bit flags for {@link #operations}. */
+    public static final int OP_READ = 1;
+    public static final int OP_WRITE = 1 << 1;
+    public static final int OP_EXECUTE = 1 << 2;
+
+    public final int id;
+    public final String name;
+    /** The model's {@code <Operations>} text, e.g. {@code RW}. */
+    public final String ops;
+    /** The model's {@code <Type>} text. */
+    public final String type;
+    public final int operations;
+    public final ResourceType resourceType;
+    public final boolean multiple;
+    /** The model's {@code <RangeEnumeration>} text, empty if none. */
+    public final String rangeEnumeration;
+    private RangeEnumeration range;
+    private boolean rangeParsed;
+
+    public ResourceDef(int id, String name, String ops, String type) {
+        this(id, name, ops, type, "");
+    }
+
+    public ResourceDef(int id, String name, String ops, String type, String rangeEnumeration) {
+        this(id, name, parseOperations(ops), ResourceType.fromModel(type), false, rangeEnumeration);
+    }
+
+    public ResourceDef(int id, String name, int operations, ResourceType resourceType, boolean multiple,
+                       String rangeEnumeration) {
+        this.id = id;
+        this.name = name;
+        this.operations = operations;
+        this.resourceType = resourceType;
+        this.multiple = multiple;
+        this.ops = formatOperations(operations);
+        this.type = resourceType.label;
+        this.rangeEnumeration = rangeEnumeration == null ? "" : rangeEnumeration.trim();
+    }
+
+    public boolean isReadable() {
+        return (operations & OP_READ) != 0;
+    }
+
+    public boolean isWritable() {
+        return (operations & OP_WRITE) != 0;
+    }
+
+    public boolean isExecutable() {
+        return (operations & OP_EXECUTE) != 0;
+    }
+
+    /** The parsed constraint, or null if the model gives none this parser understands. */
+    public synchronized RangeEnumeration range() {
+        if (!rangeParsed) {
+            range = RangeEnumeration.parse(rangeEnumeration);
+            rangeParsed = true;
+        }
+        return range;
+    }
+
+    static int parseOperations(String ops) {
+        int flags = 0;
+        if (ops != null) {
+            for (int i = 0; i < ops.length(); i++) {
+                switch (ops.charAt(i)) {
+                    case 'R':
+                        flags |= OP_READ;
+                        break;
+                    case 'W':
+                        flags |= OP_WRITE;
+                        break;
+                    case 'E':
+                        flags |= OP_EXECUTE;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return flags;
+    }
+
+    private static String formatOperations(int flags) {
+        switch (flags) {
+            case OP_READ:
+                return "R";
+            case OP_WRITE:
+                return "W";
+            case OP_READ | OP_WRITE:
+                return "RW";
+            case OP_EXECUTE:
+                return "E";
+            case 0:
+                return "";
+            default:
+                return ((flags & OP_READ) != 0 ? "R" : "") + ((flags & OP_WRITE) != 0 ? "W" : "")
+                        + ((flags & OP_EXECUTE) != 0 ? "E" : "");
+        }
+    }
+}
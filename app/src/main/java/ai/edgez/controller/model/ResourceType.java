@@ -0,0 +1,41 @@
+package ai.edgez.controller.model;
+
+import java.util.Locale;
+
+/** Data type of a resource, as named in the {@code <Type>} element of an object model. */
+public enum ResourceType {
+    STRING("String"),
+    INTEGER("Integer"),
+    UNSIGNED_INTEGER("Unsigned Integer"),
+    FLOAT("Float"),
+    BOOLEAN("Boolean"),
+    OPAQUE("Opaque"),
+    TIME("Time"),
+    OBJLNK("Objlnk"),
+    CORELNK("Corelnk"),
+    /** Executable resources and unknown types carry no value. */
+    NONE("");
+
+    /** The model's spelling. */
+    public final String label;
+
+    ResourceType(String label) {
+        this.label = label;
+    }
+
+    /** Maps a model {@code <Type>} to a constant; unknown or empty types give {@link #NONE}. */
+    public static ResourceType fromModel(String type) {
+        if (type != null) {
+            String t = type.trim();
+            for (ResourceType value : values()) {
+                if (value != NONE && value.label.equalsIgnoreCase(t)) {
+                    return value;
+                }
+            }
+            if (t.toLowerCase(Locale.ROOT).equals("unsigned")) {
+                return UNSIGNED_INTEGER;
+            }
+        }
+        return NONE;
+    }
+}
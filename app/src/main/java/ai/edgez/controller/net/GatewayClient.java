@@ -0,0 +1,354 @@
+package ai.edgez.controller.net;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.metrics.NetworkProbe;
+
+/**
+ * Blocking HTTP client for the LwM2M REST gateway. Shared by the UI and background polling so
+ * that every request goes through one place, where connect time, time to first byte, total time
+ * and payload size are recorded into a {@link NetworkProbe}. Call from a worker thread.
+ *
+ * <p>Identical GETs are de-duplicated: concurrent callers share one request, and a successful
+ * response is reused for {@link #setFreshnessMs the freshness window}. Writes drop any response
+ * held for the same URL.
+ *
+ * <p>Each server has a {@link ServerHealth} circuit breaker: once a server stops answering,
+ * requests to it fail at once with {@link ServerUnavailableException} until a probe gets through.
+ * Connect and read timeouts follow that server's recent latency instead of a fixed 5 s.
+ *
+ * <p>Responses are requested with gzip or deflate and decoded here; the probe's payload size is
+ * the compressed size on the wire. Connections are kept alive and reused per server.
+ */
+public class GatewayClient {
+
+    public static final int REST_PORT = 8088;
+    public static final String CLIENTS_PATH = "/api/clients";
+    public static final long DEFAULT_FRESHNESS_MS = 500L;
+
+    /** Endpoint templates used as {@link NetworkProbe} keys. */
+    public static final String EP_CLIENTS = "GET /api/clients";
+    public static final String EP_CLIENT = "GET /api/clients/{ep}";
+    public static final String EP_READ = "GET /api/clients/{ep}/{path}";
+    public static final String EP_WRITE = "PUT /api/clients/{ep}/{path}";
+
+    private static final Metrics.Timer HTTP_TIMER = Metrics.timer("http.request");
+    private static final Metrics.Counter HTTP_ERRORS = Metrics.counter("http.errors");
+    private static final Metrics.Counter HTTP_BYTES = Metrics.counter("http.bytesIn");
+    private static final Metrics.Counter HTTP_BYTES_OUT = Metrics.counter("http.bytesOut");
+    private static final Metrics.Counter HTTP_SHORT_CIRCUITS = Metrics.counter("http.shortCircuit");
+    private static final int COPY_BUFFER_BYTES = 8 * 1024;
+    private static final int DECODE_BUFFER_BYTES = 8 * 1024;
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final NetworkProbe probe;
+    private final int port;
+    private final SingleFlight reads = new SingleFlight(DEFAULT_FRESHNESS_MS);
+    private final Map<String, ServerHealth> health = new ConcurrentHashMap<>();
+
+    /** Status code and body of a completed request. */
+    public static final class Response {
+        public final int code;
+        public final String body;
+
+        public Response(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        public boolean isSuccess() {
+            return code >= 200 && code < 300;
+        }
+    }
+
+    public GatewayClient(NetworkProbe probe) {
+        this(probe, REST_PORT);
+    }
+
+    /** For a stand-in gateway on another port. */
+    GatewayClient(NetworkProbe probe, int port) {
+        this.probe = probe;
+        this.port = port;
+    }
+
+    public NetworkProbe probe() {
+        return probe;
+    }
+
+    /** How long a successful GET is served to repeated callers without a new request; 0 disables. */
+    public void setFreshnessMs(long freshnessMs) {
+        reads.setFreshMs(freshnessMs);
+    }
+
+    /** GET {@code /api/clients} on the gateway at {@code host}. */
+    public Response listClients(String host) throws IOException {
+        return get(host, EP_CLIENTS, baseUrl(host) + CLIENTS_PATH);
+    }
+
+    /** GET {@code /api/clients/{endpoint}} including the object links of the registration. */
+    public Response getClient(String host, String endpoint) throws IOException {
+        return get(host, EP_CLIENT, baseUrl(host) + CLIENTS_PATH + "/" + endpoint);
+    }
+
+    /** Reads a resource path such as {@code /3/0/9} from a registered client. */
+    public Response read(String host, String endpoint, String path) throws IOException {
+        return get(host, EP_READ, resourceUrl(host, endpoint, path));
+    }
+
+    /** Writes {@code payload} to a resource path with a PUT of the given content type. */
+    public Response write(String host, String endpoint, String path, String contentType, byte[] payload)
+            throws IOException {
+        String url = resourceUrl(host, endpoint, path);
+        reads.invalidate(url);
+        return execute(host, EP_WRITE, url, contentType,
+                new StreamBody(new ByteArrayInputStream(payload), payload.length));
+    }
+
+    /**
+     * Writes the next {@code length} bytes of {@code body} to a resource path with one PUT in
+     * fixed-length streaming mode. The body is copied through a small buffer as it is sent, so
+     * values of any size use constant memory.
+     */
+    public Response writeStream(String host, String endpoint, String path, String contentType,
+                                InputStream body, long length) throws IOException {
+        String url = resourceUrl(host, endpoint, path);
+        reads.invalidate(url);
+        return execute(host, EP_WRITE, url, contentType, new StreamBody(body, length));
+    }
+
+    /** Builds a resource path from object, instance and resource IDs. */
+    public static String path(int objId, int instId, int resId) {
+        return "/" + objId + "/" + instId + "/" + resId;
+    }
+
+    /** Brackets bare IPv6 literals so they can be used in a URL authority. */
+    public static String formatHost(String addr) {
+        if (addr == null) {
+            return "";
+        }
+        if (addr.contains(":") && !(addr.startsWith("[") && addr.endsWith("]"))) {
+            return "[" + addr + "]";
+        }
+        return addr;
+    }
+
+    // The URL carries host, path and format, so it is the de-duplication key.
+    private Response get(String host, String endpoint, String url) throws IOException {
+        return reads.execute(url, () -> execute(host, endpoint, url, null, null));
+    }
+
+    private Response execute(String host, String endpoint, String url, String contentType, StreamBody payload)
+            throws IOException {
+        ServerHealth health = health(host);
+        long retryAfterMs = health.admit(System.nanoTime());
+        if (retryAfterMs > 0) {
+            HTTP_SHORT_CIRCUITS.inc();
+            throw new ServerUnavailableException(host, retryAfterMs);
+        }
+        long traceStart = HTTP_TIMER.begin();
+        long connected = 0L;
+        boolean answered = false;
+        boolean drained = false;
+        HttpURLConnection conn = null;
+        try {
+            // Inside the try so an admitted request always ends in one of the health callbacks;
+            // a probe that never reports back would leave the breaker half-open for good.
+            conn = open(url);
+            conn.setConnectTimeout(health.connectTimeoutMs());
+            conn.setReadTimeout(health.readTimeoutMs(endpoint));
+            conn.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+            long start = System.nanoTime();
+            if (payload != null) {
+                conn.setRequestMethod("PUT");
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", contentType);
+                conn.setFixedLengthStreamingMode(payload.length);
+            } else {
+                conn.setRequestMethod("GET");
+            }
+            conn.connect();
+            connected = System.nanoTime();
+            if (payload != null) {
+                try (OutputStream os = conn.getOutputStream()) {
+                    payload.writeTo(os);
+                }
+                HTTP_BYTES_OUT.add(payload.length);
+            }
+            long sent = System.nanoTime();
+            int code = conn.getResponseCode();
+            long firstByte = System.nanoTime();
+            answered = true;
+            health.onSuccess(endpoint, connected - start, firstByte - sent);
+            InputStream raw = code >= 400 ? conn.getErrorStream() : conn.getInputStream();
+            CountingInputStream in = raw == null ? null : new CountingInputStream(raw);
+            String body = in == null ? "" : readAll(decode(in, conn.getContentEncoding()));
+            drained = true;
+            long done = System.nanoTime();
+
+            probe.recordNanos(host, endpoint, NetworkProbe.Phase.CONNECT, connected - start);
+            probe.recordNanos(host, endpoint, NetworkProbe.Phase.TTFB, firstByte - sent);
+            probe.recordNanos(host, endpoint, NetworkProbe.Phase.TOTAL, done - start);
+            probe.record(host, endpoint, NetworkProbe.Phase.PAYLOAD, in == null ? 0 : in.count);
+            HTTP_BYTES.add(in == null ? 0 : in.count);
+            if (code >= 400) {
+                probe.recordError(host, endpoint);
+                HTTP_ERRORS.inc();
+            }
+            return new Response(code, body);
+        } catch (IOException e) {
+            if (!answered) {
+                // Resource reads and writes wait on the device behind the gateway, so once the
+                // gateway has accepted the connection a timeout says nothing about its health.
+                if (connected != 0L && isDeviceBound(endpoint)) {
+                    health.onReachable();
+                } else {
+                    health.onFailure(System.nanoTime());
+                }
+            }
+            probe.recordError(host, endpoint);
+            HTTP_ERRORS.inc();
+            throw e;
+        } catch (RuntimeException e) {
+            if (!answered) {
+                health.onAbandoned();
+            }
+            throw e;
+        } finally {
+            // A fully read response leaves the socket in the keep-alive pool for the next request
+            // to this server; anything else may have left bytes unread, so drop the connection.
+            if (conn != null && !drained) {
+                conn.disconnect();
+            }
+            HTTP_TIMER.end(traceStart);
+        }
+    }
+
+    HttpURLConnection open(String url) throws IOException {
+        return (HttpURLConnection) new URL(url).openConnection();
+    }
+
+    private static boolean isDeviceBound(String endpoint) {
+        return EP_READ.equals(endpoint) || EP_WRITE.equals(endpoint);
+    }
+
+    ServerHealth health(String host) {
+        ServerHealth h = health.get(host);
+        if (h == null) {
+            h = health.computeIfAbsent(host, ServerHealth::new);
+        }
+        return h;
+    }
+
+    /** Breaker state and current timeouts of every server contacted, for the diagnostics screen. */
+    public String healthReport() {
+        StringBuilder sb = new StringBuilder();
+        for (ServerHealth h : health.values()) {
+            sb.append(h.describe()).append('\n');
+        }
+        return sb.length() == 0 ? "No servers contacted yet" : sb.toString();
+    }
+
+    private String baseUrl(String host) {
+        return "http://" + formatHost(host) + ":" + port;
+    }
+
+    private String resourceUrl(String host, String endpoint, String path) {
+        return baseUrl(host) + CLIENTS_PATH + "/" + endpoint + path + "?timeout=5&format=TLV";
+    }
+
+    /**
+     * Undoes the response's {@code Content-Encoding}. Setting {@code Accept-Encoding} ourselves
+     * turns off the platform's transparent gzip, so both codings offered are handled here.
+     */
+    static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in, DECODE_BUFFER_BYTES);
+            case "deflate":
+                return new InflaterInputStream(in, new Inflater(), DECODE_BUFFER_BYTES);
+            default:
+                return in;
+        }
+    }
+
+    static String readAll(InputStream in) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                sb.append(line);
+            }
+            return sb.toString();
+        }
+    }
+
+    /** A request body of known length, read from {@code in} as it is sent. */
+    private static final class StreamBody {
+        final InputStream in;
+        final long length;
+
+        StreamBody(InputStream in, long length) {
+            this.in = in;
+            this.length = length;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            long remaining = length;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("Body ended " + remaining + " bytes early");
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
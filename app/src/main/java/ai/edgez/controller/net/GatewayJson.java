@@ -0,0 +1,109 @@
+package ai.edgez.controller.net;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.metrics.Metrics;
+
+/** Parsers for the gateway's JSON responses. */
+public final class GatewayJson {
+
+    private static final Metrics.Timer PARSE_DEVICES = Metrics.timer("json.parseDevices");
+    private static final Metrics.Timer PARSE_LINKS = Metrics.timer("json.parseLinks");
+
+    /** An object instance advertised in a client's registration, e.g. {@code /3311/0}. */
+    public static final class ObjectLink {
+        public final int objId;
+        public final int instId;
+
+        public ObjectLink(int objId, int instId) {
+            this.objId = objId;
+            this.instId = instId;
+        }
+    }
+
+    private GatewayJson() {
+    }
+
+    /** Parses the {@code /api/clients} array into devices reachable through {@code address}. */
+    public static List<DeviceRegistry.Device> parseDevices(String body, String address) throws JSONException {
+        long start = PARSE_DEVICES.begin();
+        try {
+            List<DeviceRegistry.Device> devices = new ArrayList<>();
+            JSONArray array = new JSONArray(body);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject obj = array.optJSONObject(i);
+                if (obj == null) {
+                    continue;
+                }
+                String endpoint = obj.optString("endpoint", "");
+                if (endpoint.isEmpty()) {
+                    continue;
+                }
+                devices.add(new DeviceRegistry.Device(endpoint, address, GatewayClient.REST_PORT));
+            }
+            return devices;
+        } finally {
+            PARSE_DEVICES.end(start);
+        }
+    }
+
+    /** Parses the {@code objectLinks} of a {@code /api/clients/{endpoint}} response. */
+    public static List<ObjectLink> parseObjectLinks(String body) throws JSONException {
+        long start = PARSE_LINKS.begin();
+        try {
+            List<ObjectLink> links = new ArrayList<>();
+            JSONObject obj = new JSONObject(body);
+            JSONArray arr = obj.optJSONArray("objectLinks");
+            if (arr == null) {
+                return links;
+            }
+            for (int i = 0; i < arr.length(); i++) {
+                JSONObject linkObj = arr.optJSONObject(i);
+                if (linkObj == null) continue;
+                String url = linkObj.optString("url", "");
+                String[] parts = url.split("/");
+                if (parts.length >= 3) {
+                    // e.g. /3311/0
+                    try {
+                        int objId = Integer.parseInt(parts[1]);
+                        int instId = Integer.parseInt(parts[2]);
+                        links.add(new ObjectLink(objId, instId));
+                    } catch (NumberFormatException ignore) {
+                    }
+                }
+            }
+            return links;
+        } finally {
+            PARSE_LINKS.end(start);
+        }
+    }
+
+    /**
+     * The bytes of a single Opaque resource read, carried as hex in {@code content.value}, e.g.
+     * {@code {"status":"CONTENT","content":{"id":0,"value":"0a1b"}}}. Returns null if the body
+     * holds no hex value.
+     */
+    public static byte[] parseOpaque(String body) throws JSONException {
+        JSONObject content = new JSONObject(body).optJSONObject("content");
+        String hex = content == null ? null : content.optString("value", null);
+        if (hex == null || hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return null;
+            }
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,245 @@
+package ai.edgez.controller.net;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import ai.edgez.controller.metrics.Metrics;
+
+/**
+ * Shared worker pool for gateway and file I/O with three priority lanes, so a tap is never queued
+ * behind background polling.
+ *
+ * <p>Workers always take the oldest task of the highest lane that has one; lower lanes wait for as
+ * long as higher ones have work. Lanes are also capped in how many workers they may occupy: with
+ * {@code n} workers, visible and background tasks together use at most {@code n - 1} and background
+ * tasks at most {@code n / 2}, so a slow background read cannot hold the worker an interactive
+ * task needs.
+ *
+ * <p>Tasks are submitted through a {@link Group}, which a fragment creates for its view and
+ * cancels when the view is destroyed; see {@link Group#post}.
+ */
+public class IoScheduler {
+
+    public enum Lane {
+        /** The user is waiting on the result, e.g. a read they tapped. */
+        INTERACTIVE("interactive"),
+        /** Fills or refreshes something on screen. */
+        VISIBLE("visible"),
+        /** Nobody is waiting, e.g. periodic polling. */
+        BACKGROUND("background");
+
+        final Metrics.Timer queueWait;
+
+        Lane(String name) {
+            queueWait = Metrics.timer("io.wait." + name);
+        }
+    }
+
+    private static final Lane[] LANES = Lane.values();
+
+    /**
+     * Tasks submitted together and cancelled together. Cancelling interrupts running tasks and
+     * drops queued ones; results posted through {@link #post} afterwards are discarded.
+     */
+    public final class Group {
+        private final Executor ui;
+        private final Set<Task<?>> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled;
+
+        Group(Executor ui) {
+            this.ui = ui;
+        }
+
+        public <T> Future<T> submit(Lane lane, Callable<T> work) {
+            Task<T> task = new Task<>(this, lane, work);
+            tasks.add(task);
+            if (cancelled) {
+                task.cancel(false);
+            } else {
+                enqueue(task);
+            }
+            return task;
+        }
+
+        public Future<?> execute(Lane lane, Runnable work) {
+            return submit(lane, () -> {
+                work.run();
+                return null;
+            });
+        }
+
+        /**
+         * Runs {@code action} on the group's executor, typically the main thread, unless the group
+         * is cancelled before it gets to run. Cancel on that same thread and no action runs after.
+         */
+        public void post(Runnable action) {
+            if (!cancelled) {
+                ui.execute(() -> {
+                    if (!cancelled) {
+                        action.run();
+                    }
+                });
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (lock) {
+                for (Task<?> task : tasks) {
+                    queues[task.lane.ordinal()].remove(task);
+                }
+            }
+            for (Task<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Task<T> extends FutureTask<T> {
+        final Group group;
+        final Lane lane;
+        final long queuedNanos = System.nanoTime();
+
+        Task(Group group, Lane lane, Callable<T> work) {
+            super(work);
+            this.group = group;
+            this.lane = lane;
+        }
+
+        @Override
+        protected void done() {
+            group.tasks.remove(this);
+        }
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Task<?>>[] queues;
+    private final int[] running = new int[LANES.length];
+    // Most workers the lane and all lanes below it may occupy together.
+    private final int[] limits;
+    private boolean shutdown;
+
+    @SuppressWarnings("unchecked")
+    public IoScheduler(int workerCount) {
+        if (workerCount < 2) {
+            throw new IllegalArgumentException("Need at least two workers: " + workerCount);
+        }
+        queues = (ArrayDeque<Task<?>>[]) new ArrayDeque<?>[LANES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+        limits = new int[] {workerCount, workerCount - 1, Math.max(1, workerCount / 2)};
+        for (int i = 0; i < workerCount; i++) {
+            Thread t = new Thread(this::work, "io-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /** A new group whose {@link Group#post} runs actions on {@code ui}. */
+    public Group group(Executor ui) {
+        return new Group(ui);
+    }
+
+    /** Stops the workers once the queued tasks have run. */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    /** Queued and running tasks per lane, for diagnostics. */
+    public String report() {
+        StringBuilder sb = new StringBuilder("I/O lanes (queued / running)\n");
+        synchronized (lock) {
+            for (Lane lane : LANES) {
+                sb.append(String.format(Locale.US, "  %-16s %4d / %d%n", lane.name().toLowerCase(Locale.US),
+                        queues[lane.ordinal()].size(), running[lane.ordinal()]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void enqueue(Task<?> task) {
+        synchronized (lock) {
+            if (shutdown) {
+                throw new IllegalStateException("I/O scheduler is shut down");
+            }
+            queues[task.lane.ordinal()].addLast(task);
+            lock.notifyAll();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Task<?> task;
+            synchronized (lock) {
+                while ((task = next()) == null) {
+                    if (shutdown && isIdle()) {
+                        return;
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Meant for a task that was cancelled as it finished.
+                    }
+                }
+                running[task.lane.ordinal()]++;
+            }
+            task.lane.queueWait.recordNanos(System.nanoTime() - task.queuedNanos);
+            try {
+                task.run();
+            } finally {
+                // Do not let a cancelled task's interrupt reach the next one.
+                Thread.interrupted();
+                synchronized (lock) {
+                    running[task.lane.ordinal()]--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // Caller holds lock.
+    private Task<?> next() {
+        for (int lane = 0; lane < LANES.length; lane++) {
+            if (!queues[lane].isEmpty() && mayStart(lane)) {
+                return queues[lane].pollFirst();
+            }
+        }
+        return null;
+    }
+
+    // Caller holds lock.
+    private boolean mayStart(int lane) {
+        int below = 0;
+        for (int i = LANES.length - 1; i >= 0; i--) {
+            below += running[i];
+            if (i <= lane && below >= limits[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Caller holds lock.
+    private boolean isIdle() {
+        for (ArrayDeque<Task<?>> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
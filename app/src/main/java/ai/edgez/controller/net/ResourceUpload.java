@@ -0,0 +1,169 @@
+package ai.edgez.controller.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+
+/**
+ * Streams a large opaque value, such as a firmware image for object 5, to one resource as a single
+ * PUT of one TLV resource record, the format every other write uses. The record is sent in
+ * fixed-length streaming mode and read straight from the {@link Source} through the client's copy
+ * buffer, so memory use does not depend on the size of the value.
+ *
+ * <p>The gateway's REST API replaces the resource with each PUT and cannot append to it, so an
+ * upload cannot resume part way: a failed attempt is retried with backoff from the first byte, and
+ * once retries run out {@link #run(Listener)} throws. Resuming would need a transport that carries
+ * blocks to the device, such as CoAP Block1, which the gateway does not expose. Call from a worker
+ * thread.
+ */
+public class ResourceUpload {
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BACKOFF_MS = 500L;
+    // Progress is reported about this often, and once more at the end.
+    private static final long PROGRESS_BYTES = 64 * 1024;
+
+    /** Where the value is read from; must return the same bytes every time it is opened. */
+    public interface Source {
+        long length() throws IOException;
+
+        /** Opens the value at its first byte. */
+        InputStream open() throws IOException;
+    }
+
+    /** Called as the value is sent, on the uploading thread; starts again from 0 on a retry. */
+    public interface Listener {
+        void onProgress(long sentBytes, long totalBytes, double bytesPerSecond);
+    }
+
+    private final GatewayClient client;
+    private final String host;
+    private final String endpoint;
+    private final String path;
+    private final int resId;
+    private final Source source;
+    private volatile long sent;
+    private volatile boolean cancelled;
+
+    public ResourceUpload(GatewayClient client, String host, String endpoint, int objId, int instId, int resId,
+                          Source source) {
+        this.client = client;
+        this.host = host;
+        this.endpoint = endpoint;
+        this.path = GatewayClient.path(objId, instId, resId);
+        this.resId = resId;
+        this.source = source;
+    }
+
+    /** A source reading a local file. */
+    public static Source fileSource(File file) {
+        return new Source() {
+            @Override
+            public long length() {
+                return file.length();
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+
+    /** Bytes of the value sent by the current attempt. */
+    public long sent() {
+        return sent;
+    }
+
+    /** Aborts the PUT in flight; the gateway never sees a complete value, so nothing is written. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Sends the value. Returns the gateway's response, or null if the upload was cancelled.
+     *
+     * @throws IOException if the value is too long for one TLV record, or the write still fails
+     *                     after retrying
+     */
+    public GatewayClient.Response run(Listener listener) throws IOException, InterruptedException {
+        cancelled = false;
+        long total = source.length();
+        if (total > TlvEncoder.MAX_VALUE_BYTES) {
+            throw new IOException("Value of " + total + " bytes is too long for one TLV record");
+        }
+        byte[] header = TlvEncoder.header(resId, total);
+        IOException failure = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && !cancelled; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(BACKOFF_MS << (attempt - 1));
+            }
+            sent = 0L;
+            try (InputStream in = new Progress(source.open(), total, listener)) {
+                GatewayClient.Response response = client.writeStream(host, endpoint, path, TlvEncoder.CONTENT_TYPE,
+                        new SequenceInputStream(new ByteArrayInputStream(header), in), header.length + total);
+                if (response.isSuccess()) {
+                    return response;
+                }
+                failure = new IOException("Write rejected: " + response.code + " " + response.body);
+                if (response.code < 500) {
+                    break;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (cancelled) {
+            return null;
+        }
+        throw failure;
+    }
+
+    /** Counts the value's bytes as the client reads them, and stops the read once cancelled. */
+    private final class Progress extends FilterInputStream {
+        private final long total;
+        private final Listener listener;
+        private final long start = System.nanoTime();
+        private long reported;
+
+        Progress(InputStream in, long total, Listener listener) {
+            super(in);
+            this.total = total;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (cancelled) {
+                throw new InterruptedIOException("Upload cancelled");
+            }
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                sent += n;
+                if (listener != null && (sent - reported >= PROGRESS_BYTES || sent == total)) {
+                    reported = sent;
+                    double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+                    listener.onProgress(sent, total, sent / seconds);
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Every byte must pass through read to be counted.
+            return 0L;
+        }
+    }
+}
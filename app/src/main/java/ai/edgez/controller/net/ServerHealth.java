@@ -0,0 +1,176 @@
+package ai.edgez.controller.net;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import ai.edgez.controller.metrics.Histogram;
+
+/**
+ * Health of one gateway server: a circuit breaker and connect and read timeouts derived from
+ * recent latency.
+ *
+ * <p>After {@value #FAILURE_THRESHOLD} consecutive failures the breaker opens and requests fail
+ * at once. When the open period ends a single request is let through as a probe; success closes
+ * the breaker, failure reopens it for twice as long, up to {@value #MAX_OPEN_MS} ms.
+ *
+ * <p>Timeouts are a multiple of the recent p99 plus a margin, clamped between a floor and the
+ * former fixed 5 s, and stay at 5 s until enough samples have been seen.
+ */
+final class ServerHealth {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final int FAILURE_THRESHOLD = 3;
+    static final long MIN_OPEN_MS = 2_000L;
+    static final long MAX_OPEN_MS = 60_000L;
+    static final int MAX_TIMEOUT_MS = 5_000;
+    private static final int MIN_CONNECT_TIMEOUT_MS = 500;
+    private static final int MIN_READ_TIMEOUT_MS = 1_000;
+    private static final int MARGIN_MS = 250;
+    private static final int P99_MULTIPLIER = 3;
+
+    private final String host;
+    private final LatencyWindow connect = new LatencyWindow();
+    private final Map<String, LatencyWindow> responses = new HashMap<>();
+    private State state = State.CLOSED;
+    private int failures;
+    private long openMs = MIN_OPEN_MS;
+    private long openUntilNanos;
+
+    ServerHealth(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Whether a request may go now. In the half-open state only the first caller is admitted, as
+     * the probe.
+     *
+     * @return 0 if admitted, otherwise milliseconds until the next probe is allowed
+     */
+    synchronized long admit(long nowNanos) {
+        switch (state) {
+            case CLOSED:
+                return 0L;
+            case OPEN:
+                if (nowNanos - openUntilNanos >= 0) {
+                    state = State.HALF_OPEN;
+                    return 0L;
+                }
+                return Math.max(1L, (openUntilNanos - nowNanos) / 1_000_000L);
+            default:
+                return openMs;
+        }
+    }
+
+    /** The server answered; any HTTP status counts. */
+    synchronized void onSuccess(String endpoint, long connectNanos, long responseNanos) {
+        connect.record(connectNanos / 1_000L);
+        window(endpoint).record(responseNanos / 1_000L);
+        onReachable();
+    }
+
+    /** The server accepted a connection, but no latency was measured. */
+    synchronized void onReachable() {
+        state = State.CLOSED;
+        failures = 0;
+        openMs = MIN_OPEN_MS;
+    }
+
+    /** The server could not be reached or did not answer. */
+    synchronized void onFailure(long nowNanos) {
+        failures++;
+        if (state == State.HALF_OPEN) {
+            openMs = Math.min(MAX_OPEN_MS, openMs * 2);
+            open(nowNanos);
+        } else if (state == State.CLOSED && failures >= FAILURE_THRESHOLD) {
+            open(nowNanos);
+        }
+    }
+
+    /** A request that was admitted but neither succeeded nor failed, e.g. it was interrupted. */
+    synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized int connectTimeoutMs() {
+        return connect.timeoutMs(MIN_CONNECT_TIMEOUT_MS);
+    }
+
+    synchronized int readTimeoutMs(String endpoint) {
+        LatencyWindow w = responses.get(endpoint);
+        return w == null ? MAX_TIMEOUT_MS : w.timeoutMs(MIN_READ_TIMEOUT_MS);
+    }
+
+    synchronized String describe() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "%s  %s  failures=%d  connect=%dms",
+                host, state, failures, connect.timeoutMs(MIN_CONNECT_TIMEOUT_MS)));
+        for (Map.Entry<String, LatencyWindow> e : responses.entrySet()) {
+            sb.append(String.format(Locale.US, "%n  %-28s read=%dms", e.getKey(),
+                    e.getValue().timeoutMs(MIN_READ_TIMEOUT_MS)));
+        }
+        return sb.toString();
+    }
+
+    private void open(long nowNanos) {
+        state = State.OPEN;
+        openUntilNanos = nowNanos + openMs * 1_000_000L;
+    }
+
+    private LatencyWindow window(String endpoint) {
+        LatencyWindow w = responses.get(endpoint);
+        if (w == null) {
+            w = new LatencyWindow();
+            responses.put(endpoint, w);
+        }
+        return w;
+    }
+
+    /**
+     * Recent latencies in microseconds: the current window plus the previous one, so old samples
+     * age out after two windows. The derived timeout is cached and refreshed every few samples.
+     */
+    private static final class LatencyWindow {
+        private static final int WINDOW = 256;
+        private static final int MIN_SAMPLES = 20;
+        private static final int REFRESH_EVERY = 16;
+
+        private Histogram current = new Histogram();
+        private Histogram previous = new Histogram();
+        private final Histogram merged = new Histogram();
+        private long p99Micros = -1L;
+
+        void record(long micros) {
+            current.record(micros);
+            long n = current.count();
+            if (n % REFRESH_EVERY == 0) {
+                merged.reset();
+                merged.add(previous);
+                merged.add(current);
+                if (merged.count() >= MIN_SAMPLES) {
+                    p99Micros = merged.percentile(99);
+                }
+            }
+            if (n >= WINDOW) {
+                Histogram recycled = previous;
+                previous = current;
+                recycled.reset();
+                current = recycled;
+            }
+        }
+
+        int timeoutMs(int floorMs) {
+            if (p99Micros < 0) {
+                return MAX_TIMEOUT_MS;
+            }
+            long ms = p99Micros * P99_MULTIPLIER / 1_000L + MARGIN_MS;
+            return (int) Math.max(floorMs, Math.min(MAX_TIMEOUT_MS, ms));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ai.edgez.controller.net;
+
+import java.io.IOException;
+
+/** Thrown without contacting a server whose circuit breaker is open. */
+public class ServerUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public final String host;
+    public final long retryAfterMs;
+
+    public ServerUnavailableException(String host, long retryAfterMs) {
+        super("Server " + host + " unavailable, retry in " + retryAfterMs + " ms");
+        this.host = host;
+        this.retryAfterMs = retryAfterMs;
+    }
+}
@@ -0,0 +1,131 @@
+package ai.edgez.controller.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import ai.edgez.controller.metrics.Metrics;
+
+/**
+ * Collapses identical concurrent requests into one. The first caller for a key runs the request;
+ * callers arriving while it is in flight wait for and share its result. A successful result is
+ * then served from memory to callers arriving within the freshness window.
+ */
+final class SingleFlight {
+
+    interface Call {
+        GatewayClient.Response run() throws IOException;
+    }
+
+    private static final int SWEEP_THRESHOLD = 256;
+    private static final Metrics.Counter SHARED = Metrics.counter("http.coalesced");
+    private static final Metrics.Counter FRESH = Metrics.counter("http.fresh");
+
+    private static final class Flight {
+        final CompletableFuture<GatewayClient.Response> result = new CompletableFuture<>();
+        // Set once the request completes successfully; 0 while in flight or after a failure.
+        volatile long completedNanos;
+    }
+
+    private final Map<String, Flight> flights = new HashMap<>();
+    private volatile long freshNanos;
+
+    SingleFlight(long freshMs) {
+        setFreshMs(freshMs);
+    }
+
+    void setFreshMs(long freshMs) {
+        this.freshNanos = Math.max(0L, freshMs) * 1_000_000L;
+    }
+
+    GatewayClient.Response execute(String key, Call call) throws IOException {
+        Flight flight;
+        boolean leader = false;
+        synchronized (flights) {
+            long now = System.nanoTime();
+            flight = flights.get(key);
+            if (flight != null && flight.result.isDone() && !isFresh(flight, now)) {
+                flight = null;
+            }
+            if (flight == null) {
+                if (flights.size() >= SWEEP_THRESHOLD) {
+                    sweep(now);
+                }
+                flight = new Flight();
+                flights.put(key, flight);
+                leader = true;
+            }
+        }
+        if (!leader) {
+            (flight.result.isDone() ? FRESH : SHARED).inc();
+            return await(flight);
+        }
+        try {
+            GatewayClient.Response response = call.run();
+            if (response.isSuccess() && freshNanos > 0) {
+                flight.completedNanos = System.nanoTime();
+            } else {
+                remove(key, flight);
+            }
+            flight.result.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops any result held for {@code key}, e.g. after a write to the same resource. A request
+     * still in flight completes for its current waiters, but later callers start a new one.
+     */
+    void invalidate(String key) {
+        synchronized (flights) {
+            flights.remove(key);
+        }
+    }
+
+    private boolean isFresh(Flight flight, long now) {
+        long completed = flight.completedNanos;
+        return completed != 0L && now - completed < freshNanos;
+    }
+
+    private void remove(String key, Flight flight) {
+        synchronized (flights) {
+            flights.remove(key, flight);
+        }
+    }
+
+    private void sweep(long now) {
+        Iterator<Flight> it = flights.values().iterator();
+        while (it.hasNext()) {
+            Flight flight = it.next();
+            if (flight.result.isDone() && !isFresh(flight, now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static GatewayClient.Response await(Flight flight) throws IOException {
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a shared request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package ai.edgez.controller.net;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import ai.edgez.controller.model.RangeEnumeration;
+import ai.edgez.controller.model.ResourceDef;
+
+/**
+ * Encodes a value typed by the user into an LwM2M TLV resource record, using the resource's type
+ * and {@code RangeEnumeration} from the object model. Invalid input is rejected here, before any
+ * request is made.
+ *
+ * <p>Accepted input per type: Integer and Unsigned Integer as decimal, Float as decimal, Boolean
+ * as {@code true/false/1/0}, Time as epoch seconds or an ISO-8601 instant, Opaque as hex, Objlnk
+ * as {@code obj:inst}, String and Corelnk as text.
+ */
+public final class TlvEncoder {
+
+    public static final String CONTENT_TYPE = "application/vnd.oma.lwm2m+tlv";
+    /** Longest value a single record can carry; its length field has at most three bytes. */
+    public static final int MAX_VALUE_BYTES = 0xffffff;
+
+    private static final int TYPE_RESOURCE_VALUE = 0b11 << 6;
+    private static final BigDecimal UNSIGNED_MAX = new BigDecimal("18446744073709551615");
+
+    private TlvEncoder() {
+    }
+
+    /**
+     * @throws IllegalArgumentException with a message for the user if the value does not fit the
+     *                                  resource
+     */
+    public static byte[] encode(ResourceDef def, String input) {
+        String text = input == null ? "" : input.trim();
+        RangeEnumeration range = def.range();
+        byte[] value;
+        switch (def.resourceType) {
+            case INTEGER:
+                value = integer(checkRange(range, parseNumber(text, false)).longValueExact());
+                break;
+            case UNSIGNED_INTEGER:
+                value = unsigned(checkRange(range, parseUnsigned(text)));
+                break;
+            case FLOAT:
+                value = floatingPoint(checkRange(range, parseNumber(text, true)).doubleValue());
+                break;
+            case BOOLEAN:
+                value = new byte[] {(byte) (parseBoolean(text) ? 1 : 0)};
+                break;
+            case TIME:
+                value = integer(checkRange(range, BigDecimal.valueOf(parseTime(text))).longValueExact());
+                break;
+            case OPAQUE:
+                value = checkLength(range, parseHex(text));
+                break;
+            case OBJLNK:
+                value = objlnk(text);
+                break;
+            case STRING:
+            case CORELNK:
+                value = checkLength(range, text.getBytes(StandardCharsets.UTF_8));
+                break;
+            default:
+                throw new IllegalArgumentException("Resource " + def.id + " has no writable type");
+        }
+        return record(def.id, value);
+    }
+
+    /** A resource-with-value record with the shortest identifier and length fields. */
+    static byte[] record(int id, byte[] value) {
+        byte[] header = header(id, value.length);
+        byte[] out = new byte[header.length + value.length];
+        System.arraycopy(header, 0, out, 0, header.length);
+        System.arraycopy(value, 0, out, header.length, value.length);
+        return out;
+    }
+
+    /**
+     * The header of a resource-with-value record whose value of {@code length} bytes follows it,
+     * for values streamed rather than held in memory.
+     */
+    static byte[] header(int id, long length) {
+        if (id < 0 || id > 0xffff) {
+            throw new IllegalArgumentException("Resource ID out of range: " + id);
+        }
+        if (length < 0 || length > MAX_VALUE_BYTES) {
+            throw new IllegalArgumentException("Value too long for TLV: " + length + " bytes");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(6);
+        int header = TYPE_RESOURCE_VALUE;
+        boolean wideId = id > 0xff;
+        if (wideId) {
+            header |= 1 << 5;
+        }
+        int lengthBytes;
+        if (length < 8) {
+            header |= (int) length;
+            lengthBytes = 0;
+        } else if (length <= 0xff) {
+            header |= 1 << 3;
+            lengthBytes = 1;
+        } else if (length <= 0xffff) {
+            header |= 2 << 3;
+            lengthBytes = 2;
+        } else {
+            header |= 3 << 3;
+            lengthBytes = 3;
+        }
+        out.write(header);
+        if (wideId) {
+            out.write(id >>> 8);
+        }
+        out.write(id);
+        for (int i = lengthBytes - 1; i >= 0; i--) {
+            out.write((int) (length >>> (8 * i)));
+        }
+        return out.toByteArray();
+    }
+
+    /** Signed big-endian in 1, 2, 4 or 8 bytes, whichever is shortest. */
+    static byte[] integer(long v) {
+        int size = v == (byte) v ? 1 : v == (short) v ? 2 : v == (int) v ? 4 : 8;
+        return bigEndian(v, size);
+    }
+
+    private static byte[] unsigned(BigDecimal v) {
+        long bits = v.toBigIntegerExact().longValue();
+        int size = v.compareTo(BigDecimal.valueOf(0xffL)) <= 0 ? 1
+                : v.compareTo(BigDecimal.valueOf(0xffffL)) <= 0 ? 2
+                : v.compareTo(BigDecimal.valueOf(0xffffffffL)) <= 0 ? 4 : 8;
+        return bigEndian(bits, size);
+    }
+
+    /** Four bytes when the value survives the round trip through float, otherwise eight. */
+    static byte[] floatingPoint(double v) {
+        float f = (float) v;
+        if (f == v || Double.isNaN(v)) {
+            return bigEndian(Float.floatToIntBits(f) & 0xffffffffL, 4);
+        }
+        return bigEndian(Double.doubleToLongBits(v), 8);
+    }
+
+    private static byte[] objlnk(String text) {
+        String[] parts = text.split("[:/]");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected object link as obj:inst");
+        }
+        int obj = parseId(parts[0]);
+        int inst = parseId(parts[1]);
+        return new byte[] {(byte) (obj >>> 8), (byte) obj, (byte) (inst >>> 8), (byte) inst};
+    }
+
+    private static int parseId(String s) {
+        try {
+            int v = Integer.parseInt(s.trim());
+            if (v >= 0 && v <= 0xffff) {
+                return v;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Not an object or instance ID: " + s);
+    }
+
+    private static BigDecimal parseNumber(String text, boolean fractional) {
+        try {
+            BigDecimal v = new BigDecimal(text);
+            if (!fractional) {
+                v.toBigIntegerExact().longValueExact();
+            }
+            return v;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException(
+                    (fractional ? "Not a number: " : "Not a 64-bit integer: ") + (text.isEmpty() ? "(empty)" : text));
+        }
+    }
+
+    private static BigDecimal parseUnsigned(String text) {
+        try {
+            BigDecimal v = new BigDecimal(text);
+            if (v.signum() >= 0 && v.compareTo(UNSIGNED_MAX) <= 0 && v.stripTrailingZeros().scale() <= 0) {
+                return v;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Not an unsigned 64-bit integer: " + (text.isEmpty() ? "(empty)" : text));
+    }
+
+    private static boolean parseBoolean(String text) {
+        switch (text.toLowerCase(Locale.ROOT)) {
+            case "1":
+            case "true":
+                return true;
+            case "0":
+            case "false":
+                return false;
+            default:
+                throw new IllegalArgumentException("Expected true/false or 1/0");
+        }
+    }
+
+    private static long parseTime(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException ignored) {
+            // Try ISO-8601 next.
+        }
+        try {
+            return Instant.parse(text).getEpochSecond();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected epoch seconds or an ISO-8601 instant");
+        }
+    }
+
+    private static byte[] parseHex(String text) {
+        String hex = text.replaceAll("\\s+", "");
+        if (hex.startsWith("0x") || hex.startsWith("0X")) {
+            hex = hex.substring(2);
+        }
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Hex needs an even number of digits");
+        }
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Not hex: " + text);
+            }
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+
+    private static BigDecimal checkRange(RangeEnumeration range, BigDecimal v) {
+        if (range != null && !range.lengthInBytes && !range.accepts(v)) {
+            throw new IllegalArgumentException(v.toPlainString() + " is outside " + range);
+        }
+        return v;
+    }
+
+    // Models state String and Opaque ranges as lengths, with or without a "bytes" suffix.
+    private static byte[] checkLength(RangeEnumeration range, byte[] v) {
+        if (range != null && !range.acceptsLength(v.length)) {
+            throw new IllegalArgumentException(v.length + " bytes is outside " + range);
+        }
+        return v;
+    }
+
+    private static byte[] bigEndian(long v, int size) {
+        byte[] out = new byte[size];
+        for (int i = 0; i < size; i++) {
+            out[i] = (byte) (v >>> (8 * (size - 1 - i)));
+        }
+        return out;
+    }
+}
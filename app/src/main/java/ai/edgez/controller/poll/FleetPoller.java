@@ -0,0 +1,288 @@
+package ai.edgez.controller.poll;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.GatewayJson;
+import ai.edgez.controller.net.IoScheduler;
+
+/**
+ * Periodically reads a configured set of resource paths from every known device and feeds the
+ * results into the {@link ResourceValueCache}.
+ *
+ * <p>Each cycle starts at a jittered interval and spreads its reads randomly over the first half
+ * of the interval so that many controllers do not hit a gateway at the same instant. A token
+ * bucket per gateway caps the request rate, and a read that is still queued or in flight when the
+ * next cycle asks for it again is coalesced instead of duplicated.
+ *
+ * <p>Given an {@link IoScheduler}, the poller's own threads only keep time and the requests run in
+ * the scheduler's background lane, behind anything the user is waiting on.
+ */
+public class FleetPoller {
+
+    /** Polling configuration; copied on {@link #start}. */
+    public static final class Config {
+        /** Resource paths to read on every device, e.g. {@code /3/0/9}. */
+        public List<String> paths = new ArrayList<>();
+        public long intervalMs = 60_000L;
+        /** Cycle start jitter as a fraction of {@link #intervalMs}. */
+        public double jitter = 0.2d;
+        public double requestsPerSecondPerServer = 5d;
+        public int burstPerServer = 5;
+        public int threads = 4;
+        /** Whether each cycle also refreshes the client list of every gateway. */
+        public boolean refreshClients = true;
+
+        Config copy() {
+            Config c = new Config();
+            c.paths = new ArrayList<>(paths);
+            c.intervalMs = Math.max(1_000L, intervalMs);
+            c.jitter = Math.max(0d, Math.min(0.5d, jitter));
+            c.requestsPerSecondPerServer = Math.max(0.01d, requestsPerSecondPerServer);
+            c.burstPerServer = Math.max(1, burstPerServer);
+            c.threads = Math.max(1, threads);
+            c.refreshClients = refreshClients;
+            return c;
+        }
+    }
+
+    /** An extra resource to poll on one device, on top of {@link Config#paths}. */
+    private static final class Watch {
+        final DeviceRegistry.Device device;
+        final String path;
+
+        Watch(DeviceRegistry.Device device, String path) {
+            this.device = device;
+            this.path = path;
+        }
+    }
+
+    /** Counters since construction. */
+    public static final class Stats {
+        public final AtomicLong cycles = new AtomicLong();
+        public final AtomicLong reads = new AtomicLong();
+        public final AtomicLong failures = new AtomicLong();
+        public final AtomicLong coalesced = new AtomicLong();
+        public final AtomicLong throttled = new AtomicLong();
+    }
+
+    private final GatewayClient client;
+    private final DeviceRegistry registry;
+    private final ResourceValueCache cache;
+    private final Random random;
+    private final IoScheduler io;
+    private final Stats stats = new Stats();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService executor;
+    private volatile IoScheduler.Group requests;
+    private volatile Config config;
+
+    public FleetPoller(GatewayClient client, DeviceRegistry registry, ResourceValueCache cache) {
+        this(client, registry, cache, null);
+    }
+
+    /** @param io runs the requests in its background lane; null to run them on the poller's threads */
+    public FleetPoller(GatewayClient client, DeviceRegistry registry, ResourceValueCache cache, IoScheduler io) {
+        this(client, registry, cache, io, new Random());
+    }
+
+    FleetPoller(GatewayClient client, DeviceRegistry registry, ResourceValueCache cache, IoScheduler io,
+                Random random) {
+        this.client = client;
+        this.registry = registry;
+        this.cache = cache;
+        this.io = io;
+        this.random = random;
+    }
+
+    public synchronized void start(Config config) {
+        stop();
+        this.config = config.copy();
+        limiters.clear();
+        ScheduledExecutorService exec = Executors.newScheduledThreadPool(this.config.threads, new PollerThreads());
+        executor = exec;
+        if (io != null) {
+            requests = io.group(Runnable::run);
+        }
+        exec.schedule(this::cycle, jitterMs(this.config), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        ScheduledExecutorService exec = executor;
+        executor = null;
+        if (exec != null) {
+            exec.shutdownNow();
+        }
+        IoScheduler.Group group = requests;
+        requests = null;
+        if (group != null) {
+            group.cancel();
+        }
+        pending.clear();
+    }
+
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    public Stats stats() {
+        return stats;
+    }
+
+    /** Also polls {@code path} on {@code device} every cycle, e.g. for a resource a rule observes. */
+    public void watch(DeviceRegistry.Device device, String path) {
+        watches.put(readKey(device, path), new Watch(device, path));
+    }
+
+    public void unwatch(DeviceRegistry.Device device, String path) {
+        watches.remove(readKey(device, path));
+    }
+
+    private void cycle() {
+        ScheduledExecutorService exec = executor;
+        Config cfg = config;
+        if (exec == null || cfg == null) {
+            return;
+        }
+        stats.cycles.incrementAndGet();
+        long next = cfg.intervalMs + jitterMs(cfg) - (long) (cfg.intervalMs * cfg.jitter / 2);
+        exec.schedule(this::cycle, Math.max(1_000L, next), TimeUnit.MILLISECONDS);
+
+        long spread = Math.max(1L, cfg.intervalMs / 2);
+        if (cfg.refreshClients) {
+            for (Map.Entry<String, String> server : registry.servers().entrySet()) {
+                String name = server.getKey();
+                String host = server.getValue();
+                submit(exec, host, host + "|clients", () -> refreshClients(name, host), nextLong(spread));
+            }
+        }
+        for (DeviceRegistry.Device device : registry.snapshot()) {
+            for (String path : cfg.paths) {
+                submit(exec, device.address, readKey(device, path), () -> readPath(device, path), nextLong(spread));
+            }
+        }
+        for (Map.Entry<String, Watch> entry : watches.entrySet()) {
+            Watch w = entry.getValue();
+            if (!cfg.paths.contains(w.path)) {
+                submit(exec, w.device.address, entry.getKey(), () -> readPath(w.device, w.path), nextLong(spread));
+            }
+        }
+    }
+
+    private static String readKey(DeviceRegistry.Device device, String path) {
+        return device.address + "|" + device.endpoint + "|" + path;
+    }
+
+    private void submit(ScheduledExecutorService exec, String host, String key, Runnable work, long delayMs) {
+        if (!pending.add(key)) {
+            stats.coalesced.incrementAndGet();
+            return;
+        }
+        exec.schedule(() -> attempt(exec, host, key, work), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void attempt(ScheduledExecutorService exec, String host, String key, Runnable work) {
+        if (exec != executor) {
+            return;
+        }
+        Config cfg = config;
+        RateLimiter limiter = limiters.computeIfAbsent(host,
+                h -> new RateLimiter(cfg.requestsPerSecondPerServer, cfg.burstPerServer, System.nanoTime()));
+        long waitNanos = limiter.reserve(System.nanoTime());
+        if (waitNanos > 0) {
+            stats.throttled.incrementAndGet();
+            exec.schedule(() -> run(key, work), waitNanos, TimeUnit.NANOSECONDS);
+        } else {
+            run(key, work);
+        }
+    }
+
+    private void run(String key, Runnable work) {
+        IoScheduler.Group group = requests;
+        if (group != null) {
+            group.execute(IoScheduler.Lane.BACKGROUND, () -> runNow(key, work));
+        } else {
+            runNow(key, work);
+        }
+    }
+
+    private void runNow(String key, Runnable work) {
+        try {
+            work.run();
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    private void refreshClients(String serviceName, String host) {
+        try {
+            GatewayClient.Response response = client.listClients(host);
+            if (!response.isSuccess()) {
+                stats.failures.incrementAndGet();
+                return;
+            }
+            long parseStart = System.nanoTime();
+            List<DeviceRegistry.Device> devices = GatewayJson.parseDevices(response.body, host);
+            client.probe().recordNanos(host, GatewayClient.EP_CLIENTS, NetworkProbe.Phase.PARSE,
+                    System.nanoTime() - parseStart);
+            registry.putDevices(serviceName, devices);
+        } catch (IOException | JSONException e) {
+            stats.failures.incrementAndGet();
+        }
+    }
+
+    private void readPath(DeviceRegistry.Device device, String path) {
+        try {
+            GatewayClient.Response response = client.read(device.address, device.endpoint, path);
+            if (!response.isSuccess()) {
+                stats.failures.incrementAndGet();
+                return;
+            }
+            stats.reads.incrementAndGet();
+            cache.put(device.endpoint, path, response.body, System.currentTimeMillis());
+        } catch (IOException e) {
+            stats.failures.incrementAndGet();
+        }
+    }
+
+    private long jitterMs(Config cfg) {
+        return nextLong((long) (cfg.intervalMs * cfg.jitter) + 1);
+    }
+
+    private long nextLong(long bound) {
+        synchronized (random) {
+            return (long) (random.nextDouble() * bound);
+        }
+    }
+
+    private static final class PollerThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "fleet-poller-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    }
+}
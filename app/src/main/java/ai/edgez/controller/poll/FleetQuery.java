@@ -0,0 +1,311 @@
+package ai.edgez.controller.poll;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.data.ValueParser;
+import ai.edgez.controller.metrics.Histogram;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.IoScheduler;
+
+/**
+ * Reads one resource path from many devices at once, e.g. {@code /3/0/3} across the fleet.
+ *
+ * <p>Reads are grouped by gateway and each gateway gets at most {@link Config#perServer} requests
+ * in flight, so a large fleet behind one gateway does not flood it while other gateways sit idle.
+ * Each read is a task in the {@link IoScheduler}'s visible lane, so reads queue behind taps and
+ * share the scheduler's workers with polling. Results are delivered as they arrive. When the
+ * deadline passes, reads still queued or in flight are abandoned and reported as timed out, so the
+ * caller always gets a complete table.
+ */
+public class FleetQuery {
+
+    /** Query configuration; copied on {@link #start}. */
+    public static final class Config {
+        /** Resource path to read, e.g. {@code /3/0/9}. */
+        public String path = "";
+        /** Endpoint name pattern; {@code *} matches any run of characters, empty matches all. */
+        public String selector = "";
+        public int perServer = 4;
+        public long deadlineMs = 10_000L;
+
+        Config copy() {
+            Config c = new Config();
+            c.path = path.trim();
+            c.selector = selector.trim();
+            c.perServer = Math.max(1, perServer);
+            c.deadlineMs = Math.max(100L, deadlineMs);
+            return c;
+        }
+    }
+
+    public enum Status { OK, ERROR, FAILED, TIMED_OUT }
+
+    /** The outcome of the read on one device. */
+    public static final class Result {
+        public final DeviceRegistry.Device device;
+        public final Status status;
+        /** HTTP status, or 0 if there was no response. */
+        public final int code;
+        /** Response body, or the failure message. */
+        public final String body;
+        /** Numeric value of the body, or NaN. */
+        public final double numeric;
+        /** Milliseconds from the start of the query until this result. */
+        public final long elapsedMs;
+
+        Result(DeviceRegistry.Device device, Status status, int code, String body, long elapsedMs) {
+            this.device = device;
+            this.status = status;
+            this.code = code;
+            this.body = body;
+            this.numeric = status == Status.OK ? ValueParser.parseNumeric(body) : Double.NaN;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    /** Completion times over the devices that answered, successfully or not. */
+    public static final class Summary {
+        public final int devices;
+        public final int ok;
+        public final int errors;
+        public final int timedOut;
+        public final long p50Ms;
+        public final long p99Ms;
+        public final long elapsedMs;
+
+        Summary(int devices, int ok, int errors, int timedOut, long p50Ms, long p99Ms, long elapsedMs) {
+            this.devices = devices;
+            this.ok = ok;
+            this.errors = errors;
+            this.timedOut = timedOut;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.elapsedMs = elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d/%d ok, %d failed, %d timed out  p50=%dms p99=%dms  total=%dms",
+                    ok, devices, errors, timedOut, p50Ms, p99Ms, elapsedMs);
+        }
+    }
+
+    /** Called on an I/O worker or the deadline timer; at most one call at a time. */
+    public interface Listener {
+        void onResult(Result result);
+
+        /** Called once, after every selected device has a result. */
+        void onComplete(Summary summary);
+    }
+
+    private final GatewayClient client;
+    private final ResourceValueCache cache;
+    private final IoScheduler io;
+    private Run current;
+
+    public FleetQuery(GatewayClient client, ResourceValueCache cache, IoScheduler io) {
+        this.client = client;
+        this.cache = cache;
+        this.io = io;
+    }
+
+    /**
+     * Starts reading {@code config.path} from every device in {@code devices} that matches the
+     * selector, cancelling any query still running.
+     *
+     * @return the number of devices selected
+     */
+    public synchronized int start(List<DeviceRegistry.Device> devices, Config config, Listener listener) {
+        cancel();
+        Config cfg = config.copy();
+        Pattern selector = selector(cfg.selector);
+        Map<String, Queue<DeviceRegistry.Device>> byServer = new LinkedHashMap<>();
+        int selected = 0;
+        for (DeviceRegistry.Device device : devices) {
+            if (selector.matcher(device.endpoint).matches()) {
+                byServer.computeIfAbsent(device.address, a -> new ArrayDeque<>()).add(device);
+                selected++;
+            }
+        }
+        current = new Run(cfg, byServer, selected, listener);
+        current.start();
+        return selected;
+    }
+
+    /** Stops the running query; devices without a result are reported as timed out. */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.finish();
+            current = null;
+        }
+    }
+
+    /** A glob over endpoint names, case-insensitive; empty selects everything. */
+    static Pattern selector(String glob) {
+        if (glob.isEmpty()) {
+            return Pattern.compile(".*", Pattern.DOTALL);
+        }
+        StringBuilder regex = new StringBuilder();
+        String[] parts = glob.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (!parts[i].isEmpty()) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    }
+
+    /**
+     * One query: per-server queues, each read by at most {@code perServer} chains of tasks. A chain
+     * reads one device per task and queues its next task when done, so other visible work gets a
+     * turn between reads.
+     */
+    private final class Run {
+        private final Config cfg;
+        private final Map<String, Queue<DeviceRegistry.Device>> queues;
+        private final List<DeviceRegistry.Device> inFlight = new ArrayList<>();
+        private final int devices;
+        private final Listener listener;
+        private final IoScheduler.Group reads = io.group(Runnable::run);
+        private final ScheduledExecutorService deadline =
+                Executors.newSingleThreadScheduledExecutor(new QueryThreads());
+        private final Histogram completions = new Histogram();
+        private final long startNanos = System.nanoTime();
+        private int ok;
+        private int errors;
+        private int timedOut;
+        private boolean finished;
+
+        Run(Config cfg, Map<String, Queue<DeviceRegistry.Device>> queues, int devices, Listener listener) {
+            this.cfg = cfg;
+            this.queues = queues;
+            this.devices = devices;
+            this.listener = listener;
+        }
+
+        void start() {
+            if (devices == 0) {
+                finish();
+                return;
+            }
+            // On its own thread so the deadline fires even when every I/O worker is blocked on a read.
+            deadline.schedule(this::finish, cfg.deadlineMs, TimeUnit.MILLISECONDS);
+            for (Queue<DeviceRegistry.Device> queue : queues.values()) {
+                int chains = Math.min(cfg.perServer, queue.size());
+                for (int i = 0; i < chains; i++) {
+                    reads.execute(IoScheduler.Lane.VISIBLE, () -> readNext(queue));
+                }
+            }
+        }
+
+        private void readNext(Queue<DeviceRegistry.Device> queue) {
+            DeviceRegistry.Device device = next(queue);
+            if (device == null) {
+                return;
+            }
+            Result result = read(device);
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                inFlight.remove(device);
+                deliver(result);
+                if (ok + errors + timedOut == devices) {
+                    finish();
+                    return;
+                }
+            }
+            reads.execute(IoScheduler.Lane.VISIBLE, () -> readNext(queue));
+        }
+
+        private synchronized DeviceRegistry.Device next(Queue<DeviceRegistry.Device> queue) {
+            DeviceRegistry.Device device = finished ? null : queue.poll();
+            if (device != null) {
+                inFlight.add(device);
+            }
+            return device;
+        }
+
+        private Result read(DeviceRegistry.Device device) {
+            try {
+                GatewayClient.Response response = client.read(device.address, device.endpoint, cfg.path);
+                if (response.isSuccess() && cache != null) {
+                    cache.put(device.endpoint, cfg.path, response.body, System.currentTimeMillis());
+                }
+                return new Result(device, response.isSuccess() ? Status.OK : Status.ERROR,
+                        response.code, response.body, elapsedMs());
+            } catch (IOException e) {
+                return new Result(device, Status.FAILED, 0, String.valueOf(e.getMessage()), elapsedMs());
+            }
+        }
+
+        private void deliver(Result result) {
+            if (result.status == Status.TIMED_OUT) {
+                timedOut++;
+            } else {
+                completions.record(result.elapsedMs);
+                if (result.status == Status.OK) {
+                    ok++;
+                } else {
+                    errors++;
+                }
+            }
+            listener.onResult(result);
+        }
+
+        synchronized void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long elapsed = elapsedMs();
+            List<DeviceRegistry.Device> unanswered = new ArrayList<>(inFlight);
+            for (Queue<DeviceRegistry.Device> q : queues.values()) {
+                unanswered.addAll(q);
+                q.clear();
+            }
+            inFlight.clear();
+            for (DeviceRegistry.Device device : unanswered) {
+                deliver(new Result(device, Status.TIMED_OUT, 0, "", elapsed));
+            }
+            listener.onComplete(new Summary(devices, ok, errors, timedOut,
+                    completions.count() == 0 ? 0 : completions.percentile(50),
+                    completions.count() == 0 ? 0 : completions.percentile(99), elapsed));
+            reads.cancel();
+            deadline.shutdownNow();
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - startNanos) / 1_000_000L;
+        }
+    }
+
+    private static final class QueryThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "fleet-query-deadline-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ai.edgez.controller.poll;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import ai.edgez.controller.EdgeControllerApp;
+import ai.edgez.controller.R;
+
+/**
+ * Foreground service that keeps the {@link FleetPoller} running while the app is in the
+ * background. The poller itself is process-wide; this service only pins the process.
+ */
+public class PollingService extends Service {
+
+    private static final String TAG = "PollingService";
+    private static final String CHANNEL_ID = "fleet_polling";
+    private static final int NOTIFICATION_ID = 1001;
+
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, PollingService.class));
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, PollingService.class));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        PollingSettings settings = new PollingSettings(this);
+        FleetPoller.Config config = settings.toConfig();
+        Log.d(TAG, "Polling " + config.paths + " every " + config.intervalMs + " ms");
+        EdgeControllerApp.from(this).getFleetPoller().start(config);
+        return START_STICKY;
+    }
+
+    @Override
+    public void onTimeout(int startId, int fgsType) {
+        // Android 15 caps dataSync foreground services; stop cleanly instead of being killed.
+        Log.w(TAG, "Foreground time limit reached; stopping polling");
+        stopSelf();
+    }
+
+    @Override
+    public void onDestroy() {
+        EdgeControllerApp.from(this).getFleetPoller().stop();
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification buildNotification() {
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        if (nm != null && nm.getNotificationChannel(CHANNEL_ID) == null) {
+            nm.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Fleet polling", NotificationManager.IMPORTANCE_LOW));
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_settings_black_24dp)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText("Polling devices in the background")
+                .setOngoing(true)
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package ai.edgez.controller.poll;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Background polling preferences persisted in {@link SharedPreferences}. */
+public final class PollingSettings {
+
+    private static final String PREFS = "polling";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_PATHS = "paths";
+    private static final String KEY_INTERVAL_S = "interval_s";
+    /** Device battery level and firmware version. */
+    public static final String DEFAULT_PATHS = "/3/0/9, /3/0/3";
+    public static final int DEFAULT_INTERVAL_S = 60;
+
+    private final SharedPreferences prefs;
+
+    public PollingSettings(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    public boolean isEnabled() {
+        return prefs.getBoolean(KEY_ENABLED, false);
+    }
+
+    public String pathsText() {
+        return prefs.getString(KEY_PATHS, DEFAULT_PATHS);
+    }
+
+    public int intervalSeconds() {
+        return prefs.getInt(KEY_INTERVAL_S, DEFAULT_INTERVAL_S);
+    }
+
+    public void save(boolean enabled, String pathsText, int intervalSeconds) {
+        prefs.edit()
+                .putBoolean(KEY_ENABLED, enabled)
+                .putString(KEY_PATHS, pathsText)
+                .putInt(KEY_INTERVAL_S, Math.max(5, intervalSeconds))
+                .apply();
+    }
+
+    public FleetPoller.Config toConfig() {
+        FleetPoller.Config config = new FleetPoller.Config();
+        config.paths = parsePaths(pathsText());
+        config.intervalMs = intervalSeconds() * 1000L;
+        return config;
+    }
+
+    /** Splits a comma or whitespace separated list, keeping entries that look like resource paths. */
+    static List<String> parsePaths(String text) {
+        List<String> paths = new ArrayList<>();
+        if (text == null) {
+            return paths;
+        }
+        for (String part : text.split("[,\\s]+")) {
+            if (part.matches("(/\\d+){1,3}") && !paths.contains(part)) {
+                paths.add(part);
+            }
+        }
+        return paths;
+    }
+}
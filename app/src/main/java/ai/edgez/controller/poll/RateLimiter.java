@@ -0,0 +1,33 @@
+package ai.edgez.controller.poll;
+
+/** Token bucket limiting the request rate against one gateway. */
+final class RateLimiter {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastNanos;
+
+    RateLimiter(double requestsPerSecond, int burst, long nowNanos) {
+        this.tokensPerNano = requestsPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastNanos = nowNanos;
+    }
+
+    /**
+     * Reserves the next token. Reservations may run the bucket negative, which hands each waiting
+     * caller its own future slot instead of having them all retry at the same instant.
+     *
+     * @return 0 if the request may go now, otherwise nanoseconds until its slot
+     */
+    synchronized long reserve(long nowNanos) {
+        tokens = Math.min(capacity, tokens + (nowNanos - lastNanos) * tokensPerNano);
+        lastNanos = nowNanos;
+        tokens -= 1d;
+        if (tokens >= 0d) {
+            return 0L;
+        }
+        return (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
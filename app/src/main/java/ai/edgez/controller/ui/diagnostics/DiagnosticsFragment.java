@@ -0,0 +1,137 @@
+package ai.edgez.controller.ui.diagnostics;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import ai.edgez.controller.EdgeControllerApp;
+import ai.edgez.controller.data.MemoryGovernor;
+import ai.edgez.controller.databinding.FragmentDiagnosticsBinding;
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.IoScheduler;
+
+/**
+ * Shows gateway latency percentiles per server and endpoint plus the app-wide {@link Metrics},
+ * refreshed while visible.
+ */
+public class DiagnosticsFragment extends Fragment {
+
+    private static final long REFRESH_INTERVAL_MS = 1_000L;
+
+    private FragmentDiagnosticsBinding binding;
+    private NetworkProbe probe;
+    private GatewayClient client;
+    private MemoryGovernor governor;
+    private IoScheduler scheduler;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Exports outlive the view, so this group lives as long as the fragment.
+    private IoScheduler.Group io;
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            handler.postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+    private final ActivityResultLauncher<String> exportLauncher =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("text/csv"), this::exportTo);
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        scheduler = EdgeControllerApp.from(requireContext()).getIoScheduler();
+        io = scheduler.group(handler::post);
+    }
+
+    public View onCreateView(@NonNull LayoutInflater inflater,
+                             ViewGroup container, Bundle savedInstanceState) {
+        binding = FragmentDiagnosticsBinding.inflate(inflater, container, false);
+        probe = EdgeControllerApp.from(requireContext()).getNetworkProbe();
+        client = EdgeControllerApp.from(requireContext()).getGatewayClient();
+        governor = EdgeControllerApp.from(requireContext()).getMemoryGovernor();
+
+        binding.btnResetProbe.setOnClickListener(v -> {
+            probe.reset();
+            Metrics.reset();
+            refresh();
+        });
+        binding.btnExportProbe.setOnClickListener(v -> exportLauncher.launch("gateway-latency.csv"));
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        handler.post(refreshRunnable);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        handler.removeCallbacks(refreshRunnable);
+    }
+
+    private void refresh() {
+        if (binding != null) {
+            binding.textProbeReport.setText(probe.report() + "\n" + client.healthReport() + "\n"
+                    + governor.report() + "\n" + scheduler.report() + "\n" + Metrics.report());
+        }
+    }
+
+    private void exportTo(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        String csv = probe.exportCsv();
+        ContentResolver resolver = requireContext().getContentResolver();
+        io.execute(IoScheduler.Lane.INTERACTIVE, () -> {
+            boolean ok;
+            try (OutputStream os = resolver.openOutputStream(uri)) {
+                if (os == null) {
+                    throw new IOException("No output stream for " + uri);
+                }
+                os.write(csv.getBytes(StandardCharsets.UTF_8));
+                ok = true;
+            } catch (IOException e) {
+                ok = false;
+            }
+            boolean success = ok;
+            io.post(() -> {
+                if (isAdded()) {
+                    Toast.makeText(requireContext(), success ? "Exported" : "Export failed",
+                            Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        io.cancel();
+    }
+}
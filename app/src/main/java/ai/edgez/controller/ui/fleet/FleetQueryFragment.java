@@ -0,0 +1,254 @@
+package ai.edgez.controller.ui.fleet;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import ai.edgez.controller.EdgeControllerApp;
+import ai.edgez.controller.R;
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.poll.FleetQuery;
+
+/**
+ * Reads one resource path from every known device matching an endpoint pattern and shows the
+ * results in a table as they arrive. Tapping a column header sorts by it; tapping again reverses.
+ */
+public class FleetQueryFragment extends Fragment {
+
+    private static final long FLUSH_INTERVAL_MS = 100L;
+
+    private enum SortKey { DEVICE, VALUE, TIME }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Object lock = new Object();
+    // Results waiting to be shown, appended by query threads and taken on the main thread.
+    private List<FleetQuery.Result> arrived = new ArrayList<>();
+    private boolean flushScheduled;
+    private final List<FleetQuery.Result> results = new ArrayList<>();
+    private FleetQuery query;
+    private DeviceRegistry registry;
+    private EditText path;
+    private EditText selector;
+    private Button run;
+    private TextView summary;
+    private ResultAdapter adapter;
+    private SortKey sortKey = SortKey.DEVICE;
+    private boolean descending;
+    private boolean running;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
+        View root = inflater.inflate(R.layout.fragment_fleet_query, container, false);
+        EdgeControllerApp app = EdgeControllerApp.from(requireContext());
+        query = new FleetQuery(app.getGatewayClient(), app.getValueCache(), app.getIoScheduler());
+        registry = app.getDeviceRegistry();
+        path = root.findViewById(R.id.edit_path);
+        selector = root.findViewById(R.id.edit_selector);
+        run = root.findViewById(R.id.btn_run_query);
+        summary = root.findViewById(R.id.text_summary);
+        RecyclerView list = root.findViewById(R.id.result_list);
+        adapter = new ResultAdapter();
+        list.setLayoutManager(new LinearLayoutManager(requireContext()));
+        list.setAdapter(adapter);
+
+        run.setOnClickListener(v -> {
+            if (running) {
+                query.cancel();
+            } else {
+                startQuery();
+            }
+        });
+        root.findViewById(R.id.header_device).setOnClickListener(v -> sortBy(SortKey.DEVICE));
+        root.findViewById(R.id.header_value).setOnClickListener(v -> sortBy(SortKey.VALUE));
+        root.findViewById(R.id.header_time).setOnClickListener(v -> sortBy(SortKey.TIME));
+        return root;
+    }
+
+    @Override
+    public void onDestroyView() {
+        query.cancel();
+        handler.removeCallbacksAndMessages(null);
+        super.onDestroyView();
+    }
+
+    private void startQuery() {
+        String p = path.getText().toString().trim();
+        if (!p.matches("/\\d+/\\d+/\\d+")) {
+            Toast.makeText(requireContext(), "Path must be /object/instance/resource", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        FleetQuery.Config config = new FleetQuery.Config();
+        config.path = p;
+        config.selector = selector.getText().toString();
+        results.clear();
+        synchronized (lock) {
+            arrived = new ArrayList<>();
+        }
+        adapter.submitList(Collections.emptyList());
+        setRunning(true);
+        int selected = query.start(registry.snapshot(), config, new FleetQuery.Listener() {
+            @Override
+            public void onResult(FleetQuery.Result result) {
+                synchronized (lock) {
+                    arrived.add(result);
+                    if (flushScheduled) {
+                        return;
+                    }
+                    flushScheduled = true;
+                }
+                handler.postDelayed(FleetQueryFragment.this::flush, FLUSH_INTERVAL_MS);
+            }
+
+            @Override
+            public void onComplete(FleetQuery.Summary s) {
+                handler.post(() -> {
+                    flush();
+                    setRunning(false);
+                    summary.setText(s.toString());
+                });
+            }
+        });
+        summary.setText(String.format(Locale.US, "Reading %s from %d devices…", p, selected));
+    }
+
+    /** Moves arrived results into the table, at most once per {@value #FLUSH_INTERVAL_MS} ms. */
+    private void flush() {
+        List<FleetQuery.Result> batch;
+        synchronized (lock) {
+            batch = arrived;
+            arrived = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        results.addAll(batch);
+        if (running) {
+            summary.setText(String.format(Locale.US, "%d results…", results.size()));
+        }
+        submitSorted();
+    }
+
+    private void sortBy(SortKey key) {
+        descending = key == sortKey && !descending;
+        sortKey = key;
+        submitSorted();
+    }
+
+    private void submitSorted() {
+        List<FleetQuery.Result> sorted = new ArrayList<>(results);
+        Comparator<FleetQuery.Result> order = comparator(sortKey);
+        sorted.sort(descending ? order.reversed() : order);
+        adapter.submitList(Collections.unmodifiableList(sorted));
+    }
+
+    private static Comparator<FleetQuery.Result> comparator(SortKey key) {
+        Comparator<FleetQuery.Result> byDevice = Comparator
+                .comparing((FleetQuery.Result r) -> r.device.endpoint)
+                .thenComparing(r -> r.device.address);
+        switch (key) {
+            case VALUE:
+                // Numbers first in numeric order, then other values as text, then failures.
+                return Comparator
+                        .comparing((FleetQuery.Result r) -> r.status != FleetQuery.Status.OK)
+                        .thenComparing(r -> Double.isNaN(r.numeric))
+                        .thenComparingDouble(r -> Double.isNaN(r.numeric) ? 0d : r.numeric)
+                        .thenComparing(r -> r.body)
+                        .thenComparing(byDevice);
+            case TIME:
+                return Comparator.comparingLong((FleetQuery.Result r) -> r.elapsedMs).thenComparing(byDevice);
+            default:
+                return byDevice;
+        }
+    }
+
+    private void setRunning(boolean running) {
+        this.running = running;
+        run.setText(running ? "Cancel" : "Run");
+    }
+
+    private static String valueText(FleetQuery.Result r) {
+        switch (r.status) {
+            case OK:
+                return Double.isNaN(r.numeric) ? r.body.trim() : formatNumber(r.numeric);
+            case ERROR:
+                return "HTTP " + r.code;
+            case TIMED_OUT:
+                return "timed out";
+            default:
+                return "failed: " + r.body;
+        }
+    }
+
+    private static String formatNumber(double v) {
+        return v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+    }
+
+    /** Rows are matched by device, so a re-sort moves rows instead of rebinding them. */
+    private static class ResultAdapter extends ListAdapter<FleetQuery.Result, ResultViewHolder> {
+
+        ResultAdapter() {
+            super(new DiffUtil.ItemCallback<FleetQuery.Result>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull FleetQuery.Result oldItem, @NonNull FleetQuery.Result newItem) {
+                    return oldItem.device.equals(newItem.device);
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull FleetQuery.Result oldItem, @NonNull FleetQuery.Result newItem) {
+                    return oldItem == newItem;
+                }
+            });
+        }
+
+        @NonNull
+        @Override
+        public ResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_fleet_result, parent, false);
+            return new ResultViewHolder(v);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ResultViewHolder holder, int position) {
+            FleetQuery.Result r = getItem(position);
+            holder.device.setText(r.device.endpoint + " @ " + r.device.address);
+            holder.value.setText(valueText(r));
+            holder.time.setText(Long.toString(r.elapsedMs));
+        }
+    }
+
+    private static class ResultViewHolder extends RecyclerView.ViewHolder {
+        final TextView device;
+        final TextView value;
+        final TextView time;
+
+        ResultViewHolder(View itemView) {
+            super(itemView);
+            device = itemView.findViewById(R.id.text_device);
+            value = itemView.findViewById(R.id.text_value);
+            time = itemView.findViewById(R.id.text_time);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ai.edgez.controller.ui.reflow;
 
 import android.os.Bundle;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,24 +10,98 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.Locale;
+
+import ai.edgez.controller.EdgeControllerApp;
+import ai.edgez.controller.R;
+import ai.edgez.controller.data.FleetAggregates;
 import ai.edgez.controller.databinding.FragmentReflowBinding;
+import ai.edgez.controller.model.ObjectDef;
+import ai.edgez.controller.model.ObjectModels;
+import ai.edgez.controller.model.ResourceDef;
 
+/**
+ * Live fleet dashboard: count, range, mean and percentiles of every numeric resource type read
+ * from any device. Once per frame while visible, only the rows whose aggregate changed are
+ * rebound, so the cost follows the update rate rather than the fleet size.
+ */
 public class ReflowFragment extends Fragment {
 
     private FragmentReflowBinding binding;
+    private ReflowViewModel viewModel;
+    private FleetAggregates aggregates;
+    private AggregateAdapter adapter;
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            pull();
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+    private final ReflowViewModel.RowChanges rowChanges = new ReflowViewModel.RowChanges() {
+        @Override
+        public void inserted(int position) {
+            adapter.notifyItemInserted(position);
+        }
+
+        @Override
+        public void changed(int position) {
+            adapter.notifyItemChanged(position);
+        }
+    };
+    private int shownRows = -1;
+    private long shownSamples = -1L;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
-        ReflowViewModel reflowViewModel =
-                new ViewModelProvider(this).get(ReflowViewModel.class);
+        viewModel = new ViewModelProvider(this).get(ReflowViewModel.class);
+        aggregates = EdgeControllerApp.from(requireContext()).getFleetAggregates();
 
         binding = FragmentReflowBinding.inflate(inflater, container, false);
-        View root = binding.getRoot();
+        adapter = new AggregateAdapter();
+        binding.aggregateList.setLayoutManager(new LinearLayoutManager(requireContext()));
+        binding.aggregateList.setAdapter(adapter);
+        // Rows change in place many times a second; cross-fading each one would only cost frames.
+        binding.aggregateList.setItemAnimator(null);
+        binding.btnResetAggregates.setOnClickListener(v -> {
+            aggregates.reset();
+            viewModel.clear();
+            adapter.notifyDataSetChanged();
+            pull();
+        });
+        return binding.getRoot();
+    }
 
-        final TextView textView = binding.textReflow;
-        reflowViewModel.getText().observe(getViewLifecycleOwner(), textView::setText);
-        return root;
+    @Override
+    public void onResume() {
+        super.onResume();
+        pull();
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+
+    private void pull() {
+        if (binding == null) {
+            return;
+        }
+        viewModel.pull(aggregates, rowChanges);
+        int rows = viewModel.rows().size();
+        long samples = viewModel.totalSamples();
+        if (rows != shownRows || samples != shownSamples) {
+            shownRows = rows;
+            shownSamples = samples;
+            binding.textReflow.setText(rows == 0
+                    ? "No numeric values yet. Values read on the devices screen, by polling or by a fleet query appear here."
+                    : String.format(Locale.US, "%d resource types, %d values", rows, samples));
+        }
     }
 
     @Override
@@ -34,4 +109,51 @@ public class ReflowFragment extends Fragment {
         super.onDestroyView();
         binding = null;
     }
-}
\ No newline at end of file
+
+    private static String title(FleetAggregates.Snapshot s) {
+        ObjectDef object = ObjectModels.get(s.objectId);
+        ResourceDef resource = object == null ? null : object.resource(s.resourceId);
+        String name = object == null ? "Object " + s.objectId
+                : object.name + " · " + (resource == null ? "Resource " + s.resourceId : resource.name);
+        return name + " (" + s.key + ")";
+    }
+
+    private static String stats(FleetAggregates.Snapshot s) {
+        return String.format(Locale.US,
+                "n=%d  devices=%d  last=%.4g%nmin=%.4g  mean=%.4g  max=%.4g%np50=%.4g  p90=%.4g  p99=%.4g",
+                s.count, s.devices, s.last, s.min, s.mean, s.max, s.p50, s.p90, s.p99);
+    }
+
+    private class AggregateAdapter extends RecyclerView.Adapter<AggregateViewHolder> {
+
+        @NonNull
+        @Override
+        public AggregateViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_aggregate, parent, false);
+            return new AggregateViewHolder(v);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull AggregateViewHolder holder, int position) {
+            FleetAggregates.Snapshot s = viewModel.rows().get(position);
+            holder.title.setText(title(s));
+            holder.stats.setText(stats(s));
+        }
+
+        @Override
+        public int getItemCount() {
+            return viewModel.rows().size();
+        }
+    }
+
+    private static class AggregateViewHolder extends RecyclerView.ViewHolder {
+        final TextView title;
+        final TextView stats;
+
+        AggregateViewHolder(View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.text_aggregate_title);
+            stats = itemView.findViewById(R.id.text_aggregate_stats);
+        }
+    }
+}
@@ -1,19 +1,72 @@
 package ai.edgez.controller.ui.reflow;
 
-import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.edgez.controller.data.FleetAggregates;
+
+/**
+ * Rows of the fleet dashboard, one per object and resource type, in the order they first
+ * appeared. Kept here so rows and their positions survive configuration changes.
+ */
 public class ReflowViewModel extends ViewModel {
 
-    private final MutableLiveData<String> mText;
+    /** Receives the positions touched by {@link #pull}. */
+    interface RowChanges {
+        void inserted(int position);
+
+        void changed(int position);
+    }
+
+    private final List<FleetAggregates.Snapshot> rows = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private long totalSamples;
+    private boolean loaded;
+
+    /**
+     * Applies the aggregates changed since the last pull. The first pull loads all of them. Only
+     * one reader may drain {@code aggregates}, which is this view model while the screen is shown.
+     */
+    void pull(FleetAggregates aggregates, RowChanges out) {
+        List<FleetAggregates.Snapshot> changed;
+        if (loaded) {
+            changed = aggregates.drainChanged();
+        } else {
+            aggregates.drainChanged();
+            changed = aggregates.snapshotAll();
+            loaded = true;
+        }
+        for (FleetAggregates.Snapshot s : changed) {
+            Integer position = positions.get(s.key);
+            if (position == null) {
+                positions.put(s.key, rows.size());
+                rows.add(s);
+                totalSamples += s.count;
+                out.inserted(rows.size() - 1);
+            } else {
+                totalSamples += s.count - rows.set(position, s).count;
+                out.changed(position);
+            }
+        }
+    }
+
+    /** Forgets all rows; the next pull loads everything again. */
+    void clear() {
+        rows.clear();
+        positions.clear();
+        totalSamples = 0L;
+        loaded = false;
+    }
 
-    public ReflowViewModel() {
-        mText = new MutableLiveData<>();
-        mText.setValue("This is reflow fragment");
+    List<FleetAggregates.Snapshot> rows() {
+        return rows;
     }
 
-    public LiveData<String> getText() {
-        return mText;
+    long totalSamples() {
+        return totalSamples;
     }
-}
\ No newline at end of file
+}
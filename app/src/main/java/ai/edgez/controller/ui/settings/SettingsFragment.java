@@ -4,13 +4,14 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.ViewModelProvider;
 
 import ai.edgez.controller.databinding.FragmentSettingsBinding;
+import ai.edgez.controller.poll.PollingService;
+import ai.edgez.controller.poll.PollingSettings;
 
 public class SettingsFragment extends Fragment {
 
@@ -18,20 +19,38 @@ public class SettingsFragment extends Fragment {
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
-        SettingsViewModel settingsViewModel =
-                new ViewModelProvider(this).get(SettingsViewModel.class);
-
         binding = FragmentSettingsBinding.inflate(inflater, container, false);
         View root = binding.getRoot();
 
-        final TextView textView = binding.textSettings;
-        settingsViewModel.getText().observe(getViewLifecycleOwner(), textView::setText);
+        PollingSettings settings = new PollingSettings(requireContext());
+        binding.switchPolling.setChecked(settings.isEnabled());
+        binding.editPollPaths.setText(settings.pathsText());
+        binding.editPollInterval.setText(String.valueOf(settings.intervalSeconds()));
+        binding.btnSavePolling.setOnClickListener(v -> savePolling(settings));
         return root;
     }
 
+    private void savePolling(PollingSettings settings) {
+        int interval;
+        try {
+            interval = Integer.parseInt(binding.editPollInterval.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            interval = PollingSettings.DEFAULT_INTERVAL_S;
+        }
+        boolean enabled = binding.switchPolling.isChecked();
+        settings.save(enabled, binding.editPollPaths.getText().toString(), interval);
+        if (enabled) {
+            // Restarting the service picks up the new configuration.
+            PollingService.start(requireContext());
+        } else {
+            PollingService.stop(requireContext());
+        }
+        Toast.makeText(requireContext(), enabled ? "Polling started" : "Polling stopped", Toast.LENGTH_SHORT).show();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
         binding = null;
     }
-}
\ No newline at end of file
+}
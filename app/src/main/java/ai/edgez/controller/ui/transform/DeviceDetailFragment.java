@@ -1,6 +1,8 @@
 package ai.edgez.controller.ui.transform;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -13,25 +15,25 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+import ai.edgez.controller.EdgeControllerApp;
 import ai.edgez.controller.R;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.GatewayJson;
+import ai.edgez.controller.net.GatewayJson.ObjectLink;
+import ai.edgez.controller.net.IoScheduler;
 
 /** Displays a device's LwM2M objects/instances and navigates to resources. */
 public class DeviceDetailFragment extends Fragment {
@@ -39,16 +41,17 @@ public class DeviceDetailFragment extends Fragment {
     private static final String TAG = "DeviceDetail";
     private static final String ARG_ENDPOINT = "endpoint";
     private static final String ARG_HOST = "host";
-    private static final int REST_PORT = 8088;
 
     private String endpoint;
     private String host;
     private RecyclerView list;
     private ProgressBar progress;
     private TextView subtitle;
-    private final ExecutorService io = Executors.newSingleThreadExecutor();
-    private final List<ObjectLink> links = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // This view's I/O; cancelled with the view.
+    private IoScheduler.Group io;
     private ObjectAdapter adapter;
+    private GatewayClient client;
 
     @Nullable
     @Override
@@ -57,6 +60,9 @@ public class DeviceDetailFragment extends Fragment {
         list = root.findViewById(R.id.object_list);
         progress = root.findViewById(R.id.progress);
         subtitle = root.findViewById(R.id.subtitle);
+        EdgeControllerApp app = EdgeControllerApp.from(requireContext());
+        client = app.getGatewayClient();
+        io = app.getIoScheduler().group(handler::post);
         adapter = new ObjectAdapter();
         list.setLayoutManager(new LinearLayoutManager(requireContext()));
         list.setAdapter(adapter);
@@ -71,64 +77,42 @@ public class DeviceDetailFragment extends Fragment {
             endpoint = args.getString(ARG_ENDPOINT, "");
             host = args.getString(ARG_HOST, "");
         }
-        subtitle.setText(endpoint + " @ " + host + ":" + REST_PORT);
+        subtitle.setText(endpoint + " @ " + host + ":" + GatewayClient.REST_PORT);
         fetchClient();
     }
 
     @Override
     public void onDestroyView() {
-        io.shutdown();
+        io.cancel();
+        handler.removeCallbacksAndMessages(null);
         super.onDestroyView();
     }
 
     private void fetchClient() {
         progress.setVisibility(View.VISIBLE);
-        io.execute(() -> {
-            HttpURLConnection conn = null;
+        io.execute(IoScheduler.Lane.INTERACTIVE, () -> {
             try {
-                URL url = new URL("http://" + host + ":" + REST_PORT + "/api/clients/" + endpoint);
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setConnectTimeout(5_000);
-                conn.setReadTimeout(5_000);
-                int code = conn.getResponseCode();
-                if (code != HttpURLConnection.HTTP_OK) {
-                    postToast("Fetch failed: " + code);
+                GatewayClient.Response response = client.getClient(host, endpoint);
+                if (response.code != HttpURLConnection.HTTP_OK) {
+                    postToast("Fetch failed: " + response.code);
                     return;
                 }
-                String body = readAll(conn.getInputStream());
-                parseLinks(body);
+                parseLinks(response.body);
             } catch (IOException | JSONException e) {
                 Log.w(TAG, "fetchClient", e);
                 postToast("Fetch error: " + e.getMessage());
             } finally {
-                if (conn != null) conn.disconnect();
                 postProgressGone();
             }
         });
     }
 
     private void parseLinks(String body) throws JSONException {
-        JSONObject obj = new JSONObject(body);
-        JSONArray arr = obj.optJSONArray("objectLinks");
-        links.clear();
-        if (arr != null) {
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject linkObj = arr.optJSONObject(i);
-                if (linkObj == null) continue;
-                String url = linkObj.optString("url", "");
-                String[] parts = url.split("/");
-                if (parts.length >= 3) {
-                    // e.g. /3311/0
-                    try {
-                        int objId = Integer.parseInt(parts[1]);
-                        int instId = Integer.parseInt(parts[2]);
-                        links.add(new ObjectLink(objId, instId));
-                    } catch (NumberFormatException ignore) {
-                    }
-                }
-            }
-        }
-        requireActivity().runOnUiThread(() -> adapter.notifyDataSetChanged());
+        long start = System.nanoTime();
+        List<ObjectLink> parsed = GatewayJson.parseObjectLinks(body);
+        client.probe().recordNanos(host, GatewayClient.EP_CLIENT, NetworkProbe.Phase.PARSE, System.nanoTime() - start);
+        List<ObjectLink> snapshot = Collections.unmodifiableList(parsed);
+        io.post(() -> adapter.submitList(snapshot));
     }
 
     private void navigateToResources(ObjectLink link) {
@@ -142,25 +126,37 @@ public class DeviceDetailFragment extends Fragment {
     }
 
     private void postToast(String msg) {
-        requireActivity().runOnUiThread(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_LONG).show());
+        io.post(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_LONG).show());
     }
 
     private void postProgressGone() {
-        requireActivity().runOnUiThread(() -> progress.setVisibility(View.GONE));
+        io.post(() -> progress.setVisibility(View.GONE));
     }
 
-    private String readAll(InputStream in) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-            return sb.toString();
+    /** Diffs link snapshots off the main thread; rows are keyed by object and instance ID. */
+    private class ObjectAdapter extends ListAdapter<ObjectLink, ObjectViewHolder> {
+
+        ObjectAdapter() {
+            super(new DiffUtil.ItemCallback<ObjectLink>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ObjectLink oldItem, @NonNull ObjectLink newItem) {
+                    return oldItem.objId == newItem.objId && oldItem.instId == newItem.instId;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ObjectLink oldItem, @NonNull ObjectLink newItem) {
+                    return areItemsTheSame(oldItem, newItem);
+                }
+            });
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            ObjectLink link = getItem(position);
+            return ((long) link.objId << 32) | (link.instId & 0xffffffffL);
         }
-    }
 
-    private class ObjectAdapter extends RecyclerView.Adapter<ObjectViewHolder> {
         @NonNull
         @Override
         public ObjectViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -170,15 +166,10 @@ public class DeviceDetailFragment extends Fragment {
 
         @Override
         public void onBindViewHolder(@NonNull ObjectViewHolder holder, int position) {
-            ObjectLink link = links.get(position);
+            ObjectLink link = getItem(position);
             holder.title.setText("Object " + link.objId + " / Instance " + link.instId);
             holder.itemView.setOnClickListener(v -> navigateToResources(link));
         }
-
-        @Override
-        public int getItemCount() {
-            return links.size();
-        }
     }
 
     private static class ObjectViewHolder extends RecyclerView.ViewHolder {
@@ -188,13 +179,4 @@ public class DeviceDetailFragment extends Fragment {
             title = itemView.findViewById(R.id.text_object);
         }
     }
-
-    private static class ObjectLink {
-        final int objId;
-        final int instId;
-        ObjectLink(int objId, int instId) {
-            this.objId = objId;
-            this.instId = instId;
-        }
-    }
 }
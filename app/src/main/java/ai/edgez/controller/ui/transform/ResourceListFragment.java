@@ -1,8 +1,12 @@
 package ai.edgez.controller.ui.transform;
 
 import android.app.AlertDialog;
-import android.content.res.AssetManager;
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,43 +16,55 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.json.JSONException;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import ai.edgez.controller.EdgeControllerApp;
 import ai.edgez.controller.R;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.data.TimeSeriesStore;
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.model.ObjectDef;
+import ai.edgez.controller.model.ObjectModels;
+import ai.edgez.controller.model.RangeEnumeration;
+import ai.edgez.controller.model.ResourceDef;
+import ai.edgez.controller.model.ResourceType;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.GatewayJson;
+import ai.edgez.controller.net.IoScheduler;
+import ai.edgez.controller.net.ResourceUpload;
+import ai.edgez.controller.net.TlvEncoder;
+import ai.edgez.controller.wasm.PayloadDecoders;
 
 /** Lists resources for a specific LwM2M object instance and supports read/write. */
 public class ResourceListFragment extends Fragment {
 
     private static final String TAG = "ResourceList";
+    private static final Metrics.Timer MODEL_LOAD = Metrics.timer("model.load");
     private static final String ARG_ENDPOINT = "endpoint";
     private static final String ARG_HOST = "host";
     private static final String ARG_OBJ_ID = "objId";
     private static final String ARG_INST_ID = "instId";
-    private static final int REST_PORT = 8088;
+    private static final long TREND_WINDOW_MS = 60 * 60 * 1000L;
+    private static final Object PAYLOAD_VALUE = new Object();
 
     private String endpoint;
     private String host;
@@ -57,9 +73,18 @@ public class ResourceListFragment extends Fragment {
     private RecyclerView recycler;
     private ProgressBar progress;
     private TextView subtitle;
-    private final ExecutorService io = Executors.newSingleThreadExecutor();
-    private final List<ResourceDef> resources = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // This view's I/O; cancelled with the view, after which nothing it posts runs.
+    private IoScheduler.Group io;
     private ResourceAdapter adapter;
+    private TimeSeriesStore timeSeries;
+    private ResourceValueCache valueCache;
+    private GatewayClient client;
+    private final ActivityResultLauncher<String> pickUpload =
+            registerForActivityResult(new ActivityResultContracts.GetContent(), this::uploadFile);
+    // Resource the pending file pick is for, and the upload in progress; both on the main thread.
+    private int uploadResId = -1;
+    private ResourceUpload upload;
 
     @Nullable
     @Override
@@ -68,6 +93,11 @@ public class ResourceListFragment extends Fragment {
         recycler = root.findViewById(R.id.resource_list);
         progress = root.findViewById(R.id.progress);
         subtitle = root.findViewById(R.id.subtitle);
+        EdgeControllerApp app = EdgeControllerApp.from(requireContext());
+        timeSeries = app.getTimeSeriesStore();
+        valueCache = app.getValueCache();
+        client = app.getGatewayClient();
+        io = app.getIoScheduler().group(handler::post);
         adapter = new ResourceAdapter();
         recycler.setLayoutManager(new LinearLayoutManager(requireContext()));
         recycler.setAdapter(adapter);
@@ -85,155 +115,285 @@ public class ResourceListFragment extends Fragment {
             instId = args.getInt(ARG_INST_ID, -1);
         }
         subtitle.setText("Endpoint " + endpoint + " — Object " + objId + " / Instance " + instId);
+        valueCache.addListener(valueListener);
         loadModel();
     }
 
     @Override
     public void onDestroyView() {
-        io.shutdown();
+        if (upload != null) {
+            upload.cancel();
+            upload = null;
+        }
+        valueCache.removeListener(valueListener);
+        io.cancel();
+        handler.removeCallbacksAndMessages(null);
         super.onDestroyView();
     }
 
+    // Values arrive from user reads and background polling; only this instance's rows are refreshed.
+    private final ResourceValueCache.Listener valueListener = (ep, path, entry) -> {
+        if (!ep.equals(endpoint)) {
+            return;
+        }
+        int resId = resourceIdOf(path);
+        if (resId >= 0) {
+            handler.post(() -> adapter.onValueChanged(resId));
+        }
+    };
+
+    /** Resource ID of {@code /objId/instId/resId} for this fragment's instance, otherwise -1. */
+    private int resourceIdOf(String path) {
+        String prefix = "/" + objId + "/" + instId + "/";
+        if (!path.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(path.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Models are compiled into ObjectModels, so this is a table lookup and can run on the main thread.
     private void loadModel() {
+        ObjectDef model;
+        long start = MODEL_LOAD.begin();
+        try {
+            model = ObjectModels.get(objId);
+        } finally {
+            MODEL_LOAD.end(start);
+        }
+        if (model == null) {
+            Toast.makeText(requireContext(), "No model for object " + objId, Toast.LENGTH_LONG).show();
+            return;
+        }
+        adapter.submitList(model.resources);
+    }
+
+    private void readResource(ResourceDef def) {
+        int resId = def.id;
+        // Taken here: the fragment may be detached by the time the worker runs.
+        EdgeControllerApp app = EdgeControllerApp.from(requireContext());
         progress.setVisibility(View.VISIBLE);
-        io.execute(() -> {
+        io.execute(IoScheduler.Lane.INTERACTIVE, () -> {
             try {
-                List<ResourceDef> parsed = parseModel(objId);
-                resources.clear();
-                resources.addAll(parsed);
-                requireActivity().runOnUiThread(() -> {
-                    adapter.notifyDataSetChanged();
-                    progress.setVisibility(View.GONE);
-                });
-            } catch (Exception e) {
-                Log.w(TAG, "loadModel", e);
-                postToast("Failed to load model: " + e.getMessage());
+                GatewayClient.Response response = client.read(host, endpoint, GatewayClient.path(objId, instId, resId));
+                if (response.isSuccess()) {
+                    recordSample(resId, response.body);
+                    if (def.resourceType == ResourceType.OPAQUE
+                            && showDecoded(app.getPayloadDecoders(), resId, response.body)) {
+                        return;
+                    }
+                }
+                postToast("Read " + resId + " code=" + response.code + " body=" + response.body);
+            } catch (IOException e) {
+                postToast("Read error: " + e.getMessage());
+            } finally {
                 postProgressGone();
             }
         });
     }
 
-    private List<ResourceDef> parseModel(int objId) throws Exception {
-        AssetManager am = requireContext().getAssets();
-        String base = "models/" + objId + ".xml";
-        String fallback = "models/" + objId + "-1_0.xml";
-        InputStream in;
-        try {
-            in = am.open(base);
-        } catch (IOException e) {
-            in = am.open(fallback);
+    /**
+     * Hands an Opaque value to the Wasm decoder bound to this resource, if any, and shows the
+     * fields once it is decoded; the calling worker does not wait for the decoder. Returns false
+     * if there is no decoder or the value is not Opaque JSON.
+     */
+    private boolean showDecoded(PayloadDecoders decoders, int resId, String body) {
+        if (decoders.decoderFor(objId, resId) == null) {
+            return false;
         }
-        try (InputStream closeable = in) {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            Document doc = db.parse(closeable);
-            NodeList items = doc.getElementsByTagName("Item");
-            List<ResourceDef> defs = new ArrayList<>();
-            for (int i = 0; i < items.getLength(); i++) {
-                Node n = items.item(i);
-                String idStr = n.getAttributes().getNamedItem("ID").getNodeValue();
-                int id = Integer.parseInt(idStr);
-                String name = textOfChild(n, "Name");
-                String ops = textOfChild(n, "Operations");
-                String type = textOfChild(n, "Type");
-                defs.add(new ResourceDef(id, name, ops, type));
+        byte[] bytes;
+        CompletableFuture<List<Map<String, String>>> decoded;
+        try {
+            bytes = GatewayJson.parseOpaque(body);
+            if (bytes == null) {
+                return false;
             }
-            return defs;
+            decoded = decoders.decode(objId, resId, Collections.singletonList(bytes));
+        } catch (JSONException | IllegalStateException | RejectedExecutionException e) {
+            Log.w(TAG, "Decoding /" + objId + "/" + instId + "/" + resId + " failed", e);
+            return false;
         }
+        // Runs on the decoder's worker.
+        decoded.whenComplete((results, error) -> {
+            if (error != null) {
+                Log.w(TAG, "Decoding /" + objId + "/" + instId + "/" + resId + " failed", error);
+                postToast("Decoder failed on " + bytes.length + " bytes");
+                return;
+            }
+            Map<String, String> fields = results.get(0);
+            if (fields == null) {
+                postToast("Decoder could not read " + bytes.length + " bytes");
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                text.append(field.getKey()).append(": ").append(field.getValue()).append('\n');
+            }
+            io.post(() -> new AlertDialog.Builder(requireContext())
+                    .setTitle("Resource " + resId + " (" + bytes.length + " bytes)")
+                    .setMessage(text.length() == 0 ? "No fields" : text.toString().trim())
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show());
+        });
+        return true;
     }
 
-    private String textOfChild(Node parent, String tag) {
-        NodeList children = parent.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node c = children.item(i);
-            if (tag.equals(c.getNodeName()) && c.getFirstChild() != null) {
-                return c.getFirstChild().getNodeValue();
-            }
-        }
-        return "";
+    // The cache listener refreshes the row.
+    private void recordSample(int resId, String body) {
+        valueCache.put(endpoint, GatewayClient.path(objId, instId, resId), body, System.currentTimeMillis());
     }
 
-    private void readResource(int resId) {
+    // Encoding checks type and range against the model, so bad input fails without a request.
+    private void writeResource(ResourceDef def, String value) {
+        byte[] payload;
+        try {
+            payload = TlvEncoder.encode(def, value);
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(requireContext(), "Invalid value: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+        int resId = def.id;
         progress.setVisibility(View.VISIBLE);
-        io.execute(() -> {
-            HttpURLConnection conn = null;
+        io.execute(IoScheduler.Lane.INTERACTIVE, () -> {
             try {
-                URL url = new URL("http://" + host + ":" + REST_PORT + "/api/clients/" + endpoint + "/" + objId + "/" + instId + "/" + resId + "?timeout=5&format=TLV");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setConnectTimeout(5_000);
-                conn.setReadTimeout(5_000);
-                int code = conn.getResponseCode();
-                String body = readAll(conn.getInputStream());
-                postToast("Read " + resId + " code=" + code + " body=" + body);
+                GatewayClient.Response response = client.write(host, endpoint,
+                        GatewayClient.path(objId, instId, resId), TlvEncoder.CONTENT_TYPE, payload);
+                postToast("Write " + resId + " code=" + response.code + " body=" + response.body);
             } catch (IOException e) {
-                postToast("Read error: " + e.getMessage());
+                postToast("Write error: " + e.getMessage());
             } finally {
-                if (conn != null) conn.disconnect();
                 postProgressGone();
             }
         });
     }
 
-    private void writeResource(int resId, String value) {
+    // Opaque values can be typed as hex or, for firmware images and the like, streamed from a file.
+    private void promptWrite(ResourceDef def) {
+        final EditText input = new EditText(requireContext());
+        RangeEnumeration range = def.range();
+        String hint = def.resourceType == ResourceType.OPAQUE ? def.type + " (hex)" : def.type;
+        input.setHint(range == null ? hint : hint + " " + range);
+        AlertDialog.Builder dialog = new AlertDialog.Builder(requireContext())
+                .setTitle("Write resource " + def.id)
+                .setView(input)
+                .setPositiveButton("Write", (d, which) -> writeResource(def, input.getText().toString()))
+                .setNegativeButton("Cancel", null);
+        if (def.resourceType == ResourceType.OPAQUE) {
+            dialog.setNeutralButton("Choose file", (d, which) -> {
+                uploadResId = def.id;
+                pickUpload.launch("*/*");
+            });
+        }
+        dialog.show();
+    }
+
+    /**
+     * Streams the picked file to the resource chosen in {@link #promptWrite}. The gateway cannot
+     * resume a write, so an interrupted upload starts over when picked again.
+     */
+    private void uploadFile(@Nullable Uri uri) {
+        int resId = uploadResId;
+        uploadResId = -1;
+        if (uri == null || resId < 0 || upload != null) {
+            return;
+        }
+        ResourceUpload.Source source = uriSource(requireContext().getContentResolver(), uri);
+        ResourceUpload current = new ResourceUpload(client, host, endpoint, objId, instId, resId, source);
+        upload = current;
         progress.setVisibility(View.VISIBLE);
-        io.execute(() -> {
-            HttpURLConnection conn = null;
+        // Long-running, so it must not hold a worker that taps need.
+        io.execute(IoScheduler.Lane.VISIBLE, () -> {
             try {
-                URL url = new URL("http://" + host + ":" + REST_PORT + "/api/clients/" + endpoint + "/" + objId + "/" + instId + "/" + resId + "?timeout=5&format=TLV");
-                conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("PUT");
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(5_000);
-                conn.setReadTimeout(5_000);
-                byte[] bytes = value.getBytes();
-                conn.setRequestProperty("Content-Type", "text/plain");
-                conn.setFixedLengthStreamingMode(bytes.length);
-                try (OutputStream os = conn.getOutputStream()) {
-                    os.write(bytes);
+                GatewayClient.Response response = current.run((sent, total, bytesPerSecond) ->
+                        io.post(() -> subtitle.setText(String.format(Locale.US,
+                                "Uploading %d: %d / %d KiB, %.0f KiB/s",
+                                resId, sent / 1024, total / 1024, bytesPerSecond / 1024))));
+                if (response != null) {
+                    postToast("Upload " + resId + " code=" + response.code);
                 }
-                int code = conn.getResponseCode();
-                String body = readAll(conn.getInputStream());
-                postToast("Write " + resId + " code=" + code + " body=" + body);
             } catch (IOException e) {
-                postToast("Write error: " + e.getMessage());
+                Log.w(TAG, "upload", e);
+                postToast("Upload failed after " + current.sent() / 1024 + " KiB: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } finally {
-                if (conn != null) conn.disconnect();
+                io.post(() -> upload = null);
                 postProgressGone();
             }
         });
     }
 
-    private void promptWrite(ResourceDef def) {
-        final EditText input = new EditText(requireContext());
-        input.setHint("Value");
-        new AlertDialog.Builder(requireContext())
-                .setTitle("Write resource " + def.id)
-                .setView(input)
-                .setPositiveButton("Write", (d, which) -> writeResource(def.id, input.getText().toString()))
-                .setNegativeButton("Cancel", null)
-                .show();
+    private static ResourceUpload.Source uriSource(ContentResolver resolver, Uri uri) {
+        return new ResourceUpload.Source() {
+            @Override
+            public long length() throws IOException {
+                try (AssetFileDescriptor fd = resolver.openAssetFileDescriptor(uri, "r")) {
+                    if (fd == null || fd.getLength() < 0) {
+                        throw new IOException("Unknown length: " + uri);
+                    }
+                    return fd.getLength();
+                }
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                InputStream in = resolver.openInputStream(uri);
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                return in;
+            }
+        };
     }
 
     private void postToast(String msg) {
-        requireActivity().runOnUiThread(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_LONG).show());
+        io.post(() -> Toast.makeText(requireContext(), msg, Toast.LENGTH_LONG).show());
     }
 
     private void postProgressGone() {
-        requireActivity().runOnUiThread(() -> progress.setVisibility(View.GONE));
+        io.post(() -> progress.setVisibility(View.GONE));
     }
 
-    private String readAll(InputStream in) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
+    /**
+     * Diffs model snapshots off the main thread and keys rows by resource ID. Live values are
+     * applied as {@link #PAYLOAD_VALUE} partial binds that only touch the value line and trend.
+     */
+    private class ResourceAdapter extends ListAdapter<ResourceDef, ResourceViewHolder> {
+
+        ResourceAdapter() {
+            super(new DiffUtil.ItemCallback<ResourceDef>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ResourceDef oldItem, @NonNull ResourceDef newItem) {
+                    return oldItem.id == newItem.id;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ResourceDef oldItem, @NonNull ResourceDef newItem) {
+                    return oldItem.name.equals(newItem.name) && oldItem.operations == newItem.operations
+                            && oldItem.resourceType == newItem.resourceType;
+                }
+            });
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return getItem(position).id;
+        }
+
+        void onValueChanged(int resId) {
+            List<ResourceDef> rows = getCurrentList();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).id == resId) {
+                    notifyItemChanged(i, PAYLOAD_VALUE);
+                    return;
+                }
             }
-            return sb.toString();
         }
-    }
 
-    private class ResourceAdapter extends RecyclerView.Adapter<ResourceViewHolder> {
         @NonNull
         @Override
         public ResourceViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -241,47 +401,50 @@ public class ResourceListFragment extends Fragment {
             return new ResourceViewHolder(v);
         }
 
+        @Override
+        public void onBindViewHolder(@NonNull ResourceViewHolder holder, int position, @NonNull List<Object> payloads) {
+            if (payloads.isEmpty()) {
+                onBindViewHolder(holder, position);
+            } else {
+                // A new value only changes the text; the trend refreshes on its own schedule.
+                bindValue(holder, getItem(position));
+            }
+        }
+
         @Override
         public void onBindViewHolder(@NonNull ResourceViewHolder holder, int position) {
-            ResourceDef def = resources.get(position);
+            ResourceDef def = getItem(position);
             holder.title.setText(def.name + " (" + def.id + ")");
             holder.subtitle.setText(def.type + " • ops " + def.ops);
-            holder.read.setEnabled(def.ops.contains("R"));
-            holder.write.setEnabled(def.ops.contains("W"));
-            holder.read.setOnClickListener(v -> readResource(def.id));
+            holder.read.setEnabled(def.isReadable());
+            holder.write.setEnabled(def.isWritable());
+            holder.read.setOnClickListener(v -> readResource(def));
             holder.write.setOnClickListener(v -> promptWrite(def));
+            bindValue(holder, def);
+            holder.trend.bind(io, timeSeries, TimeSeriesStore.key(endpoint, objId, instId, def.id), TREND_WINDOW_MS);
         }
 
-        @Override
-        public int getItemCount() {
-            return resources.size();
+        private void bindValue(ResourceViewHolder holder, ResourceDef def) {
+            ResourceValueCache.Entry entry = valueCache.get(endpoint, GatewayClient.path(objId, instId, def.id));
+            holder.value.setText(entry == null ? "—" : entry.body);
         }
     }
 
     private static class ResourceViewHolder extends RecyclerView.ViewHolder {
         final TextView title;
         final TextView subtitle;
+        final TextView value;
         final View read;
         final View write;
+        final TrendView trend;
         ResourceViewHolder(View itemView) {
             super(itemView);
             title = itemView.findViewById(R.id.text_res_title);
             subtitle = itemView.findViewById(R.id.text_res_subtitle);
+            value = itemView.findViewById(R.id.text_res_value);
             read = itemView.findViewById(R.id.btn_read);
             write = itemView.findViewById(R.id.btn_write);
-        }
-    }
-
-    private static class ResourceDef {
-        final int id;
-        final String name;
-        final String ops;
-        final String type;
-        ResourceDef(int id, String name, String ops, String type) {
-            this.id = id;
-            this.name = name;
-            this.ops = ops == null ? "" : ops;
-            this.type = type == null ? "" : type;
+            trend = itemView.findViewById(R.id.trend);
         }
     }
 }
@@ -25,28 +25,26 @@ import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.navigation.Navigation;
 
+import ai.edgez.controller.EdgeControllerApp;
 import ai.edgez.controller.R;
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.DeviceRegistry.Device;
 import ai.edgez.controller.databinding.FragmentTransformBinding;
 import ai.edgez.controller.databinding.ItemTransformBinding;
+import ai.edgez.controller.metrics.Metrics;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.GatewayJson;
+import ai.edgez.controller.net.IoScheduler;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Fragment that demonstrates a responsive layout pattern where the format of the content
@@ -60,17 +58,21 @@ public class TransformFragment extends Fragment {
     private static final String SERVICE_TYPE = "_lwm2m._udp.";
     private static final String NAME_FILTER = "wakaama-lwm2m";
     private static final long REDISCOVER_INTERVAL_MS = 30_000L;
-    private static final int REST_PORT = 8088;
-    private static final String CLIENTS_PATH = "/api/clients";
+    private static final String RESOLVE_ENDPOINT = "DNS-SD resolve";
+    private static final Metrics.Timer DIFF_TIMER = Metrics.timer("ui.deviceListDiff");
+    private static final Metrics.Gauge DEVICE_COUNT = Metrics.gauge("devices.known");
 
     private FragmentTransformBinding binding;
     private DevicesAdapter adapter;
     private final List<Lwm2mService> services = new ArrayList<>();
-    private final Map<String, List<Device>> devicesByService = new HashMap<>();
+    private DeviceRegistry registry;
+    private GatewayClient client;
     private NsdManager nsdManager;
     private NsdManager.DiscoveryListener discoveryListener;
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    // This view's I/O; cancelled with the view.
+    private IoScheduler.Group io;
+    private boolean reportedFullyDrawn;
     private final ActivityResultLauncher<String> permissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> {
                 if (granted) {
@@ -79,6 +81,7 @@ public class TransformFragment extends Fragment {
                     Log.w(TAG, "NSD permission denied; discovery skipped");
                 }
             });
+    private final DeviceRegistry.Listener registryListener = devices -> handler.post(this::rebuildDeviceList);
     private final Runnable periodicRediscover = new Runnable() {
         @Override
         public void run() {
@@ -92,6 +95,11 @@ public class TransformFragment extends Fragment {
         binding = FragmentTransformBinding.inflate(inflater, container, false);
         View root = binding.getRoot();
 
+        EdgeControllerApp app = EdgeControllerApp.from(requireContext());
+        registry = app.getDeviceRegistry();
+        client = app.getGatewayClient();
+        io = app.getIoScheduler().group(handler::post);
+
         RecyclerView recyclerView = binding.recyclerviewTransform;
         adapter = new DevicesAdapter();
         adapter.setOnDeviceClick(device -> {
@@ -102,6 +110,10 @@ public class TransformFragment extends Fragment {
                     .navigate(R.id.action_transform_to_deviceDetail, args);
         });
         recyclerView.setAdapter(adapter);
+        // Start from the last known devices; discovery and background polling refresh them.
+        List<Device> known = registry.snapshot();
+        adapter.submitList(known, () -> onDevicesShown(known));
+        registry.addListener(registryListener);
         return root;
     }
 
@@ -122,11 +134,10 @@ public class TransformFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        registry.removeListener(registryListener);
         handler.removeCallbacksAndMessages(null);
         stopDiscovery();
-        if (ioExecutor != null) {
-            ioExecutor.shutdown();
-        }
+        io.cancel();
         binding = null;
     }
 
@@ -163,7 +174,7 @@ public class TransformFragment extends Fragment {
                 if (name == null || !name.toLowerCase(Locale.US).contains(NAME_FILTER)) {
                     return;
                 }
-                nsdManager.resolveService(serviceInfo, new ResolveListener());
+                nsdManager.resolveService(serviceInfo, new ResolveListener(System.nanoTime()));
             }
 
             @Override
@@ -232,7 +243,6 @@ public class TransformFragment extends Fragment {
         } else {
             services.add(service);
         }
-        rebuildDeviceList();
     }
 
     private void removeServiceByName(String name) {
@@ -248,18 +258,26 @@ public class TransformFragment extends Fragment {
         }
         services.clear();
         services.addAll(updated);
-        devicesByService.remove(name);
-        rebuildDeviceList();
+        registry.removeServer(name);
     }
 
     private class ResolveListener implements NsdManager.ResolveListener {
+        private final long startNanos;
+
+        ResolveListener(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
         @Override
         public void onResolveFailed(NsdServiceInfo serviceInfo, int errorCode) {
             Log.w(TAG, "Resolve failed for " + serviceInfo.getServiceName() + ": " + errorCode);
+            client.probe().recordError(serviceInfo.getServiceName(), RESOLVE_ENDPOINT);
         }
 
         @Override
         public void onServiceResolved(NsdServiceInfo serviceInfo) {
+            client.probe().recordNanos(serviceInfo.getServiceName(), RESOLVE_ENDPOINT,
+                    NetworkProbe.Phase.RESOLVE, System.nanoTime() - startNanos);
             InetAddress host = serviceInfo.getHost();
             if (host == null) {
                 return;
@@ -267,105 +285,60 @@ public class TransformFragment extends Fragment {
             String address = host.getHostAddress();
             int port = serviceInfo.getPort();
             Lwm2mService service = new Lwm2mService(serviceInfo.getServiceName(), address, port);
+            registry.putServer(service.name, service.address);
             addOrUpdateService(service);
             fetchDevices(service);
         }
     }
 
     private void fetchDevices(Lwm2mService service) {
-        if (ioExecutor == null || ioExecutor.isShutdown()) {
-            ioExecutor = Executors.newSingleThreadExecutor();
-        }
-        ioExecutor.execute(() -> {
-            HttpURLConnection connection = null;
+        // Fills the list on screen; a resolve after the view is gone is dropped by the cancelled group.
+        io.execute(IoScheduler.Lane.VISIBLE, () -> {
             try {
-                String host = formatHost(service.address);
-                URL url = new URL("http://" + host + ":" + REST_PORT + CLIENTS_PATH);
-                Log.d(TAG, "Fetching devices from " + url);
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(5_000);
-                connection.setReadTimeout(5_000);
-
-                int code = connection.getResponseCode();
-                if (code != HttpURLConnection.HTTP_OK) {
-                    Log.w(TAG, "REST fetch failed for " + service.address + " code=" + code);
+                GatewayClient.Response response = client.listClients(service.address);
+                if (response.code != HttpURLConnection.HTTP_OK) {
+                    Log.w(TAG, "REST fetch failed for " + service.address + " code=" + response.code);
                     return;
                 }
-                String body = readAll(connection.getInputStream());
-                Log.d(TAG, "HTTP 200 from " + service.address + " bodyLen=" + body.length());
-                if (body.length() < 256) {
-                    Log.d(TAG, "Body=" + body);
-                }
-                List<Device> devices = parseDevices(body, service);
-                Log.d(TAG, "Parsed " + devices.size() + " devices from " + service.address);
-                handler.post(() -> updateDevicesForService(service.name, devices));
+                List<Device> devices = parseDevices(response.body, service);
+                registry.putDevices(service.name, devices);
             } catch (IOException e) {
                 Log.w(TAG, "REST fetch error for " + service.address, e);
-            } finally {
-                if (connection != null) {
-                    connection.disconnect();
-                }
             }
         });
     }
 
-    private void updateDevicesForService(String serviceName, List<Device> devices) {
-        if (Looper.myLooper() != Looper.getMainLooper()) {
-            handler.post(() -> updateDevicesForService(serviceName, devices));
-            return;
+    private void rebuildDeviceList() {
+        if (adapter != null) {
+            List<Device> devices = registry.snapshot();
+            DEVICE_COUNT.set(devices.size());
+            // DiffUtil runs on a background thread; the commit callback marks when the list is applied.
+            long start = DIFF_TIMER.beginAsync();
+            adapter.submitList(devices, () -> {
+                DIFF_TIMER.endAsync(start);
+                onDevicesShown(devices);
+            });
         }
-        devicesByService.put(serviceName, devices);
-        rebuildDeviceList();
     }
 
-    private void rebuildDeviceList() {
-        List<Device> merged = new ArrayList<>();
-        for (List<Device> list : devicesByService.values()) {
-            merged.addAll(list);
+    // The first non-empty list marks the app as fully drawn for startup metrics.
+    private void onDevicesShown(List<Device> devices) {
+        if (!reportedFullyDrawn && !devices.isEmpty() && getActivity() != null) {
+            reportedFullyDrawn = true;
+            getActivity().reportFullyDrawn();
         }
-        adapter.submitList(merged);
     }
 
     private List<Device> parseDevices(String body, Lwm2mService service) {
-        List<Device> devices = new ArrayList<>();
+        long start = System.nanoTime();
         try {
-            JSONArray array = new JSONArray(body);
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject obj = array.optJSONObject(i);
-                if (obj == null) {
-                    continue;
-                }
-                String endpoint = obj.optString("endpoint", "");
-                if (endpoint.isEmpty()) {
-                    continue;
-                }
-                devices.add(new Device(endpoint, service.address, REST_PORT));
-            }
+            List<Device> devices = GatewayJson.parseDevices(body, service.address);
+            client.probe().recordNanos(service.address, GatewayClient.EP_CLIENTS,
+                    NetworkProbe.Phase.PARSE, System.nanoTime() - start);
+            return devices;
         } catch (JSONException e) {
             Log.w(TAG, "Failed to parse devices JSON", e);
-        }
-        return devices;
-    }
-
-    private String formatHost(String addr) {
-        if (addr == null) {
-            return "";
-        }
-        if (addr.contains(":") && !(addr.startsWith("[") && addr.endsWith("]"))) {
-            return "[" + addr + "]";
-        }
-        return addr;
-    }
-
-    private String readAll(InputStream in) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-            return sb.toString();
+            return new ArrayList<>();
         }
     }
 
@@ -385,18 +358,6 @@ public class TransformFragment extends Fragment {
         }
     }
 
-    private static class Device {
-        final String endpoint;
-        final String address;
-        final int port;
-
-        Device(String endpoint, String address, int port) {
-            this.endpoint = endpoint;
-            this.address = address;
-            this.port = port;
-        }
-    }
-
     private static class DevicesAdapter extends ListAdapter<Device, DeviceViewHolder> {
 
         interface OnDeviceClick {
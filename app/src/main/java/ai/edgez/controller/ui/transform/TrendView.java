@@ -0,0 +1,159 @@
+package ai.edgez.controller.ui.transform;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import ai.edgez.controller.data.TimeSeriesStore;
+import ai.edgez.controller.net.IoScheduler;
+
+/**
+ * Sparkline of a resource's recent history. The {@link TimeSeriesStore} may have to list and map
+ * segment files to answer, so the query runs in the I/O scheduler's visible lane and the result is
+ * posted back. While attached the view re-queries once per bucket width, which is as often as the
+ * plot can change; rebinding the same series does nothing. Redraws use preallocated arrays and do
+ * not allocate.
+ */
+public class TrendView extends View {
+
+    private static final int BUCKETS = 120;
+
+    private final float[] meanLines = new float[BUCKETS * 4];
+    private final float[] rangeLines = new float[BUCKETS * 4];
+    private final Paint meanPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint rangePaint = new Paint();
+    private final Runnable refresh = this::load;
+    private TimeSeriesStore.Downsampled data = new TimeSeriesStore.Downsampled(BUCKETS);
+    private int samples;
+    // What is bound, all on the main thread; generation discards results for an earlier binding.
+    private IoScheduler.Group io;
+    private TimeSeriesStore store;
+    private String key;
+    private long windowMs;
+    private long loadedAtMs;
+    private int generation;
+
+    public TrendView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        meanPaint.setColor(Color.rgb(0x01, 0x87, 0x86));
+        meanPaint.setStrokeWidth(3f);
+        rangePaint.setColor(Color.argb(0x55, 0x01, 0x87, 0x86));
+        rangePaint.setStrokeWidth(2f);
+    }
+
+    /**
+     * Shows the last {@code windowMs} of {@code key}, queried on {@code io}; the view stays hidden
+     * until there is something to plot.
+     */
+    public void bind(IoScheduler.Group io, TimeSeriesStore store, String key, long windowMs) {
+        if (key.equals(this.key) && windowMs == this.windowMs && io == this.io) {
+            return;
+        }
+        this.io = io;
+        this.store = store;
+        this.key = key;
+        this.windowMs = windowMs;
+        generation++;
+        samples = 0;
+        setVisibility(GONE);
+        load();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (key != null) {
+            removeCallbacks(refresh);
+            postDelayed(refresh, Math.max(0L, loadedAtMs + bucketMs() - System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(refresh);
+        super.onDetachedFromWindow();
+    }
+
+    private void load() {
+        removeCallbacks(refresh);
+        IoScheduler.Group group = io;
+        TimeSeriesStore s = store;
+        String k = key;
+        long window = windowMs;
+        int gen = generation;
+        loadedAtMs = System.currentTimeMillis();
+        group.execute(IoScheduler.Lane.VISIBLE, () -> {
+            TimeSeriesStore.Downsampled out = new TimeSeriesStore.Downsampled(BUCKETS);
+            long now = System.currentTimeMillis();
+            int n = s.query(k, now - window, now, out);
+            group.post(() -> show(gen, out, n));
+        });
+    }
+
+    private void show(int gen, TimeSeriesStore.Downsampled out, int n) {
+        if (gen != generation) {
+            return;
+        }
+        data = out;
+        samples = n;
+        setVisibility(n >= 2 ? VISIBLE : GONE);
+        invalidate();
+        if (isAttachedToWindow()) {
+            removeCallbacks(refresh);
+            postDelayed(refresh, bucketMs());
+        }
+    }
+
+    private long bucketMs() {
+        return Math.max(1_000L, windowMs / BUCKETS);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (samples < 2) {
+            return;
+        }
+        float w = getWidth() - getPaddingLeft() - getPaddingRight();
+        float h = getHeight() - getPaddingTop() - getPaddingBottom();
+        double lo = data.overallMin();
+        double hi = data.overallMax();
+        double span = hi - lo == 0 ? 1d : hi - lo;
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float step = w / (BUCKETS - 1);
+
+        int meanCount = 0;
+        int rangeCount = 0;
+        float prevX = 0f;
+        float prevY = 0f;
+        boolean havePrev = false;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (data.count[i] == 0) {
+                continue;
+            }
+            float x = left + i * step;
+            float y = top + (float) ((hi - data.mean(i)) / span) * h;
+            if (havePrev) {
+                meanLines[meanCount++] = prevX;
+                meanLines[meanCount++] = prevY;
+                meanLines[meanCount++] = x;
+                meanLines[meanCount++] = y;
+            }
+            rangeLines[rangeCount++] = x;
+            rangeLines[rangeCount++] = top + (float) ((hi - data.max[i]) / span) * h;
+            rangeLines[rangeCount++] = x;
+            rangeLines[rangeCount++] = top + (float) ((hi - data.min[i]) / span) * h;
+            prevX = x;
+            prevY = y;
+            havePrev = true;
+        }
+        canvas.drawLines(rangeLines, 0, rangeCount, rangePaint);
+        canvas.drawLines(meanLines, 0, meanCount, meanPaint);
+    }
+}
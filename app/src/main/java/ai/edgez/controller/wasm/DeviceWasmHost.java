@@ -0,0 +1,162 @@
+package ai.edgez.controller.wasm;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.model.ObjectDef;
+import ai.edgez.controller.model.ObjectModels;
+import ai.edgez.controller.model.ResourceDef;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.TlvEncoder;
+import ai.edgez.controller.poll.FleetPoller;
+
+/**
+ * {@link WasmHost} bound to one device. Reads are served from the {@link ResourceValueCache} and
+ * fall back to a gateway read on a miss; writes go straight to the gateway as TLV, typed and
+ * range-checked against the object model like the UI's. Observed resources are added to
+ * background polling and their new values are forwarded to a {@link ValueSink}.
+ */
+public class DeviceWasmHost implements WasmHost, ResourceValueCache.Listener {
+
+    /** Receives new values of observed resources, on the thread that stored them. */
+    public interface ValueSink {
+        void onObservedValue(int objId, int instId, int resId, double value);
+    }
+
+    private final DeviceRegistry.Device device;
+    private final GatewayClient client;
+    private final ResourceValueCache cache;
+    private final FleetPoller poller;
+    private final Map<String, int[]> observed = new ConcurrentHashMap<>();
+    private volatile ValueSink sink;
+
+    public DeviceWasmHost(DeviceRegistry.Device device, GatewayClient client, ResourceValueCache cache,
+                          FleetPoller poller) {
+        this.device = device;
+        this.client = client;
+        this.cache = cache;
+        this.poller = poller;
+    }
+
+    public void attach(ValueSink sink) {
+        this.sink = sink;
+        cache.addListener(this);
+    }
+
+    /** Stops forwarding values and removes observed resources from background polling. */
+    public void detach() {
+        cache.removeListener(this);
+        sink = null;
+        for (String path : observed.keySet()) {
+            poller.unwatch(device, path);
+        }
+        observed.clear();
+    }
+
+    @Override
+    public int read(int[] paths, int count, double[] out) {
+        int read = 0;
+        for (int i = 0; i < count; i++) {
+            String path = GatewayClient.path(paths[3 * i], paths[3 * i + 1], paths[3 * i + 2]);
+            ResourceValueCache.Entry entry = cache.get(device.endpoint, path);
+            if (entry == null || Double.isNaN(entry.numeric)) {
+                entry = fetch(path);
+            }
+            out[i] = entry == null ? Double.NaN : entry.numeric;
+            if (!Double.isNaN(out[i])) {
+                read++;
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public int write(int[] paths, double[] values, int count) {
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            int objId = paths[3 * i];
+            int resId = paths[3 * i + 2];
+            String path = GatewayClient.path(objId, paths[3 * i + 1], resId);
+            String text = formatValue(values[i]);
+            byte[] payload = encode(objId, resId, text);
+            if (payload == null) {
+                continue;
+            }
+            try {
+                GatewayClient.Response response = client.write(device.address, device.endpoint, path,
+                        TlvEncoder.CONTENT_TYPE, payload);
+                if (response.isSuccess()) {
+                    // Keep later reads in the same control loop consistent with what was written.
+                    cache.put(device.endpoint, path, text, System.currentTimeMillis());
+                    written++;
+                }
+            } catch (IOException ignore) {
+                // Counted as not written; the guest sees the shortfall in the return value.
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public int observe(int objId, int instId, int resId) {
+        if (objId < 0 || instId < 0 || resId < 0 || sink == null) {
+            return -1;
+        }
+        String path = GatewayClient.path(objId, instId, resId);
+        if (observed.putIfAbsent(path, new int[]{objId, instId, resId}) == null) {
+            poller.watch(device, path);
+        }
+        return 0;
+    }
+
+    @Override
+    public void onValue(String endpoint, String path, ResourceValueCache.Entry entry) {
+        if (!device.endpoint.equals(endpoint) || Double.isNaN(entry.numeric)) {
+            return;
+        }
+        int[] p = observed.get(path);
+        ValueSink s = sink;
+        if (p != null && s != null) {
+            s.onObservedValue(p[0], p[1], p[2], entry.numeric);
+        }
+    }
+
+    /**
+     * The value as a TLV record typed by the object model, or null if there is no writable model
+     * resource or the value does not fit its type and range. Either way nothing is sent.
+     */
+    static byte[] encode(int objId, int resId, String text) {
+        ObjectDef object = ObjectModels.get(objId);
+        ResourceDef def = object == null ? null : object.resource(resId);
+        if (def == null || !def.isWritable()) {
+            return null;
+        }
+        try {
+            return TlvEncoder.encode(def, text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private ResourceValueCache.Entry fetch(String path) {
+        try {
+            GatewayClient.Response response = client.read(device.address, device.endpoint, path);
+            if (!response.isSuccess()) {
+                return null;
+            }
+            return cache.put(device.endpoint, path, response.body, System.currentTimeMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static String formatValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
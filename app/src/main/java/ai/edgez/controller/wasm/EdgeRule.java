@@ -0,0 +1,185 @@
+package ai.edgez.controller.wasm;
+
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import ai.edgez.controller.WasmtimeRunner;
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.metrics.Metrics;
+
+/**
+ * A rule module running against one device. The instance is pinned to the {@link WasmWorkerPool}
+ * worker for the device's endpoint: it is created there, its {@code init} export is called once,
+ * and every observed value is delivered to {@code on_value} in order on the same thread. Setup that
+ * does not depend on the device belongs in {@code preinit}, which {@link WasmModuleRegistry} runs
+ * once per version rather than once per device.
+ *
+ * <p>{@link #swap} replaces the instance on that same thread between two events, so no value is
+ * delivered to a half-initialised module. If the new version fails to start, the old instance
+ * keeps running.
+ *
+ * <p>The instance is only touched under the rule's lock, which the worker never contends for in
+ * practice; it lets {@link #close} release the instance inline once the pool has been shut down.
+ */
+public class EdgeRule implements DeviceWasmHost.ValueSink {
+
+    private static final String TAG = "EdgeRule";
+    private static final Metrics.Counter ERRORS = Metrics.counter("rules.errors");
+    private static final Metrics.Counter EVENTS = Metrics.counter("rules.events");
+    private static final Metrics.Counter SWAPS = Metrics.counter("rules.swaps");
+    private static final Metrics.Counter DROPPED = Metrics.counter("rules.dropped");
+
+    private final WasmtimeRunner runner;
+    private final WasmModuleRegistry modules;
+    private final DeviceRegistry.Device device;
+    private final DeviceWasmHost host;
+    private final String moduleName;
+    private final Executor executor;
+    // Guarded by this.
+    private WasmModuleRegistry.ModuleVersion version;
+    private long handle;
+    private boolean closed;
+    private volatile long memoryBytes;
+
+    /** Takes ownership of one reference to {@code version}. */
+    EdgeRule(WasmtimeRunner runner, WasmModuleRegistry modules, WasmWorkerPool workers,
+             DeviceRegistry.Device device, DeviceWasmHost host, WasmModuleRegistry.ModuleVersion version) {
+        this.runner = runner;
+        this.modules = modules;
+        this.device = device;
+        this.host = host;
+        this.version = version;
+        this.moduleName = version.name;
+        this.executor = workers.workerFor(device.endpoint);
+    }
+
+    public DeviceRegistry.Device device() {
+        return device;
+    }
+
+    public String moduleName() {
+        return moduleName;
+    }
+
+    /** Linear memory of the running instance as of its last event. */
+    public long memoryBytes() {
+        return memoryBytes;
+    }
+
+    void start() {
+        host.attach(this);
+        try {
+            executor.execute(this::startNow);
+        } catch (RejectedExecutionException e) {
+            // The worker pool was shut down.
+            host.detach();
+            closeNow();
+        }
+    }
+
+    private synchronized void startNow() {
+        if (closed) {
+            return;
+        }
+        try {
+            handle = startInstance(version);
+        } catch (RuntimeException e) {
+            ERRORS.inc();
+            Log.w(TAG, "Rule for " + device.endpoint + " failed to start", e);
+        }
+    }
+
+    /** Moves the rule to {@code next}, taking ownership of one reference to it. */
+    void swap(WasmModuleRegistry.ModuleVersion next) {
+        try {
+            executor.execute(() -> swapNow(next));
+        } catch (RejectedExecutionException e) {
+            // The worker pool was shut down.
+            modules.release(next);
+        }
+    }
+
+    private synchronized void swapNow(WasmModuleRegistry.ModuleVersion next) {
+        if (closed) {
+            modules.release(next);
+            return;
+        }
+        long nextHandle;
+        try {
+            nextHandle = startInstance(next);
+        } catch (RuntimeException e) {
+            ERRORS.inc();
+            modules.release(next);
+            Log.w(TAG, "Rule for " + device.endpoint + " kept " + version + "; " + next + " failed", e);
+            return;
+        }
+        if (handle != 0) {
+            runner.releaseRule(handle);
+        }
+        modules.release(version);
+        version = next;
+        handle = nextHandle;
+        SWAPS.inc();
+    }
+
+    private long startInstance(WasmModuleRegistry.ModuleVersion v) {
+        long h = modules.instantiate(v, host);
+        try {
+            runner.callRuleExport(h, "init");
+        } catch (RuntimeException e) {
+            runner.releaseRule(h);
+            throw e;
+        }
+        memoryBytes = runner.ruleMemoryBytes(h);
+        return h;
+    }
+
+    @Override
+    public void onObservedValue(int objId, int instId, int resId, double value) {
+        try {
+            executor.execute(() -> deliver(objId, instId, resId, value));
+        } catch (RejectedExecutionException e) {
+            // The worker pool was shut down; nothing will run the rule again.
+            DROPPED.inc();
+        }
+    }
+
+    private synchronized void deliver(int objId, int instId, int resId, double value) {
+        if (handle == 0) {
+            return;
+        }
+        EVENTS.inc();
+        try {
+            runner.notifyRuleValue(handle, objId, instId, resId, value);
+            memoryBytes = runner.ruleMemoryBytes(handle);
+        } catch (RuntimeException e) {
+            ERRORS.inc();
+            Log.w(TAG, "Rule for " + device.endpoint + " failed on /" + objId + "/" + instId + "/" + resId, e);
+        }
+    }
+
+    void close() {
+        host.detach();
+        try {
+            executor.execute(this::closeNow);
+        } catch (RejectedExecutionException e) {
+            // The worker pool was shut down, so release here rather than leak the instance.
+            closeNow();
+        }
+    }
+
+    private synchronized void closeNow() {
+        if (closed) {
+            return;
+        }
+        if (handle != 0) {
+            runner.releaseRule(handle);
+        }
+        handle = 0;
+        closed = true;
+        memoryBytes = 0;
+        modules.release(version);
+    }
+}
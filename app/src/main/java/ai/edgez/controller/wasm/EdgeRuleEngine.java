@@ -0,0 +1,95 @@
+package ai.edgez.controller.wasm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.edgez.controller.WasmtimeRunner;
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.poll.FleetPoller;
+
+/**
+ * Runs at most one rule module per device, spread over the {@link WasmWorkerPool} by endpoint.
+ * Rules are bound to a module name in the {@link WasmModuleRegistry} and follow it when a new
+ * version is activated or rolled back.
+ */
+public class EdgeRuleEngine implements WasmModuleRegistry.Listener {
+
+    private final WasmtimeRunner runner;
+    private final WasmModuleRegistry modules;
+    private final WasmWorkerPool workers;
+    private final GatewayClient client;
+    private final ResourceValueCache cache;
+    private final FleetPoller poller;
+    private final Map<DeviceRegistry.Device, EdgeRule> rules = new ConcurrentHashMap<>();
+
+    public EdgeRuleEngine(WasmtimeRunner runner, WasmModuleRegistry modules, WasmWorkerPool workers,
+                          GatewayClient client, ResourceValueCache cache, FleetPoller poller) {
+        this.runner = runner;
+        this.modules = modules;
+        this.workers = workers;
+        this.client = client;
+        this.cache = cache;
+        this.poller = poller;
+        modules.addListener(this);
+    }
+
+    /**
+     * Starts the active version of module {@code moduleName} against {@code device}, replacing
+     * any rule already running there.
+     *
+     * @throws IllegalStateException if no version of the module is installed
+     */
+    public void deploy(DeviceRegistry.Device device, String moduleName) {
+        WasmModuleRegistry.ModuleVersion version = modules.acquire(moduleName);
+        if (version == null) {
+            throw new IllegalStateException("Module not installed: " + moduleName);
+        }
+        EdgeRule rule = new EdgeRule(runner, modules, workers, device,
+                new DeviceWasmHost(device, client, cache, poller), version);
+        EdgeRule previous = rules.put(device, rule);
+        if (previous != null) {
+            previous.close();
+        }
+        rule.start();
+    }
+
+    @Override
+    public void onActivated(WasmModuleRegistry.ModuleVersion active) {
+        for (EdgeRule rule : rules.values()) {
+            if (rule.moduleName().equals(active.name) && modules.retain(active)) {
+                rule.swap(active);
+            }
+        }
+    }
+
+    public void remove(DeviceRegistry.Device device) {
+        EdgeRule rule = rules.remove(device);
+        if (rule != null) {
+            rule.close();
+        }
+    }
+
+    public void removeAll() {
+        for (DeviceRegistry.Device device : new ArrayList<>(rules.keySet())) {
+            remove(device);
+        }
+    }
+
+    public List<DeviceRegistry.Device> devices() {
+        return new ArrayList<>(rules.keySet());
+    }
+
+    /** Linear memory of all running instances, summed per module name. */
+    public Map<String, Long> memoryByModule() {
+        Map<String, Long> totals = new HashMap<>();
+        for (EdgeRule rule : rules.values()) {
+            totals.merge(rule.moduleName(), rule.memoryBytes(), Long::sum);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,344 @@
+package ai.edgez.controller.wasm;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.edgez.controller.WasmtimeRunner;
+import ai.edgez.controller.data.MemoryGovernor;
+import ai.edgez.controller.metrics.Metrics;
+
+/**
+ * Turns vendor blobs in Opaque resources into named fields with Wasm decoder modules from the
+ * {@link WasmModuleRegistry}, bound per object ID or per object and resource ID.
+ *
+ * <p>A decoder module exports {@code memory}, {@code decoder_buffer(size) -> ptr} and
+ * {@code decode(count, in_len, out_cap) -> i32}. Payloads are decoded in batches: the host writes
+ * {@code count} records of {@code [u32 key][u32 len][bytes]} (key {@code obj << 16 | res},
+ * little-endian) to the buffer, and the guest writes one {@code [u32 len][bytes]} record per
+ * payload right after them, where the bytes are UTF-8 {@code name=value} lines and a length of
+ * {@code 0xffffffff} means the payload could not be decoded. {@code decode} returns the number of
+ * bytes written, or -1 to ask for more output space.
+ *
+ * <p>Decoders get no device access: the {@code edgez} imports are present but read nothing and
+ * refuse writes. Each module has one instance, on the {@link WasmWorkerPool} worker for its name,
+ * and a newly activated version is picked up on the next batch.
+ *
+ * <p>Instances hold no state between batches, so under memory pressure the least recently used
+ * are released and created again, from the module's preinit snapshot, when next needed.
+ */
+public class PayloadDecoders implements MemoryGovernor.Cache {
+
+    private static final String TAG = "PayloadDecoders";
+    private static final String BINDINGS_FILE = "decoders.properties";
+    /** Input bytes per call; a single larger payload still goes alone. */
+    static final int MAX_BATCH_BYTES = 256 * 1024;
+    private static final int MAX_OUTPUT_BYTES = 4 * 1024 * 1024;
+    private static final int FAILED = -1;
+
+    private static final Metrics.Counter PAYLOADS = Metrics.counter("decoders.payloads");
+    private static final Metrics.Counter BATCHES = Metrics.counter("decoders.batches");
+    private static final Metrics.Counter ERRORS = Metrics.counter("decoders.errors");
+
+    /** Instance of one module version; touched only on that module's worker. */
+    private static final class Instance {
+        final WasmModuleRegistry.ModuleVersion version;
+        final long handle;
+        byte[] input = new byte[16 * 1024];
+        byte[] output = new byte[16 * 1024];
+        volatile long memoryBytes;
+        volatile long lastUsedMs;
+        volatile boolean retiring;  // release queued by trimTo
+
+        Instance(WasmModuleRegistry.ModuleVersion version, long handle) {
+            this.version = version;
+            this.handle = handle;
+        }
+    }
+
+    private final WasmtimeRunner runner;
+    private final WasmModuleRegistry modules;
+    private final WasmWorkerPool workers;
+    private final File bindingsFile;
+    private final Map<String, String> bindings = new HashMap<>();
+    // Each entry is only touched on its module's worker.
+    private final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    private final WasmHost sandbox = new SandboxHost();
+
+    public PayloadDecoders(WasmtimeRunner runner, WasmModuleRegistry modules, WasmWorkerPool workers, File dir) {
+        this.runner = runner;
+        this.modules = modules;
+        this.workers = workers;
+        this.bindingsFile = new File(dir, BINDINGS_FILE);
+        loadBindings();
+    }
+
+    /**
+     * Decodes resource {@code resId} of object {@code objId} with {@code moduleName}. Pass -1 as
+     * {@code resId} to cover every resource of the object without a binding of its own.
+     */
+    public synchronized void bind(int objId, int resId, String moduleName) {
+        bindings.put(bindingKey(objId, resId), moduleName);
+        saveBindings();
+    }
+
+    public synchronized void unbind(int objId, int resId) {
+        if (bindings.remove(bindingKey(objId, resId)) != null) {
+            saveBindings();
+        }
+    }
+
+    /** The module bound to the resource, or null. */
+    public synchronized String decoderFor(int objId, int resId) {
+        String module = bindings.get(bindingKey(objId, resId));
+        return module != null ? module : bindings.get(bindingKey(objId, -1));
+    }
+
+    /**
+     * Decodes {@code payloads} of one resource in as few calls as fit. Each result is the decoded
+     * fields in the order the guest wrote them, or null where the guest could not decode the
+     * payload.
+     *
+     * @throws IllegalStateException if no decoder is bound or its module is not installed; the
+     *                               future fails if the module traps. Dependent stages run on
+     *                               the decoder's worker unless given an executor.
+     */
+    public CompletableFuture<List<Map<String, String>>> decode(int objId, int resId, List<byte[]> payloads) {
+        String moduleName = decoderFor(objId, resId);
+        if (moduleName == null) {
+            throw new IllegalStateException("No decoder for /" + objId + "/x/" + resId);
+        }
+        if (modules.active(moduleName) == null) {
+            throw new IllegalStateException("Decoder module not installed: " + moduleName);
+        }
+        List<byte[]> copy = new ArrayList<>(payloads);
+        return CompletableFuture.supplyAsync(() -> decodeNow(moduleName, objId, resId, copy),
+                workers.workerFor(workerKey(moduleName)));
+    }
+
+    private List<Map<String, String>> decodeNow(String moduleName, int objId, int resId, List<byte[]> payloads) {
+        Instance instance = instanceFor(moduleName);
+        int key = (objId & 0xffff) << 16 | (resId & 0xffff);
+        List<Map<String, String>> results = new ArrayList<>(payloads.size());
+        int next = 0;
+        while (next < payloads.size()) {
+            int end = next;
+            int inLength = 0;
+            do {
+                inLength += 8 + payloads.get(end).length;
+                end++;
+            } while (end < payloads.size() && inLength + 8 + payloads.get(end).length <= MAX_BATCH_BYTES);
+            pack(instance, payloads, next, end, key, inLength);
+
+            int written;
+            while (true) {
+                written = runner.decodeBatch(instance.handle, instance.input, inLength, end - next, instance.output);
+                if (written >= 0 || instance.output.length >= MAX_OUTPUT_BYTES) {
+                    break;
+                }
+                instance.output = new byte[Math.min(MAX_OUTPUT_BYTES, instance.output.length * 2)];
+            }
+            BATCHES.inc();
+            PAYLOADS.add(end - next);
+            if (written < 0) {
+                ERRORS.inc();
+                for (int i = next; i < end; i++) {
+                    results.add(null);
+                }
+            } else {
+                unpack(instance.output, written, end - next, results);
+            }
+            next = end;
+        }
+        instance.memoryBytes = runner.ruleMemoryBytes(instance.handle) + instance.input.length + instance.output.length;
+        instance.lastUsedMs = System.currentTimeMillis();
+        return results;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long total = 0;
+        for (Instance instance : instances.values()) {
+            if (!instance.retiring) {
+                total += instance.memoryBytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Releases the least recently used instances on their workers, so memory is freed shortly
+     * after this returns rather than by the time it does.
+     */
+    @Override
+    public void trimTo(long targetBytes) {
+        List<Map.Entry<String, Instance>> oldestFirst = new ArrayList<>(instances.entrySet());
+        oldestFirst.sort((a, b) -> Long.compare(a.getValue().lastUsedMs, b.getValue().lastUsedMs));
+        long bytes = memoryBytes();
+        for (Map.Entry<String, Instance> e : oldestFirst) {
+            if (bytes <= targetBytes) {
+                break;
+            }
+            String moduleName = e.getKey();
+            Instance instance = e.getValue();
+            if (instance.retiring) {
+                continue;
+            }
+            instance.retiring = true;
+            bytes -= instance.memoryBytes;
+            workers.execute(workerKey(moduleName), () -> {
+                // Only if no newer version replaced it in the meantime.
+                if (instances.remove(moduleName, instance)) {
+                    runner.releaseRule(instance.handle);
+                    modules.release(instance.version);
+                }
+            });
+        }
+    }
+
+    private Instance instanceFor(String moduleName) {
+        Instance instance = instances.get(moduleName);
+        WasmModuleRegistry.ModuleVersion active = modules.active(moduleName);
+        if (instance != null && instance.version == active) {
+            return instance;
+        }
+        WasmModuleRegistry.ModuleVersion version = modules.acquire(moduleName);
+        if (version == null) {
+            throw new IllegalStateException("Decoder module not installed: " + moduleName);
+        }
+        long handle;
+        try {
+            handle = modules.instantiate(version, sandbox);
+        } catch (RuntimeException e) {
+            modules.release(version);
+            throw e;
+        }
+        if (instance != null) {
+            runner.releaseRule(instance.handle);
+            modules.release(instance.version);
+        }
+        Instance created = new Instance(version, handle);
+        instances.put(moduleName, created);
+        Log.i(TAG, "Decoder " + version + " ready");
+        return created;
+    }
+
+    private static void pack(Instance instance, List<byte[]> payloads, int from, int to, int key, int inLength) {
+        if (instance.input.length < inLength) {
+            instance.input = new byte[Math.max(inLength, instance.input.length * 2)];
+        }
+        byte[] in = instance.input;
+        int pos = 0;
+        for (int i = from; i < to; i++) {
+            byte[] p = payloads.get(i);
+            putInt(in, pos, key);
+            putInt(in, pos + 4, p.length);
+            System.arraycopy(p, 0, in, pos + 8, p.length);
+            pos += 8 + p.length;
+        }
+    }
+
+    /** Appends {@code count} results; records the guest did not write come back as null. */
+    static void unpack(byte[] out, int written, int count, List<Map<String, String>> results) {
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + 4 > written) {
+                results.add(null);
+                continue;
+            }
+            int length = getInt(out, pos);
+            pos += 4;
+            if (length == FAILED || length < 0 || pos + length > written) {
+                results.add(null);
+                if (length != FAILED) {
+                    pos = written;
+                }
+                continue;
+            }
+            results.add(fields(new String(out, pos, length, StandardCharsets.UTF_8)));
+            pos += length;
+        }
+    }
+
+    private static Map<String, String> fields(String text) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String line : text.split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                fields.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+            }
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private static void putInt(byte[] b, int pos, int v) {
+        b[pos] = (byte) v;
+        b[pos + 1] = (byte) (v >>> 8);
+        b[pos + 2] = (byte) (v >>> 16);
+        b[pos + 3] = (byte) (v >>> 24);
+    }
+
+    private static int getInt(byte[] b, int pos) {
+        return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+    }
+
+    private static String bindingKey(int objId, int resId) {
+        return resId < 0 ? Integer.toString(objId) : objId + "/" + resId;
+    }
+
+    private static String workerKey(String moduleName) {
+        return "decoder:" + moduleName;
+    }
+
+    private void loadBindings() {
+        if (!bindingsFile.isFile()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(bindingsFile)) {
+            props.load(in);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + bindingsFile, e);
+            return;
+        }
+        for (String name : props.stringPropertyNames()) {
+            bindings.put(name, props.getProperty(name));
+        }
+    }
+
+    private void saveBindings() {
+        Properties props = new Properties();
+        props.putAll(bindings);
+        File tmp = new File(bindingsFile.getPath() + ".tmp");
+        File parent = bindingsFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            Log.w(TAG, "Cannot create " + parent);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            props.store(out, "object[/resource] = decoder module");
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save decoder bindings", e);
+            return;
+        }
+        if (!tmp.renameTo(bindingsFile)) {
+            tmp.delete();
+            Log.w(TAG, "Could not save decoder bindings");
+        }
+    }
+}
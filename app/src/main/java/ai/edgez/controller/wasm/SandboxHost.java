@@ -0,0 +1,26 @@
+package ai.edgez.controller.wasm;
+
+/**
+ * Host for guest code that must not touch devices, such as payload decoders and {@code preinit}:
+ * reads return nothing and writes and observations are refused.
+ */
+final class SandboxHost implements WasmHost {
+
+    @Override
+    public int read(int[] paths, int count, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = Double.NaN;
+        }
+        return 0;
+    }
+
+    @Override
+    public int write(int[] paths, double[] values, int count) {
+        return 0;
+    }
+
+    @Override
+    public int observe(int objId, int instId, int resId) {
+        return -1;
+    }
+}
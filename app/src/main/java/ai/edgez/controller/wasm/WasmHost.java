@@ -0,0 +1,35 @@
+package ai.edgez.controller.wasm;
+
+/**
+ * Callbacks behind the {@code edgez} host imports available to rule modules. Invoked on the thread
+ * that is running the guest, so implementations may block (e.g. on a gateway request).
+ *
+ * <p>Paths are passed as flat (object, instance, resource) triples: entry {@code i} of a batch is
+ * {@code paths[3 * i]}, {@code paths[3 * i + 1]}, {@code paths[3 * i + 2]}. The arrays are reused
+ * between calls and only the first {@code count} entries are meaningful.
+ */
+public interface WasmHost {
+
+    /**
+     * Reads {@code count} numeric resources into {@code out}, using NaN for values that are not
+     * available.
+     *
+     * @return the number of values read
+     */
+    int read(int[] paths, int count, double[] out);
+
+    /**
+     * Writes {@code count} numeric values.
+     *
+     * @return the number of writes the device accepted
+     */
+    int write(int[] paths, double[] values, int count);
+
+    /**
+     * Asks for {@code on_value(obj, inst, res, value)} to be called on the guest whenever a new
+     * value of the resource is seen.
+     *
+     * @return 0 on success, negative on error
+     */
+    int observe(int objId, int instId, int resId);
+}
@@ -0,0 +1,558 @@
+package ai.edgez.controller.wasm;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import ai.edgez.controller.WasmtimeRunner;
+import ai.edgez.controller.data.MemoryGovernor;
+
+/**
+ * Named, versioned Wasm modules stored under app storage and compiled ahead of use.
+ *
+ * <p>Installing a module validates it, writes it to {@code <dir>/<name>/<version>.wasm}, compiles
+ * it on a background thread and caches the compiled image next to it so later starts only have
+ * to map it. Once compiled, the new version replaces the active one in a single step and
+ * {@link Listener}s move their running instances over. The last {@value #HISTORY} versions stay
+ * loaded for {@link #rollback(String)}; under memory pressure {@link #trimTo} unloads all but the
+ * active ones, which rollback then loads from disk again.
+ *
+ * <p>Compiled modules are reference counted: the registry holds one reference while a version is
+ * in its history and users take their own with {@link #acquire(String)} or {@link #retain}, so a
+ * version that is rolled away from is only freed once nothing is still instantiating from it.
+ *
+ * <p>A module that exports {@value #PREINIT_EXPORT} has it run once per version, when the version
+ * is loaded, against a host with no device access. The memory and exported globals it leaves are
+ * snapshotted, and {@link #instantiate} starts every instance from that state, so expensive setup
+ * such as lookup tables is paid once rather than by every device's instance.
+ */
+public class WasmModuleRegistry implements MemoryGovernor.Cache {
+
+    private static final String TAG = "WasmModuleRegistry";
+    public static final int MAX_MODULE_BYTES = 8 * 1024 * 1024;
+    static final int HISTORY = 3;
+    private static final Pattern NAME = Pattern.compile("[a-z0-9_-]{1,64}");
+    private static final String ACTIVE_FILE = "active";
+    static final String PREINIT_EXPORT = "preinit";
+    private static final WasmHost PREINIT_HOST = new SandboxHost();
+
+    /** One compiled version of a module. */
+    public static final class ModuleVersion {
+        public final String name;
+        public final int version;
+        public final String sha256;
+        public final int sizeBytes;
+        /** Time to compile, or to load the cached image if {@link #fromCache}. */
+        public final long compileNanos;
+        /** Size of the compiled code image. */
+        public final long imageBytes;
+        public final boolean fromCache;
+        /** Memory restored into each instance from the {@code preinit} snapshot, 0 if none. */
+        public final long snapshotBytes;
+        final long handle;
+        final long snapshot;
+        private final AtomicInteger refs = new AtomicInteger(1);
+
+        ModuleVersion(String name, int version, String sha256, int sizeBytes, long compileNanos,
+                      long imageBytes, boolean fromCache, long handle, long snapshot, long snapshotBytes) {
+            this.name = name;
+            this.version = version;
+            this.sha256 = sha256;
+            this.sizeBytes = sizeBytes;
+            this.compileNanos = compileNanos;
+            this.imageBytes = imageBytes;
+            this.fromCache = fromCache;
+            this.handle = handle;
+            this.snapshot = snapshot;
+            this.snapshotBytes = snapshotBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s v%d (%d B wasm, %d KiB code, %s %.1f ms%s)", name, version,
+                    sizeBytes, imageBytes / 1024, fromCache ? "loaded" : "compiled", compileNanos / 1e6,
+                    snapshot != 0 ? ", " + snapshotBytes / 1024 + " KiB preinit" : "");
+        }
+    }
+
+    /** Notified on the registry's background thread after a version becomes active. */
+    public interface Listener {
+        void onActivated(ModuleVersion active);
+    }
+
+    private static final class Slot {
+        volatile ModuleVersion active;
+        /** Loaded versions, oldest first; includes {@link #active}. */
+        final List<ModuleVersion> history = new ArrayList<>();
+    }
+
+    private final WasmtimeRunner runner;
+    private final File dir;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "wasm-registry");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public WasmModuleRegistry(WasmtimeRunner runner, File dir) {
+        this.runner = runner;
+        this.dir = dir;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Loads the active version of every installed module, preferring cached compiled images. */
+    public Future<?> loadInstalled() {
+        return worker.submit(() -> {
+            File[] names = dir.listFiles(File::isDirectory);
+            if (names == null) {
+                return;
+            }
+            for (File moduleDir : names) {
+                try {
+                    int version = readActive(moduleDir);
+                    if (version > 0) {
+                        activate(load(moduleDir.getName(), version));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Failed to load " + moduleDir.getName(), e);
+                }
+            }
+        });
+    }
+
+    /** Validates, stores, compiles and activates a new version of {@code name}. */
+    public Future<ModuleVersion> install(String name, byte[] wasmBytes) {
+        return worker.submit(() -> installNow(name, wasmBytes));
+    }
+
+    public Future<ModuleVersion> install(String name, File file) {
+        return worker.submit(() -> {
+            if (file.length() > MAX_MODULE_BYTES) {
+                throw new IOException("Module exceeds " + MAX_MODULE_BYTES + " bytes");
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                return installNow(name, readLimited(in));
+            }
+        });
+    }
+
+    /**
+     * Downloads and installs a module. If {@code expectedSha256} is non-null the download must
+     * match it.
+     */
+    public Future<ModuleVersion> download(String name, URL url, String expectedSha256) {
+        return worker.submit(() -> {
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            byte[] bytes;
+            try {
+                conn.setConnectTimeout(10_000);
+                conn.setReadTimeout(30_000);
+                if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Download failed: HTTP " + conn.getResponseCode());
+                }
+                try (InputStream in = conn.getInputStream()) {
+                    bytes = readLimited(in);
+                }
+            } finally {
+                conn.disconnect();
+            }
+            if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256(bytes))) {
+                throw new IOException("Checksum mismatch for " + url);
+            }
+            return installNow(name, bytes);
+        });
+    }
+
+    /**
+     * Makes the version before the active one active again.
+     *
+     * @return false if there is no earlier version loaded
+     */
+    public Future<Boolean> rollback(String name) {
+        return worker.submit(() -> {
+            Slot slot = slots.get(name);
+            if (slot == null) {
+                return false;
+            }
+            ModuleVersion previous = null;
+            int activeVersion;
+            synchronized (slot) {
+                int index = slot.history.indexOf(slot.active);
+                if (index > 0) {
+                    previous = slot.history.get(index - 1);
+                }
+                activeVersion = slot.active.version;
+            }
+            if (previous == null) {
+                // Versions unloaded by trimTo are still on disk.
+                int version = previousOnDisk(new File(dir, name), activeVersion);
+                if (version <= 0) {
+                    return false;
+                }
+                previous = load(name, version);
+                synchronized (slot) {
+                    slot.history.add(Math.max(0, slot.history.indexOf(slot.active)), previous);
+                }
+            }
+            activate(previous);
+            return true;
+        });
+    }
+
+    /** Returns the active version of {@code name} with a reference taken, or null. */
+    public ModuleVersion acquire(String name) {
+        Slot slot = slots.get(name);
+        while (slot != null) {
+            ModuleVersion v = slot.active;
+            if (v == null) {
+                return null;
+            }
+            if (retain(v)) {
+                return v;
+            }
+            // Raced with eviction of a version that was just replaced; read the new active one.
+        }
+        return null;
+    }
+
+    /** Takes another reference; fails if the version has already been freed. */
+    public boolean retain(ModuleVersion v) {
+        int n;
+        do {
+            n = v.refs.get();
+            if (n <= 0) {
+                return false;
+            }
+        } while (!v.refs.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    public void release(ModuleVersion v) {
+        if (v.refs.decrementAndGet() == 0) {
+            if (v.snapshot != 0) {
+                runner.releaseSnapshot(v.snapshot);
+            }
+            runner.releaseModule(v.handle);
+        }
+    }
+
+    /**
+     * Creates a rule instance of {@code v} calling back into {@code host}, from its preinit
+     * snapshot if it has one. The caller must hold a reference to {@code v}.
+     */
+    public long instantiate(ModuleVersion v, WasmHost host) {
+        return v.snapshot != 0 ? runner.instantiateSnapshot(v.snapshot, host) : runner.instantiateRule(v.handle, host);
+    }
+
+    public ModuleVersion active(String name) {
+        Slot slot = slots.get(name);
+        return slot == null ? null : slot.active;
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(slots.keySet());
+    }
+
+    public List<ModuleVersion> versions(String name) {
+        Slot slot = slots.get(name);
+        if (slot == null) {
+            return new ArrayList<>();
+        }
+        synchronized (slot) {
+            return new ArrayList<>(slot.history);
+        }
+    }
+
+    private ModuleVersion installNow(String name, byte[] bytes) throws IOException {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid module name: " + name);
+        }
+        if (bytes.length == 0 || bytes.length > MAX_MODULE_BYTES) {
+            throw new IOException("Module size out of range: " + bytes.length);
+        }
+        String sha = sha256(bytes);
+        ModuleVersion current = active(name);
+        if (current != null && current.sha256.equals(sha)) {
+            return current;
+        }
+        String error = runner.validateModule(bytes);
+        if (error != null) {
+            throw new IllegalArgumentException("Invalid module " + name + ": " + error);
+        }
+
+        File moduleDir = new File(dir, name);
+        if (!moduleDir.isDirectory() && !moduleDir.mkdirs()) {
+            throw new IOException("Cannot create " + moduleDir);
+        }
+        int version = latestVersion(moduleDir) + 1;
+        writeAtomically(new File(moduleDir, version + ".wasm"), bytes);
+
+        long start = System.nanoTime();
+        long handle = runner.compile(bytes);
+        long compileNanos = System.nanoTime() - start;
+        if (!runner.savePrecompiled(handle, new File(moduleDir, version + ".cwasm").getPath())) {
+            Log.w(TAG, "Could not cache compiled image for " + name + " v" + version);
+        }
+        long snapshot;
+        try {
+            snapshot = preinit(handle);
+        } catch (RuntimeException e) {
+            new File(moduleDir, version + ".wasm").delete();
+            new File(moduleDir, version + ".cwasm").delete();
+            throw new IllegalArgumentException("Module " + name + " failed in " + PREINIT_EXPORT + ": " + e.getMessage(), e);
+        }
+        ModuleVersion v = new ModuleVersion(name, version, sha, bytes.length, compileNanos,
+                runner.moduleImageBytes(handle), false, handle, snapshot, snapshotBytes(snapshot));
+        activate(v);
+        return v;
+    }
+
+    private ModuleVersion load(String name, int version) throws IOException {
+        File moduleDir = new File(dir, name);
+        File wasm = new File(moduleDir, version + ".wasm");
+        File cwasm = new File(moduleDir, version + ".cwasm");
+        byte[] bytes;
+        try (InputStream in = new FileInputStream(wasm)) {
+            bytes = readLimited(in);
+        }
+        long start = System.nanoTime();
+        long handle = 0;
+        boolean fromCache = false;
+        if (cwasm.isFile()) {
+            try {
+                handle = runner.loadCompiled(cwasm.getPath());
+                fromCache = true;
+            } catch (RuntimeException e) {
+                // Stale after a runtime upgrade; recompile below.
+                Log.i(TAG, "Recompiling " + name + " v" + version + ": " + e.getMessage());
+            }
+        }
+        if (handle == 0) {
+            handle = runner.compile(bytes);
+            runner.savePrecompiled(handle, cwasm.getPath());
+        }
+        long elapsed = System.nanoTime() - start;
+        long snapshot = preinit(handle);
+        return new ModuleVersion(name, version, sha256(bytes), bytes.length, elapsed,
+                runner.moduleImageBytes(handle), fromCache, handle, snapshot, snapshotBytes(snapshot));
+    }
+
+    /** Snapshots the module after {@value #PREINIT_EXPORT}; releases the module if that fails. */
+    private long preinit(long handle) {
+        try {
+            return runner.snapshotRule(handle, PREINIT_HOST, PREINIT_EXPORT);
+        } catch (RuntimeException e) {
+            runner.releaseModule(handle);
+            throw e;
+        }
+    }
+
+    private long snapshotBytes(long snapshot) {
+        return snapshot != 0 ? runner.snapshotBytes(snapshot) : 0L;
+    }
+
+    private void activate(ModuleVersion v) {
+        Slot slot = slots.computeIfAbsent(v.name, n -> new Slot());
+        List<ModuleVersion> evicted = new ArrayList<>();
+        synchronized (slot) {
+            if (!slot.history.contains(v)) {
+                slot.history.add(v);
+            }
+            slot.active = v;
+            while (slot.history.size() > HISTORY) {
+                ModuleVersion oldest = slot.history.get(0);
+                if (oldest == v) {
+                    break;
+                }
+                evicted.add(slot.history.remove(0));
+            }
+        }
+        try {
+            writeAtomically(new File(new File(dir, v.name), ACTIVE_FILE),
+                    Integer.toString(v.version).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not persist active version of " + v.name, e);
+        }
+        Log.i(TAG, "Activated " + v);
+        for (Listener listener : listeners) {
+            listener.onActivated(v);
+        }
+        for (ModuleVersion old : evicted) {
+            release(old);
+        }
+        if (!evicted.isEmpty()) {
+            pruneFiles(v.name);
+        }
+    }
+
+    /** Deletes the files of versions older than the newest {@value #HISTORY}, unless loaded. */
+    private void pruneFiles(String name) {
+        File moduleDir = new File(dir, name);
+        List<Integer> versions = versionsOnDisk(moduleDir);
+        List<Integer> loaded = new ArrayList<>();
+        for (ModuleVersion v : versions(name)) {
+            loaded.add(v.version);
+        }
+        for (int i = 0; i < versions.size() - HISTORY; i++) {
+            int version = versions.get(i);
+            if (!loaded.contains(version)) {
+                new File(moduleDir, version + ".wasm").delete();
+                new File(moduleDir, version + ".cwasm").delete();
+            }
+        }
+    }
+
+    @Override
+    public long memoryBytes() {
+        long total = 0;
+        for (Slot slot : slots.values()) {
+            synchronized (slot) {
+                for (ModuleVersion v : slot.history) {
+                    total += v.imageBytes + v.snapshotBytes;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Unloads versions kept only for {@link #rollback}, oldest first; rolling back loads them from
+     * disk again. Active versions are never unloaded.
+     */
+    @Override
+    public void trimTo(long targetBytes) {
+        long bytes = memoryBytes();
+        List<ModuleVersion> unloaded = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            synchronized (slot) {
+                for (Iterator<ModuleVersion> it = slot.history.iterator(); it.hasNext() && bytes > targetBytes; ) {
+                    ModuleVersion v = it.next();
+                    if (v != slot.active) {
+                        it.remove();
+                        unloaded.add(v);
+                        bytes -= v.imageBytes + v.snapshotBytes;
+                    }
+                }
+            }
+        }
+        for (ModuleVersion v : unloaded) {
+            Log.i(TAG, "Unloaded " + v + " under memory pressure");
+            release(v);
+        }
+    }
+
+    private static int readActive(File moduleDir) throws IOException {
+        File file = new File(moduleDir, ACTIVE_FILE);
+        if (!file.isFile()) {
+            return latestVersion(moduleDir);
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Integer.parseInt(new String(readLimited(in), StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            return latestVersion(moduleDir);
+        }
+    }
+
+    private static int latestVersion(File moduleDir) {
+        List<Integer> versions = versionsOnDisk(moduleDir);
+        return versions.isEmpty() ? 0 : versions.get(versions.size() - 1);
+    }
+
+    private static int previousOnDisk(File moduleDir, int version) {
+        int previous = 0;
+        for (int v : versionsOnDisk(moduleDir)) {
+            if (v < version) {
+                previous = v;
+            }
+        }
+        return previous;
+    }
+
+    /** Versions with a stored module, ascending. */
+    private static List<Integer> versionsOnDisk(File moduleDir) {
+        List<Integer> versions = new ArrayList<>();
+        String[] files = moduleDir.list();
+        if (files != null) {
+            for (String f : files) {
+                if (f.endsWith(".wasm")) {
+                    try {
+                        versions.add(Integer.parseInt(f.substring(0, f.length() - 5)));
+                    } catch (NumberFormatException ignore) {
+                    }
+                }
+            }
+        }
+        Collections.sort(versions);
+        return versions;
+    }
+
+    private static void writeAtomically(File target, byte[] bytes) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(bytes);
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + target);
+        }
+    }
+
+    private static byte[] readLimited(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[16 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            if (out.size() + read > MAX_MODULE_BYTES) {
+                throw new IOException("Module exceeds " + MAX_MODULE_BYTES + " bytes");
+            }
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format(Locale.US, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ai.edgez.controller.wasm;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fixed set of Wasm worker threads sharing the runner's engine and compiled modules. Work is
+ * routed by key, so everything submitted for one key (e.g. a device endpoint) runs in order on
+ * the same worker and the stores it creates never cross threads.
+ */
+public class WasmWorkerPool {
+
+    private final ExecutorService[] workers;
+
+    /** One worker per available core. */
+    public WasmWorkerPool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public WasmWorkerPool(int size) {
+        workers = new ExecutorService[Math.max(1, size)];
+        for (int i = 0; i < workers.length; i++) {
+            String name = "wasm-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    /** The single-threaded executor that runs all work for {@code key}. */
+    public ExecutorService workerFor(String key) {
+        return workers[Math.floorMod(key.hashCode(), workers.length)];
+    }
+
+    public void execute(String key, Runnable task) {
+        workerFor(key).execute(task);
+    }
+
+    public <T> Future<T> submit(String key, Callable<T> task) {
+        return workerFor(key).submit(task);
+    }
+
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ai.edgez.controller.data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FleetAggregatesTest {
+
+    @Test
+    public void segment_readsNumericPathSegments() {
+        assertEquals(3303, FleetAggregates.segment("/3303/0/5700", 1));
+        assertEquals(0, FleetAggregates.segment("/3303/0/5700", 2));
+        assertEquals(5700, FleetAggregates.segment("/3303/0/5700", 3));
+        assertEquals(-2, FleetAggregates.segment("/3303/0/5700", 4));
+        assertEquals(1, FleetAggregates.segment("/3303/0/5700/1", 4));
+
+        // The empty text before the leading slash is segment 0.
+        assertEquals(-1, FleetAggregates.segment("/3303", 0));
+        assertEquals(-2, FleetAggregates.segment("", 1));
+        assertEquals(-1, FleetAggregates.segment("/3303/x/5700", 2));
+        assertEquals(-1, FleetAggregates.segment("/3303//5700", 2));
+        assertEquals(-1, FleetAggregates.segment("/3303/-1/5700", 2));
+        assertEquals(-1, FleetAggregates.segment("/3303/0/5700/", 4));
+        assertEquals(999_999_999, FleetAggregates.segment("/999999999", 1));
+        assertEquals(-1, FleetAggregates.segment("/1234567890", 1));
+    }
+
+    @Test
+    public void add_aggregatesPerObjectAndResourceAcrossDevices() {
+        FleetAggregates aggregates = new FleetAggregates();
+        aggregates.add("node-1", "/3303/0/5700", 20d, 1_000L);
+        aggregates.add("node-1", "/3303/1/5700", 22d, 2_000L);
+        aggregates.add("node-2", "/3303/0/5700", 27d, 3_000L);
+        aggregates.add("node-2", "/3303/0/5701", 1d, 3_000L);
+
+        assertEquals(2, aggregates.size());
+        FleetAggregates.Snapshot s = find(aggregates.snapshotAll(), FleetAggregates.key(3303, 5700));
+        assertEquals(3303, s.objectId);
+        assertEquals(5700, s.resourceId);
+        assertEquals(3, s.count);
+        assertEquals(2, s.devices);
+        assertEquals(20d, s.min, 0d);
+        assertEquals(27d, s.max, 0d);
+        assertEquals(23d, s.mean, 1e-9);
+        assertEquals(22d, s.p50, 0d);
+        assertEquals(27d, s.last, 0d);
+        assertEquals(3_000L, s.updatedMs);
+    }
+
+    @Test
+    public void add_ignoresPathsOtherThanObjectInstanceResource() {
+        FleetAggregates aggregates = new FleetAggregates();
+        aggregates.add("node-1", "/3303/0", 1d, 0L);
+        aggregates.add("node-1", "/3303/0/5700/0", 1d, 0L);
+        aggregates.add("node-1", "/3303/0/5700/", 1d, 0L);
+        aggregates.add("node-1", "/3303/a/5700", 1d, 0L);
+        aggregates.add("node-1", "3303/0/5700", 1d, 0L);
+        assertEquals(0, aggregates.size());
+    }
+
+    @Test
+    public void drainChanged_returnsEachUpdatedAggregateOnce() {
+        FleetAggregates aggregates = new FleetAggregates();
+        aggregates.add("node-1", "/3303/0/5700", 20d, 0L);
+        aggregates.add("node-1", "/3303/0/5700", 21d, 0L);
+        aggregates.add("node-1", "/3304/0/5700", 50d, 0L);
+
+        assertEquals(2, aggregates.drainChanged().size());
+        assertTrue(aggregates.drainChanged().isEmpty());
+
+        aggregates.add("node-2", "/3304/0/5700", 40d, 0L);
+        List<FleetAggregates.Snapshot> changed = aggregates.drainChanged();
+        assertEquals(1, changed.size());
+        assertEquals(FleetAggregates.key(3304, 5700), changed.get(0).key);
+        assertEquals(2, aggregates.snapshotAll().size());
+
+        aggregates.reset();
+        assertEquals(0, aggregates.size());
+        assertTrue(aggregates.drainChanged().isEmpty());
+    }
+
+    private static FleetAggregates.Snapshot find(List<FleetAggregates.Snapshot> snapshots, String key) {
+        for (FleetAggregates.Snapshot s : snapshots) {
+            if (s.key.equals(key)) {
+                return s;
+            }
+        }
+        throw new AssertionError("no aggregate " + key);
+    }
+}
@@ -0,0 +1,113 @@
+package ai.edgez.controller.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryGovernorTest {
+
+    private final List<String> trimmed = new ArrayList<>();
+
+    /** Holds {@code bytes} and records each trim by name. */
+    private final class FakeCache implements MemoryGovernor.Cache {
+        final String name;
+        long bytes;
+
+        FakeCache(String name, long bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long memoryBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void trimTo(long targetBytes) {
+            trimmed.add(name);
+            bytes = Math.min(bytes, targetBytes);
+        }
+    }
+
+    @Test
+    public void budget_trimsOnlyCachesOverTheirOwnBudget() {
+        MemoryGovernor governor = new MemoryGovernor();
+        FakeCache over = new FakeCache("over", 150);
+        FakeCache under = new FakeCache("under", 10);
+        governor.register("over", 0, 100, over);
+        governor.register("under", 10, 100, under);
+
+        assertEquals(50, governor.trim(MemoryGovernor.Pressure.BUDGET));
+        assertEquals(100, over.bytes);
+        assertEquals(10, under.bytes);
+        assertEquals(Arrays.asList("over"), trimmed);
+        assertEquals(0, governor.trim(MemoryGovernor.Pressure.BUDGET));
+    }
+
+    @Test
+    public void pressure_shedsLowestPriorityFirstAndStopsOnceWithinShare() {
+        MemoryGovernor governor = new MemoryGovernor();
+        FakeCache values = new FakeCache("values", 100);
+        FakeCache decoders = new FakeCache("decoders", 100);
+        FakeCache models = new FakeCache("models", 100);
+        FakeCache modules = new FakeCache("modules", 100);
+        // Registered out of order; equal priorities keep registration order.
+        governor.register("values", 80, 100, values);
+        governor.register("decoders", 0, 100, decoders);
+        governor.register("models", 20, 100, models);
+        governor.register("modules", 0, 100, modules);
+
+        // Half of 400 may stay: the two cheapest caches go, the others are untouched.
+        assertEquals(200, governor.trim(MemoryGovernor.Pressure.MODERATE));
+        assertEquals(Arrays.asList("decoders", "modules"), trimmed);
+        assertEquals(0, decoders.bytes);
+        assertEquals(0, modules.bytes);
+        assertEquals(100, models.bytes);
+        assertEquals(100, values.bytes);
+
+        List<MemoryGovernor.Usage> usage = governor.usage();
+        assertEquals("decoders", usage.get(0).name);
+        assertEquals("modules", usage.get(1).name);
+        assertEquals("models", usage.get(2).name);
+        assertEquals("values", usage.get(3).name);
+    }
+
+    @Test
+    public void pressure_trimsACacheOnlyByTheRemainingExcess() {
+        MemoryGovernor governor = new MemoryGovernor();
+        FakeCache cheap = new FakeCache("cheap", 80);
+        FakeCache dear = new FakeCache("dear", 70);
+        governor.register("dear", 50, 100, dear);
+        governor.register("cheap", 10, 100, cheap);
+
+        // 150 held, 100 allowed: the cheap cache gives up 50 and keeps the rest.
+        assertEquals(50, governor.trim(MemoryGovernor.Pressure.MODERATE));
+        assertEquals(Arrays.asList("cheap"), trimmed);
+        assertEquals(30, cheap.bytes);
+        assertEquals(70, dear.bytes);
+    }
+
+    @Test
+    public void critical_shedsEveryCacheAndKeepsTrackedUsers() {
+        MemoryGovernor governor = new MemoryGovernor();
+        FakeCache a = new FakeCache("a", 40);
+        FakeCache b = new FakeCache("b", 60);
+        governor.register("b", 5, 100, b);
+        governor.register("a", 1, 100, a);
+        governor.track("rules", () -> 500L);
+
+        assertEquals(100, governor.trim(MemoryGovernor.Pressure.CRITICAL));
+        assertEquals(Arrays.asList("a", "b"), trimmed);
+        assertEquals(0, a.bytes + b.bytes);
+
+        MemoryGovernor.Usage rules = governor.usage().get(2);
+        assertEquals("rules", rules.name);
+        assertEquals(-1, rules.priority);
+        assertEquals(500, rules.bytes);
+    }
+}
@@ -0,0 +1,104 @@
+package ai.edgez.controller.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static TimeSeriesStore.Config smallConfig() {
+        TimeSeriesStore.Config config = new TimeSeriesStore.Config();
+        config.blockWords = 128;
+        config.blocksInMemory = 2;
+        config.segmentBytes = 16 * 1024;
+        return config;
+    }
+
+    @Test
+    public void gorillaBlock_roundTripsJitteredSamples() {
+        GorillaBlock block = new GorillaBlock(256);
+        long[] ts = new long[4096];
+        double[] values = new double[4096];
+        int n = 0;
+        long t = 1_700_000_000_000L;
+        while (true) {
+            t += 1000 + (n % 7) * 13 - 40;
+            double v = 20.0 + Math.sin(n / 10.0);
+            if (!block.append(t, v)) {
+                break;
+            }
+            ts[n] = t;
+            values[n] = v;
+            n++;
+        }
+        GorillaBlock.Cursor cursor = new GorillaBlock.Cursor();
+        cursor.reset(block);
+        for (int i = 0; i < n; i++) {
+            assertTrue(cursor.next());
+            assertEquals(ts[i], cursor.timestamp);
+            assertEquals(values[i], cursor.value, 0d);
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void query_downsamplesAcrossSpilledAndInMemoryBlocks() {
+        TimeSeriesStore store = new TimeSeriesStore(tmp.getRoot(), smallConfig());
+        String key = TimeSeriesStore.key("ep", 3303, 0, 5700);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(store.record(key, i * 1000L, i));
+        }
+        assertTrue(store.diskBytes() > 0);
+
+        TimeSeriesStore.Downsampled out = new TimeSeriesStore.Downsampled(10);
+        assertEquals(10_000, store.query(key, 0L, 9_999_000L, out));
+        assertEquals(499.5, out.mean(0), 1e-9);
+        assertEquals(0d, out.overallMin(), 0d);
+        assertEquals(9999d, out.overallMax(), 0d);
+        assertFalse(store.record(key, 5L, 1d));
+    }
+
+    @Test
+    public void flush_persistsHistoryForANewStore() {
+        File dir = tmp.getRoot();
+        String key = TimeSeriesStore.key("ep", 3, 0, 9);
+        TimeSeriesStore store = new TimeSeriesStore(dir, smallConfig());
+        for (int i = 0; i < 500; i++) {
+            store.record(key, i * 1000L, 100 - i % 100);
+        }
+        store.flush();
+
+        TimeSeriesStore reopened = new TimeSeriesStore(dir, smallConfig());
+        TimeSeriesStore.Downsampled out = new TimeSeriesStore.Downsampled(5);
+        assertEquals(500, reopened.query(key, 0L, 499_000L, out));
+    }
+
+    @Test
+    public void trimTo_freesColdestSeriesAndKeepsTheirHistory() {
+        TimeSeriesStore store = new TimeSeriesStore(tmp.getRoot(), smallConfig());
+        String cold = TimeSeriesStore.key("ep", 3303, 0, 5700);
+        String warm = TimeSeriesStore.key("ep", 3304, 0, 5700);
+        for (int i = 0; i < 300; i++) {
+            store.record(cold, i * 1000L, i);
+            store.record(warm, 1_000_000L + i * 1000L, i);
+        }
+        long perSeries = store.memoryBytes() / 2;
+
+        store.trimTo(perSeries);
+        assertEquals(perSeries, store.memoryBytes());
+        assertEquals(299d, store.lastValue(warm), 0d);
+        assertTrue(Double.isNaN(store.lastValue(cold)));
+
+        TimeSeriesStore.Downsampled out = new TimeSeriesStore.Downsampled(4);
+        assertEquals(300, store.query(cold, 0L, 299_000L, out));
+        assertTrue(store.record(cold, 300_000L, 300d));
+        assertEquals(301, store.query(cold, 0L, 300_000L, out));
+    }
+}
@@ -0,0 +1,116 @@
+package ai.edgez.controller.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    private static void assertBucket(long lowest, long highest, long value) {
+        int index = Histogram.indexOf(value);
+        assertEquals("lowest for " + value, lowest, Histogram.lowestEquivalent(index));
+        assertEquals("highest for " + value, highest, Histogram.highestEquivalent(index));
+    }
+
+    @Test
+    public void indexOf_isExactBelow32AndWidensOnePowerOfTwoAtATime() {
+        for (long v = 0; v < 32; v++) {
+            assertEquals(v, Histogram.indexOf(v));
+            assertBucket(v, v, v);
+        }
+        assertBucket(32, 33, 32);
+        assertBucket(32, 33, 33);
+        assertBucket(34, 35, 34);
+        assertBucket(62, 63, 63);
+        assertBucket(64, 67, 64);
+        assertBucket(124, 127, 127);
+        assertBucket(128, 135, 128);
+        assertBucket(MAX_VALUE - (1L << 31) + 1, MAX_VALUE, MAX_VALUE);
+    }
+
+    @Test
+    public void indexOf_keepsEveryBucketWithinOneSixteenthOfItsLowestValue() {
+        int previous = -1;
+        for (long v = 0; v < 100_000; v++) {
+            int index = Histogram.indexOf(v);
+            assertTrue(index == previous || index == previous + 1);
+            previous = index;
+            assertBucketHolds(v);
+        }
+        for (int shift = 5; shift < 36; shift++) {
+            long power = 1L << shift;
+            assertBucketHolds(power - 1);
+            assertBucketHolds(power);
+            assertBucketHolds(power + 1);
+        }
+    }
+
+    private static void assertBucketHolds(long value) {
+        int index = Histogram.indexOf(value);
+        long lowest = Histogram.lowestEquivalent(index);
+        long highest = Histogram.highestEquivalent(index);
+        assertTrue(lowest <= value && value <= highest);
+        assertTrue("bucket of " + value, highest - lowest + 1 <= Math.max(1L, lowest / 16));
+    }
+
+    @Test
+    public void percentile_reportsTheBucketsUpperBoundCappedAtTheMax() {
+        Histogram histogram = new Histogram();
+        assertEquals(0L, histogram.percentile(50));
+        for (long v = 1; v <= 100; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(50.5d, histogram.mean(), 1e-9);
+        assertEquals(1L, histogram.percentile(0));
+        assertEquals(31L, histogram.percentile(31));
+        // 50 shares a bucket with 51.
+        assertEquals(51L, histogram.percentile(50));
+        assertEquals(99L, histogram.percentile(99));
+        // 100 falls in 100..103; nothing above 100 was recorded.
+        assertEquals(100L, histogram.percentile(100));
+        assertEquals(100L, histogram.percentile(250));
+    }
+
+    @Test
+    public void record_countsNegativeValuesAsZeroAndClampsLargeOnes() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(0L, histogram.max());
+        assertEquals(0L, histogram.percentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.count());
+        assertEquals(MAX_VALUE, histogram.max());
+        assertEquals(MAX_VALUE, histogram.percentile(100));
+        assertEquals(0L, histogram.percentile(50));
+    }
+
+    @Test
+    public void add_mergesCountsAndReset_clearsThem() {
+        Histogram a = new Histogram();
+        a.record(10);
+        a.record(20);
+        Histogram b = new Histogram();
+        b.record(1000);
+
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(1000L, a.max());
+        assertEquals(1030d / 3, a.mean(), 1e-9);
+        assertEquals(20L, a.percentile(50));
+        assertEquals(1000L, a.percentile(100));
+        assertEquals(1, b.count());
+
+        a.reset();
+        assertEquals(0, a.count());
+        assertEquals(0L, a.max());
+        assertEquals(0d, a.mean(), 0d);
+        assertEquals(0L, a.percentile(100));
+        a.record(7);
+        assertEquals(7L, a.percentile(50));
+    }
+}
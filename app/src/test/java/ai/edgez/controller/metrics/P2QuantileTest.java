@@ -0,0 +1,74 @@
+package ai.edgez.controller.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class P2QuantileTest {
+
+    @Test
+    public void value_isExactUpToFiveSamples() {
+        P2Quantile median = new P2Quantile(0.5d);
+        assertTrue(Double.isNaN(median.value()));
+        median.add(7d);
+        assertEquals(7d, median.value(), 0d);
+        median.add(-3d);
+        median.add(1d);
+        assertEquals(1d, median.value(), 0d);
+        median.add(100d);
+        median.add(2d);
+        assertEquals(5, median.count());
+        assertEquals(2d, median.value(), 0d);
+    }
+
+    @Test
+    public void estimatesQuantilesOfShuffledInput() {
+        List<Double> values = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            values.add((double) i);
+        }
+        Collections.shuffle(values, new Random(42));
+        P2Quantile p50 = new P2Quantile(0.5d);
+        P2Quantile p90 = new P2Quantile(0.9d);
+        P2Quantile p99 = new P2Quantile(0.99d);
+        for (double v : values) {
+            p50.add(v);
+            p90.add(v);
+            p99.add(v);
+        }
+        assertEquals(10_000, p50.count());
+        assertEquals(5_000d, p50.value(), 100d);
+        assertEquals(9_000d, p90.value(), 100d);
+        assertEquals(9_900d, p99.value(), 100d);
+    }
+
+    @Test
+    public void takesNegativeAndFractionalValues() {
+        Random random = new Random(7);
+        P2Quantile p90 = new P2Quantile(0.9d);
+        for (int i = 0; i < 20_000; i++) {
+            // Normal with mean -5 and standard deviation 0.5; its 90th percentile is about -4.359.
+            p90.add(-5d + 0.5d * random.nextGaussian());
+        }
+        assertEquals(-4.359d, p90.value(), 0.05d);
+    }
+
+    @Test
+    public void constant_inputGivesThatValue() {
+        P2Quantile p99 = new P2Quantile(0.99d);
+        for (int i = 0; i < 1_000; i++) {
+            p99.add(3.5d);
+        }
+        assertEquals(3.5d, p99.value(), 0d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsQuantileOutsideTheOpenInterval() {
+        new P2Quantile(1d);
+    }
+}
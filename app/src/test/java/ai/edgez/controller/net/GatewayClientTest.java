@@ -0,0 +1,73 @@
+package ai.edgez.controller.net;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import ai.edgez.controller.metrics.NetworkProbe;
+
+import static org.junit.Assert.*;
+
+public class GatewayClientTest {
+
+    private static final String HOST = "10.0.0.1";
+
+    /** A client whose connections cannot even be created. */
+    private static GatewayClient failingToOpen(RuntimeException unchecked) {
+        return new GatewayClient(new NetworkProbe()) {
+            @Override
+            HttpURLConnection open(String url) throws IOException {
+                if (unchecked != null) {
+                    throw unchecked;
+                }
+                throw new IOException("no connection");
+            }
+        };
+    }
+
+    // Opens the breaker with an open period that has already run out, so the next request is the probe.
+    private static void expireOpenBreaker(ServerHealth health) {
+        long past = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(ServerHealth.MAX_OPEN_MS + 1_000L);
+        for (int i = 0; i < ServerHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(past);
+        }
+        assertEquals(ServerHealth.State.OPEN, health.state());
+    }
+
+    @Test
+    public void probeThatCannotOpenAConnection_reopensTheBreaker() {
+        GatewayClient client = failingToOpen(null);
+        ServerHealth health = client.health(HOST);
+        expireOpenBreaker(health);
+
+        try {
+            client.listClients(HOST);
+            fail("expected the connection failure");
+        } catch (ServerUnavailableException e) {
+            fail("the probe should have been admitted");
+        } catch (IOException expected) {
+            assertEquals("no connection", expected.getMessage());
+        }
+        assertEquals(ServerHealth.State.OPEN, health.state());
+        assertTrue(health.admit(System.nanoTime()) > 0);
+    }
+
+    @Test
+    public void probeAbandonedWhileOpening_letsTheNextProbeThrough() throws IOException {
+        GatewayClient client = failingToOpen(new IllegalStateException("bad url"));
+        ServerHealth health = client.health(HOST);
+        expireOpenBreaker(health);
+
+        try {
+            client.read(HOST, "ep", GatewayClient.path(3, 0, 9));
+            fail("expected the unchecked failure");
+        } catch (IllegalStateException expected) {
+            // Abandoned, not failed: the open period is not extended.
+        }
+        assertEquals(ServerHealth.State.OPEN, health.state());
+        assertEquals(0L, health.admit(System.nanoTime()));
+        assertEquals(ServerHealth.State.HALF_OPEN, health.state());
+    }
+}
@@ -0,0 +1,155 @@
+package ai.edgez.controller.net;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IoSchedulerTest {
+
+    private static final int WORKERS = 4;
+
+    private final IoScheduler io = new IoScheduler(WORKERS);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        io.shutdown();
+    }
+
+    /** Submits {@code n} tasks that hold their worker until {@link #release}; counts those started. */
+    private List<Future<?>> block(IoScheduler.Group group, IoScheduler.Lane lane, int n, AtomicInteger started) {
+        List<Future<?>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(group.execute(lane, () -> {
+                started.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        return out;
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, count.get());
+    }
+
+    @Test
+    public void lowerLanesLeaveWorkersForHigherOnes() throws Exception {
+        IoScheduler.Group group = io.group(Runnable::run);
+        AtomicInteger background = new AtomicInteger();
+        AtomicInteger visible = new AtomicInteger();
+        AtomicInteger interactive = new AtomicInteger();
+
+        block(group, IoScheduler.Lane.BACKGROUND, 10, background);
+        awaitCount(background, WORKERS / 2);
+        block(group, IoScheduler.Lane.VISIBLE, 10, visible);
+        awaitCount(visible, WORKERS - 1 - WORKERS / 2);
+        block(group, IoScheduler.Lane.INTERACTIVE, 10, interactive);
+        awaitCount(interactive, 1);
+
+        Thread.sleep(50);
+        assertEquals(WORKERS / 2, background.get());
+        assertEquals(WORKERS - 1 - WORKERS / 2, visible.get());
+        assertEquals(1, interactive.get());
+    }
+
+    @Test
+    public void aFreedWorkerTakesTheHighestLaneFirst() throws Exception {
+        IoScheduler.Group group = io.group(Runnable::run);
+        Semaphore hold = new Semaphore(0);
+        CountDownLatch running = new CountDownLatch(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            group.execute(IoScheduler.Lane.INTERACTIVE, () -> {
+                running.countDown();
+                hold.acquireUninterruptibly();
+            });
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        List<IoScheduler.Lane> order = new CopyOnWriteArrayList<>();
+        List<Future<?>> queued = new ArrayList<>();
+        for (IoScheduler.Lane lane : new IoScheduler.Lane[] {
+                IoScheduler.Lane.BACKGROUND, IoScheduler.Lane.VISIBLE, IoScheduler.Lane.INTERACTIVE}) {
+            queued.add(group.execute(lane, () -> order.add(lane)));
+        }
+        // One worker comes free and runs the queue alone, in lane order rather than arrival order.
+        hold.release();
+        for (Future<?> f : queued) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(Arrays.asList(IoScheduler.Lane.INTERACTIVE, IoScheduler.Lane.VISIBLE,
+                IoScheduler.Lane.BACKGROUND), order);
+        hold.release(WORKERS - 1);
+    }
+
+    @Test
+    public void cancel_dropsQueuedTasksInterruptsRunningOnesAndDiscardsPosts() throws Exception {
+        IoScheduler.Group group = io.group(Runnable::run);
+        AtomicInteger started = new AtomicInteger();
+        List<Future<?>> tasks = block(group, IoScheduler.Lane.BACKGROUND, 6, started);
+        awaitCount(started, WORKERS / 2);
+
+        AtomicInteger posted = new AtomicInteger();
+        group.cancel();
+        group.post(posted::incrementAndGet);
+        assertTrue(group.isCancelled());
+        for (Future<?> f : tasks) {
+            assertTrue(f.isCancelled());
+        }
+        Future<?> late = group.execute(IoScheduler.Lane.INTERACTIVE, posted::incrementAndGet);
+        try {
+            late.get(5, TimeUnit.SECONDS);
+            fail("a cancelled group runs nothing new");
+        } catch (CancellationException expected) {
+            // Never queued.
+        }
+
+        // The interrupted workers are free again for other groups.
+        IoScheduler.Group other = io.group(Runnable::run);
+        AtomicInteger ran = new AtomicInteger();
+        List<Future<?>> next = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            next.add(other.execute(IoScheduler.Lane.BACKGROUND, ran::incrementAndGet));
+        }
+        for (Future<?> f : next) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(WORKERS, ran.get());
+        assertEquals(WORKERS / 2, started.get());
+        assertEquals(0, posted.get());
+    }
+
+    @Test
+    public void post_runsOnTheGroupExecutorUntilCancelled() {
+        List<Runnable> ui = new ArrayList<>();
+        IoScheduler.Group group = io.group(ui::add);
+        AtomicInteger posted = new AtomicInteger();
+        group.post(posted::incrementAndGet);
+        group.post(posted::incrementAndGet);
+        assertEquals(0, posted.get());
+        ui.get(0).run();
+        group.cancel();
+        ui.get(1).run();
+        assertEquals(1, posted.get());
+    }
+}
@@ -0,0 +1,159 @@
+package ai.edgez.controller.net;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ai.edgez.controller.metrics.NetworkProbe;
+
+import static org.junit.Assert.*;
+
+public class ResourceUploadTest {
+
+    /** Reads each PUT body whole; the first {@code failures} attempts break off after 1000 bytes. */
+    private static class FakeClient extends GatewayClient {
+        final List<byte[]> bodies = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+        int failures;
+        int code = 204;
+
+        FakeClient() {
+            super(new NetworkProbe());
+        }
+
+        @Override
+        public Response writeStream(String host, String endpoint, String path, String contentType,
+                                    InputStream body, long length) throws IOException {
+            assertEquals(TlvEncoder.CONTENT_TYPE, contentType);
+            paths.add(path);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[512];
+            while (out.size() < length) {
+                int n = body.read(buffer, 0, (int) Math.min(buffer.length, length - out.size()));
+                if (n < 0) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+                if (failures > 0 && out.size() >= 1000) {
+                    failures--;
+                    throw new IOException("connection reset");
+                }
+            }
+            assertEquals(length, out.size());
+            bodies.add(out.toByteArray());
+            return new Response(code, "");
+        }
+    }
+
+    private static ResourceUpload.Source source(byte[] value) {
+        return new ResourceUpload.Source() {
+            @Override
+            public long length() {
+                return value.length;
+            }
+
+            @Override
+            public InputStream open() {
+                return new ByteArrayInputStream(value);
+            }
+        };
+    }
+
+    private static byte[] image(int length) {
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) (i * 31);
+        }
+        return value;
+    }
+
+    @Test
+    public void run_sendsOneTlvRecordInASinglePut() throws Exception {
+        FakeClient client = new FakeClient();
+        byte[] value = image(200_000);
+        List<Long> progress = new ArrayList<>();
+        ResourceUpload upload = new ResourceUpload(client, "10.0.0.1", "node-1", 5, 0, 0, source(value));
+
+        GatewayClient.Response response = upload.run((sent, total, bytesPerSecond) -> {
+            assertEquals(value.length, total);
+            progress.add(sent);
+        });
+
+        assertEquals(204, response.code);
+        assertEquals(Arrays.asList("/5/0/0"), client.paths);
+        assertArrayEquals(TlvEncoder.record(0, value), client.bodies.get(0));
+        assertEquals(value.length, upload.sent());
+        assertEquals(Long.valueOf(value.length), progress.get(progress.size() - 1));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void run_retriesAFailedAttemptFromTheFirstByte() throws Exception {
+        FakeClient client = new FakeClient();
+        client.failures = 1;
+        byte[] value = image(5_000);
+        List<Long> progress = new ArrayList<>();
+        ResourceUpload upload = new ResourceUpload(client, "10.0.0.1", "node-1", 5, 0, 0, source(value));
+
+        assertEquals(204, upload.run((sent, total, bytesPerSecond) -> progress.add(sent)).code);
+        assertEquals(1, client.bodies.size());
+        assertArrayEquals(TlvEncoder.record(0, value), client.bodies.get(0));
+        assertEquals(Long.valueOf(value.length), progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void run_doesNotRetryARejectedWrite() throws Exception {
+        FakeClient client = new FakeClient();
+        client.code = 400;
+        ResourceUpload upload = new ResourceUpload(client, "10.0.0.1", "node-1", 5, 0, 0, source(image(100)));
+        try {
+            upload.run(null);
+            fail("a rejected write is an error");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("400"));
+        }
+        assertEquals(1, client.paths.size());
+    }
+
+    @Test
+    public void cancel_abortsTheWriteInFlight() throws Exception {
+        FakeClient client = new FakeClient();
+        ResourceUpload[] upload = new ResourceUpload[1];
+        upload[0] = new ResourceUpload(client, "10.0.0.1", "node-1", 5, 0, 0, source(image(300_000)));
+
+        assertNull(upload[0].run((sent, total, bytesPerSecond) -> upload[0].cancel()));
+        assertTrue(client.bodies.isEmpty());
+        assertEquals(1, client.paths.size());
+    }
+
+    @Test
+    public void run_rejectsValuesTooLongForOneRecord() throws Exception {
+        FakeClient client = new FakeClient();
+        ResourceUpload upload = new ResourceUpload(client, "10.0.0.1", "node-1", 5, 0, 0,
+                new ResourceUpload.Source() {
+                    @Override
+                    public long length() {
+                        return TlvEncoder.MAX_VALUE_BYTES + 1L;
+                    }
+
+                    @Override
+                    public InputStream open() {
+                        throw new AssertionError("nothing is sent");
+                    }
+                });
+        try {
+            upload.run(null);
+            fail("too long");
+        } catch (IOException expected) {
+            assertTrue(client.paths.isEmpty());
+        }
+    }
+}
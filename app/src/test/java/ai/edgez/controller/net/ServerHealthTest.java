@@ -0,0 +1,107 @@
+package ai.edgez.controller.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ServerHealthTest {
+
+    private static final long MS = 1_000_000L;
+    private static final String READ = GatewayClient.EP_READ;
+
+    private static ServerHealth opened(long now) {
+        ServerHealth health = new ServerHealth("gw");
+        for (int i = 0; i < ServerHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(now);
+        }
+        return health;
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresOnly() {
+        ServerHealth health = new ServerHealth("gw");
+        for (int i = 1; i < ServerHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(0L);
+        }
+        health.onSuccess(READ, 1_000_000L, 1_000_000L);
+        for (int i = 1; i < ServerHealth.FAILURE_THRESHOLD; i++) {
+            health.onFailure(0L);
+        }
+        assertEquals(ServerHealth.State.CLOSED, health.state());
+        assertEquals(0L, health.admit(0L));
+
+        health.onFailure(0L);
+        assertEquals(ServerHealth.State.OPEN, health.state());
+        assertEquals(ServerHealth.MIN_OPEN_MS, health.admit(0L));
+        assertEquals(500L, health.admit((ServerHealth.MIN_OPEN_MS - 500L) * MS));
+    }
+
+    @Test
+    public void halfOpen_admitsOneProbe() {
+        ServerHealth health = opened(0L);
+        long later = ServerHealth.MIN_OPEN_MS * MS;
+        assertEquals(0L, health.admit(later));
+        assertEquals(ServerHealth.State.HALF_OPEN, health.state());
+        assertTrue(health.admit(later) > 0);
+        assertTrue(health.admit(later + 10 * ServerHealth.MAX_OPEN_MS * MS) > 0);
+
+        health.onReachable();
+        assertEquals(ServerHealth.State.CLOSED, health.state());
+        assertEquals(0L, health.admit(later));
+    }
+
+    @Test
+    public void failedProbes_doubleTheOpenPeriodUpToTheCap() {
+        long now = 0L;
+        ServerHealth health = opened(now);
+        long openMs = ServerHealth.MIN_OPEN_MS;
+        for (int i = 0; i < 10; i++) {
+            now += openMs * MS;
+            assertEquals(0L, health.admit(now));
+            health.onFailure(now);
+            openMs = Math.min(ServerHealth.MAX_OPEN_MS, openMs * 2);
+            assertEquals(ServerHealth.State.OPEN, health.state());
+            assertEquals(openMs, health.admit(now));
+        }
+        assertEquals(ServerHealth.MAX_OPEN_MS, openMs);
+
+        now += openMs * MS;
+        health.admit(now);
+        health.onReachable();
+        health.onFailure(now);
+        health.onFailure(now);
+        health.onFailure(now);
+        assertEquals(ServerHealth.MIN_OPEN_MS, health.admit(now));
+    }
+
+    @Test
+    public void abandonedProbe_reopensWithoutBackoff() {
+        ServerHealth health = opened(0L);
+        long later = ServerHealth.MIN_OPEN_MS * MS;
+        health.admit(later);
+        health.onAbandoned();
+        assertEquals(ServerHealth.State.OPEN, health.state());
+        assertEquals(0L, health.admit(later));
+    }
+
+    @Test
+    public void timeouts_followRecentLatencyWithinBounds() {
+        ServerHealth health = new ServerHealth("gw");
+        assertEquals(ServerHealth.MAX_TIMEOUT_MS, health.connectTimeoutMs());
+        assertEquals(ServerHealth.MAX_TIMEOUT_MS, health.readTimeoutMs(READ));
+
+        for (int i = 0; i < 64; i++) {
+            health.onSuccess(READ, 10 * MS, 500 * MS);
+        }
+        // Three times the p99 plus the margin, within the histogram's precision.
+        int read = health.readTimeoutMs(READ);
+        assertTrue("read timeout " + read, read >= 1_750 && read <= 1_750 + 3 * 500 / 16);
+        assertEquals(500, health.connectTimeoutMs());
+        assertEquals(ServerHealth.MAX_TIMEOUT_MS, health.readTimeoutMs(GatewayClient.EP_CLIENTS));
+
+        for (int i = 0; i < 512; i++) {
+            health.onSuccess(READ, 10 * MS, 60_000 * MS);
+        }
+        assertEquals(ServerHealth.MAX_TIMEOUT_MS, health.readTimeoutMs(READ));
+    }
+}
@@ -0,0 +1,133 @@
+package ai.edgez.controller.net;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private static final GatewayClient.Response OK = new GatewayClient.Response(200, "ok");
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("not released");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    public void concurrentCallers_shareOneRequest() throws Exception {
+        SingleFlight flights = new SingleFlight(0L);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<GatewayClient.Response> leader = pool.submit(() -> flights.execute("k", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return OK;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<GatewayClient.Response>> waiters = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                waiters.add(pool.submit(() -> flights.execute("k", () -> {
+                    calls.incrementAndGet();
+                    return new GatewayClient.Response(200, "second");
+                })));
+            }
+            // Give the waiters time to join the flight before it lands.
+            Thread.sleep(100);
+            release.countDown();
+            assertSame(OK, leader.get(5, TimeUnit.SECONDS));
+            for (Future<GatewayClient.Response> w : waiters) {
+                assertSame(OK, w.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void successIsReusedWithinTheFreshnessWindowOnly() throws IOException {
+        SingleFlight flights = new SingleFlight(60_000L);
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight.Call call = () -> {
+            calls.incrementAndGet();
+            return OK;
+        };
+        flights.execute("k", call);
+        flights.execute("k", call);
+        assertEquals(1, calls.get());
+        flights.execute("other", call);
+        assertEquals(2, calls.get());
+
+        flights.invalidate("k");
+        flights.execute("k", call);
+        assertEquals(3, calls.get());
+
+        flights.setFreshMs(0L);
+        flights.execute("k", call);
+        flights.execute("k", call);
+        assertEquals(5, calls.get());
+    }
+
+    @Test
+    public void errorResponsesAreNotReused() throws IOException {
+        SingleFlight flights = new SingleFlight(60_000L);
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight.Call call = () -> new GatewayClient.Response(calls.incrementAndGet() == 1 ? 503 : 200, "");
+        assertEquals(503, flights.execute("k", call).code);
+        assertEquals(200, flights.execute("k", call).code);
+        assertEquals(200, flights.execute("k", call).code);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void failureReachesEveryWaiterAndIsNotCached() throws Exception {
+        SingleFlight flights = new SingleFlight(60_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<GatewayClient.Response> leader = pool.submit(() -> flights.execute("k", () -> {
+                started.countDown();
+                await(release);
+                throw new IOException("refused");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<GatewayClient.Response> waiter = pool.submit(() -> flights.execute("k", () -> OK));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<GatewayClient.Response> f : Arrays.asList(leader, waiter)) {
+                try {
+                    f.get(5, TimeUnit.SECONDS);
+                    fail("expected the shared failure");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IOException);
+                    assertEquals("refused", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertSame(OK, flights.execute("k", () -> OK));
+    }
+}
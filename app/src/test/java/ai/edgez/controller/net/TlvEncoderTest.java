@@ -0,0 +1,165 @@
+package ai.edgez.controller.net;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import ai.edgez.controller.model.RangeEnumeration;
+import ai.edgez.controller.model.ResourceDef;
+
+import static org.junit.Assert.*;
+
+public class TlvEncoderTest {
+
+    private static ResourceDef def(int id, String type, String range) {
+        return new ResourceDef(id, "r" + id, "RW", type, range);
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] out = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = (byte) values[i];
+        }
+        return out;
+    }
+
+    private static void assertRejected(ResourceDef def, String input) {
+        try {
+            TlvEncoder.encode(def, input);
+            fail("accepted " + input + " for " + def.type + " " + def.rangeEnumeration);
+        } catch (IllegalArgumentException expected) {
+            assertNotNull(expected.getMessage());
+        }
+    }
+
+    @Test
+    public void record_usesTheShortestIdentifierAndLengthFields() {
+        assertArrayEquals(bytes(0xc1, 5, 0x2a), TlvEncoder.record(5, bytes(0x2a)));
+        assertArrayEquals(bytes(0xc0, 5), TlvEncoder.record(5, new byte[0]));
+
+        byte[] wide = TlvEncoder.record(5700, bytes(1));
+        assertArrayEquals(bytes(0xe1, 0x16, 0x44, 1), wide);
+
+        byte[] eight = TlvEncoder.record(1, new byte[8]);
+        assertEquals(0xc8, eight[0] & 0xff);
+        assertEquals(8, eight[2]);
+        assertEquals(3 + 8, eight.length);
+
+        byte[] twoByteLength = TlvEncoder.record(1, new byte[256]);
+        assertArrayEquals(bytes(0xd0, 1, 1, 0), Arrays.copyOf(twoByteLength, 4));
+
+        byte[] threeByteLength = TlvEncoder.record(300, new byte[0x10000]);
+        assertArrayEquals(bytes(0xf8, 1, 0x2c, 1, 0, 0), Arrays.copyOf(threeByteLength, 6));
+        assertEquals(6 + 0x10000, threeByteLength.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void record_rejectsIdsBeyondSixteenBits() {
+        TlvEncoder.record(0x10000, bytes(1));
+    }
+
+    @Test
+    public void integer_picksTheSmallestSignedWidth() {
+        assertArrayEquals(bytes(0x7f), TlvEncoder.integer(127));
+        assertArrayEquals(bytes(0x80), TlvEncoder.integer(-128));
+        assertArrayEquals(bytes(0x00, 0x80), TlvEncoder.integer(128));
+        assertArrayEquals(bytes(0x80, 0x00), TlvEncoder.integer(Short.MIN_VALUE));
+        assertArrayEquals(bytes(0x00, 0x00, 0x80, 0x00), TlvEncoder.integer(32768));
+        assertEquals(8, TlvEncoder.integer(1L << 31).length);
+        assertEquals(8, TlvEncoder.integer(Long.MIN_VALUE).length);
+    }
+
+    @Test
+    public void floatingPoint_usesFourBytesOnlyWhenExact() {
+        assertArrayEquals(bytes(0x3f, 0xc0, 0, 0), TlvEncoder.floatingPoint(1.5));
+        assertEquals(4, TlvEncoder.floatingPoint(Double.NaN).length);
+        assertEquals(4, TlvEncoder.floatingPoint(Double.POSITIVE_INFINITY).length);
+        byte[] tenth = TlvEncoder.floatingPoint(0.1);
+        assertEquals(8, tenth.length);
+        assertEquals(Double.doubleToLongBits(0.1), ByteBuffer.wrap(tenth).getLong());
+    }
+
+    @Test
+    public void encode_sizesUnsignedValuesAsUnsigned() {
+        ResourceDef u = def(1, "Unsigned Integer", "");
+        assertArrayEquals(bytes(0xc1, 1, 0xff), TlvEncoder.encode(u, "255"));
+        assertArrayEquals(bytes(0xc2, 1, 0xff, 0xff), TlvEncoder.encode(u, "65535"));
+        assertArrayEquals(bytes(0xc4, 1, 0xff, 0xff, 0xff, 0xff), TlvEncoder.encode(u, "4294967295"));
+        byte[] max = TlvEncoder.encode(u, "18446744073709551615");
+        assertEquals(0xc8, max[0] & 0xff);
+        for (int i = 3; i < max.length; i++) {
+            assertEquals(-1, max[i]);
+        }
+        assertRejected(u, "-1");
+        assertRejected(u, "18446744073709551616");
+        assertRejected(u, "1.5");
+    }
+
+    @Test
+    public void encode_typesEachInput() {
+        assertArrayEquals(bytes(0xc1, 2, 0xfb), TlvEncoder.encode(def(2, "Integer", ""), " -5 "));
+        assertArrayEquals(bytes(0xc1, 3, 1), TlvEncoder.encode(def(3, "Boolean", ""), "TRUE"));
+        assertArrayEquals(bytes(0xc4, 4, 0, 1, 0, 2), TlvEncoder.encode(def(4, "Objlnk", ""), "1:2"));
+        assertArrayEquals(bytes(0xc3, 6, 0xde, 0xad, 0x01), TlvEncoder.encode(def(6, "Opaque", ""), "0xDE AD 01"));
+        assertArrayEquals(bytes(0xc2, 7, 'h', 'i'), TlvEncoder.encode(def(7, "String", ""), "hi"));
+        assertArrayEquals(TlvEncoder.encode(def(8, "Time", ""), "0"),
+                TlvEncoder.encode(def(8, "Time", ""), "1970-01-01T00:00:00Z"));
+
+        assertRejected(def(2, "Integer", ""), "1.5");
+        assertRejected(def(2, "Integer", ""), "");
+        assertRejected(def(3, "Boolean", ""), "yes");
+        assertRejected(def(4, "Objlnk", ""), "1:70000");
+        assertRejected(def(6, "Opaque", ""), "abc");
+        assertRejected(def(6, "Opaque", ""), "zz");
+        assertRejected(def(8, "Time", ""), "yesterday");
+    }
+
+    @Test
+    public void encode_enforcesValueRangesAndLengths() {
+        ResourceDef percent = def(1, "Integer", "0..100");
+        TlvEncoder.encode(percent, "0");
+        TlvEncoder.encode(percent, "100");
+        assertRejected(percent, "101");
+        assertRejected(percent, "-1");
+
+        ResourceDef level = def(2, "Float", "-1.5..1.5");
+        TlvEncoder.encode(level, "1.5");
+        assertRejected(level, "1.51");
+
+        ResourceDef key = def(3, "Opaque", "16 bytes");
+        TlvEncoder.encode(key, "00112233445566778899aabbccddeeff");
+        assertRejected(key, "00112233445566778899aabbccddeeff00");
+
+        ResourceDef name = def(4, "String", "1..4 bytes");
+        TlvEncoder.encode(name, "abcd");
+        assertRejected(name, "");
+        assertRejected(name, "abcde");
+        // Length is counted in UTF-8 bytes, not characters.
+        assertRejected(name, "\u00e9\u00e9\u00e9");
+    }
+
+    @Test
+    public void rangeEnumeration_parsesIntervalsListsAndLengths() {
+        RangeEnumeration list = RangeEnumeration.parse("10, 26 or 0..3");
+        assertFalse(list.lengthInBytes);
+        assertTrue(list.accepts(BigDecimal.valueOf(26)));
+        assertTrue(list.accepts(new BigDecimal("2.5")));
+        assertFalse(list.accepts(BigDecimal.valueOf(11)));
+
+        RangeEnumeration max = RangeEnumeration.parse("32 Bytes");
+        assertTrue(max.lengthInBytes);
+        assertTrue(max.acceptsLength(0));
+        assertTrue(max.acceptsLength(32));
+        assertFalse(max.acceptsLength(33));
+
+        assertNull(RangeEnumeration.parse(null));
+        assertNull(RangeEnumeration.parse(" "));
+        assertNull(RangeEnumeration.parse("255"));
+        assertNull(RangeEnumeration.parse("8 bit"));
+        assertNull(RangeEnumeration.parse("0..2^32-1"));
+        assertNull(def(1, "Integer", "8 bit").range());
+        TlvEncoder.encode(def(1, "Integer", "8 bit"), "100000");
+    }
+}
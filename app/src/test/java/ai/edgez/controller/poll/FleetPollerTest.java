@@ -0,0 +1,133 @@
+package ai.edgez.controller.poll;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.data.ResourceValueCache;
+import ai.edgez.controller.data.TimeSeriesStore;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+
+import static org.junit.Assert.*;
+
+public class FleetPollerTest {
+
+    private static final long WAIT_MS = 5_000L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private FleetPoller poller;
+
+    @After
+    public void tearDown() {
+        if (poller != null) {
+            poller.stop();
+        }
+    }
+
+    /** Counts reads; each one waits for {@link #release} if it is set. */
+    private static final class FakeClient extends GatewayClient {
+        final AtomicInteger reads = new AtomicInteger();
+        volatile CountDownLatch release;
+
+        FakeClient() {
+            super(new NetworkProbe());
+        }
+
+        @Override
+        public Response read(String host, String endpoint, String path) throws IOException {
+            reads.incrementAndGet();
+            CountDownLatch latch = release;
+            try {
+                if (latch != null && !latch.await(WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("never released");
+                }
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            }
+            return new Response(200, "{\"content\":{\"value\":1}}");
+        }
+    }
+
+    /** No start jitter and no spread within a cycle, so cycles run exactly one interval apart. */
+    private static final class NoJitter extends Random {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public double nextDouble() {
+            return 0d;
+        }
+    }
+
+    private FleetPoller start(FakeClient client, FleetPoller.Config config) {
+        DeviceRegistry registry = new DeviceRegistry();
+        registry.putDevices("gw", Collections.singletonList(new DeviceRegistry.Device("node-1", "10.0.0.1", 5683)));
+        ResourceValueCache cache = new ResourceValueCache(new TimeSeriesStore(tmp.getRoot()));
+        poller = new FleetPoller(client, registry, cache, null, new NoJitter());
+        config.intervalMs = 1_000L;
+        config.jitter = 0d;
+        config.refreshClients = false;
+        poller.start(config);
+        return poller;
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out waiting for " + what);
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+    @Test
+    public void submit_coalescesAReadStillInFlightUntilItFinishes() throws Exception {
+        FakeClient client = new FakeClient();
+        CountDownLatch release = new CountDownLatch(1);
+        client.release = release;
+        FleetPoller.Config config = new FleetPoller.Config();
+        config.paths = Collections.singletonList("/3/0/9");
+        FleetPoller.Stats stats = start(client, config).stats();
+
+        // The second cycle finds the first read still pending and does not issue another.
+        await("a coalesced read", () -> stats.coalesced.get() >= 1);
+        assertEquals(1, client.reads.get());
+
+        client.release = null;
+        release.countDown();
+        await("a second read", () -> client.reads.get() >= 2);
+        assertEquals(0, stats.failures.get());
+    }
+
+    @Test
+    public void attempt_throttlesPastTheBurstAndKeepsTheThrottledReadPending() throws Exception {
+        FakeClient client = new FakeClient();
+        FleetPoller.Config config = new FleetPoller.Config();
+        config.paths = Arrays.asList("/3/0/9", "/3/0/10");
+        config.requestsPerSecondPerServer = 0.01d;
+        config.burstPerServer = 1;
+        FleetPoller.Stats stats = start(client, config).stats();
+
+        // The first read spends the burst; the second waits 100 s for its slot.
+        await("a throttled read", () -> stats.throttled.get() == 1 && client.reads.get() == 1);
+
+        // Next cycle: the finished read is throttled again, the waiting one is coalesced.
+        await("a coalesced read", () -> stats.coalesced.get() >= 1);
+        assertEquals(1, client.reads.get());
+        assertEquals(2, stats.throttled.get());
+    }
+}
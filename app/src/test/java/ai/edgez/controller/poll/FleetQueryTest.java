@@ -0,0 +1,163 @@
+package ai.edgez.controller.poll;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import ai.edgez.controller.data.DeviceRegistry;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.net.GatewayClient;
+import ai.edgez.controller.net.IoScheduler;
+
+import static org.junit.Assert.*;
+
+public class FleetQueryTest {
+
+    private final IoScheduler io = new IoScheduler(6);
+
+    @After
+    public void tearDown() {
+        io.shutdown();
+    }
+
+    /** Answers every read after {@code delayMs}, failing for endpoints that start with "bad". */
+    private static final class FakeClient extends GatewayClient {
+        final long delayMs;
+        final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        final Map<String, Integer> maxInFlight = new ConcurrentHashMap<>();
+
+        FakeClient(long delayMs) {
+            super(new NetworkProbe());
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public Response read(String host, String endpoint, String path) throws IOException {
+            int n = inFlight.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.merge(host, n, Math::max);
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            } finally {
+                inFlight.get(host).decrementAndGet();
+            }
+            if (endpoint.startsWith("bad")) {
+                throw new IOException("refused");
+            }
+            return new Response(200, "{\"content\":{\"value\":" + endpoint.length() + "}}");
+        }
+    }
+
+    private static final class Collector implements FleetQuery.Listener {
+        final List<FleetQuery.Result> results = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile FleetQuery.Summary summary;
+
+        @Override
+        public synchronized void onResult(FleetQuery.Result result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onComplete(FleetQuery.Summary summary) {
+            this.summary = summary;
+            done.countDown();
+        }
+
+        synchronized int count(FleetQuery.Status status) {
+            int n = 0;
+            for (FleetQuery.Result r : results) {
+                if (r.status == status) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    private static List<DeviceRegistry.Device> fleet(int gateways, int perGateway) {
+        List<DeviceRegistry.Device> out = new ArrayList<>();
+        for (int g = 0; g < gateways; g++) {
+            for (int i = 0; i < perGateway; i++) {
+                out.add(new DeviceRegistry.Device((i % 5 == 0 ? "bad-" : "node-") + g + "-" + i, "10.0.0." + g, 5683));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void selector_isACaseInsensitiveGlob() {
+        Pattern all = FleetQuery.selector("");
+        assertTrue(all.matcher("").matches());
+        assertTrue(all.matcher("anything").matches());
+
+        Pattern p = FleetQuery.selector("Sensor-*-a");
+        assertTrue(p.matcher("sensor-12-A").matches());
+        assertTrue(p.matcher("sensor--a").matches());
+        assertFalse(p.matcher("sensor-12-ab").matches());
+        assertFalse(p.matcher("x-sensor-1-a").matches());
+
+        // Everything but * is literal.
+        Pattern literal = FleetQuery.selector("a.b+(c)");
+        assertTrue(literal.matcher("a.b+(c)").matches());
+        assertFalse(literal.matcher("axb+(c)").matches());
+        assertTrue(FleetQuery.selector("*node*").matcher("my-node-7").matches());
+        assertTrue(FleetQuery.selector("*").matcher("x").matches());
+    }
+
+    @Test
+    public void readsEverySelectedDeviceWithinThePerServerLimit() throws Exception {
+        FakeClient client = new FakeClient(5);
+        FleetQuery query = new FleetQuery(client, null, io);
+        FleetQuery.Config config = new FleetQuery.Config();
+        config.path = "/3/0/9";
+        config.perServer = 2;
+        Collector collector = new Collector();
+
+        assertEquals(60, query.start(fleet(3, 20), config, collector));
+        assertTrue(collector.done.await(10, TimeUnit.SECONDS));
+        FleetQuery.Summary s = collector.summary;
+        assertEquals(60, s.devices);
+        assertEquals(48, s.ok);
+        assertEquals(12, s.errors);
+        assertEquals(0, s.timedOut);
+        assertEquals(60, collector.results.size());
+        for (int max : client.maxInFlight.values()) {
+            assertTrue("in flight " + max, max <= 2);
+        }
+    }
+
+    @Test
+    public void deadline_reportsUnansweredDevicesAsTimedOut() throws Exception {
+        FleetQuery query = new FleetQuery(new FakeClient(60_000), null, io);
+        FleetQuery.Config config = new FleetQuery.Config();
+        config.path = "/3/0/9";
+        config.selector = "node-*";
+        config.deadlineMs = 200;
+        Collector collector = new Collector();
+
+        int selected = query.start(fleet(2, 10), config, collector);
+        assertEquals(16, selected);
+        assertTrue(collector.done.await(5, TimeUnit.SECONDS));
+        assertEquals(selected, collector.summary.timedOut);
+        assertEquals(selected, collector.count(FleetQuery.Status.TIMED_OUT));
+
+        // The abandoned reads were interrupted, so the workers are free for the next query.
+        Collector next = new Collector();
+        FleetQuery quick = new FleetQuery(new FakeClient(1), null, io);
+        config.deadlineMs = 5_000;
+        quick.start(fleet(1, 4), config, next);
+        assertTrue(next.done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, next.summary.ok);
+    }
+}
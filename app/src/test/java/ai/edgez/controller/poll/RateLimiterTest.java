@@ -0,0 +1,57 @@
+package ai.edgez.controller.poll;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    // The rate is held as a double per nanosecond, so slots may round up by a nanosecond.
+    private static final double ROUNDING_NANOS = 1d;
+
+    @Test
+    public void reserve_spendsTheBurstThenHandsEachWaiterItsOwnSlot() {
+        RateLimiter limiter = new RateLimiter(2d, 3, 0L);
+
+        assertEquals(0L, limiter.reserve(0L));
+        assertEquals(0L, limiter.reserve(0L));
+        assertEquals(0L, limiter.reserve(0L));
+        // The bucket goes negative: each reservation waits one more interval than the last.
+        assertEquals(SECOND / 2, limiter.reserve(0L), ROUNDING_NANOS);
+        assertEquals(SECOND, limiter.reserve(0L), ROUNDING_NANOS);
+        assertEquals(3 * SECOND / 2, limiter.reserve(0L), ROUNDING_NANOS);
+    }
+
+    @Test
+    public void reserve_countsOutstandingReservationsAgainstTheRefill() {
+        RateLimiter limiter = new RateLimiter(2d, 1, 0L);
+        assertEquals(0L, limiter.reserve(0L));
+        assertEquals(SECOND / 2, limiter.reserve(0L), ROUNDING_NANOS);
+
+        // Half a second refills the token already promised at 0.5 s, so this one gets 1 s.
+        assertEquals(SECOND / 2, limiter.reserve(SECOND / 2), ROUNDING_NANOS);
+        // A quarter second later the next free slot is 1.5 s, behind the one at 1 s.
+        assertEquals(3 * SECOND / 4, limiter.reserve(3 * SECOND / 4), ROUNDING_NANOS);
+        // By 3 s every slot has passed and the bucket is back above zero.
+        assertEquals(0L, limiter.reserve(3 * SECOND));
+    }
+
+    @Test
+    public void reserve_capsAnIdleRefillAtTheBurst() {
+        RateLimiter limiter = new RateLimiter(10d, 2, 0L);
+
+        long later = 60 * SECOND;
+        assertEquals(0L, limiter.reserve(later));
+        assertEquals(0L, limiter.reserve(later));
+        assertEquals(SECOND / 10, limiter.reserve(later), ROUNDING_NANOS);
+    }
+
+    @Test
+    public void reserve_treatsABurstBelowOneAsOne() {
+        RateLimiter limiter = new RateLimiter(1d, 0, 0L);
+
+        assertEquals(0L, limiter.reserve(0L));
+        assertEquals(SECOND, limiter.reserve(0L), ROUNDING_NANOS);
+    }
+}
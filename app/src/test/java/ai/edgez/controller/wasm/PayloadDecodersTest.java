@@ -0,0 +1,91 @@
+package ai.edgez.controller.wasm;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PayloadDecodersTest {
+
+    /** Guest output as {@code [u32 len][bytes]} records; a null text writes the failure marker. */
+    private static byte[] output(String... texts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String text : texts) {
+            byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+            int length = text == null ? -1 : bytes.length;
+            for (int shift = 0; shift < 32; shift += 8) {
+                out.write(length >>> shift);
+            }
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Map<String, String>> unpack(byte[] out, int written, int count) {
+        List<Map<String, String>> results = new ArrayList<>();
+        PayloadDecoders.unpack(out, written, count, results);
+        assertEquals(count, results.size());
+        return results;
+    }
+
+    @Test
+    public void unpack_parsesNameValueLinesPerRecord() {
+        byte[] out = output("temp = 21.5\nunit=C\n", "\n\nnote=a=b\nno value line\n=x\nname=caf\u00e9");
+        List<Map<String, String>> results = unpack(out, out.length, 2);
+
+        assertEquals("21.5", results.get(0).get("temp"));
+        assertEquals("C", results.get(0).get("unit"));
+        assertEquals(2, results.get(0).size());
+        // Split at the first '='; lines without a name are skipped.
+        assertEquals("a=b", results.get(1).get("note"));
+        assertEquals("caf\u00e9", results.get(1).get("name"));
+        assertEquals(2, results.get(1).size());
+    }
+
+    @Test
+    public void unpack_keepsFailedRecordsInPlace() {
+        byte[] out = output("a=1", null, "c=3");
+        List<Map<String, String>> results = unpack(out, out.length, 3);
+        assertEquals("1", results.get(0).get("a"));
+        assertNull(results.get(1));
+        assertEquals("3", results.get(2).get("c"));
+    }
+
+    @Test
+    public void unpack_returnsNullForRecordsTheGuestDidNotWrite() {
+        byte[] out = output("a=1", "b=2");
+        List<Map<String, String>> results = unpack(out, out.length, 4);
+        assertEquals("2", results.get(1).get("b"));
+        assertNull(results.get(2));
+        assertNull(results.get(3));
+
+        // Only what the guest reported as written counts, even if the buffer holds more.
+        results = unpack(out, 4 + 3, 2);
+        assertEquals("1", results.get(0).get("a"));
+        assertNull(results.get(1));
+    }
+
+    @Test
+    public void unpack_stopsAtARecordThatOverrunsTheOutput() {
+        byte[] out = output("a=1", "b=2", "c=3");
+        // Claim the second record is far longer than what was written.
+        out[8] = 1;
+        List<Map<String, String>> results = unpack(out, out.length, 3);
+        assertEquals("1", results.get(0).get("a"));
+        assertNull(results.get(1));
+        assertNull(results.get(2));
+    }
+
+    @Test
+    public void unpack_acceptsEmptyRecords() {
+        byte[] out = output("", "k=v");
+        List<Map<String, String>> results = unpack(out, out.length, 2);
+        assertTrue(results.get(0).isEmpty());
+        assertEquals("v", results.get(1).get("k"));
+    }
+}
@@ -0,0 +1,44 @@
+package ai.edgez.controller.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Records the Baseline Profile for startup, the device list and top-level navigation. Run with
+ * {@code ./gradlew :app:generateBaselineProfile}; the result is written to
+ * {@code app/src/release/generated/baselineProfiles/} and should be committed.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(
+                Journeys.PACKAGE,
+                /* maxIterations= */ 15,
+                /* stableIterations= */ 3,
+                /* outputFilePrefix= */ null,
+                /* includeInStartupProfile= */ true,
+                /* strictStability= */ false,
+                /* filterPredicate= */ name -> true,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.awaitDeviceList(scope);
+                    Journeys.browseDevices(scope);
+                    Journeys.visitDestinations(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,60 @@
+package ai.edgez.controller.baselineprofile;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/** User journeys shared by the profile generator and the startup benchmark. */
+final class Journeys {
+
+    static final String PACKAGE = "ai.edgez.controller";
+    private static final long UI_TIMEOUT_MS = 5_000L;
+    /** Discovery needs a reachable gateway; without one the list stays empty. */
+    private static final long DEVICE_LIST_TIMEOUT_MS = 30_000L;
+
+    private Journeys() {
+    }
+
+    private static BySelector res(String id) {
+        return By.res(PACKAGE, id);
+    }
+
+    /** Waits until the device list has at least one row. Returns false on timeout. */
+    static boolean awaitDeviceList(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        return device.wait(Until.hasObject(res("recyclerview_transform").hasChild(By.depth(1))),
+                DEVICE_LIST_TIMEOUT_MS);
+    }
+
+    /** Scrolls the device list and opens the first device, if any, then returns. */
+    static void browseDevices(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = device.wait(Until.findObject(res("recyclerview_transform")), UI_TIMEOUT_MS);
+        if (list == null || list.getChildCount() == 0) {
+            return;
+        }
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        list.fling(Direction.DOWN);
+        list.fling(Direction.UP);
+        list.getChildren().get(0).click();
+        device.waitForIdle();
+        device.pressBack();
+        device.waitForIdle();
+    }
+
+    /** Visits every top-level destination through the bottom navigation (or drawer on wide screens). */
+    static void visitDestinations(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        for (String id : new String[] {"nav_reflow", "nav_diagnostics", "nav_transform"}) {
+            UiObject2 item = device.wait(Until.findObject(res(id)), UI_TIMEOUT_MS);
+            if (item != null) {
+                item.click();
+                device.waitForIdle();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import ai.edgez.build.ObjectModelSourcesTask
+import groovy.json.JsonSlurper
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Benchmarks run against the app's own sources for the packages that do not touch android.*,
+// so they measure exactly the code that ships.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "ai/edgez/controller/data/**",
+                "ai/edgez/controller/metrics/**",
+                "ai/edgez/controller/model/**",
+                "ai/edgez/controller/net/**",
+            )
+        }
+    }
+}
+
+dependencies {
+    // Provided by the platform on Android.
+    implementation(libs.org.json)
+}
+
+val modelSourcesDir = rootProject.file("app/src/main/models")
+val generateObjectModels = tasks.register<ObjectModelSourcesTask>("generateObjectModels") {
+    modelsDir.set(modelSourcesDir)
+    outputDir.set(layout.buildDirectory.dir("generated/source/objectModels"))
+}
+sourceSets.main { java.srcDir(generateObjectModels) }
+val baselineFile = file("baseline/jmh.json")
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    warmup.set("2s")
+    timeOnIteration.set("2s")
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResults)
+    jvmArgsAppend.add("-Dmodels.dir=${modelSourcesDir.absolutePath}")
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+}
+
+@Suppress("UNCHECKED_CAST")
+fun readScores(file: File): Map<String, Double> {
+    val runs = JsonSlurper().parse(file) as List<Map<String, Any>>
+    return runs.associate { run ->
+        val params = (run["params"] as Map<String, Any>?)
+            ?.entries?.sortedBy { it.key }?.joinToString(",", "[", "]") { "${it.key}=${it.value}" } ?: ""
+        val metric = run["primaryMetric"] as Map<String, Any>
+        "${run["benchmark"]}$params" to (metric["score"] as Number).toDouble()
+    }
+}
+
+// Copies the latest results over the committed baseline. Run on the reference machine only.
+tasks.register<Copy>("updateBenchmarkBaseline") {
+    group = "benchmark"
+    from(jmhResults)
+    into(baselineFile.parentFile)
+    rename { baselineFile.name }
+}
+
+// Fails when any benchmark is slower than its baseline by more than benchmark.maxRegression
+// (fraction, default 0.15). All benchmarks use average-time mode, so higher is worse.
+tasks.register("checkBenchmarkBaseline") {
+    group = "benchmark"
+    inputs.file(jmhResults)
+    doLast {
+        if (!baselineFile.exists()) {
+            logger.warn("No baseline at $baselineFile; run updateBenchmarkBaseline first")
+            return@doLast
+        }
+        val maxRegression = providers.gradleProperty("benchmark.maxRegression").orNull?.toDouble() ?: 0.15
+        val baseline = readScores(baselineFile)
+        val current = readScores(jmhResults.get().asFile)
+        val regressions = current.mapNotNull { (name, score) ->
+            val base = baseline[name] ?: return@mapNotNull null
+            val change = score / base - 1.0
+            if (change > maxRegression) "%s: %.3f -> %.3f (+%.0f%%)".format(name, base, score, change * 100) else null
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Benchmark regressions:\n" + regressions.joinToString("\n"))
+        }
+    }
+}
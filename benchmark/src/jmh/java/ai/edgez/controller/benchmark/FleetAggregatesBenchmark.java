@@ -0,0 +1,60 @@
+package ai.edgez.controller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ai.edgez.controller.data.FleetAggregates;
+
+/**
+ * Cost of one value arriving at {@link FleetAggregates}, which should not grow with the fleet, and
+ * of draining the aggregates changed in one frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FleetAggregatesBenchmark {
+
+    private static final String[] PATHS = {"/3303/0/5700", "/3304/0/5700", "/3/0/9", "/3/0/7", "/3316/0/5700"};
+
+    @Param({"100", "10000"})
+    public int devices;
+
+    private FleetAggregates aggregates;
+    private String[] endpoints;
+    private long i;
+
+    @Setup
+    public void fill() {
+        aggregates = new FleetAggregates();
+        endpoints = new String[devices];
+        for (int d = 0; d < devices; d++) {
+            endpoints[d] = "sensor-" + d;
+            for (String path : PATHS) {
+                aggregates.add(endpoints[d], path, d % 97, d);
+            }
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        long n = i++;
+        aggregates.add(endpoints[(int) (n % devices)], PATHS[(int) (n % PATHS.length)], n % 1013, n);
+    }
+
+    @Benchmark
+    public List<FleetAggregates.Snapshot> addAndDrainFrame() {
+        for (int k = 0; k < 16; k++) {
+            add();
+        }
+        return aggregates.drainChanged();
+    }
+}
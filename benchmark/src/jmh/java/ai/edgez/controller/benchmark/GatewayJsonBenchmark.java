@@ -0,0 +1,65 @@
+package ai.edgez.controller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import ai.edgez.controller.net.GatewayJson;
+
+/** Parses synthetic gateway responses shaped like {@code /api/clients} and {@code /api/clients/{ep}}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GatewayJsonBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int clients;
+
+    private String clientsBody;
+    private String linksBody;
+
+    @Setup
+    public void build() {
+        StringBuilder sb = new StringBuilder(clients * 160);
+        sb.append('[');
+        for (int i = 0; i < clients; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"endpoint\":\"sensor-").append(i)
+                    .append("\",\"registrationId\":\"r").append(Integer.toHexString(i * 7919))
+                    .append("\",\"address\":\"10.0.").append((i >> 8) & 0xff).append('.').append(i & 0xff)
+                    .append(":5683\",\"lifetime\":300,\"version\":\"1.1\",\"bindingMode\":\"U\"}");
+        }
+        clientsBody = sb.append(']').toString();
+
+        // One registration advertising as many object instances as there are clients.
+        sb.setLength(0);
+        sb.append("{\"endpoint\":\"gateway\",\"objectLinks\":[");
+        for (int i = 0; i < clients; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"url\":\"/").append(3300 + (i % 50)).append('/').append(i / 50)
+                    .append("\",\"attributes\":{}}");
+        }
+        linksBody = sb.append("]}").toString();
+    }
+
+    @Benchmark
+    public Object parseDevices() throws Exception {
+        return GatewayJson.parseDevices(clientsBody, "10.0.0.1");
+    }
+
+    @Benchmark
+    public Object parseObjectLinks() throws Exception {
+        return GatewayJson.parseObjectLinks(linksBody);
+    }
+}
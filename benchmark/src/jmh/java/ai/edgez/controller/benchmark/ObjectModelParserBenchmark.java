@@ -0,0 +1,73 @@
+package ai.edgez.controller.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import ai.edgez.controller.model.ObjectModelParser;
+import ai.edgez.controller.model.ObjectModels;
+
+/**
+ * Parses every bundled object model, as the resource screen did on each open of an object, against
+ * looking the same models up in the generated {@link ObjectModels} table it uses now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ObjectModelParserBenchmark {
+
+    private byte[][] models;
+    private byte[] largest;
+    private int[] generatedIds;
+
+    @Setup
+    public void load() throws IOException {
+        File dir = new File(System.getProperty("models.dir", "app/src/main/models"));
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".xml"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No models in " + dir.getAbsolutePath());
+        }
+        Arrays.sort(files);
+        models = new byte[files.length][];
+        for (int i = 0; i < files.length; i++) {
+            models[i] = Files.readAllBytes(files[i].toPath());
+            if (largest == null || models[i].length > largest.length) {
+                largest = models[i];
+            }
+        }
+        generatedIds = ObjectModels.objectIds();
+    }
+
+    @Benchmark
+    public void parseAll(Blackhole bh) throws Exception {
+        for (byte[] model : models) {
+            bh.consume(ObjectModelParser.parse(new ByteArrayInputStream(model)));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void lookupAllGenerated(Blackhole bh) {
+        for (int id : generatedIds) {
+            bh.consume(ObjectModels.get(id).resources);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object parseLargest() throws Exception {
+        return ObjectModelParser.parse(new ByteArrayInputStream(largest));
+    }
+}
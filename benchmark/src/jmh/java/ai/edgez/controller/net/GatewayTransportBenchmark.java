@@ -0,0 +1,124 @@
+package ai.edgez.controller.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import ai.edgez.controller.metrics.NetworkProbe;
+
+/**
+ * {@link GatewayClient#listClients} against a stand-in gateway on the loopback interface, with
+ * the response sent as-is or gzipped. {@code wireBytes} over {@code calls} is the response size
+ * on the wire. Lives in the client's package for the port constructor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GatewayTransportBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+
+    static {
+        // Otherwise Nagle on the stand-in's split header and body writes adds a delayed-ACK
+        // stall to every kept-alive request, which is not what a real gateway does.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @Param({"100", "1000"})
+    public int clients;
+
+    @Param({"identity", "gzip"})
+    public String encoding;
+
+    private HttpServer server;
+    private GatewayClient client;
+    private byte[] plain;
+    private byte[] gzipped;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long wireBytes;
+        public long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0L;
+            calls = 0L;
+        }
+    }
+
+    @Setup
+    public void start() throws IOException {
+        StringBuilder sb = new StringBuilder(clients * 160);
+        sb.append('[');
+        for (int i = 0; i < clients; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"endpoint\":\"sensor-").append(i)
+                    .append("\",\"registrationId\":\"r").append(Integer.toHexString(i * 7919))
+                    .append("\",\"address\":\"10.0.").append((i >> 8) & 0xff).append('.').append(i & 0xff)
+                    .append(":5683\",\"lifetime\":300,\"version\":\"1.1\",\"bindingMode\":\"U\"}");
+        }
+        plain = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(plain.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+            gz.write(plain);
+        }
+        gzipped = buf.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress(HOST, 0), 0);
+        server.createContext(GatewayClient.CLIENTS_PATH, this::serve);
+        server.start();
+        client = new GatewayClient(new NetworkProbe(), server.getAddress().getPort());
+        // Every call should reach the server.
+        client.setFreshnessMs(0L);
+    }
+
+    @TearDown
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = plain;
+        if ("gzip".equals(encoding) && accept != null && accept.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            body = gzipped;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    @Benchmark
+    public String listClients(Transfer transfer) throws IOException {
+        GatewayClient.Response r = client.listClients(HOST);
+        transfer.wireBytes += "gzip".equals(encoding) ? gzipped.length : plain.length;
+        transfer.calls++;
+        return r.body;
+    }
+}
@@ -0,0 +1,44 @@
+package ai.edgez.controller.net;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body decoding in {@link GatewayClient#readAll}. Lives in the client's package because
+ * the method is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadAllBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    public int bytes;
+
+    private byte[] body;
+
+    @Setup
+    public void build() {
+        StringBuilder sb = new StringBuilder(bytes);
+        while (sb.length() < bytes) {
+            sb.append("{\"id\":5700,\"value\":21.5}\n");
+        }
+        sb.setLength(bytes);
+        body = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String readAll() throws Exception {
+        return GatewayClient.readAll(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,13 @@
+// Build logic shared by :app and :benchmark.
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(gradleApi())
+}
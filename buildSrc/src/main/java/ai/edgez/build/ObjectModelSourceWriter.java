@@ -0,0 +1,294 @@
+package ai.edgez.build;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Generates {@code ai.edgez.controller.model.ObjectModels}, a constant table of every bundled
+ * object model built from {@code ObjectDef} and {@code ResourceDef}, so the app does not parse
+ * XML or match operation and type strings at runtime.
+ *
+ * <p>Each object gets its own factory method, called on first lookup and then cached, so class
+ * initialisation stays cheap and no method nears the bytecode size limit. The cache reports its
+ * estimated size and drops its least recently used definitions on request, so the app's memory
+ * governor can shed it like any other cache.
+ */
+public final class ObjectModelSourceWriter {
+
+    static final String PACKAGE = "ai.edgez.controller.model";
+    static final String CLASS_NAME = "ObjectModels";
+
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)(?:-(\\d+)_(\\d+))?\\.xml");
+
+    private ObjectModelSourceWriter() {
+    }
+
+    /**
+     * Picks one file per object ID from {@code dir}: {@code <id>.xml} if present, otherwise the
+     * highest {@code <id>-<major>_<minor>.xml}. The runtime lookup this replaced also preferred
+     * {@code <id>.xml} but fell back to {@code <id>-1_0.xml} only; every versioned file in
+     * src/main/models has an {@code <id>.xml} beside it, so both pick the same files today.
+     */
+    public static Map<Integer, File> selectModels(File dir) {
+        File[] files = dir.listFiles();
+        Map<Integer, File> chosen = new TreeMap<>();
+        Map<Integer, Integer> rank = new HashMap<>();
+        if (files == null) {
+            return chosen;
+        }
+        for (File f : files) {
+            Matcher m = FILE_NAME.matcher(f.getName());
+            if (!m.matches()) {
+                continue;
+            }
+            int id = Integer.parseInt(m.group(1));
+            int r = m.group(2) == null ? Integer.MAX_VALUE
+                    : Integer.parseInt(m.group(2)) * 1000 + Integer.parseInt(m.group(3));
+            Integer best = rank.get(id);
+            if (best == null || r > best) {
+                rank.put(id, r);
+                chosen.put(id, f);
+            }
+        }
+        return chosen;
+    }
+
+    /** Writes the source for the models chosen by {@link #selectModels}. */
+    public static void write(Map<Integer, File> models, Writer out)
+            throws IOException, SAXException, ParserConfigurationException {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        StringBuilder factories = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        StringBuilder cases = new StringBuilder();
+        for (Map.Entry<Integer, File> e : models.entrySet()) {
+            int objId = e.getKey();
+            Document doc = dbf.newDocumentBuilder().parse(e.getValue());
+            Element object = (Element) doc.getElementsByTagName("Object").item(0);
+            if (object == null) {
+                throw new IOException("No <Object> in " + e.getValue());
+            }
+            appendFactory(factories, objId, object);
+            ids.append(ids.length() == 0 ? "" : ", ").append(objId);
+            cases.append("            case ").append(objId).append(":\n")
+                    .append("                return o").append(objId).append("();\n");
+        }
+
+        out.write("// Generated by " + ObjectModelSourceWriter.class.getSimpleName() + " from src/main/models. Do not edit.\n");
+        out.write("package " + PACKAGE + ";\n\n");
+        out.write("import java.util.Arrays;\n");
+        out.write("import java.util.Collections;\n");
+        out.write("import java.util.concurrent.atomic.AtomicInteger;\n");
+        out.write("import java.util.concurrent.atomic.AtomicIntegerArray;\n");
+        out.write("import java.util.concurrent.atomic.AtomicReferenceArray;\n\n");
+        out.write("/** Every bundled object model as constants, generated at build time. */\n");
+        out.write("public final class " + CLASS_NAME + " {\n\n");
+        out.write("    private static final int[] IDS = {\n" + wrap(ids.toString()) + "\n    };\n");
+        out.write("    // Rough heap cost of a built definition; the strings are constants and stay loaded.\n");
+        out.write("    private static final long OBJECT_BYTES = 96L;\n");
+        out.write("    private static final long RESOURCE_BYTES = 88L;\n");
+        out.write("    private static final AtomicReferenceArray<ObjectDef> CACHE = new AtomicReferenceArray<>(IDS.length);\n");
+        out.write("    // Tick of each definition's last lookup, for trimTo.\n");
+        out.write("    private static final AtomicIntegerArray LAST_USE = new AtomicIntegerArray(IDS.length);\n");
+        out.write("    private static final AtomicInteger CLOCK = new AtomicInteger();\n\n");
+        out.write("    private " + CLASS_NAME + "() {\n    }\n\n");
+        out.write("    /** The model for {@code objId}, or null if it is not bundled. */\n");
+        out.write("    public static ObjectDef get(int objId) {\n");
+        out.write("        int i = Arrays.binarySearch(IDS, objId);\n");
+        out.write("        if (i < 0) {\n            return null;\n        }\n");
+        out.write("        ObjectDef def = CACHE.get(i);\n");
+        out.write("        if (def == null) {\n");
+        out.write("            def = create(objId);\n");
+        out.write("            if (!CACHE.compareAndSet(i, null, def)) {\n");
+        out.write("                def = CACHE.get(i);\n");
+        out.write("            }\n");
+        out.write("        }\n");
+        out.write("        LAST_USE.lazySet(i, CLOCK.incrementAndGet());\n");
+        out.write("        return def;\n");
+        out.write("    }\n\n");
+        out.write("    public static boolean contains(int objId) {\n");
+        out.write("        return Arrays.binarySearch(IDS, objId) >= 0;\n");
+        out.write("    }\n\n");
+        out.write("    /** Object IDs with a model, ascending. */\n");
+        out.write("    public static int[] objectIds() {\n");
+        out.write("        return IDS.clone();\n");
+        out.write("    }\n\n");
+        out.write("    /** Estimated heap held by the definitions built so far. */\n");
+        out.write("    public static long memoryBytes() {\n");
+        out.write("        long bytes = 0;\n");
+        out.write("        for (int i = 0; i < IDS.length; i++) {\n");
+        out.write("            ObjectDef def = CACHE.get(i);\n");
+        out.write("            if (def != null) {\n");
+        out.write("                bytes += bytes(def);\n");
+        out.write("            }\n");
+        out.write("        }\n");
+        out.write("        return bytes;\n");
+        out.write("    }\n\n");
+        out.write("    /**\n");
+        out.write("     * Drops the least recently used definitions until about {@code targetBytes} remain; they\n");
+        out.write("     * are built again on next lookup.\n");
+        out.write("     */\n");
+        out.write("    public static void trimTo(long targetBytes) {\n");
+        out.write("        long bytes = memoryBytes();\n");
+        out.write("        while (bytes > targetBytes) {\n");
+        out.write("            int oldest = -1;\n");
+        out.write("            for (int i = 0; i < IDS.length; i++) {\n");
+        out.write("                if (CACHE.get(i) != null && (oldest < 0 || LAST_USE.get(i) - LAST_USE.get(oldest) < 0)) {\n");
+        out.write("                    oldest = i;\n");
+        out.write("                }\n");
+        out.write("            }\n");
+        out.write("            if (oldest < 0) {\n");
+        out.write("                return;\n");
+        out.write("            }\n");
+        out.write("            ObjectDef def = CACHE.getAndSet(oldest, null);\n");
+        out.write("            if (def != null) {\n");
+        out.write("                bytes -= bytes(def);\n");
+        out.write("            }\n");
+        out.write("        }\n");
+        out.write("    }\n\n");
+        out.write("    private static long bytes(ObjectDef def) {\n");
+        out.write("        return OBJECT_BYTES + RESOURCE_BYTES * def.resources.size();\n");
+        out.write("    }\n\n");
+        out.write("    private static ObjectDef create(int objId) {\n");
+        out.write("        switch (objId) {\n");
+        out.write(cases.toString());
+        out.write("            default:\n");
+        out.write("                throw new IllegalArgumentException(\"No model for object \" + objId);\n");
+        out.write("        }\n");
+        out.write("    }\n");
+        out.write(factories.toString());
+        out.write("}\n");
+    }
+
+    private static void appendFactory(StringBuilder sb, int objId, Element object) {
+        sb.append("\n    private static ObjectDef o").append(objId).append("() {\n");
+        sb.append("        return new ObjectDef(").append(objId).append(", ")
+                .append(literal(text(object, "Name"))).append(", ")
+                .append("Multiple".equalsIgnoreCase(text(object, "MultipleInstances"))).append(", ")
+                .append("Mandatory".equalsIgnoreCase(text(object, "Mandatory"))).append(", ")
+                .append("Collections.unmodifiableList(Arrays.asList(");
+        NodeList items = object.getElementsByTagName("Item");
+        for (int i = 0; i < items.getLength(); i++) {
+            Element item = (Element) items.item(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("                new ResourceDef(").append(Integer.parseInt(item.getAttribute("ID").trim()))
+                    .append(", ").append(literal(text(item, "Name")))
+                    .append(", ").append(operations(text(item, "Operations")))
+                    .append(", ResourceType.").append(resourceType(text(item, "Type")))
+                    .append(", ").append("Multiple".equalsIgnoreCase(text(item, "MultipleInstances")))
+                    .append(", ").append(literal(text(item, "RangeEnumeration")))
+                    .append(")");
+        }
+        sb.append(")));\n    }\n");
+    }
+
+    private static String operations(String ops) {
+        StringBuilder sb = new StringBuilder();
+        if (ops.indexOf('R') >= 0) {
+            sb.append("ResourceDef.OP_READ");
+        }
+        if (ops.indexOf('W') >= 0) {
+            sb.append(sb.length() == 0 ? "" : " | ").append("ResourceDef.OP_WRITE");
+        }
+        if (ops.indexOf('E') >= 0) {
+            sb.append(sb.length() == 0 ? "" : " | ").append("ResourceDef.OP_EXECUTE");
+        }
+        return sb.length() == 0 ? "0" : sb.toString();
+    }
+
+    // Mirrors ResourceType.fromModel.
+    private static String resourceType(String type) {
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "string":
+                return "STRING";
+            case "integer":
+                return "INTEGER";
+            case "unsigned integer":
+            case "unsigned":
+                return "UNSIGNED_INTEGER";
+            case "float":
+                return "FLOAT";
+            case "boolean":
+                return "BOOLEAN";
+            case "opaque":
+                return "OPAQUE";
+            case "time":
+                return "TIME";
+            case "objlnk":
+                return "OBJLNK";
+            case "corelnk":
+                return "CORELNK";
+            default:
+                return "NONE";
+        }
+    }
+
+    /** Text of the first direct child named {@code tag}, trimmed; empty if absent. */
+    private static String text(Element parent, String tag) {
+        for (Node c = parent.getFirstChild(); c != null; c = c.getNextSibling()) {
+            if (tag.equals(c.getNodeName())) {
+                return c.getTextContent().trim();
+            }
+        }
+        return "";
+    }
+
+    static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /** One indented line per dozen IDs. */
+    private static String wrap(String list) {
+        StringBuilder sb = new StringBuilder("            ");
+        String[] ids = list.split(", ");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                sb.append(i % 12 == 0 ? ",\n            " : ", ");
+            }
+            sb.append(ids[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package ai.edgez.build;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Generates Java sources for the object models in {@code modelsDir} with
+ * {@link ObjectModelSourceWriter}. The output is a source root, so it can be added to a variant's
+ * generated Java sources.
+ */
+public abstract class ObjectModelSourcesTask extends DefaultTask {
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract DirectoryProperty getModelsDir();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDir();
+
+    @TaskAction
+    public void generate() throws IOException {
+        File root = getOutputDir().get().getAsFile();
+        File out = new File(root, ObjectModelSourceWriter.PACKAGE.replace('.', File.separatorChar)
+                + File.separator + ObjectModelSourceWriter.CLASS_NAME + ".java");
+        Files.createDirectories(out.getParentFile().toPath());
+        try (Writer w = Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8)) {
+            ObjectModelSourceWriter.write(ObjectModelSourceWriter.selectModels(getModelsDir().get().getAsFile()), w);
+        } catch (SAXException | ParserConfigurationException e) {
+            throw new GradleException("Cannot read object models", e);
+        }
+        getLogger().info("Wrote {} ({} bytes)", out, out.length());
+    }
+}
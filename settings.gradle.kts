@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "EdgeController"
 include(":app")
+include(":benchmark")
+include(":simulator")
+include(":baselineprofile")
@@ -0,0 +1,52 @@
+import ai.edgez.build.ObjectModelSourcesTask
+
+plugins {
+    java
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Like :benchmark, built against the app's own sources for the packages that do not touch
+// android.*, so the load test drives exactly the networking code that ships.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "ai/edgez/controller/data/**",
+                "ai/edgez/controller/metrics/**",
+                "ai/edgez/controller/model/**",
+                "ai/edgez/controller/net/**",
+                "ai/edgez/controller/sim/**",
+            )
+        }
+    }
+}
+
+dependencies {
+    // Provided by the platform on Android.
+    implementation(libs.org.json)
+}
+
+val generateObjectModels = tasks.register<ObjectModelSourcesTask>("generateObjectModels") {
+    modelsDir.set(rootProject.file("app/src/main/models"))
+    outputDir.set(layout.buildDirectory.dir("generated/source/objectModels"))
+}
+sourceSets.main { java.srcDir(generateObjectModels) }
+
+application {
+    mainClass.set("ai.edgez.controller.sim.GatewaySimulator")
+}
+
+// ./gradlew :simulator:loadTest --args="--endpoints 100000 --concurrency 64"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the gateway load test against an in-process simulator."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("ai.edgez.controller.net.LoadTest")
+    maxHeapSize = "2g"
+}
@@ -0,0 +1,343 @@
+package ai.edgez.controller.net;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import ai.edgez.controller.metrics.Histogram;
+import ai.edgez.controller.metrics.NetworkProbe;
+import ai.edgez.controller.model.ResourceDef;
+import ai.edgez.controller.sim.Args;
+import ai.edgez.controller.sim.FaultInjector;
+import ai.edgez.controller.sim.GatewaySimulator;
+import ai.edgez.controller.sim.SimulatedFleet;
+
+/**
+ * Drives {@link GatewayClient} against a {@link GatewaySimulator} and reports throughput and
+ * latency percentiles per request kind. Lives in the client's package for the port constructor.
+ *
+ * <p>Workers pick random endpoints of the fleet and issue a mix of client-list, registration,
+ * resource read and TLV write requests, parsing responses as the app does. By default each worker
+ * sends its next request as soon as the last one returns. With {@code --rate} requests start on a
+ * fixed schedule instead and latency counts from the scheduled start, so a stalled client shows up
+ * as queueing delay rather than as fewer, faster samples.
+ *
+ * <pre>
+ * ./gradlew :simulator:loadTest --args="--endpoints 100000 --concurrency 64 --duration-s 60 --loss 0.01"
+ * </pre>
+ *
+ * <p>Client lists are left out of the default mix: with 100k endpoints each one is tens of
+ * megabytes of JSON, so add {@code list=1} to {@code --mix} deliberately and with a heap to match.
+ *
+ * <p>The simulator runs in-process unless {@code --target host:port} names one started separately
+ * with the same fleet options.
+ */
+public final class LoadTest {
+
+    enum Op {
+        LIST,
+        CLIENT,
+        READ,
+        WRITE
+    }
+
+    private static final class OpStats {
+        final Histogram micros = new Histogram();
+        final AtomicLong ok = new AtomicLong();
+        final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+        void fail(String reason) {
+            failures.computeIfAbsent(reason, r -> new AtomicLong()).incrementAndGet();
+        }
+
+        long failed() {
+            long n = 0;
+            for (AtomicLong v : failures.values()) {
+                n += v.get();
+            }
+            return n;
+        }
+    }
+
+    // Stands in for resources that no input in WRITE_INPUTS fits.
+    private static final byte[] NOT_WRITABLE = new byte[0];
+    private static final String[] WRITE_INPUTS = {"1", "0", "50", "true", "load-test", "00ff", "0:0"};
+    // Endpoints to try before giving up on finding a writable resource.
+    private static final int WRITE_ATTEMPTS = 16;
+
+    private final GatewayClient client;
+    private final SimulatedFleet fleet;
+    private final List<String> hosts;
+    private final Op[] mix;
+    private final Map<Op, OpStats> stats = new EnumMap<>(Op.class);
+    private final Map<ResourceDef, byte[]> writePayloads = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    LoadTest(GatewayClient client, SimulatedFleet fleet, List<String> hosts, Op[] mix) {
+        this.client = client;
+        this.fleet = fleet;
+        this.hosts = hosts;
+        this.mix = mix;
+        for (Op op : Op.values()) {
+            stats.put(op, new OpStats());
+        }
+    }
+
+    /** Runs {@code workers} threads for the warm-up and then the measured period. */
+    void run(int workers, double rate, long warmupMs, long durationMs) throws InterruptedException {
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * workers / rate) : 0L;
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMs + durationMs);
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            long first = System.nanoTime() + (intervalNanos > 0 ? intervalNanos * i / workers : 0L);
+            Thread t = new Thread(() -> work(first, intervalNanos, end), "load-" + i);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        Thread.sleep(warmupMs);
+        recording = true;
+        for (Thread t : threads) {
+            t.join();
+        }
+        recording = false;
+    }
+
+    private void work(long first, long intervalNanos, long end) {
+        long scheduled = first;
+        while (true) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (scheduled > now) {
+                    LockSupport.parkNanos(scheduled - now);
+                }
+            } else {
+                scheduled = now;
+            }
+            if (scheduled >= end) {
+                return;
+            }
+            Op op = mix[ThreadLocalRandom.current().nextInt(mix.length)];
+            String failure = call(op);
+            if (recording) {
+                OpStats s = stats.get(op);
+                s.micros.record((System.nanoTime() - scheduled) / 1_000L);
+                if (failure == null) {
+                    s.ok.incrementAndGet();
+                } else {
+                    s.fail(failure);
+                }
+            }
+            scheduled += intervalNanos;
+        }
+    }
+
+    /** Makes one request of kind {@code op}; returns null on success, otherwise why it failed. */
+    private String call(Op op) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(fleet.size());
+        String host = hosts.get(fleet.gatewayOf(index));
+        String endpoint = fleet.name(index);
+        try {
+            GatewayClient.Response response;
+            switch (op) {
+                case LIST:
+                    response = client.listClients(host);
+                    if (response.isSuccess()) {
+                        GatewayJson.parseDevices(response.body, host);
+                    }
+                    break;
+                case CLIENT:
+                    response = client.getClient(host, endpoint);
+                    if (response.isSuccess()) {
+                        GatewayJson.parseObjectLinks(response.body);
+                    }
+                    break;
+                case READ: {
+                    List<SimulatedFleet.Instance> instances = fleet.instances(index);
+                    SimulatedFleet.Instance instance = instances.get(random.nextInt(instances.size()));
+                    List<ResourceDef> readable = SimulatedFleet.readableResources(instance.object);
+                    ResourceDef def = readable.get(random.nextInt(readable.size()));
+                    response = client.read(host, endpoint, GatewayClient.path(instance.object.id, instance.instId, def.id));
+                    break;
+                }
+                case WRITE:
+                    response = write(host, endpoint, fleet.instances(index));
+                    for (int i = 1; response == null && i < WRITE_ATTEMPTS; i++) {
+                        index = random.nextInt(fleet.size());
+                        response = write(hosts.get(fleet.gatewayOf(index)), fleet.name(index), fleet.instances(index));
+                    }
+                    if (response == null) {
+                        return "nothing writable";
+                    }
+                    break;
+                default:
+                    throw new AssertionError(op);
+            }
+            return response.isSuccess() ? null : "HTTP " + response.code;
+        } catch (ServerUnavailableException e) {
+            return "circuit open";
+        } catch (IOException e) {
+            return e.getClass().getSimpleName();
+        } catch (JSONException e) {
+            return "unparsable";
+        }
+    }
+
+    /** Writes a resource of a random instance that has a writable one, or returns null. */
+    private GatewayClient.Response write(String host, String endpoint, List<SimulatedFleet.Instance> instances)
+            throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int offset = random.nextInt(instances.size());
+        for (int i = 0; i < instances.size(); i++) {
+            SimulatedFleet.Instance instance = instances.get((offset + i) % instances.size());
+            List<ResourceDef> resources = instance.object.resources;
+            int start = random.nextInt(resources.size());
+            for (int j = 0; j < resources.size(); j++) {
+                ResourceDef def = resources.get((start + j) % resources.size());
+                byte[] payload = payloadFor(def);
+                if (payload != NOT_WRITABLE) {
+                    return client.write(host, endpoint, GatewayClient.path(instance.object.id, instance.instId, def.id),
+                            TlvEncoder.CONTENT_TYPE, payload);
+                }
+            }
+        }
+        return null;
+    }
+
+    private byte[] payloadFor(ResourceDef def) {
+        return writePayloads.computeIfAbsent(def, d -> {
+            if (!d.isWritable() || d.multiple) {
+                return NOT_WRITABLE;
+            }
+            for (String input : WRITE_INPUTS) {
+                try {
+                    return TlvEncoder.encode(d, input);
+                } catch (IllegalArgumentException e) {
+                    // Try the next input.
+                }
+            }
+            return NOT_WRITABLE;
+        });
+    }
+
+    String report(long durationMs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-7s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "op", "requests", "req/s", "ok%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        long total = 0;
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            OpStats s = e.getValue();
+            long n = s.micros.count();
+            total += n;
+            if (n == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%-7s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    e.getKey().name().toLowerCase(Locale.US), n, n * 1000d / durationMs, 100d * s.ok.get() / n,
+                    s.micros.percentile(50) / 1000d, s.micros.percentile(90) / 1000d,
+                    s.micros.percentile(99) / 1000d, s.micros.percentile(99.9) / 1000d, s.micros.max() / 1000d));
+        }
+        sb.append(String.format(Locale.US, "total   %9d %9.1f%n", total, total * 1000d / durationMs));
+        for (Map.Entry<Op, OpStats> e : stats.entrySet()) {
+            if (e.getValue().failed() == 0) {
+                continue;
+            }
+            Map<String, AtomicLong> sorted = new TreeMap<>(e.getValue().failures);
+            sb.append(e.getKey().name().toLowerCase(Locale.US)).append(" failures:");
+            for (Map.Entry<String, AtomicLong> f : sorted.entrySet()) {
+                sb.append(' ').append(f.getKey()).append('=').append(f.getValue().get());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Parses {@code read=85,write=10} into a table that picks each op with its weight. */
+    static Op[] parseMix(String spec) {
+        List<Op> table = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("--mix expects op=weight,...: " + spec);
+            }
+            Op op = Op.valueOf(kv[0].trim().toUpperCase(Locale.US));
+            int weight = Integer.parseInt(kv[1].trim());
+            for (int i = 0; i < weight; i++) {
+                table.add(op);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("--mix has no weight: " + spec);
+        }
+        return table.toArray(new Op[0]);
+    }
+
+    /**
+     * Options besides the simulator's fleet and fault options: {@code --concurrency} workers,
+     * {@code --rate} total requests per second (0 for as fast as they return), {@code --mix}
+     * weights of list, client, read and write, {@code --warmup-s}, {@code --duration-s},
+     * {@code --freshness-ms} for the client's read de-duplication, and {@code --target}.
+     */
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        SimulatedFleet fleet = new SimulatedFleet(args.fleet());
+        FaultInjector.Config faults = args.faults();
+        int concurrency = args.integer("concurrency", 32);
+        double rate = args.decimal("rate", 0d);
+        Op[] mix = parseMix(args.string("mix", "client=5,read=85,write=10"));
+        long warmupMs = TimeUnit.SECONDS.toMillis(args.longValue("warmup-s", 5L));
+        long durationMs = TimeUnit.SECONDS.toMillis(args.longValue("duration-s", 30L));
+        long freshnessMs = args.longValue("freshness-ms", 0L);
+        String target = args.string("target", null);
+        args.checkAllUsed();
+
+        GatewaySimulator simulator = null;
+        List<String> hosts;
+        int port;
+        if (target == null) {
+            simulator = new GatewaySimulator(fleet, new FaultInjector(faults), 0d);
+            simulator.start("127.0.0.1", 0);
+            hosts = simulator.hosts();
+            port = simulator.port();
+        } else {
+            int colon = target.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("--target expects host:port: " + target);
+            }
+            hosts = GatewaySimulator.gatewayHosts(target.substring(0, colon), fleet.gateways());
+            port = Integer.parseInt(target.substring(colon + 1));
+        }
+
+        GatewayClient client = new GatewayClient(new NetworkProbe(), port);
+        client.setFreshnessMs(freshnessMs);
+        LoadTest test = new LoadTest(client, fleet, hosts, mix);
+        System.out.printf(Locale.US, "%d endpoints on %d gateway(s), %d workers, %s, %d s warm-up, %d s measured%n",
+                fleet.size(), hosts.size(), concurrency, rate > 0 ? rate + " req/s" : "closed loop",
+                warmupMs / 1000, durationMs / 1000);
+        try {
+            test.run(concurrency, rate, warmupMs, durationMs);
+        } finally {
+            if (simulator != null) {
+                simulator.stop();
+            }
+        }
+        System.out.print(test.report(durationMs));
+        System.out.print(client.healthReport());
+        if (simulator != null) {
+            System.out.println(simulator.report());
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,85 @@
+package ai.edgez.controller.sim;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** {@code --name value} command-line options; every option must be read, or {@link #checkAllUsed()} fails. */
+public final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, String> unused = new TreeMap<>();
+
+    public Args(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value, got " + a);
+            }
+            values.put(a.substring(2), args[++i]);
+        }
+        unused.putAll(values);
+    }
+
+    public String string(String name, String fallback) {
+        unused.remove(name);
+        String v = values.get(name);
+        return v != null ? v : fallback;
+    }
+
+    public int integer(String name, int fallback) {
+        String v = string(name, null);
+        try {
+            return v != null ? Integer.parseInt(v.replace("_", "")) : fallback;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects an integer: " + v);
+        }
+    }
+
+    public long longValue(String name, long fallback) {
+        String v = string(name, null);
+        try {
+            return v != null ? Long.parseLong(v.replace("_", "")) : fallback;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects an integer: " + v);
+        }
+    }
+
+    public double decimal(String name, double fallback) {
+        String v = string(name, null);
+        try {
+            return v != null ? Double.parseDouble(v) : fallback;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number: " + v);
+        }
+    }
+
+    public void checkAllUsed() {
+        if (!unused.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s): --" + String.join(", --", unused.keySet()));
+        }
+    }
+
+    /** Fleet options shared by the simulator and the load test. */
+    public SimulatedFleet.Config fleet() {
+        SimulatedFleet.Config c = new SimulatedFleet.Config();
+        c.endpoints = integer("endpoints", c.endpoints);
+        c.gateways = integer("gateways", c.gateways);
+        c.minObjects = integer("min-objects", c.minObjects);
+        c.maxObjects = integer("max-objects", c.maxObjects);
+        c.seed = longValue("seed", c.seed);
+        return c;
+    }
+
+    /** Fault options shared by the simulator and the load test. */
+    public FaultInjector.Config faults() {
+        FaultInjector.Config c = new FaultInjector.Config();
+        c.latencyMs = decimal("latency-ms", c.latencyMs);
+        c.latencyP99Ms = decimal("latency-p99-ms", Math.max(c.latencyP99Ms, c.latencyMs));
+        c.lossRate = decimal("loss", c.lossRate);
+        c.errorRate = decimal("errors", c.errorRate);
+        c.timeoutRate = decimal("timeouts", c.timeoutRate);
+        c.timeoutMs = longValue("timeout-ms", c.timeoutMs);
+        return c;
+    }
+}
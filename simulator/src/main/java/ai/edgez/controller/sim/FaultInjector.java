@@ -0,0 +1,71 @@
+package ai.edgez.controller.sim;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how the simulated gateway misbehaves on each request. Latency is log-normal, fitted to
+ * a median and a 99th percentile, which matches the long tail of a constrained-device network
+ * better than a uniform jitter. Failures are independent per request.
+ */
+public final class FaultInjector {
+
+    /** Fault rates are fractions of all requests; latencies are in milliseconds. */
+    public static final class Config {
+        public double latencyMs = 20d;
+        public double latencyP99Ms = 200d;
+        /** The connection is closed without a response. */
+        public double lossRate;
+        /** The gateway answers 500 or 503 at once. */
+        public double errorRate;
+        /** The device does not answer; the gateway replies 504 after {@link #timeoutMs}. */
+        public double timeoutRate;
+        public long timeoutMs = 5_000L;
+    }
+
+    public enum Fault {
+        NONE,
+        LOSS,
+        ERROR,
+        TIMEOUT
+    }
+
+    // z-score of the 99th percentile of a standard normal.
+    private static final double Z99 = 2.3263d;
+
+    private final Config config;
+    private final double mu;
+    private final double sigma;
+
+    public FaultInjector(Config config) {
+        this.config = config;
+        double median = Math.max(0.001d, config.latencyMs);
+        double p99 = Math.max(median, config.latencyP99Ms);
+        this.mu = Math.log(median);
+        this.sigma = Math.log(p99 / median) / Z99;
+    }
+
+    public Fault nextFault() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        if (r < config.lossRate) {
+            return Fault.LOSS;
+        }
+        r -= config.lossRate;
+        if (r < config.errorRate) {
+            return Fault.ERROR;
+        }
+        r -= config.errorRate;
+        return r < config.timeoutRate ? Fault.TIMEOUT : Fault.NONE;
+    }
+
+    /** Time the gateway and device take for one request; 0 if no latency is configured. */
+    public long nextLatencyMs() {
+        if (config.latencyMs <= 0d) {
+            return 0L;
+        }
+        return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    public long timeoutMs() {
+        return config.timeoutMs;
+    }
+}
@@ -0,0 +1,584 @@
+package ai.edgez.controller.sim;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import ai.edgez.controller.model.ObjectDef;
+import ai.edgez.controller.model.RangeEnumeration;
+import ai.edgez.controller.model.ResourceDef;
+
+/**
+ * Stands in for the LwM2M gateways' REST API so the app's networking can be measured without a
+ * site full of hardware. Serves, in the gateway's JSON shapes:
+ *
+ * <ul>
+ *   <li>{@code GET /api/clients} and {@code GET /api/clients/{ep}}, registrations with object links;
+ *   <li>{@code GET /api/clients/{ep}/{obj}/{inst}/{res}}, a resource read;
+ *   <li>{@code PUT} to the same path with a TLV record, checked against the object model;
+ *   <li>{@code GET /api/event[?ep=...]}, a server-sent event stream of notifications and
+ *       registration updates.
+ * </ul>
+ *
+ * <p>Each gateway of the {@link SimulatedFleet} listens on its own address, counting up from the
+ * first, all on one port; on Linux every 127.x.y.z address reaches the loopback interface. Reads
+ * and writes wait a {@link FaultInjector} latency, as they would for the device; every request may
+ * be lost or fail.
+ *
+ * <p>Run it on its own with {@code ./gradlew :simulator:run --args="--endpoints 100000"} and point
+ * the app at this machine, or let {@code LoadTest} start one in-process.
+ */
+public final class GatewaySimulator {
+
+    public static final String CLIENTS_PATH = "/api/clients";
+    public static final String EVENT_PATH = "/api/event";
+    private static final String JSON = "application/json";
+    // Responses shorter than this are not worth compressing.
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int MAX_STORED_VALUE_BYTES = 64 * 1024;
+
+    static {
+        // Otherwise Nagle on the server's split header and body writes adds a delayed-ACK stall
+        // to every kept-alive request, which is not what a real gateway does.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /** Requests served since start; read with {@link #report()}. */
+    public static final class Stats {
+        public final AtomicLong requests = new AtomicLong();
+        public final AtomicLong lists = new AtomicLong();
+        public final AtomicLong reads = new AtomicLong();
+        public final AtomicLong writes = new AtomicLong();
+        public final AtomicLong rejected = new AtomicLong();
+        public final AtomicLong lost = new AtomicLong();
+        public final AtomicLong failed = new AtomicLong();
+        public final AtomicLong timedOut = new AtomicLong();
+        public final AtomicLong events = new AtomicLong();
+    }
+
+    private final SimulatedFleet fleet;
+    private final FaultInjector faults;
+    private final double eventsPerSecond;
+    private final Stats stats = new Stats();
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final List<String> hosts = new ArrayList<>();
+    private final String registered = Instant.now().toString();
+    private ExecutorService executor;
+    private volatile boolean stopped;
+
+    public GatewaySimulator(SimulatedFleet fleet, FaultInjector faults, double eventsPerSecond) {
+        this.fleet = fleet;
+        this.faults = faults;
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    /**
+     * Binds one server per gateway, starting at {@code firstAddress} and counting up, on
+     * {@code port}; 0 picks a free port on the first address and reuses it for the others.
+     */
+    public synchronized void start(String firstAddress, int port) throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "sim-http-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (String host : gatewayHosts(firstAddress, fleet.gateways())) {
+                int gateway = servers.size();
+                HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+                server.createContext(CLIENTS_PATH, exchange -> serve(gateway, exchange));
+                server.createContext(EVENT_PATH, exchange -> streamEvents(gateway, exchange));
+                server.setExecutor(executor);
+                server.start();
+                port = server.getAddress().getPort();
+                servers.add(server);
+                hosts.add(host);
+            }
+        } catch (IOException e) {
+            stop();
+            throw new IOException("Cannot bind gateway " + (hosts.size() + 1) + " of " + fleet.gateways()
+                    + " after " + firstAddress + "; more than one gateway needs consecutive local addresses", e);
+        }
+    }
+
+    public synchronized void stop() {
+        stopped = true;
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+        servers.clear();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /** The address of each of {@code gateways} gateways, counting up from {@code firstAddress}. */
+    public static List<String> gatewayHosts(String firstAddress, int gateways) throws IOException {
+        byte[] address = InetAddress.getByName(firstAddress).getAddress();
+        List<String> out = new ArrayList<>(gateways);
+        for (int g = 0; g < gateways; g++) {
+            out.add(InetAddress.getByAddress(add(address, g)).getHostAddress());
+        }
+        return out;
+    }
+
+    public int port() {
+        return servers.get(0).getAddress().getPort();
+    }
+
+    /** Address of each gateway, by gateway index. */
+    public List<String> hosts() {
+        return hosts;
+    }
+
+    public SimulatedFleet fleet() {
+        return fleet;
+    }
+
+    public Stats stats() {
+        return stats;
+    }
+
+    public String report() {
+        return String.format(Locale.US,
+                "simulator: %d requests (%d lists, %d reads, %d writes), %d rejected, injected %d lost, %d failed, "
+                        + "%d timed out; %d events, %d values written",
+                stats.requests.get(), stats.lists.get(), stats.reads.get(), stats.writes.get(), stats.rejected.get(),
+                stats.lost.get(), stats.failed.get(), stats.timedOut.get(), stats.events.get(), fleet.writtenValues());
+    }
+
+    private void serve(int gateway, HttpExchange exchange) throws IOException {
+        try {
+            stats.requests.incrementAndGet();
+            String[] parts = exchange.getRequestURI().getPath().substring(CLIENTS_PATH.length()).split("/");
+            boolean deviceBound = parts.length == 5;
+            FaultInjector.Fault fault = faults.nextFault();
+            if (fault == FaultInjector.Fault.LOSS) {
+                stats.lost.incrementAndGet();
+                return;
+            }
+            if (fault == FaultInjector.Fault.ERROR) {
+                stats.failed.incrementAndGet();
+                int code = ThreadLocalRandom.current().nextBoolean() ? 500 : 503;
+                sendStatus(exchange, code, code == 500 ? "INTERNAL_SERVER_ERROR" : "SERVICE_UNAVAILABLE", null);
+                return;
+            }
+            if (deviceBound) {
+                if (fault == FaultInjector.Fault.TIMEOUT) {
+                    stats.timedOut.incrementAndGet();
+                    sleep(deviceTimeoutMs(exchange));
+                    sendStatus(exchange, 504, "TIMEOUT", "Request timeout");
+                    return;
+                }
+                sleep(faults.nextLatencyMs());
+            }
+            route(gateway, exchange, parts);
+        } catch (RuntimeException e) {
+            sendStatus(exchange, 500, "INTERNAL_SERVER_ERROR", e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(int gateway, HttpExchange exchange, String[] parts) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (parts.length <= 1) {
+            if (!"GET".equals(method)) {
+                sendStatus(exchange, 405, "METHOD_NOT_ALLOWED", null);
+                return;
+            }
+            stats.lists.incrementAndGet();
+            listClients(gateway, exchange);
+            return;
+        }
+        int index = fleet.indexOf(parts[1]);
+        if (index < 0 || fleet.gatewayOf(index) != gateway) {
+            sendStatus(exchange, 404, "NOT_FOUND", "No registration for " + parts[1]);
+            return;
+        }
+        if (parts.length == 2 && "GET".equals(method)) {
+            StringBuilder sb = new StringBuilder(512);
+            appendRegistration(sb, index);
+            send(exchange, 200, JSON, sb.toString().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (parts.length != 5) {
+            sendStatus(exchange, 404, "NOT_FOUND", "Only single resources are simulated");
+            return;
+        }
+        int objId;
+        int instId;
+        int resId;
+        try {
+            objId = Integer.parseInt(parts[2]);
+            instId = Integer.parseInt(parts[3]);
+            resId = Integer.parseInt(parts[4]);
+        } catch (NumberFormatException e) {
+            sendStatus(exchange, 400, "BAD_REQUEST", "Not a resource path");
+            return;
+        }
+        ObjectDef object = fleet.object(index, objId, instId);
+        ResourceDef def = object == null ? null : object.resource(resId);
+        if (def == null) {
+            sendStatus(exchange, 404, "NOT_FOUND", null);
+            return;
+        }
+        if ("GET".equals(method)) {
+            read(exchange, index, objId, instId, def);
+        } else if ("PUT".equals(method)) {
+            write(exchange, index, objId, instId, def);
+        } else {
+            sendStatus(exchange, 405, "METHOD_NOT_ALLOWED", null);
+        }
+    }
+
+    // Streamed, so a list of 100k registrations never exists as one string.
+    private void listClients(int gateway, HttpExchange exchange) throws IOException {
+        boolean gzip = acceptsGzip(exchange);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                gzip ? new GZIPOutputStream(body, 8192) : body, StandardCharsets.UTF_8), 64 * 1024)) {
+            StringBuilder sb = new StringBuilder(512);
+            out.write('[');
+            int[] endpoints = fleet.endpointsOf(gateway);
+            for (int i = 0; i < endpoints.length; i++) {
+                sb.setLength(0);
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendRegistration(sb, endpoints[i]);
+                out.append(sb);
+            }
+            out.write(']');
+        }
+    }
+
+    private void appendRegistration(StringBuilder sb, int index) {
+        sb.append("{\"endpoint\":\"").append(fleet.name(index))
+                .append("\",\"registrationId\":\"").append(fleet.registrationId(index))
+                .append("\",\"registrationDate\":\"").append(registered)
+                .append("\",\"lastUpdate\":\"").append(registered)
+                .append("\",\"address\":\"").append(fleet.address(index))
+                .append("\",\"lwM2mVersion\":\"1.1\",\"lifetime\":300,\"bindingMode\":\"U\",\"rootPath\":\"/\"")
+                .append(",\"objectLinks\":[{\"url\":\"/\",\"attributes\":{\"rt\":\"\\\"oma.lwm2m\\\"\"}}");
+        for (SimulatedFleet.Instance instance : fleet.instances(index)) {
+            sb.append(",{\"url\":\"/").append(instance.object.id).append('/').append(instance.instId)
+                    .append("\",\"attributes\":{}}");
+        }
+        sb.append("],\"secure\":false,\"additionalRegistrationAttributes\":{}}");
+    }
+
+    private void read(HttpExchange exchange, int index, int objId, int instId, ResourceDef def) throws IOException {
+        if (!def.isReadable()) {
+            stats.rejected.incrementAndGet();
+            sendStatus(exchange, 405, "METHOD_NOT_ALLOWED", "Resource is not readable");
+            return;
+        }
+        stats.reads.incrementAndGet();
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("{\"status\":\"CONTENT\",\"valid\":true,\"success\":true,\"failure\":false,\"content\":");
+        appendContent(sb, def, fleet.value(index, objId, instId, def, System.currentTimeMillis()));
+        sb.append('}');
+        send(exchange, 200, JSON, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendContent(StringBuilder sb, ResourceDef def, String value) {
+        sb.append("{\"kind\":\"singleResource\",\"id\":").append(def.id)
+                .append(",\"type\":\"").append(def.resourceType.name())
+                .append("\",\"value\":").append(value).append('}');
+    }
+
+    private void write(HttpExchange exchange, int index, int objId, int instId, ResourceDef def) throws IOException {
+        if (!def.isWritable()) {
+            stats.rejected.incrementAndGet();
+            sendStatus(exchange, 405, "METHOD_NOT_ALLOWED", "Resource is not writable");
+            return;
+        }
+        byte[] body = readBody(exchange.getRequestBody());
+        String value;
+        try {
+            value = decodeTlv(def, body);
+        } catch (IllegalArgumentException e) {
+            stats.rejected.incrementAndGet();
+            sendStatus(exchange, 400, "BAD_REQUEST", e.getMessage());
+            return;
+        }
+        stats.writes.incrementAndGet();
+        // Large opaque values such as firmware images are checked but not kept.
+        if (body.length <= MAX_STORED_VALUE_BYTES) {
+            fleet.write(index, objId, instId, def.id, value);
+        }
+        sendStatus(exchange, 200, "CHANGED", null);
+    }
+
+    /** Decodes a single TLV resource record as the model's type into a JSON literal. */
+    static String decodeTlv(ResourceDef def, byte[] tlv) {
+        if (tlv.length < 2 || (tlv[0] & 0xc0) != 0xc0) {
+            throw new IllegalArgumentException("Expected one TLV resource value");
+        }
+        int header = tlv[0] & 0xff;
+        int pos = 1;
+        int id = tlv[pos++] & 0xff;
+        if ((header & 0x20) != 0) {
+            id = id << 8 | (tlv[pos++] & 0xff);
+        }
+        int lengthBytes = header >>> 3 & 0x3;
+        int length = lengthBytes == 0 ? header & 0x7 : 0;
+        for (int i = 0; i < lengthBytes; i++) {
+            length = length << 8 | (tlv[pos++] & 0xff);
+        }
+        if (id != def.id) {
+            throw new IllegalArgumentException("TLV is for resource " + id + ", not " + def.id);
+        }
+        if (pos + length != tlv.length) {
+            throw new IllegalArgumentException("TLV length " + length + " does not match the body");
+        }
+        byte[] v = new byte[length];
+        System.arraycopy(tlv, pos, v, 0, length);
+        RangeEnumeration range = def.range();
+        switch (def.resourceType) {
+            case INTEGER:
+            case TIME:
+                return checkRange(range, new BigDecimal(new BigInteger(fixedWidth(v, 1, 2, 4, 8)))).toPlainString();
+            case UNSIGNED_INTEGER:
+                return checkRange(range, new BigDecimal(new BigInteger(1, fixedWidth(v, 1, 2, 4, 8)))).toPlainString();
+            case FLOAT: {
+                long bits = new BigInteger(1, fixedWidth(v, 4, 8)).longValue();
+                double d = v.length == 4 ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+                return checkRange(range, BigDecimal.valueOf(d)).toPlainString();
+            }
+            case BOOLEAN:
+                if (v.length != 1 || (v[0] & 0xfe) != 0) {
+                    throw new IllegalArgumentException("Boolean must be one byte of 0 or 1");
+                }
+                return v[0] == 1 ? "true" : "false";
+            case OBJLNK:
+                fixedWidth(v, 4);
+                return "\"" + ((v[0] & 0xff) << 8 | (v[1] & 0xff)) + ":" + ((v[2] & 0xff) << 8 | (v[3] & 0xff)) + "\"";
+            case OPAQUE:
+                checkLength(range, v.length);
+                return '"' + hex(v) + '"';
+            case STRING:
+            case CORELNK:
+                checkLength(range, v.length);
+                return JSONObject.quote(new String(v, StandardCharsets.UTF_8));
+            default:
+                throw new IllegalArgumentException("Resource " + def.id + " has no value type");
+        }
+    }
+
+    private static byte[] fixedWidth(byte[] v, int... widths) {
+        for (int w : widths) {
+            if (v.length == w) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Unexpected value length " + v.length);
+    }
+
+    private static BigDecimal checkRange(RangeEnumeration range, BigDecimal v) {
+        if (range != null && !range.lengthInBytes && !range.accepts(v)) {
+            throw new IllegalArgumentException(v + " is outside " + range);
+        }
+        return v;
+    }
+
+    private static void checkLength(RangeEnumeration range, int length) {
+        if (range != null && range.lengthInBytes && !range.acceptsLength(length)) {
+            throw new IllegalArgumentException(length + " bytes is outside " + range);
+        }
+    }
+
+    /**
+     * Sends notifications of readable resources and registration updates at the configured rate
+     * until the client goes away. {@code ?ep=} limits the stream to one endpoint.
+     */
+    private void streamEvents(int gateway, HttpExchange exchange) throws IOException {
+        try {
+            String query = exchange.getRequestURI().getQuery();
+            int only = -1;
+            if (query != null && query.startsWith("ep=")) {
+                only = fleet.indexOf(query.substring(3));
+                if (only < 0 || fleet.gatewayOf(only) != gateway) {
+                    sendStatus(exchange, 404, "NOT_FOUND", null);
+                    return;
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            int[] endpoints = only >= 0 ? new int[] {only} : fleet.endpointsOf(gateway);
+            long intervalMs = Math.max(1L, Math.round(1000d / Math.max(0.001d, eventsPerSecond)));
+            OutputStream out = exchange.getResponseBody();
+            StringBuilder sb = new StringBuilder(512);
+            while (!stopped) {
+                sleep(intervalMs);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int index = endpoints[random.nextInt(endpoints.length)];
+                sb.setLength(0);
+                if (random.nextInt(10) == 0) {
+                    sb.append("event: UPDATED\ndata: {\"registration\":");
+                    appendRegistration(sb, index);
+                    sb.append(",\"update\":{\"registrationId\":\"").append(fleet.registrationId(index))
+                            .append("\",\"lifetime\":300}}\n\n");
+                } else {
+                    List<SimulatedFleet.Instance> instances = fleet.instances(index);
+                    SimulatedFleet.Instance instance = instances.get(random.nextInt(instances.size()));
+                    List<ResourceDef> readable = SimulatedFleet.readableResources(instance.object);
+                    ResourceDef def = readable.get(random.nextInt(readable.size()));
+                    sb.append("event: NOTIFICATION\ndata: {\"ep\":\"").append(fleet.name(index))
+                            .append("\",\"res\":\"/").append(instance.object.id).append('/').append(instance.instId)
+                            .append('/').append(def.id).append("\",\"val\":");
+                    appendContent(sb, def, fleet.value(index, instance.object.id, instance.instId, def,
+                            System.currentTimeMillis()));
+                    sb.append("}\n\n");
+                }
+                out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                stats.events.incrementAndGet();
+            }
+        } catch (IOException e) {
+            // The client disconnected.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private long deviceTimeoutMs(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("timeout=")) {
+                    try {
+                        return Math.min(faults.timeoutMs(), Long.parseLong(param.substring(8)) * 1000L);
+                    } catch (NumberFormatException ignored) {
+                        // Use the configured timeout.
+                    }
+                }
+            }
+        }
+        return faults.timeoutMs();
+    }
+
+    private static void sendStatus(HttpExchange exchange, int code, String status, String message) throws IOException {
+        String body = "{\"status\":\"" + status + "\",\"valid\":" + (code < 500) + ",\"success\":" + (code < 300)
+                + ",\"failure\":" + (code >= 300)
+                + (message == null ? "" : ",\"errormessage\":" + JSONObject.quote(message)) + "}";
+        send(exchange, code, JSON, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int code, String contentType, byte[] body) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        if (body.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+                gz.write(body);
+            }
+            body = buf.toByteArray();
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.contains("gzip");
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit(b >>> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] add(byte[] address, int n) {
+        byte[] out = address.clone();
+        int carry = n;
+        for (int i = out.length - 1; i >= 0 && carry != 0; i--) {
+            int sum = (out[i] & 0xff) + carry;
+            out[i] = (byte) sum;
+            carry = sum >>> 8;
+        }
+        return out;
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the simulator until killed. Options: {@code --endpoints --gateways --min-objects
+     * --max-objects --seed} shape the fleet, {@code --latency-ms --latency-p99-ms --loss --errors
+     * --timeouts --timeout-ms} the faults, and {@code --events-per-second --address --port} the
+     * servers.
+     */
+    public static void main(String[] argv) throws IOException {
+        Args args = new Args(argv);
+        SimulatedFleet fleet = new SimulatedFleet(args.fleet());
+        FaultInjector faults = new FaultInjector(args.faults());
+        double events = args.decimal("events-per-second", 10d);
+        String address = args.string("address", "127.0.0.1");
+        int port = args.integer("port", 8088);
+        args.checkAllUsed();
+
+        GatewaySimulator simulator = new GatewaySimulator(fleet, faults, events);
+        simulator.start(address, port);
+        System.out.println("Simulating " + fleet.size() + " endpoints on " + simulator.hosts() + " port "
+                + simulator.port());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(simulator.report())));
+    }
+}
@@ -0,0 +1,241 @@
+package ai.edgez.controller.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ai.edgez.controller.model.ObjectDef;
+import ai.edgez.controller.model.ObjectModels;
+import ai.edgez.controller.model.ResourceDef;
+import ai.edgez.controller.model.ResourceType;
+
+/**
+ * A fleet of simulated LwM2M endpoints whose object sets are drawn from the bundled object models.
+ *
+ * <p>Everything about an endpoint is derived from the seed and its index, so a fleet of 100k costs
+ * no memory until values are written. Some objects are much more common than others, as in a real
+ * deployment: the models are shuffled once per seed and endpoints pick from the front of that
+ * order more often than from the back. Resource values drift slowly with time.
+ */
+public final class SimulatedFleet {
+
+    /** Fleet shape; copied on construction. */
+    public static final class Config {
+        public int endpoints = 1_000;
+        /** Endpoints are spread round-robin over this many gateways. */
+        public int gateways = 1;
+        public int minObjects = 2;
+        public int maxObjects = 8;
+        public long seed = 1L;
+    }
+
+    /** One object instance of an endpoint. */
+    public static final class Instance {
+        public final ObjectDef object;
+        public final int instId;
+
+        Instance(ObjectDef object, int instId) {
+            this.object = object;
+            this.instId = instId;
+        }
+    }
+
+    private static final String PREFIX = "sim-";
+    private static final int MAX_INSTANCES = 3;
+
+    private final int endpoints;
+    private final int gateways;
+    private final int minObjects;
+    private final int maxObjects;
+    private final long seed;
+    // Models with at least one readable resource, in this fleet's popularity order.
+    private final ObjectDef[] objects;
+    private final Map<String, String> written = new ConcurrentHashMap<>();
+
+    public SimulatedFleet(Config config) {
+        this.endpoints = Math.max(1, config.endpoints);
+        this.gateways = Math.max(1, Math.min(config.gateways, endpoints));
+        this.seed = config.seed;
+        List<ObjectDef> readable = new ArrayList<>();
+        for (int id : ObjectModels.objectIds()) {
+            ObjectDef def = ObjectModels.get(id);
+            if (def != null && !readableResources(def).isEmpty()) {
+                readable.add(def);
+            }
+        }
+        if (readable.isEmpty()) {
+            throw new IllegalStateException("No object models with readable resources");
+        }
+        objects = readable.toArray(new ObjectDef[0]);
+        shuffle(objects, new Random(seed));
+        this.maxObjects = Math.max(1, Math.min(config.maxObjects, objects.length));
+        this.minObjects = Math.max(1, Math.min(config.minObjects, this.maxObjects));
+    }
+
+    public int size() {
+        return endpoints;
+    }
+
+    public int gateways() {
+        return gateways;
+    }
+
+    public int gatewayOf(int index) {
+        return index % gateways;
+    }
+
+    /** Endpoints of {@code gateway} in index order. */
+    public int[] endpointsOf(int gateway) {
+        int count = (endpoints - gateway + gateways - 1) / gateways;
+        int[] out = new int[Math.max(0, count)];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = gateway + i * gateways;
+        }
+        return out;
+    }
+
+    public String name(int index) {
+        return String.format(Locale.ROOT, "%s%06d", PREFIX, index);
+    }
+
+    /** Index of the endpoint called {@code name}, or -1 if there is none. */
+    public int indexOf(String name) {
+        if (!name.startsWith(PREFIX)) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(name.substring(PREFIX.length()));
+            return index >= 0 && index < endpoints && name.equals(name(index)) ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public String registrationId(int index) {
+        return Long.toHexString(mix(seed ^ (index * 0x9e3779b97f4a7c15L)) & 0xffffffffffL);
+    }
+
+    /** Source address of the endpoint's registration, for the client list. */
+    public String address(int index) {
+        return "10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff) + ":5683";
+    }
+
+    /** The endpoint's object instances, ordered by object ID. */
+    public List<Instance> instances(int index) {
+        SplittableRandom random = new SplittableRandom(mix(seed + index));
+        int count = minObjects + random.nextInt(maxObjects - minObjects + 1);
+        ObjectDef[] chosen = new ObjectDef[count];
+        int n = 0;
+        while (n < count) {
+            double r = random.nextDouble();
+            ObjectDef def = objects[(int) (objects.length * r * r)];
+            if (!contains(chosen, n, def)) {
+                chosen[n++] = def;
+            }
+        }
+        Arrays.sort(chosen, (a, b) -> Integer.compare(a.id, b.id));
+        List<Instance> out = new ArrayList<>(count + 2);
+        for (ObjectDef def : chosen) {
+            int instances = def.multipleInstances ? 1 + random.nextInt(MAX_INSTANCES) : 1;
+            for (int i = 0; i < instances; i++) {
+                out.add(new Instance(def, i));
+            }
+        }
+        return out;
+    }
+
+    /** The model of the endpoint's instance {@code objId/instId}, or null if it has no such instance. */
+    public ObjectDef object(int index, int objId, int instId) {
+        for (Instance instance : instances(index)) {
+            if (instance.object.id == objId && instance.instId == instId) {
+                return instance.object;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The resource's current value as a JSON literal: whatever was last written, otherwise a
+     * value of the model's type that drifts with {@code nowMs}.
+     */
+    public String value(int index, int objId, int instId, ResourceDef def, long nowMs) {
+        String stored = written.get(key(index, objId, instId, def.id));
+        if (stored != null) {
+            return stored;
+        }
+        long h = mix(seed ^ ((long) index << 32) ^ ((long) objId << 16) ^ ((long) instId << 12) ^ def.id);
+        double phase = (h & 0xffff) / 65536d * 2 * Math.PI;
+        double wave = Math.sin(nowMs / 600_000d + phase);
+        switch (def.resourceType) {
+            case FLOAT:
+                return String.format(Locale.ROOT, "%.2f", 20d + 10d * wave + (h >>> 16 & 0xff) / 64d);
+            case INTEGER:
+            case UNSIGNED_INTEGER:
+                return Long.toString(50L + Math.round(40d * wave));
+            case BOOLEAN:
+                return wave > 0 ? "true" : "false";
+            case TIME:
+                return Long.toString(nowMs / 1000L);
+            case OPAQUE:
+                return String.format(Locale.ROOT, "\"%016x\"", h);
+            case OBJLNK:
+                return "\"" + objId + ":" + instId + "\"";
+            default:
+                return "\"" + name(index) + "/" + objId + "/" + instId + "/" + def.id + "\"";
+        }
+    }
+
+    /** Replaces the resource's value until the fleet is discarded. */
+    public void write(int index, int objId, int instId, int resId, String jsonValue) {
+        written.put(key(index, objId, instId, resId), jsonValue);
+    }
+
+    public int writtenValues() {
+        return written.size();
+    }
+
+    /** Resources of {@code def} that can be read, i.e. have a value and allow R. */
+    public static List<ResourceDef> readableResources(ObjectDef def) {
+        List<ResourceDef> out = new ArrayList<>();
+        for (ResourceDef r : def.resources) {
+            if (r.isReadable() && !r.multiple && r.resourceType != ResourceType.NONE) {
+                out.add(r);
+            }
+        }
+        return out;
+    }
+
+    private static String key(int index, int objId, int instId, int resId) {
+        return index + "/" + objId + "/" + instId + "/" + resId;
+    }
+
+    private static boolean contains(ObjectDef[] defs, int n, ObjectDef def) {
+        for (int i = 0; i < n; i++) {
+            if (defs[i] == def) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void shuffle(ObjectDef[] defs, Random random) {
+        for (int i = defs.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            ObjectDef t = defs[i];
+            defs[i] = defs[j];
+            defs[j] = t;
+        }
+    }
+
+    // SplitMix64 finalizer, so neighbouring indices get unrelated values.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}